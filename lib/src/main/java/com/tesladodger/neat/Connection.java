@@ -155,13 +155,13 @@ public class Connection implements Cloneable, Comparable<Connection> {
     @Override
     public boolean equals (Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (!(o instanceof Connection)) return false;
         Connection x = (Connection) o;
         return innovationNumber == x.innovationNumber &&
                 inNodeId == x.inNodeId &&
                 outNodeId == x.outNodeId &&
-                weight == x.weight &&
-                enabled == x.enabled;
+                getWeight() == x.getWeight() &&
+                isEnabled() == x.isEnabled();
     }
 
     @Override
@@ -170,8 +170,8 @@ public class Connection implements Cloneable, Comparable<Connection> {
                 "innovNum=" + innovationNumber +
                 ", in=" + inNodeId +
                 ", out=" + outNodeId +
-                ", weight=" + weight +
-                ", enabled=" + enabled +
+                ", weight=" + getWeight() +
+                ", enabled=" + isEnabled() +
                 '}';
     }
 }
@@ -0,0 +1,183 @@
+package com.tesladodger.neat;
+
+import com.tesladodger.neat.utils.Parameters;
+
+
+/**
+ * Walks the genes of two genomes in order of innovation number to compute the terms of their
+ * compatibility, for both {@link Genome}s and {@link PackedGenome}s.
+ *
+ * @author tesla
+ * @since v1.2
+ */
+final class GeneDistance {
+
+    /**
+     * Genes of a genome, read by their index in order of innovation number.
+     */
+    interface Genes {
+
+        /**
+         * @return number of genes;
+         */
+        int numberOfGenes ();
+
+        /**
+         * @param gene index of a gene, in order of innovation number;
+         *
+         * @return innovation number of the gene;
+         */
+        int getInnovationNumber (int gene);
+
+        /**
+         * @param gene index of a gene, in order of innovation number;
+         *
+         * @return weight of the gene;
+         */
+        double getWeight (int gene);
+    }
+
+    private GeneDistance () {}
+
+    /**
+     * @param a first genome;
+     * @param b second genome;
+     * @param p parameters;
+     *
+     * @return compatibility value;
+     * @see Genome#compatibilityBetween(Genome, Genome, Parameters)
+     */
+    static float compatibility (Genes a, Genes b, Parameters p) {
+        // Number of excess genes
+        float E = excessGenes(a, b);
+
+        // Number of disjoint genes
+        float D = disjointGenes(a, b);
+
+        // Average weight difference of matching genes
+        float W = averageWeightDifference(a, b);
+
+        float N = 1;
+        if (a.numberOfGenes() > p.largeGenomeNormalizerThreshold
+                && b.numberOfGenes() > p.largeGenomeNormalizerThreshold) {
+            N = Math.max(a.numberOfGenes(), b.numberOfGenes());
+        }
+
+        float x1 = p.excessGenesCompatibilityCoefficient * E / N;
+        float x2 = p.disjointGenesCompatibilityCoefficient * D / N;
+        float x3 = p.averageWeightDifferenceCompatibilityCoefficient * W;
+
+        return x1 + x2 + x3;
+    }
+
+    /**
+     * @param a first genome;
+     * @param b second genome;
+     *
+     * @return number of excess genes;
+     */
+    static int excessGenes (Genes a, Genes b) {
+        int size1 = a.numberOfGenes();
+        int size2 = b.numberOfGenes();
+
+        // is one of them has no genes, return the number of genes of the other one
+        if (size1 == 0 || size2 == 0) {
+            return size1 + size2;
+        }
+
+        // if the last genes are equal, there are no excess genes
+        int innov1 = a.getInnovationNumber(size1 - 1);
+        int innov2 = b.getInnovationNumber(size2 - 1);
+        if (innov1 == innov2) {
+            return 0;
+        }
+
+        // Make a the one with excess genes
+        if (innov2 > innov1) {
+            Genes temp = a;
+            a = b;
+            b = temp;
+            size1 = size2;
+            innov2 = innov1;
+        }
+
+        int result = 1;
+        for (int i = size1 - 2; i >= 0 && innov2 < a.getInnovationNumber(i); i--) {
+            result++;
+        }
+
+        return result;
+    }
+
+    /**
+     * @param a first genome;
+     * @param b second genome;
+     *
+     * @return number of disjoint genes;
+     */
+    static int disjointGenes (Genes a, Genes b) {
+        int size1 = a.numberOfGenes();
+        int size2 = b.numberOfGenes();
+
+        if (size1 == 0 || size2 == 0) {
+            return 0;
+        }
+
+        int result = 0;
+        int i = 0;
+        int j = 0;
+        while (true) {
+            int innov1 = a.getInnovationNumber(i);
+            int innov2 = b.getInnovationNumber(j);
+            if (innov1 > innov2) {
+                result++;
+                if (++j == size2) break;
+            } else if (innov1 < innov2) {
+                result++;
+                if (++i == size1) break;
+            } else {
+                if (i + 1 == size1 || j + 1 == size2) break;
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param a first genome;
+     * @param b second genome;
+     *
+     * @return average weight difference of the matching genes;
+     */
+    static float averageWeightDifference (Genes a, Genes b) {
+        int size1 = a.numberOfGenes();
+        int size2 = b.numberOfGenes();
+
+        if (size1 == 0 || size2 == 0) {
+            return 0;
+        }
+
+        float sum = 0f;
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (true) {
+            int innov1 = a.getInnovationNumber(i);
+            int innov2 = b.getInnovationNumber(j);
+            if (innov1 == innov2) {
+                sum += Math.abs(a.getWeight(i) - b.getWeight(j));
+                count++;
+                if (i + 1 == size1 || j + 1 == size2) break;
+                i++;
+                j++;
+            } else if (innov1 > innov2) {
+                if (++j == size2) break;
+            } else {
+                if (++i == size1) break;
+            }
+        }
+
+        return count == 0 ? 0 : sum / count;
+    }
+}
@@ -7,10 +7,7 @@ import com.tesladodger.neat.utils.structures.ConnectionHashTable;
 import com.tesladodger.neat.utils.structures.NodeList;
 import com.tesladodger.neat.utils.functions.ActivationFunction;
 
-import java.lang.reflect.Field;
-import java.util.Iterator;
-import java.util.List;
-import java.util.ListIterator;
+import java.util.Arrays;
 import java.util.Random;
 
 
@@ -29,15 +26,29 @@ import java.util.Random;
  * <p>The actual topology choices are not a responsibility of this class. For example, using a
  * Bias node is a choice the client has to make, always taking care to set its input to 1.
  *
+ * <p>A {@link Genome#clone()} is packed: its nodes and genes are kept in primitive arrays, which
+ * are shared with its own clones, and it only has its own weights, enabled flags and node values.
+ * It's evaluated, has its weights mutated and is read through the node and gene accessors, like
+ * {@link Genome#getWeight(int)}, by the compilation, speciation and crossover, without creating
+ * any objects. Its nodes and connections are only created the first time they are requested,
+ * through {@link Genome#getNodes()} or {@link Genome#getConnections()}, for example by a
+ * structural mutation, and from then on it's the same as a genome built from them.
+ *
  * @see Node
  * @see Connection
  * @author tesla
  */
-public class Genome implements Cloneable, Comparable<Genome> {
+public class Genome implements Cloneable, Comparable<Genome>, GeneDistance.Genes {
+
+    /* Genes in this genome, organized in their respective data structures, null if packed. */
+    private NodeList nodes;
+    private ConnectionHashTable connections;
 
-    /* Genes in this genome, organized in their respective data structures. */
-    private final NodeList nodes;
-    private final ConnectionHashTable connections;
+    /* Nodes and genes of a packed genome, shared with its clones, and the values of its own. */
+    private Structure structure;
+    private double[] weights;
+    private boolean[] enabled;
+    private double[] values;
 
     /* Counters for number of nodes of each kind in this genome */
     private int inputNum;
@@ -63,7 +74,7 @@ public class Genome implements Cloneable, Comparable<Genome> {
      * @param node to add to this genome;
      */
     public void addNode (Node node) {
-        nodes.add(node);
+        getNodes().add(node);
         switch (node.getType()) {
             case INPUT -> inputNum++;
             case OUTPUT -> outputNum++;
@@ -87,7 +98,7 @@ public class Genome implements Cloneable, Comparable<Genome> {
      * @param connection to add to this genome;
      */
     public void addConnection (Connection connection) {
-        connections.addConnection(connection);
+        getConnections().addConnection(connection);
     }
 
     /**
@@ -130,13 +141,33 @@ public class Genome implements Cloneable, Comparable<Genome> {
      * @see Genome#calculateRawOutput(double[], ActivationFunction)
      */
     public double[] calculateOutput (double[] input, ActivationFunction function) {
-        double[] result = calculateRawOutput(input, function);
-        for (int i = 0; i < result.length; i++) {
-            result[i] = function.apply(result[i]);
-        }
+        double[] result = new double[outputNum];
+        calculateOutput(input, result, function);
         return result;
     }
 
+    /**
+     * Performs propagation of the inputs through the network, writing the outputs to a given
+     * array instead of creating a new one.
+     *
+     * <p>Apart from that, it's the same as
+     * {@link Genome#calculateOutput(double[], ActivationFunction)}. For a network that is
+     * evaluated many times without changing, see {@link com.tesladodger.neat.phenotype.Evaluator},
+     * which doesn't allocate any memory at all.
+     *
+     * @param input array of inputs;
+     * @param output array where the outputs are written, ordered by node id;
+     * @param function activation function;
+     *
+     * @throws IllegalArgumentException if the length of the input or output arrays doesn't
+     * correspond to the number of input or output nodes in this genome;
+     * @since v1.2
+     */
+    public void calculateOutput (double[] input, double[] output, ActivationFunction function) {
+        calculateRawOutput(input, output, function);
+        function.applyInPlace(output, 0, output.length);
+    }
+
     /**
      * Performs propagation of the inputs through the network.
      *
@@ -155,14 +186,41 @@ public class Genome implements Cloneable, Comparable<Genome> {
      * @since v1.1
      */
     public double[] calculateRawOutput (double[] input, ActivationFunction function) {
+        double[] result = new double[outputNum];
+        calculateRawOutput(input, result, function);
+        return result;
+    }
+
+    /**
+     * Performs propagation of the inputs through the network, writing the raw outputs to a given
+     * array instead of creating a new one.
+     *
+     * @param input array of inputs;
+     * @param output array where the raw outputs are written, ordered by node id;
+     * @param function activation function;
+     *
+     * @throws IllegalArgumentException if the length of the input or output arrays doesn't
+     * correspond to the number of input or output nodes in this genome;
+     * @see Genome#calculateRawOutput(double[], ActivationFunction)
+     * @since v1.2
+     */
+    public void calculateRawOutput (double[] input, double[] output, ActivationFunction function) {
         if (input.length != inputNum) {
             throw new IllegalArgumentException("Length of input array [" + input.length + "] does" +
                     " not correspond to number of input nodes [" + inputNum + "].");
         }
+        if (output.length != outputNum) {
+            throw new IllegalArgumentException("Length of output array [" + output.length + "] " +
+                    "does not correspond to number of output nodes [" + outputNum + "].");
+        }
+
+        if (structure != null) {
+            calculatePackedOutput(input, output, function);
+            return;
+        }
 
         int in = 0;
         int out = 0;
-        double[] result = new double[outputNum];
         for (Node node : nodes) {
             switch (node.getType()) {
                 case INPUT -> {
@@ -171,13 +229,12 @@ public class Genome implements Cloneable, Comparable<Genome> {
                 }
                 case HIDDEN -> propagateFromNode(node, function);
                 case OUTPUT -> {
-                    result[out++] = node.getOutput(x -> x);
+                    output[out++] = node.getOutput(x -> x);
                     // propagate from the outputs, because there might be backward connections
                     propagateFromNode(node, function);
                 }
             }
         }
-        return result;
     }
 
     /**
@@ -213,6 +270,68 @@ public class Genome implements Cloneable, Comparable<Genome> {
         }
     }
 
+    /**
+     * Performs propagation of the inputs through a packed genome, the same way as through the
+     * nodes and connections.
+     *
+     * @param input array of inputs;
+     * @param output array where the raw outputs are written;
+     * @param function activation function;
+     */
+    private void calculatePackedOutput (double[] input, double[] output,
+                                        ActivationFunction function) {
+        int in = 0;
+        int out = 0;
+        for (int i = 0; i < values.length; i++) {
+            switch (structure.nodeTypes[i]) {
+                case INPUT -> {
+                    values[i] += input[in++];
+                    propagateFromNode(i, function);
+                }
+                case HIDDEN -> propagateFromNode(i, function);
+                case OUTPUT -> {
+                    output[out++] = values[i];
+                    propagateFromNode(i, function);
+                }
+            }
+        }
+    }
+
+    /**
+     * Feed all nodes that a gene departing from a node of a packed genome leads to, and reset
+     * the node afterwards.
+     *
+     * @param node index of the node the genes depart from;
+     * @param function {@link ActivationFunction};
+     */
+    private void propagateFromNode (int node, ActivationFunction function) {
+        double output = function.apply(values[node]);
+
+        // if the node has a gene to itself, it must be restored after the node is reset
+        int geneToSelf = -1;
+
+        for (int k = structure.firstGene[node]; k < structure.firstGene[node + 1]; k++) {
+            int gene = structure.genes[k];
+            if (enabled[gene]) {
+                int target = structure.targets[k];
+                if (target == -1) {
+                    throw new IllegalTopologyException("Connection " +
+                            structure.innovationNumbers[gene] + " leads to node " +
+                            structure.outNodeIds[gene] + ", which is not present in the genome.");
+                }
+                if (target == node) {
+                    geneToSelf = gene;
+                }
+                values[target] += output * weights[gene];
+            }
+        }
+
+        values[node] = 0;
+        if (geneToSelf != -1) {
+            values[node] += output * weights[geneToSelf];
+        }
+    }
+
     /**
      * Calculate compatibility between two genomes. Used in speciation. The equation is {@code
      * (c1*E + c2*D)/N + c3*W}, where:
@@ -234,26 +353,7 @@ public class Genome implements Cloneable, Comparable<Genome> {
      * @return compatibility value;
      */
     public static float compatibilityBetween (Genome a, Genome b, Parameters p) {
-        // Number of excess genes
-        float E = excessGenesBetween(a, b);
-
-        // Number of disjoint genes
-        float D = disjointGenesBetween(a, b);
-
-        // Average weight difference of matching genes
-        float W = averageWeightDifferenceBetween(a, b);
-
-        float N = 1;
-        if (a.connections.size() > p.largeGenomeNormalizerThreshold
-                && b.connections.size() > p.largeGenomeNormalizerThreshold) {
-            N = Math.max(a.connections.size(), b.connections.size());
-        }
-
-        float x1 = p.excessGenesCompatibilityCoefficient * E / N;
-        float x2 = p.disjointGenesCompatibilityCoefficient * D / N;
-        float x3 = p.averageWeightDifferenceCompatibilityCoefficient * W;
-
-        return x1 + x2 + x3;
+        return GeneDistance.compatibility(a, b, p);
     }
 
     /**
@@ -265,35 +365,7 @@ public class Genome implements Cloneable, Comparable<Genome> {
      * @return number of excess genes;
      */
     public static int excessGenesBetween (Genome a, Genome b) {
-        List<Connection> cons1 = a.connections.asOrderedList();
-        List<Connection> cons2 = b.connections.asOrderedList();
-
-        // is one of them has no genes, return the number of genes of the other one
-        if (cons1.isEmpty() || cons2.isEmpty()) {
-            return cons1.size() + cons2.size();
-        }
-
-        // if the last genes are equal, there are no excess genes
-        ListIterator<Connection> it1 = cons1.listIterator(cons1.size());
-        ListIterator<Connection> it2 = cons2.listIterator(cons2.size());
-        int innov1 = it1.previous().getInnovationNumber();
-        int innov2 = it2.previous().getInnovationNumber();
-        if (innov1 == innov2) {
-            return 0;
-        }
-
-        // Make it1 is the one with excess genes
-        if (innov2 > innov1) {
-            it1 = it2;
-            innov2 = innov1;
-        }
-
-        int result = 1;
-        while (it1.hasPrevious() && innov2 < it1.previous().getInnovationNumber()) {
-            result++;
-        }
-
-        return result;
+        return GeneDistance.excessGenes(a, b);
     }
 
     /**
@@ -305,39 +377,7 @@ public class Genome implements Cloneable, Comparable<Genome> {
      * @return number of disjoint genes;
      */
     public static int disjointGenesBetween (Genome a, Genome b) {
-        List<Connection> cons1 = a.connections.asOrderedList();
-        List<Connection> cons2 = b.connections.asOrderedList();
-
-        if (cons1.isEmpty() || cons2.isEmpty()) {
-            return 0;
-        }
-
-        Iterator<Connection> it1 = cons1.iterator();
-        Iterator<Connection> it2 = cons2.iterator();
-
-        int result = 0;
-        Connection current1 = it1.next();
-        Connection current2 = it2.next();
-        while (true) {
-            if (current1.getInnovationNumber() > current2.getInnovationNumber()) {
-                result++;
-                if (it2.hasNext()) {
-                    current2 = it2.next();
-                } else break;
-            } else if (current1.getInnovationNumber() < current2.getInnovationNumber()) {
-                result++;
-                if (it1.hasNext()) {
-                    current1 = it1.next();
-                } else break;
-            } else {
-                if (!(it1.hasNext() && it2.hasNext())) break;
-                else {
-                    current1 = it1.next();
-                    current2 = it2.next();
-                }
-            }
-        }
-        return result;
+        return GeneDistance.disjointGenes(a, b);
     }
 
     /**
@@ -349,40 +389,7 @@ public class Genome implements Cloneable, Comparable<Genome> {
      * @return average weight difference;
      */
     public static float averageWeightDifferenceBetween (Genome a, Genome b) {
-        List<Connection> cons1 = a.connections.asOrderedList();
-        List<Connection> cons2 = b.connections.asOrderedList();
-
-        if (cons1.isEmpty() || cons2.isEmpty()) {
-            return 0;
-        }
-
-        Iterator<Connection> it1 = cons1.iterator();
-        Iterator<Connection> it2 = cons2.iterator();
-
-        float sum = 0f;
-        int count = 0;
-        Connection c1 = it1.next();
-        Connection c2 = it2.next();
-        while (true) {
-            if (c1.getInnovationNumber() == c2.getInnovationNumber()) {
-                sum += Math.abs(c1.getWeight() - c2.getWeight());
-                count++;
-                if (it1.hasNext() && it2.hasNext()) {
-                    c1 = it1.next();
-                    c2 = it2.next();
-                } else break;
-            } else if (c1.getInnovationNumber() > c2.getInnovationNumber()) {
-                if (it2.hasNext()) {
-                    c2 = it2.next();
-                } else break;
-            } else {
-                if (it1.hasNext()) {
-                    c1 = it1.next();
-                } else break;
-            }
-        }
-
-        return count == 0 ? 0 : sum / count;
+        return GeneDistance.averageWeightDifference(a, b);
     }
 
     /**
@@ -403,12 +410,12 @@ public class Genome implements Cloneable, Comparable<Genome> {
         if (inputNum == 0 || outputNum == 0) {
             throw new IllegalTopologyException("Attempt at fully connecting a genome without " +
                     "inputs or outputs.");
-        } else if (connections.size() != 0) {
+        } else if (numberOfGenes() != 0) {
             throw new IllegalTopologyException("Attempt at fully connecting a genome with some " +
                     "connections already present.");
         }
 
-        Node[] nA = nodes.asArray();
+        Node[] nA = getNodes().asArray();
         int lo = 0;
         int hi = 0;
         while (nA[0].getLayer() == nA[hi].getLayer()) hi++;
@@ -433,19 +440,258 @@ public class Genome implements Cloneable, Comparable<Genome> {
     }
 
     /**
+     * Get the nodes of this genome, to modify its structure.
+     *
+     * <p>If this genome is packed, its nodes and connections are created first, so callers that
+     * only read it should use {@link #numberOfNodes()} and the other index accessors instead.
+     *
      * @return {@link Node}s in this genome;
+     * @see Genome#clone()
      */
     public NodeList getNodes () {
+        if (structure != null) {
+            unpack();
+        }
         return nodes;
     }
 
     /**
+     * Get the connections of this genome, to modify its structure.
+     *
+     * <p>If this genome is packed, its nodes and connections are created first, so callers that
+     * only read it should use {@link #numberOfGenes()} and the other index accessors instead.
+     *
      * @return {@link Connection}s in this genome;
+     * @see Genome#clone()
      */
     public ConnectionHashTable getConnections () {
+        if (structure != null) {
+            unpack();
+        }
         return connections;
     }
 
+    /**
+     * @return true if this genome is kept in arrays, without nodes and connections;
+     */
+    boolean isPacked () {
+        return structure != null;
+    }
+
+    /**
+     * Replace the arrays of a packed genome with nodes and connections.
+     */
+    private void unpack () {
+        nodes = packedNodes();
+        connections = packedConnections();
+        structure = null;
+        weights = null;
+        enabled = null;
+        values = null;
+    }
+
+    /**
+     * @return nodes of a packed genome, with their values;
+     */
+    private NodeList packedNodes () {
+        NodeList result = new NodeList();
+        for (int i = 0; i < values.length; i++) {
+            Node node = new Node(structure.nodeIds[i], structure.nodeTypes[i],
+                    structure.nodeLayers[i]);
+            node.addInput(values[i]);
+            result.add(node);
+        }
+        return result;
+    }
+
+    /**
+     * @return connections of a packed genome;
+     */
+    private ConnectionHashTable packedConnections () {
+        ConnectionHashTable result = new ConnectionHashTable(weights.length);
+        for (int i = 0; i < weights.length; i++) {
+            result.addConnection(new Connection(structure.innovationNumbers[i],
+                    structure.inNodeIds[i], structure.outNodeIds[i], weights[i], enabled[i]));
+        }
+        return result;
+    }
+
+    /**
+     * @return number of nodes in this genome;
+     * @since v1.2
+     */
+    public int numberOfNodes () {
+        return structure == null ? nodes.size() : values.length;
+    }
+
+    /**
+     * @param node index of a node, in evaluation order;
+     *
+     * @return id of the node;
+     * @since v1.2
+     */
+    public int getNodeId (int node) {
+        return structure == null ? nodes.nodeAt(node).getId() : structure.nodeIds[node];
+    }
+
+    /**
+     * @param node index of a node, in evaluation order;
+     *
+     * @return type of the node;
+     * @since v1.2
+     */
+    public Node.Type getNodeType (int node) {
+        return structure == null ? nodes.nodeAt(node).getType() : structure.nodeTypes[node];
+    }
+
+    /**
+     * @param node index of a node, in evaluation order;
+     *
+     * @return layer of the node;
+     * @since v1.2
+     */
+    public int getNodeLayer (int node) {
+        return structure == null ? nodes.nodeAt(node).getLayer() : structure.nodeLayers[node];
+    }
+
+    /**
+     * @return number of genes ({@link Connection}s) in this genome;
+     * @since v1.2
+     */
+    public int numberOfGenes () {
+        return structure == null ? connections.size() : weights.length;
+    }
+
+    /**
+     * @param gene index of a gene, in order of innovation number;
+     *
+     * @return innovation number of the gene;
+     * @since v1.2
+     */
+    public int getInnovationNumber (int gene) {
+        return structure == null ?
+                connections.connectionAt(gene).getInnovationNumber() :
+                structure.innovationNumbers[gene];
+    }
+
+    /**
+     * @param gene index of a gene, in order of innovation number;
+     *
+     * @return id of the in-node of the gene;
+     * @since v1.2
+     */
+    public int getInNodeId (int gene) {
+        return structure == null ?
+                connections.connectionAt(gene).getInNodeId() : structure.inNodeIds[gene];
+    }
+
+    /**
+     * @param gene index of a gene, in order of innovation number;
+     *
+     * @return id of the out-node of the gene;
+     * @since v1.2
+     */
+    public int getOutNodeId (int gene) {
+        return structure == null ?
+                connections.connectionAt(gene).getOutNodeId() : structure.outNodeIds[gene];
+    }
+
+    /**
+     * @param gene index of a gene, in order of innovation number;
+     *
+     * @return weight of the gene;
+     * @since v1.2
+     */
+    public double getWeight (int gene) {
+        return structure == null ? connections.connectionAt(gene).getWeight() : weights[gene];
+    }
+
+    /**
+     * @param gene index of a gene, in order of innovation number;
+     * @param weight new weight of the gene;
+     * @since v1.2
+     */
+    public void setWeight (int gene, double weight) {
+        if (structure == null) {
+            connections.connectionAt(gene).setWeight(weight);
+        } else {
+            weights[gene] = weight;
+        }
+    }
+
+    /**
+     * @param gene index of a gene, in order of innovation number;
+     *
+     * @return whether the gene is enabled;
+     * @since v1.2
+     */
+    public boolean isEnabled (int gene) {
+        return structure == null ? connections.connectionAt(gene).isEnabled() : enabled[gene];
+    }
+
+    /**
+     * @param gene index of a gene, in order of innovation number;
+     * @param enabled whether the gene is enabled;
+     * @since v1.2
+     */
+    public void setEnabled (int gene, boolean enabled) {
+        if (structure == null) {
+            Connection con = connections.connectionAt(gene);
+            if (enabled) {
+                con.enable();
+            } else {
+                con.disable();
+            }
+        } else {
+            this.enabled[gene] = enabled;
+        }
+    }
+
+    /**
+     * Check if this genome has a gene between two nodes, without unpacking it.
+     *
+     * @param inNodeId id of the in-node;
+     * @param outNodeId id of the out-node;
+     *
+     * @return true if there is a gene from the in-node to the out-node;
+     * @since v1.2
+     */
+    public boolean containsConnection (int inNodeId, int outNodeId) {
+        if (structure == null) {
+            return connections.containsConnection(inNodeId, outNodeId);
+        }
+        int i = Structure.indexOf(structure.nodeIndex, inNodeId);
+        if (i == -1) {
+            for (int gene = 0; gene < weights.length; gene++) {
+                if (structure.inNodeIds[gene] == inNodeId
+                        && structure.outNodeIds[gene] == outNodeId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (int k = structure.firstGene[i]; k < structure.firstGene[i + 1]; k++) {
+            if (structure.outNodeIds[structure.genes[k]] == outNodeId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the genes of this genome in the order they are evaluated: grouped by in-node, in the
+     * order of the nodes, and for each node in the order of
+     * {@link ConnectionHashTable#getConnectionsFrom(int)}. Genes departing from a node that isn't
+     * in this genome are left out.
+     *
+     * @return index of each gene, in order of innovation number;
+     * @since v1.2
+     */
+    public int[] genesInEvaluationOrder () {
+        Structure s = structure == null ? new Structure(nodes, connections) : structure;
+        return s.genes.clone();
+    }
+
     /**
      * @return number of {@link Node.Type#INPUT}s in this genome;
      */
@@ -490,8 +736,12 @@ public class Genome implements Cloneable, Comparable<Genome> {
     }
 
     /**
-     * Deep copy of this genome. The returned genome is functionally identical to this one,
-     * though completely independent.
+     * Copy of this genome. The returned genome is functionally identical to this one, though
+     * completely independent.
+     *
+     * <p>The copy is packed: its nodes and genes are copied to primitive arrays, and a clone of
+     * a packed genome shares them, copying only its weights, enabled flags and node values. This
+     * genome isn't changed, and neither are the nodes and connections got from it.
      *
      * @return clone of this genome;
      */
@@ -499,28 +749,28 @@ public class Genome implements Cloneable, Comparable<Genome> {
     public Genome clone () {
         try {
             Genome clone = (Genome) super.clone();
-
-            Field nodesField = Genome.class.getDeclaredField("nodes");
-            nodesField.setAccessible(true);
-            nodesField.set(clone, new NodeList());
-            Field connectionsField = Genome.class.getDeclaredField("connections");
-            connectionsField.setAccessible(true);
-            connectionsField.set(clone, new ConnectionHashTable(connections.size()));
-
-            clone.inputNum = 0;
-            clone.hiddenNum = 0;
-            clone.outputNum = 0;
-
-            for (Connection con : connections.asOrderedList()) {
-                clone.addConnection(con.clone());
-            }
-
-            for (Node n : nodes) {
-                clone.addNode(n.clone());
+            if (structure == null) {
+                clone.structure = new Structure(nodes, connections);
+                clone.weights = new double[connections.size()];
+                clone.enabled = new boolean[connections.size()];
+                for (int i = 0; i < connections.size(); i++) {
+                    Connection con = connections.connectionAt(i);
+                    clone.weights[i] = con.getWeight();
+                    clone.enabled[i] = con.isEnabled();
+                }
+                clone.values = new double[nodes.size()];
+                for (int i = 0; i < nodes.size(); i++) {
+                    clone.values[i] = nodes.nodeAt(i).getOutput(x -> x);
+                }
+                clone.nodes = null;
+                clone.connections = null;
+            } else {
+                clone.weights = weights.clone();
+                clone.enabled = enabled.clone();
+                clone.values = values.clone();
             }
-
             return clone;
-        } catch (CloneNotSupportedException | NoSuchFieldException | IllegalAccessException e) {
+        } catch (CloneNotSupportedException e) {
             System.err.println(e.getMessage());
         }
         return null;
@@ -531,8 +781,24 @@ public class Genome implements Cloneable, Comparable<Genome> {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Genome x = (Genome) o;
-        return nodes.equals(x.nodes) && connections.equals(x.connections)
-                && inputNum == x.inputNum && hiddenNum == x.hiddenNum && outputNum == x.outputNum;
+        if (inputNum != x.inputNum || hiddenNum != x.hiddenNum || outputNum != x.outputNum
+                || numberOfNodes() != x.numberOfNodes() || numberOfGenes() != x.numberOfGenes()) {
+            return false;
+        }
+        for (int i = 0; i < numberOfNodes(); i++) {
+            if (getNodeId(i) != x.getNodeId(i) || getNodeType(i) != x.getNodeType(i)
+                    || getNodeLayer(i) != x.getNodeLayer(i)) {
+                return false;
+            }
+        }
+        for (int i = 0; i < numberOfGenes(); i++) {
+            if (getInnovationNumber(i) != x.getInnovationNumber(i)
+                    || getInNodeId(i) != x.getInNodeId(i) || getOutNodeId(i) != x.getOutNodeId(i)
+                    || getWeight(i) != x.getWeight(i) || isEnabled(i) != x.isEnabled(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -543,8 +809,95 @@ public class Genome implements Cloneable, Comparable<Genome> {
     @Override
     public String toString () {
         return "Genome{" +
-                "\n\tnodes=" + nodes +
-                ",\n\tconnections=" + connections +
+                "\n\tnodes=" + (structure == null ? nodes : packedNodes()) +
+                ",\n\tconnections=" + (structure == null ? connections : packedConnections()) +
                 "\n}";
     }
+
+    /**
+     * Nodes and genes of a packed genome in primitive arrays, which never change, so they are
+     * shared by the genome and its clones.
+     */
+    private static final class Structure {
+
+        /* Nodes, in evaluation order. */
+        private final int[] nodeIds;
+        private final Node.Type[] nodeTypes;
+        private final int[] nodeLayers;
+
+        /* Genes, ordered by innovation number. */
+        private final int[] innovationNumbers;
+        private final int[] inNodeIds;
+        private final int[] outNodeIds;
+
+        /* Genes departing from each node, in the order of the buckets of the connection table,
+         * starting at firstGene[i], with the index of their out-node, or -1 if it's missing. */
+        private final int[] firstGene;
+        private final int[] genes;
+        private final int[] targets;
+
+        /* Position of the first node with each id, or -1. */
+        private final int[] nodeIndex;
+
+        private Structure (NodeList nodes, ConnectionHashTable connections) {
+            int n = nodes.size();
+            nodeIds = new int[n];
+            nodeTypes = new Node.Type[n];
+            nodeLayers = new int[n];
+            int maxId = -1;
+            for (int i = 0; i < n; i++) {
+                Node node = nodes.nodeAt(i);
+                nodeIds[i] = node.getId();
+                nodeTypes[i] = node.getType();
+                nodeLayers[i] = node.getLayer();
+                maxId = Math.max(maxId, nodeIds[i]);
+            }
+
+            int size = connections.size();
+            innovationNumbers = new int[size];
+            inNodeIds = new int[size];
+            outNodeIds = new int[size];
+            for (int i = 0; i < size; i++) {
+                Connection con = connections.connectionAt(i);
+                innovationNumbers[i] = con.getInnovationNumber();
+                inNodeIds[i] = con.getInNodeId();
+                outNodeIds[i] = con.getOutNodeId();
+            }
+
+            int[] indexOf = new int[maxId + 1];
+            Arrays.fill(indexOf, -1);
+            for (int i = n - 1; i >= 0; i--) {
+                indexOf[nodeIds[i]] = i;
+            }
+            nodeIndex = indexOf;
+
+            // the buckets hold the genes from the highest innovation number to the lowest, so
+            // they are counted by in-node and placed from the last to the first
+            firstGene = new int[n + 1];
+            for (int in : inNodeIds) {
+                int i = indexOf(indexOf, in);
+                if (i != -1) {
+                    firstGene[i + 1]++;
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                firstGene[i + 1] += firstGene[i];
+            }
+            genes = new int[firstGene[n]];
+            targets = new int[firstGene[n]];
+            int[] next = Arrays.copyOf(firstGene, n);
+            for (int gene = size - 1; gene >= 0; gene--) {
+                int i = indexOf(indexOf, inNodeIds[gene]);
+                if (i != -1) {
+                    int k = next[i]++;
+                    genes[k] = gene;
+                    targets[k] = indexOf(indexOf, outNodeIds[gene]);
+                }
+            }
+        }
+
+        private static int indexOf (int[] indexOf, int id) {
+            return id >= 0 && id < indexOf.length ? indexOf[id] : -1;
+        }
+    }
 }
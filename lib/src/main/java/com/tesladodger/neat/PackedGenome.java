@@ -0,0 +1,355 @@
+package com.tesladodger.neat;
+
+import com.tesladodger.neat.utils.GeneDictionary;
+import com.tesladodger.neat.utils.Parameters;
+
+import java.util.BitSet;
+
+
+/**
+ * Compact copy of a {@link Genome}, with its genes stored in parallel primitive arrays.
+ *
+ * <p>Every gene of a genome is a {@link Connection} object, referenced from the bucket of its
+ * in-node and from the ordered array of the genome's connection table: for about 20 bytes of
+ * payload, a gene takes several times that in object headers and references. Here, the
+ * innovation numbers, node ids and weights of the genes are in arrays ordered by innovation
+ * number, and the enabled flags in a {@link BitSet}, so a large population can be kept on a
+ * fraction of the heap, for example between generations, or in an archive of champions.
+ *
+ * <p>The genes are still available as connections: {@link PackedGenome#getConnection(int)}
+ * returns a small view that reads and writes the arrays. The structure is fixed, only the weights
+ * and the enabled flags can be changed. The distance between packed genomes is computed by the
+ * same walk over the innovation numbers as
+ * {@link Genome#compatibilityBetween(Genome, Genome, Parameters)}.
+ *
+ * <p>Since an innovation number always stands for the same pair of nodes, packed genomes can
+ * leave the node ids of their genes out, and look them up in the {@link GeneDictionary} of the
+ * population's {@link com.tesladodger.neat.utils.InnovationHistory} instead. That takes a gene
+ * from 20 bytes to 12, and the dictionary is shared by the whole population.
+ *
+ * <pre>{@code
+ * PackedGenome packed = new PackedGenome(genome, history.getGeneDictionary());
+ * // ...
+ * Genome copy = packed.unpack();
+ * }</pre>
+ *
+ * @author tesla
+ * @since v1.2
+ */
+public class PackedGenome implements GeneDistance.Genes {
+
+    /* Nodes, in the order of the genome's node list. */
+    private final int[] nodeIds;
+    private final Node.Type[] nodeTypes;
+    private final int[] nodeLayers;
+
+    /* Genes, ordered by innovation number, without node ids if they are in the dictionary. */
+    private final int[] innovationNumbers;
+    private final int[] inNodeIds;
+    private final int[] outNodeIds;
+    private final double[] weights;
+    private final BitSet enabled;
+    private final GeneDictionary dictionary;
+
+    private double fitness;
+
+    /**
+     * Pack a genome, with the node ids of its genes. The packed genome is independent of it.
+     *
+     * @param genome to pack;
+     */
+    public PackedGenome (Genome genome) {
+        this(genome, null);
+    }
+
+    /**
+     * Pack a genome, looking up the node ids of its genes in a dictionary. The packed genome is
+     * independent of it.
+     *
+     * <p>Genes that aren't in the dictionary, such as those of a genome loaded from a file, are
+     * registered.
+     *
+     * @param genome to pack;
+     * @param dictionary with the node ids of the genes, usually that of the population's
+     *                   history, or null to store them in this genome;
+     *
+     * @throws IllegalArgumentException if the dictionary has other nodes for the innovation
+     * number of a gene;
+     */
+    public PackedGenome (Genome genome, GeneDictionary dictionary) {
+        int n = genome.numberOfNodes();
+        nodeIds = new int[n];
+        nodeTypes = new Node.Type[n];
+        nodeLayers = new int[n];
+        for (int i = 0; i < n; i++) {
+            nodeIds[i] = genome.getNodeId(i);
+            nodeTypes[i] = genome.getNodeType(i);
+            nodeLayers[i] = genome.getNodeLayer(i);
+        }
+
+        int size = genome.numberOfGenes();
+        innovationNumbers = new int[size];
+        inNodeIds = dictionary == null ? new int[size] : null;
+        outNodeIds = dictionary == null ? new int[size] : null;
+        weights = new double[size];
+        enabled = new BitSet(size);
+        this.dictionary = dictionary;
+        for (int i = 0; i < size; i++) {
+            innovationNumbers[i] = genome.getInnovationNumber(i);
+            if (dictionary == null) {
+                inNodeIds[i] = genome.getInNodeId(i);
+                outNodeIds[i] = genome.getOutNodeId(i);
+            } else {
+                dictionary.register(innovationNumbers[i], genome.getInNodeId(i),
+                        genome.getOutNodeId(i));
+            }
+            weights[i] = genome.getWeight(i);
+            enabled.set(i, genome.isEnabled(i));
+        }
+        fitness = genome.getFitness();
+    }
+
+    /**
+     * Create a genome with the nodes and genes of this one, and its fitness.
+     *
+     * @return new genome, independent of this one;
+     */
+    public Genome unpack () {
+        Genome result = new Genome();
+        for (int i = 0; i < innovationNumbers.length; i++) {
+            result.addConnection(new Connection(innovationNumbers[i], getInNodeId(i),
+                    getOutNodeId(i), weights[i], enabled.get(i)));
+        }
+        for (int i = 0; i < nodeIds.length; i++) {
+            result.addNode(new Node(nodeIds[i], nodeTypes[i], nodeLayers[i]));
+        }
+        result.setFitness(fitness);
+        return result;
+    }
+
+    /**
+     * Get a gene as a connection, whose weight and enabled flag are those of this genome.
+     *
+     * <p>The view is a small object that refers to this genome: changing its weight, or enabling
+     * or disabling it, changes this genome. Its clone is an independent connection.
+     *
+     * @param gene index of the gene, in order of innovation number;
+     *
+     * @return view of the gene;
+     * @throws IndexOutOfBoundsException if the index is not in [0, numberOfGenes());
+     */
+    public Connection getConnection (int gene) {
+        return new ConnectionView(this, gene);
+    }
+
+    /**
+     * @param gene index of a gene, in order of innovation number;
+     *
+     * @return innovation number of the gene;
+     */
+    public int getInnovationNumber (int gene) {
+        return innovationNumbers[gene];
+    }
+
+    /**
+     * @param gene index of a gene, in order of innovation number;
+     *
+     * @return id of the in-node of the gene;
+     */
+    public int getInNodeId (int gene) {
+        return inNodeIds != null ? inNodeIds[gene] :
+                dictionary.getInNodeId(innovationNumbers[gene]);
+    }
+
+    /**
+     * @param gene index of a gene, in order of innovation number;
+     *
+     * @return id of the out-node of the gene;
+     */
+    public int getOutNodeId (int gene) {
+        return outNodeIds != null ? outNodeIds[gene] :
+                dictionary.getOutNodeId(innovationNumbers[gene]);
+    }
+
+    /**
+     * @param gene index of a gene, in order of innovation number;
+     *
+     * @return weight of the gene;
+     */
+    public double getWeight (int gene) {
+        return weights[gene];
+    }
+
+    /**
+     * @param gene index of a gene, in order of innovation number;
+     * @param weight new weight of the gene;
+     */
+    public void setWeight (int gene, double weight) {
+        weights[gene] = weight;
+    }
+
+    /**
+     * @param gene index of a gene, in order of innovation number;
+     *
+     * @return whether the gene is enabled;
+     */
+    public boolean isEnabled (int gene) {
+        checkGene(gene);
+        return enabled.get(gene);
+    }
+
+    /**
+     * @param gene index of a gene, in order of innovation number;
+     * @param enabled whether the gene is enabled;
+     */
+    public void setEnabled (int gene, boolean enabled) {
+        checkGene(gene);
+        this.enabled.set(gene, enabled);
+    }
+
+    /**
+     * The bit set grows past the genes, so its indexes are checked against the arrays.
+     */
+    private void checkGene (int gene) {
+        if (gene < 0 || gene >= innovationNumbers.length) {
+            throw new IndexOutOfBoundsException("Gene [" + gene + "] must be in [0, " +
+                    innovationNumbers.length + ").");
+        }
+    }
+
+    /**
+     * @return dictionary the node ids of the genes are looked up in, null if they are stored in
+     * this genome;
+     */
+    public GeneDictionary getGeneDictionary () {
+        return dictionary;
+    }
+
+    /**
+     * @return number of genes of this genome;
+     */
+    public int numberOfGenes () {
+        return innovationNumbers.length;
+    }
+
+    /**
+     * @return number of nodes of this genome;
+     */
+    public int numberOfNodes () {
+        return nodeIds.length;
+    }
+
+    /**
+     * @return fitness of the genome;
+     */
+    public double getFitness () {
+        return fitness;
+    }
+
+    /**
+     * @param fitness new fitness of the genome;
+     */
+    public void setFitness (double fitness) {
+        this.fitness = fitness;
+    }
+
+    /**
+     * Calculate the compatibility between two packed genomes, the same way as
+     * {@link Genome#compatibilityBetween(Genome, Genome, Parameters)}.
+     *
+     * @param a first genome;
+     * @param b second genome;
+     * @param p parameters;
+     *
+     * @return compatibility value;
+     */
+    public static float compatibilityBetween (PackedGenome a, PackedGenome b, Parameters p) {
+        return GeneDistance.compatibility(a, b, p);
+    }
+
+    /**
+     * Count the number of excess genes between two packed genomes.
+     *
+     * @param a first genome;
+     * @param b second genome;
+     *
+     * @return number of excess genes;
+     * @see Genome#excessGenesBetween(Genome, Genome)
+     */
+    public static int excessGenesBetween (PackedGenome a, PackedGenome b) {
+        return GeneDistance.excessGenes(a, b);
+    }
+
+    /**
+     * Count the number of disjoint genes between two packed genomes.
+     *
+     * @param a first genome;
+     * @param b second genome;
+     *
+     * @return number of disjoint genes;
+     * @see Genome#disjointGenesBetween(Genome, Genome)
+     */
+    public static int disjointGenesBetween (PackedGenome a, PackedGenome b) {
+        return GeneDistance.disjointGenes(a, b);
+    }
+
+    /**
+     * Calculate the average weight difference between matching genes of two packed genomes.
+     *
+     * @param a first genome;
+     * @param b second genome;
+     *
+     * @return average weight difference;
+     * @see Genome#averageWeightDifferenceBetween(Genome, Genome)
+     */
+    public static float averageWeightDifferenceBetween (PackedGenome a, PackedGenome b) {
+        return GeneDistance.averageWeightDifference(a, b);
+    }
+
+    /**
+     * Connection whose weight and enabled flag are in a packed genome.
+     */
+    private static final class ConnectionView extends Connection {
+
+        private final PackedGenome genome;
+        private final int gene;
+
+        private ConnectionView (PackedGenome genome, int gene) {
+            super(genome.innovationNumbers[gene], genome.getInNodeId(gene),
+                    genome.getOutNodeId(gene));
+            this.genome = genome;
+            this.gene = gene;
+        }
+
+        @Override
+        public double getWeight () {
+            return genome.weights[gene];
+        }
+
+        @Override
+        public void setWeight (double weight) {
+            genome.weights[gene] = weight;
+        }
+
+        @Override
+        public void enable () {
+            genome.enabled.set(gene);
+        }
+
+        @Override
+        public void disable () {
+            genome.enabled.clear(gene);
+        }
+
+        @Override
+        public boolean isEnabled () {
+            return genome.enabled.get(gene);
+        }
+
+        @Override
+        public Connection clone () {
+            return new Connection(getInnovationNumber(), getInNodeId(), getOutNodeId(),
+                    getWeight(), isEnabled());
+        }
+    }
+}
@@ -350,6 +350,14 @@ public class Population {
         return result;
     }
 
+    /**
+     * @return parameters of this population;
+     * @since v1.2
+     */
+    public Parameters getParameters () {
+        return params;
+    }
+
     /**
      * @return list of species in this population;
      */
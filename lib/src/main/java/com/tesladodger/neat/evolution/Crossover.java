@@ -7,9 +7,6 @@ import com.tesladodger.neat.utils.Parameters;
 import com.tesladodger.neat.utils.structures.ConnectionHashTable;
 import com.tesladodger.neat.utils.structures.NodeList;
 
-import java.util.Iterator;
-import java.util.List;
-import java.util.ListIterator;
 import java.util.Random;
 
 
@@ -50,57 +47,63 @@ public class Crossover {
             parent2 = temp;
         }
 
-        List<Connection> p1Cons = parent1.getConnections().asOrderedList();
-        List<Connection> p2Cons = parent2.getConnections().asOrderedList();
-        ListIterator<Connection> it1 = p1Cons.listIterator();
-        ListIterator<Connection> it2 = p2Cons.listIterator();
+        // the parents are read through the gene accessors, so packed ones stay packed
+        int size1 = parent1.numberOfGenes();
+        int size2 = parent2.numberOfGenes();
+        int i = 0;
+        int j = 0;
 
-        while (it1.hasNext() && it2.hasNext()) {
-            Connection c1 = it1.next();
-            Connection c2 = it2.next();
-            if (c1.getInnovationNumber() == c2.getInnovationNumber()) {
+        while (i < size1 && j < size2) {
+            int innov1 = parent1.getInnovationNumber(i);
+            int innov2 = parent2.getInnovationNumber(j);
+            if (innov1 == innov2) {
 
                 // Matching Gene Inheritance
                 float r = rand.nextFloat();
                 boolean chance = r < .5 + (fittest == 0 ? 0 : p.fittestParentBias);
-                Connection con = chance ? c1.clone() : c2.clone();
-                if (!c1.isEnabled() && !c2.isEnabled()) {
+                Connection con = chance ? geneOf(parent1, i) : geneOf(parent2, j);
+                boolean enabled1 = parent1.isEnabled(i);
+                boolean enabled2 = parent2.isEnabled(j);
+                if (!enabled1 && !enabled2) {
                     if (rand.nextFloat() < p.reEnableGeneProbability) {
                         con.enable();
                     }
-                } else if (!c1.isEnabled() || !c2.isEnabled()) {
+                } else if (!enabled1 || !enabled2) {
                     con.enable();
                     if (rand.nextFloat() < p.disableGeneProbability) {
                         con.disable();
                     }
                 }
                 child.addConnection(con);
+                i++;
+                j++;
             } else {
 
                 // Disjoint Gene Inheritance
-                Connection disExcCon = c1.getInnovationNumber() < c2.getInnovationNumber() ?
-                        c1 : c2;
                 // If both genomes have the same fitness, disjoint and excess genes are inherited
                 // from both parents. Otherwise, genes are only inherited from the fittest, which
                 // is parent1
-                if (disExcCon == c1) {
-                    child.addConnection(disExcCon.clone());
-                    it2.previous();
+                if (innov1 < innov2) {
+                    child.addConnection(geneOf(parent1, i++));
                 } else {
                     if (fittest == 0) {
-                        child.addConnection(disExcCon.clone());
+                        child.addConnection(geneOf(parent2, j));
                     }
-                    it1.previous();
+                    j++;
                 }
             }
         }
 
         // Excess genes are inherited from parent1, which is the fittest or at least has the same
         // fitness as parent2
-        it1.forEachRemaining(next -> child.addConnection(next.clone()));
+        for (; i < size1; i++) {
+            child.addConnection(geneOf(parent1, i));
+        }
         // if the fitness is the same, inherit from parent2 as well
         if (fittest == 0) {
-            it2.forEachRemaining(next -> child.addConnection(next.clone()));
+            for (; j < size2; j++) {
+                child.addConnection(geneOf(parent2, j));
+            }
         }
 
         addNodesToChild(child, parent1);
@@ -114,13 +117,15 @@ public class Crossover {
     static void addNodesToChild (Genome child, Genome parent) {
         // Add the inputs and outputs, which are always the same
         int inputs = parent.numberOfInputs();
-        Iterator<Node> parentNodeIt = parent.getNodes().iterator();
-        while (inputs-- > 0) {
-            Node inputNodeClone = parentNodeIt.next().clone();
-            child.addNode(inputNodeClone);
+        for (int i = 0; i < inputs; i++) {
+            child.addNode(new Node(parent.getNodeId(i), parent.getNodeType(i),
+                    parent.getNodeLayer(i)));
         }
-        for (Node output : parent.getNodes().getOutputs()) {
-            child.addNode(output.clone());
+        for (int i = 0; i < parent.numberOfNodes(); i++) {
+            if (parent.getNodeType(i) == Node.Type.OUTPUT) {
+                child.addNode(new Node(parent.getNodeId(i), Node.Type.OUTPUT,
+                        parent.getNodeLayer(i)));
+            }
         }
         // Propagate from the inputs, fixing the layers
         Node[] childNodes = child.getNodes().asArray();
@@ -177,6 +182,17 @@ public class Crossover {
         }
     }
 
+    /**
+     * @param genome parent;
+     * @param gene index of a gene of the parent;
+     *
+     * @return new connection with the values of the gene;
+     */
+    private static Connection geneOf (Genome genome, int gene) {
+        return new Connection(genome.getInnovationNumber(gene), genome.getInNodeId(gene),
+                genome.getOutNodeId(gene), genome.getWeight(gene), genome.isEnabled(gene));
+    }
+
     /**
      * Compare 2 genomes according to their fitness.
      *
@@ -73,27 +73,28 @@ public class Mutation {
      * @return true if a new node was inserted, false otherwise;
      */
     public static boolean addNodeMutation (Genome genome, InnovationHistory history, Random rand) {
-        ConnectionHashTable connections = genome.getConnections();
-        if (connections.isEmpty()) {
+        if (genome.numberOfGenes() == 0) {
             return false;
         }
 
-        Connection[] conArray = connections.asArray();
+        // the genes are read by index, so a packed genome is only unpacked if one is separated
+        Integer[] genes = indices(genome.numberOfGenes());
         // shuffle the array
-        Arrays.shuffle(conArray, 0, conArray.length, rand);
+        Arrays.shuffle(genes, 0, genes.length, rand);
+        int[] layers = layersById(genome);
 
-        for (Connection con : conArray) {
+        for (int gene : genes) {
             // if the connection is disabled, continue
-            if (!con.isEnabled()) {
+            if (!genome.isEnabled(gene)) {
                 continue;
             }
 
-            int inLayer = genome.getNodes().get(con.getInNodeId()).getLayer();
-            int outLayer = genome.getNodes().get(con.getOutNodeId()).getLayer();
+            int inLayer = layers[genome.getInNodeId(gene)];
+            int outLayer = layers[genome.getOutNodeId(gene)];
 
             // if the connection is not recursive, proceed with the mutation and return
             if (inLayer < outLayer) {
-                addNodeMutation(genome, con, history);
+                addNodeMutation(genome, genome.getConnections().connectionAt(gene), history);
                 return true;
             }
         }
@@ -185,15 +186,17 @@ public class Mutation {
         boolean recursive = rand.nextFloat() < p.recursiveConnectionProbability;
         int inputNum = genome.numberOfInputs();
         int outputNum = genome.numberOfOutputs();
-        Node[] nodes = genome.getNodes().asArray();
+        // the nodes are read by index, so a packed genome is only unpacked if a connection is
+        // created
+        Integer[] nodes = indices(genome.numberOfNodes());
 
         // create a new array with only the nodes connection can be created from
-        Node[] properNodes;
+        Integer[] properNodes;
         if (recursive) {
-            properNodes = new Node[nodes.length - inputNum];
+            properNodes = new Integer[nodes.length - inputNum];
             System.arraycopy(nodes, inputNum, properNodes, 0, properNodes.length);
         } else {
-            properNodes = new Node[nodes.length - outputNum];
+            properNodes = new Integer[nodes.length - outputNum];
             System.arraycopy(nodes, 0, properNodes, 0, properNodes.length);
         }
 
@@ -204,12 +207,16 @@ public class Mutation {
 
         // loop the proper nodes array: if a connection can be created between a node and another
         // present in the nodes array, create it and return
-        for (Node in : properNodes) {
-            for (Node out : nodes) {
+        for (int in : properNodes) {
+            Node.Type inType = genome.getNodeType(in);
+            int inLayer = genome.getNodeLayer(in);
+            for (int out : nodes) {
+                Node.Type outType = genome.getNodeType(out);
+                int outLayer = genome.getNodeLayer(out);
 
                 // if both nodes are inputs or outputs
-                if ((in.getType().equals(Node.Type.INPUT) && out.getType().equals(Node.Type.INPUT)) ||
-                        (in.getType().equals(Node.Type.OUTPUT) && out.getType().equals(Node.Type.OUTPUT))) {
+                if ((inType == Node.Type.INPUT && outType == Node.Type.INPUT) ||
+                        (inType == Node.Type.OUTPUT && outType == Node.Type.OUTPUT)) {
                     // if the type is not-recursive, continue: no inputs or outputs can be
                     // connected to other inputs or outputs;
                     // if it is recursive, in and out should be the same node: a recursive
@@ -221,20 +228,21 @@ public class Mutation {
 
                 if (recursive) {
                     // if the proposed order is progressive, continue
-                    if (in.getLayer() < out.getLayer() ||
-                            (in != out && in.getLayer() == out.getLayer())) {
+                    if (inLayer < outLayer || (in != out && inLayer == outLayer)) {
                         continue;
                     }
                 } else {
                     // if proposed order is recursive, continue
-                    if (in == out || in.getLayer() > out.getLayer()) {
+                    if (in == out || inLayer > outLayer) {
                         continue;
                     }
                 }
 
                 // if the connection doesn't exist, call the method and return
-                if (!genome.getConnections().containsConnection(in.getId(), out.getId())) {
-                    addConnectionMutation(genome, in.getId(), out.getId(), history, p, rand);
+                int inId = genome.getNodeId(in);
+                int outId = genome.getNodeId(out);
+                if (!genome.containsConnection(inId, outId)) {
+                    addConnectionMutation(genome, inId, outId, history, p, rand);
                     return true;
                 }
             }
@@ -243,6 +251,36 @@ public class Mutation {
         return false;
     }
 
+    /**
+     * @param n length of the array;
+     *
+     * @return array with the indices from 0 to {@code n}, to be shuffled;
+     */
+    private static Integer[] indices (int n) {
+        Integer[] result = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = i;
+        }
+        return result;
+    }
+
+    /**
+     * @param genome to read;
+     *
+     * @return layer of each node of the genome, by id;
+     */
+    private static int[] layersById (Genome genome) {
+        int maxId = -1;
+        for (int i = 0; i < genome.numberOfNodes(); i++) {
+            maxId = Math.max(maxId, genome.getNodeId(i));
+        }
+        int[] result = new int[maxId + 1];
+        for (int i = 0; i < genome.numberOfNodes(); i++) {
+            result[genome.getNodeId(i)] = genome.getNodeLayer(i);
+        }
+        return result;
+    }
+
     /**
      * Add a new connection, between two nodes or recursively to the same node, with a random
      * weight between -10 and 10.
@@ -300,24 +338,26 @@ public class Mutation {
      */
     public static boolean mutateWeights (Genome genome, InnovationHistory history, Parameters p,
                                          Random rand) {
-        if (genome.getConnections().isEmpty()) {
+        int genes = genome.numberOfGenes();
+        if (genes == 0) {
             return false;
         }
 
         Function<Integer, Double> powerFunction = EvolutionUtils.calculateMutationPowerFunction(p,
-                genome.getConnections().size());
+                genes);
 
-        for (Connection con : genome.getConnections().asArray()) {
+        // through the gene accessors, so a packed clone keeps its structure shared
+        for (int i = 0; i < genes; i++) {
             double r = rand.nextDouble();
             if (r <= p.newRandomWeightValueProbability) {
                 double range = p.weightUpperBound - p.weightLowerBound;
-                con.setWeight(rand.nextDouble()
+                genome.setWeight(i, rand.nextDouble()
                         * range + p.weightLowerBound);
             } else {
                 double normalOffset = rand.nextGaussian();
-                int age = history.getConnectionAge(con.getInNodeId(), con.getOutNodeId());
+                int age = history.getConnectionAge(genome.getInNodeId(i), genome.getOutNodeId(i));
                 double power = powerFunction.apply(age);
-                con.setWeight(con.getWeight() + normalOffset * power);
+                genome.setWeight(i, genome.getWeight(i) + normalOffset * power);
             }
         }
         return true;
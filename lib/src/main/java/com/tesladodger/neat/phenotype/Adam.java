@@ -0,0 +1,47 @@
+package com.tesladodger.neat.phenotype;
+
+
+/**
+ * State of the Adam optimizer for a vector of weights: gradient descent where each weight has
+ * its own step size, scaled by the running averages of its gradient and of its square.
+ *
+ * @author tesla
+ * @since v1.2
+ */
+final class Adam {
+
+    private final double[] mean;
+    private final double[] scale;
+    private int updates;
+
+    /**
+     * @param size number of weights;
+     */
+    Adam (int size) {
+        mean = new double[size];
+        scale = new double[size];
+    }
+
+    /**
+     * Move the weights against their gradient.
+     *
+     * @param weights to update;
+     * @param gradient of each weight;
+     * @param learningRate about the largest change of a weight;
+     * @param momentum decay of the running average of the gradient;
+     * @param scaleDecay decay of the running average of the square of the gradient;
+     */
+    void step (double[] weights, double[] gradient, double learningRate, double momentum,
+               double scaleDecay) {
+        // bias corrections of the averages, which start at 0
+        updates++;
+        double step = learningRate * Math.sqrt(1 - Math.pow(scaleDecay, updates)) /
+                (1 - Math.pow(momentum, updates));
+        for (int i = 0; i < weights.length; i++) {
+            double g = gradient[i];
+            mean[i] = momentum * mean[i] + (1 - momentum) * g;
+            scale[i] = scaleDecay * scale[i] + (1 - scaleDecay) * g * g;
+            weights[i] -= step * mean[i] / (Math.sqrt(scale[i]) + 1e-8);
+        }
+    }
+}
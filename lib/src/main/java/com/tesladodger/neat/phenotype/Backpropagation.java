@@ -0,0 +1,616 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.Population;
+import com.tesladodger.neat.Species;
+import com.tesladodger.neat.utils.Parameters;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * Refines the weights of evolved networks by gradient descent on a dataset.
+ *
+ * <p>Evolution is good at finding a topology, but slow at tuning its weights: on supervised
+ * tasks, it takes many generations to do what a few gradient steps do. This computes the gradient
+ * of the mean squared error of the outputs in reverse mode over the {@link Phenotype} of a genome,
+ * following exactly the propagation it evaluates, and updates the weights of its enabled
+ * connections with Adam: gradient descent where each weight has its own step size, scaled by the
+ * running averages of its gradient and of its square. Adam copes with the very different
+ * scales of the gradients of an evolved network, whose weights were never normalized.
+ *
+ * <p>The dataset is a set of sequences, each evaluated from a clear state, with a target for the
+ * outputs at each step (the outputs of the steps with a null target aren't scored). Rows of a
+ * feed-forward dataset are sequences of a single step. Through recursive connections, the
+ * gradient flows back in time for at most {@link Backpropagation#truncation} steps: long
+ * sequences are split into windows of that many steps, whose first step takes the values left by
+ * the window before it as constants (truncated backpropagation through time).
+ *
+ * <p>The trained weights are only kept if they lower the error over the dataset. If
+ * {@link Backpropagation#lamarckian}, they are written back to the connections of the genome, so
+ * that its offspring inherit them; otherwise the genome is left as it was, and only the returned
+ * phenotype has them. In both cases, the fitness of the genome isn't changed: it should be
+ * evaluated again.
+ *
+ * <pre>{@code
+ * Backpropagation backpropagation = new Backpropagation(function);
+ * evaluate(genomes);
+ * // refine the two best genomes of each species, in parallel, and evaluate them again
+ * for (Backpropagation.Result result : backpropagation.trainSpecies(population, genomes, 2,
+ *         inputs, targets)) {
+ *     evaluate(result.getGenome());
+ * }
+ * genomes = population.nextGeneration(genomes, history);
+ * }</pre>
+ *
+ * <p>The parameters can be changed between calls, but not during one. A call doesn't change the
+ * state of this object, so the same instance can train many genomes concurrently.
+ *
+ * @see ActivationFunction#derivative(double)
+ * @author tesla
+ * @since v1.2
+ */
+public class Backpropagation {
+
+    /** Number of passes over the dataset. */
+    public int epochs = 100;
+
+    /** Number of sequences whose gradients are averaged for each update of the weights. */
+    public int batchSize = 32;
+
+    /** Size of the steps, about the largest change of a weight in an update. */
+    public double learningRate = .01;
+
+    /** Decay of the running average of the gradient of each weight. */
+    public double momentum = .9;
+
+    /** Decay of the running average of the square of the gradient of each weight. */
+    public double scaleDecay = .999;
+
+    /** Maximum number of steps the gradient flows back through recursive connections. */
+    public int truncation = 16;
+
+    /** Whether the trained weights are written back to the genome. */
+    public boolean lamarckian = true;
+
+    private final ActivationFunction function;
+
+    /**
+     * Create a trainer for networks evaluated with an activation function.
+     *
+     * @param function activation function, with a {@link ActivationFunction#derivative(double)};
+     */
+    public Backpropagation (ActivationFunction function) {
+        this.function = function;
+    }
+
+    /**
+     * Train a genome on a feed-forward dataset, where each row is evaluated from a clear state.
+     *
+     * @param genome to train;
+     * @param inputs matrix of inputs, one row per sample;
+     * @param targets matrix of the expected outputs, one row per row of {@code inputs};
+     *
+     * @return result of the training;
+     * @throws IllegalArgumentException if the dimensions of the matrices don't correspond to
+     * each other or to the number of input and output nodes of the genome;
+     * @throws com.tesladodger.neat.utils.exceptions.IllegalTopologyException if an enabled
+     * connection leads to a node that doesn't exist in the genome;
+     */
+    public Result train (Genome genome, double[][] inputs, double[][] targets) {
+        return train(genome, sequences(inputs), sequences(targets));
+    }
+
+    /**
+     * Train a genome on a dataset of sequences.
+     *
+     * @param genome to train;
+     * @param inputs inputs of each step of each sequence;
+     * @param targets expected outputs of each step of each sequence, or null for the steps that
+     *                aren't scored;
+     *
+     * @return result of the training;
+     * @throws IllegalArgumentException if the dimensions of the arrays don't correspond to each
+     * other or to the number of input and output nodes of the genome;
+     * @throws com.tesladodger.neat.utils.exceptions.IllegalTopologyException if an enabled
+     * connection leads to a node that doesn't exist in the genome;
+     */
+    public Result train (Genome genome, double[][][] inputs, double[][][] targets) {
+        // the enabled genes, in the order their slots are recorded
+        int[] genes = genome.genesInEvaluationOrder();
+        int enabled = 0;
+        for (int gene : genes) {
+            if (genome.isEnabled(gene)) {
+                genes[enabled++] = gene;
+            }
+        }
+        int[] slots = new int[enabled];
+        Result result = train(new Phenotype(genome, function, slots), inputs, targets);
+        result.genome = genome;
+
+        if (lamarckian && result.isImproved()) {
+            Phenotype trained = result.phenotype;
+            for (int i = 0; i < slots.length; i++) {
+                int slot = slots[i];
+                if (slot >= 0) {
+                    genome.setWeight(genes[i], trained.weights[slot]);
+                } else if (slot != Integer.MIN_VALUE) {
+                    genome.setWeight(genes[i], trained.selfWeights[-slot - 1]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Train a phenotype on a dataset of sequences. The phenotype isn't changed, the result has
+     * another one with the trained weights.
+     *
+     * @param phenotype to train;
+     * @param inputs inputs of each step of each sequence;
+     * @param targets expected outputs of each step of each sequence, or null for the steps that
+     *                aren't scored;
+     *
+     * @return result of the training;
+     * @throws IllegalArgumentException if the dimensions of the arrays don't correspond to each
+     * other or to the number of input and output nodes of the phenotype;
+     */
+    public Result train (Phenotype phenotype, double[][][] inputs, double[][][] targets) {
+        checkDataset(phenotype, inputs, targets);
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size [" + batchSize + "] must be " +
+                    "positive.");
+        }
+        if (truncation < 1) {
+            throw new IllegalArgumentException("Truncation [" + truncation + "] must be " +
+                    "positive.");
+        }
+
+        double[] weights = phenotype.weights.clone();
+        double[] selfWeights = phenotype.selfWeights.clone();
+        double[] weightGradient = new double[weights.length];
+        double[] selfGradient = new double[selfWeights.length];
+        Adam weightOptimizer = new Adam(weights.length);
+        Adam selfOptimizer = new Adam(selfWeights.length);
+        Workspace workspace = new Workspace(phenotype, inputs);
+
+        int[] order = new int[inputs.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Random rand = ThreadLocalRandom.current();
+
+        double initialLoss = gradient(phenotype, phenotype.weights, phenotype.selfWeights,
+                inputs, targets, order, 0, order.length, null, null, workspace);
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            for (int i = order.length - 1; i > 0; i--) {
+                int j = rand.nextInt(i + 1);
+                int temp = order[i];
+                order[i] = order[j];
+                order[j] = temp;
+            }
+            for (int from = 0; from < order.length; from += batchSize) {
+                int to = Math.min(order.length, from + batchSize);
+                Arrays.fill(weightGradient, 0);
+                Arrays.fill(selfGradient, 0);
+                gradient(phenotype, weights, selfWeights, inputs, targets, order, from, to,
+                        weightGradient, selfGradient, workspace);
+                weightOptimizer.step(weights, weightGradient, learningRate, momentum, scaleDecay);
+                selfOptimizer.step(selfWeights, selfGradient, learningRate, momentum,
+                        scaleDecay);
+            }
+        }
+        double finalLoss = gradient(phenotype, weights, selfWeights, inputs, targets, order, 0,
+                order.length, null, null, workspace);
+
+        if (!(finalLoss < initialLoss)) {
+            return new Result(phenotype, initialLoss, initialLoss);
+        }
+        return new Result(new Phenotype(phenotype, weights, selfWeights), initialLoss,
+                finalLoss);
+    }
+
+    /**
+     * Train the fittest genomes of each species of a population, in parallel on the common
+     * pool.
+     *
+     * @param population whose species group the genomes;
+     * @param genomes evaluated generation, with their fitness set;
+     * @param perSpecies maximum number of genomes trained in each species;
+     * @param inputs inputs of each step of each sequence;
+     * @param targets expected outputs of each step of each sequence, or null for the steps that
+     *                aren't scored;
+     *
+     * @return results of the trained genomes, in order of species and fitness;
+     * @see Backpropagation#trainSpecies(Population, Collection, int, double[][][], double[][][],
+     * ForkJoinPool)
+     */
+    public List<Result> trainSpecies (Population population, Collection<Genome> genomes,
+                                      int perSpecies, double[][][] inputs,
+                                      double[][][] targets) {
+        return trainSpecies(population, genomes, perSpecies, inputs, targets,
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Train the fittest genomes of each species of a population, in parallel.
+     *
+     * <p>The genomes are grouped the way the population will speciate them in the next
+     * generation: each joins the first species whose representative it's compatible with, and
+     * those compatible with none form new species. The population isn't changed. This should be
+     * called after the genomes are evaluated, and before the next generation is created.
+     *
+     * @param population whose species group the genomes;
+     * @param genomes evaluated generation, with their fitness set;
+     * @param perSpecies maximum number of genomes trained in each species;
+     * @param inputs inputs of each step of each sequence;
+     * @param targets expected outputs of each step of each sequence, or null for the steps that
+     *                aren't scored;
+     * @param pool where the genomes are trained;
+     *
+     * @return results of the trained genomes, in order of species and fitness;
+     * @throws IllegalArgumentException if the dimensions of the arrays don't correspond to each
+     * other or to the number of input and output nodes of the genomes;
+     */
+    public List<Result> trainSpecies (Population population, Collection<Genome> genomes,
+                                      int perSpecies, double[][][] inputs,
+                                      double[][][] targets, ForkJoinPool pool) {
+        Parameters params = population.getParameters();
+        List<Species> groups = new ArrayList<>();
+        for (Species s : population.getSpecies()) {
+            Species group = new Species(params);
+            group.setRepresentative(s.getRepresentative());
+            groups.add(group);
+        }
+        outerLoop:
+        for (Genome g : genomes) {
+            for (Species group : groups) {
+                if (group.isCompatible(g)) {
+                    group.addGenome(g);
+                    continue outerLoop;
+                }
+            }
+            groups.add(new Species(params, g));
+        }
+
+        List<ForkJoinTask<Result>> tasks = new ArrayList<>();
+        for (Species group : groups) {
+            List<Genome> members = group.getGenomes();
+            for (int i = 0; i < Math.min(perSpecies, members.size()); i++) {
+                Genome genome = members.get(i);
+                tasks.add(pool.submit(() -> train(genome, inputs, targets)));
+            }
+        }
+        List<Result> results = new ArrayList<>(tasks.size());
+        for (ForkJoinTask<Result> task : tasks) {
+            results.add(task.join());
+        }
+        return results;
+    }
+
+    /**
+     * Mean squared error of the outputs of a phenotype over a dataset.
+     *
+     * @param phenotype to evaluate;
+     * @param inputs inputs of each step of each sequence;
+     * @param targets expected outputs of each step of each sequence, or null for the steps that
+     *                aren't scored;
+     *
+     * @return mean of the squared differences between the outputs and their targets, 0 if no
+     * step is scored;
+     * @throws IllegalArgumentException if the dimensions of the arrays don't correspond to each
+     * other or to the number of input and output nodes of the phenotype;
+     */
+    public double loss (Phenotype phenotype, double[][][] inputs, double[][][] targets) {
+        return gradient(phenotype, inputs, targets, null, null);
+    }
+
+    /**
+     * Gradient of the mean squared error of the outputs of a phenotype over a dataset, with
+     * respect to its weights.
+     *
+     * @param phenotype to differentiate;
+     * @param inputs inputs of each step of each sequence;
+     * @param targets expected outputs of each step of each sequence, or null for the steps that
+     *                aren't scored;
+     * @param weightGradient array where the gradient of the weight of each connection between
+     *                       different nodes is added, indexed as in the phenotype, of length
+     *                       {@code phenotype.firstConnection(phenotype.numberOfNodes())}, or
+     *                       null;
+     * @param selfGradient array where the gradient of each connection to self is added, of
+     *                     length {@link Phenotype#numberOfNodes()}, or null;
+     *
+     * @return mean squared error, as {@link Backpropagation#loss(Phenotype, double[][][],
+     * double[][][])};
+     * @throws IllegalArgumentException if the dimensions of the arrays don't correspond to each
+     * other or to the number of input and output nodes of the phenotype;
+     */
+    public double gradient (Phenotype phenotype, double[][][] inputs, double[][][] targets,
+                            double[] weightGradient, double[] selfGradient) {
+        checkDataset(phenotype, inputs, targets);
+        if ((weightGradient == null) != (selfGradient == null)) {
+            throw new IllegalArgumentException("Both gradient arrays must be given, or neither.");
+        }
+        if (weightGradient != null && (weightGradient.length != phenotype.weights.length ||
+                selfGradient.length != phenotype.selfWeights.length)) {
+            throw new IllegalArgumentException("Length of the gradient arrays [" +
+                    weightGradient.length + ", " + selfGradient.length + "] does not " +
+                    "correspond to the number of connections and nodes [" +
+                    phenotype.weights.length + ", " + phenotype.selfWeights.length + "].");
+        }
+        int[] order = new int[inputs.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        return gradient(phenotype, phenotype.weights, phenotype.selfWeights, inputs, targets,
+                order, 0, order.length, weightGradient, selfGradient,
+                new Workspace(phenotype, inputs));
+    }
+
+    /**
+     * Evaluate some sequences of a dataset with the structure of a phenotype and the given
+     * weights, adding the gradient of their mean squared error to the gradient arrays, unless
+     * they are null.
+     *
+     * @param structure phenotype whose structure is evaluated;
+     * @param weights weight of each connection;
+     * @param selfWeights weight of the connection to self of each node;
+     * @param inputs inputs of each step of each sequence;
+     * @param targets expected outputs of each step of each sequence;
+     * @param order indexes of the sequences;
+     * @param from position in {@code order} of the first sequence;
+     * @param to position after the last;
+     * @param weightGradient gradient of the weights, or null;
+     * @param selfGradient gradient of the self weights, or null;
+     * @param workspace arrays for the values of the nodes;
+     *
+     * @return mean squared error of the sequences;
+     */
+    private double gradient (Phenotype structure, double[] weights, double[] selfWeights,
+                             double[][][] inputs, double[][][] targets, int[] order, int from,
+                             int to, double[] weightGradient, double[] selfGradient,
+                             Workspace workspace) {
+        int[] inputSlots = structure.inputSlots;
+        int[] outputSlots = structure.outputSlots;
+        int[] rowStart = structure.rowStart;
+        int[] connectionTargets = structure.targets;
+        boolean[] selfConnected = structure.selfConnected;
+        int n = rowStart.length - 1;
+
+        int scored = 0;
+        for (int q = from; q < to; q++) {
+            for (double[] target : targets[order[q]]) {
+                if (target != null) {
+                    scored++;
+                }
+            }
+        }
+        if (scored == 0 || structure.outputNum == 0) {
+            return 0;
+        }
+        double scale = 1.0 / ((double) scored * structure.outputNum);
+
+        double[] values = workspace.values;
+        double[] sums = workspace.sums;
+        double[] activations = workspace.activations;
+        double loss = 0;
+        for (int q = from; q < to; q++) {
+            double[][] input = inputs[order[q]];
+            double[][] target = targets[order[q]];
+            int steps = input.length;
+
+            // forward, as the phenotype propagates, keeping the sum and activation of each node
+            Arrays.fill(values, 0);
+            for (int s = 0; s < steps; s++) {
+                int base = s * n;
+                for (int i = 0; i < n; i++) {
+                    double value = values[i];
+                    if (inputSlots[i] >= 0) {
+                        value += input[s][inputSlots[i]];
+                    }
+                    sums[base + i] = value;
+                    int first = rowStart[i];
+                    int last = rowStart[i + 1];
+                    if (first == last && !selfConnected[i]) {
+                        values[i] = 0;
+                        activations[base + i] = outputSlots[i] >= 0 ? function.apply(value) : 0;
+                        continue;
+                    }
+                    double activation = function.apply(value);
+                    activations[base + i] = activation;
+                    for (int c = first; c < last; c++) {
+                        values[connectionTargets[c]] += activation * weights[c];
+                    }
+                    values[i] = selfConnected[i] ? activation * selfWeights[i] : 0;
+                }
+                if (target[s] != null) {
+                    for (int i = 0; i < n; i++) {
+                        if (outputSlots[i] >= 0) {
+                            double error = activations[base + i] - target[s][outputSlots[i]];
+                            loss += error * error * scale;
+                        }
+                    }
+                }
+            }
+            if (weightGradient == null) {
+                continue;
+            }
+
+            // backward, in windows of the truncation length, from the last step of each
+            double[] delta = workspace.delta;
+            double[] nextDelta = workspace.nextDelta;
+            for (int start = 0; start < steps; start += truncation) {
+                int end = Math.min(steps, start + truncation);
+                Arrays.fill(nextDelta, 0);
+                for (int s = end - 1; s >= start; s--) {
+                    int base = s * n;
+                    for (int i = n - 1; i >= 0; i--) {
+                        double activation = activations[base + i];
+                        // forward targets are in this step, backward ones in the next
+                        double gradient = 0;
+                        for (int c = rowStart[i]; c < rowStart[i + 1]; c++) {
+                            int t = connectionTargets[c];
+                            double d = t > i ? delta[t] : nextDelta[t];
+                            gradient += weights[c] * d;
+                            weightGradient[c] += activation * d;
+                        }
+                        if (selfConnected[i]) {
+                            gradient += selfWeights[i] * nextDelta[i];
+                            selfGradient[i] += activation * nextDelta[i];
+                        }
+                        if (outputSlots[i] >= 0 && target[s] != null) {
+                            gradient += 2 * scale *
+                                    (activation - target[s][outputSlots[i]]);
+                        }
+                        delta[i] = gradient == 0 ? 0 :
+                                gradient * function.derivative(sums[base + i]);
+                    }
+                    double[] temp = delta;
+                    delta = nextDelta;
+                    nextDelta = temp;
+                }
+            }
+        }
+        return loss;
+    }
+
+    /**
+     * Make sure a dataset fits a phenotype.
+     *
+     * @throws IllegalArgumentException if it doesn't;
+     */
+    private static void checkDataset (Phenotype phenotype, double[][][] inputs,
+                                      double[][][] targets) {
+        if (inputs.length != targets.length) {
+            throw new IllegalArgumentException("Number of input sequences [" + inputs.length +
+                    "] does not correspond to the number of target sequences [" + targets.length +
+                    "].");
+        }
+        for (int q = 0; q < inputs.length; q++) {
+            if (inputs[q].length != targets[q].length) {
+                throw new IllegalArgumentException("Length of input sequence " + q + " [" +
+                        inputs[q].length + "] does not correspond to the length of its targets [" +
+                        targets[q].length + "].");
+            }
+            for (int s = 0; s < inputs[q].length; s++) {
+                if (inputs[q][s].length != phenotype.inputNum) {
+                    throw new IllegalArgumentException("Length of input " + s + " of sequence " +
+                            q + " [" + inputs[q][s].length + "] does not correspond to number " +
+                            "of input nodes [" + phenotype.inputNum + "].");
+                }
+                if (targets[q][s] != null && targets[q][s].length != phenotype.outputNum) {
+                    throw new IllegalArgumentException("Length of target " + s + " of sequence " +
+                            q + " [" + targets[q][s].length + "] does not correspond to number " +
+                            "of output nodes [" + phenotype.outputNum + "].");
+                }
+            }
+        }
+    }
+
+    /**
+     * @param rows matrix;
+     *
+     * @return sequences of a single step, one for each row;
+     */
+    private static double[][][] sequences (double[][] rows) {
+        double[][][] result = new double[rows.length][][];
+        for (int i = 0; i < rows.length; i++) {
+            result[i] = new double[][] {rows[i]};
+        }
+        return result;
+    }
+
+    /**
+     * Arrays for the values of the nodes at every step of the longest sequence of a dataset.
+     */
+    private static final class Workspace {
+
+        private final double[] values;
+        private final double[] sums;
+        private final double[] activations;
+        private double[] delta;
+        private double[] nextDelta;
+
+        Workspace (Phenotype phenotype, double[][][] inputs) {
+            int n = phenotype.numberOfNodes();
+            int steps = 0;
+            for (double[][] sequence : inputs) {
+                steps = Math.max(steps, sequence.length);
+            }
+            values = new double[n];
+            sums = new double[steps * n];
+            activations = new double[steps * n];
+            delta = new double[n];
+            nextDelta = new double[n];
+        }
+    }
+
+    /**
+     * Outcome of the training of a network.
+     */
+    public static final class Result {
+
+        private final Phenotype phenotype;
+        private final double initialLoss;
+        private final double finalLoss;
+        private Genome genome;
+
+        private Result (Phenotype phenotype, double initialLoss, double finalLoss) {
+            this.phenotype = phenotype;
+            this.initialLoss = initialLoss;
+            this.finalLoss = finalLoss;
+        }
+
+        /**
+         * @return phenotype with the trained weights, or the original one if training didn't
+         * lower the error;
+         */
+        public Phenotype getPhenotype () {
+            return phenotype;
+        }
+
+        /**
+         * @return trained genome, null if a phenotype was trained;
+         */
+        public Genome getGenome () {
+            return genome;
+        }
+
+        /**
+         * @return mean squared error over the dataset before the training;
+         */
+        public double getInitialLoss () {
+            return initialLoss;
+        }
+
+        /**
+         * @return mean squared error over the dataset with the kept weights;
+         */
+        public double getFinalLoss () {
+            return finalLoss;
+        }
+
+        /**
+         * @return true if the training lowered the error, so the trained weights were kept;
+         */
+        public boolean isImproved () {
+            return finalLoss < initialLoss;
+        }
+
+        @Override
+        public String toString () {
+            return "Result{" +
+                    "initialLoss=" + initialLoss +
+                    ", finalLoss=" + finalLoss +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.tesladodger.neat.phenotype;
+
+
+/**
+ * Estimate of the time it takes to evaluate a network, from the size of its {@link Phenotype}.
+ *
+ * <p>An evaluation propagates the value of every node through its connections, so its cost is
+ * about linear in the number of nodes and connections. Recursive connections cost a little more,
+ * since their values are kept for the next call, and a fitness function usually has a fixed cost
+ * per genome too (resetting a simulation, for example). The estimate is in arbitrary units: only
+ * the ratio between the estimates of two genomes matters, to decide which to evaluate first.
+ *
+ * <p>The default weights fit the evaluation of the network; fitness functions whose cost depends
+ * on something else, such as episodes that last longer for better genomes, can override
+ * {@link CostModel#estimate(Phenotype)}.
+ *
+ * @see ScheduledEvaluator
+ * @author tesla
+ * @since v1.2
+ */
+public class CostModel {
+
+    /** Fixed cost of the evaluation of a genome. */
+    public double baseCost = 0;
+
+    /** Cost of each node. */
+    public double nodeCost = 1;
+
+    /** Cost of each connection, including connections to self. */
+    public double connectionCost = 1;
+
+    /** Extra cost of each connection that leads back to a node evaluated earlier, or to self. */
+    public double recursiveConnectionCost = .5;
+
+    /**
+     * @param phenotype to evaluate;
+     *
+     * @return estimated cost of an evaluation, in arbitrary units;
+     */
+    public double estimate (Phenotype phenotype) {
+        int nodes = phenotype.numberOfNodes();
+        int recursive = 0;
+        for (int i = 0; i < nodes; i++) {
+            if (phenotype.hasSelfConnection(i)) recursive++;
+            for (int c = phenotype.firstConnection(i); c < phenotype.firstConnection(i + 1); c++) {
+                if (phenotype.connectionTarget(c) < i) recursive++;
+            }
+        }
+        return baseCost + nodeCost * nodes + connectionCost * phenotype.numberOfConnections() +
+                recursiveConnectionCost * recursive;
+    }
+}
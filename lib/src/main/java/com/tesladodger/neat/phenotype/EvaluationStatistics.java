@@ -0,0 +1,175 @@
+package com.tesladodger.neat.phenotype;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+
+/**
+ * Snapshot of the evaluation of a generation by a {@link ScheduledEvaluator}, comparing the
+ * times predicted by its {@link CostModel} with the measured ones.
+ *
+ * <p>The predictions are in the units of the cost model; they are converted to nanoseconds with
+ * the ratio of the total measured time to the total predicted cost of this generation. The tail
+ * is the time between the first worker running out of genomes and the last one finishing, when
+ * all but one thread of the pool may be idle; scheduling the longest genomes first shrinks it.
+ *
+ * @see ScheduledEvaluator#getStatistics()
+ * @author tesla
+ * @since v1.2
+ */
+public class EvaluationStatistics {
+
+    private final double[] predicted;
+    private final long[] actual;
+    private final int workers;
+    private final long wallTime;
+    private final long tailTime;
+
+    EvaluationStatistics (double[] predicted, long[] actual, int workers, long wallTime,
+                          long tailTime) {
+        this.predicted = predicted;
+        this.actual = actual;
+        this.workers = workers;
+        this.wallTime = wallTime;
+        this.tailTime = tailTime;
+    }
+
+    /**
+     * @return number of genomes evaluated;
+     */
+    public int getGenomes () {
+        return actual.length;
+    }
+
+    /**
+     * @return number of threads that evaluated genomes;
+     */
+    public int getWorkers () {
+        return workers;
+    }
+
+    /**
+     * @return predicted cost of each genome, in the order they were given;
+     */
+    public double[] getPredictedCosts () {
+        return predicted.clone();
+    }
+
+    /**
+     * @return measured time of each genome, in the order they were given, in nanoseconds;
+     */
+    public long[] getActualTimes () {
+        return actual.clone();
+    }
+
+    /**
+     * @return nanoseconds per unit of cost, measured in this generation, 0 if nothing was
+     * predicted;
+     */
+    public double getNanosPerUnit () {
+        double total = 0;
+        for (double cost : predicted) {
+            total += cost;
+        }
+        return total > 0 ? getBusyTime() / total : 0;
+    }
+
+    /**
+     * @return sum of the times of every genome, in nanoseconds;
+     */
+    public long getBusyTime () {
+        long result = 0;
+        for (long time : actual) {
+            result += time;
+        }
+        return result;
+    }
+
+    /**
+     * @return time from the start of the evaluation until the last genome was done, in
+     * nanoseconds;
+     */
+    public long getWallTime () {
+        return wallTime;
+    }
+
+    /**
+     * @return time from the first worker running out of genomes until the last genome was done,
+     * in nanoseconds;
+     */
+    public long getTailTime () {
+        return tailTime;
+    }
+
+    /**
+     * @return time the workers spent not evaluating genomes, in nanoseconds;
+     */
+    public long getIdleTime () {
+        return Math.max(0, workers * wallTime - getBusyTime());
+    }
+
+    /**
+     * Wall time of the evaluation if the costs were exact, with the longest genomes first.
+     *
+     * @return predicted wall time, in nanoseconds;
+     */
+    public double getPredictedWallTime () {
+        Integer[] order = new Integer[predicted.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(predicted[b], predicted[a]));
+        PriorityQueue<Double> loads = new PriorityQueue<>();
+        for (int w = 0; w < workers; w++) {
+            loads.add(0.);
+        }
+        double result = 0;
+        for (int i : order) {
+            double load = loads.poll() + predicted[i];
+            result = Math.max(result, load);
+            loads.add(load);
+        }
+        return result * getNanosPerUnit();
+    }
+
+    /**
+     * @return Pearson correlation between the predicted costs and the measured times, 0 if
+     * either doesn't vary;
+     */
+    public double getCorrelation () {
+        int n = actual.length;
+        double meanPredicted = 0;
+        double meanActual = 0;
+        for (int i = 0; i < n; i++) {
+            meanPredicted += predicted[i] / n;
+            meanActual += (double) actual[i] / n;
+        }
+        double covariance = 0;
+        double predictedVariance = 0;
+        double actualVariance = 0;
+        for (int i = 0; i < n; i++) {
+            double p = predicted[i] - meanPredicted;
+            double a = actual[i] - meanActual;
+            covariance += p * a;
+            predictedVariance += p * p;
+            actualVariance += a * a;
+        }
+        if (predictedVariance == 0 || actualVariance == 0) {
+            return 0;
+        }
+        return covariance / Math.sqrt(predictedVariance * actualVariance);
+    }
+
+    @Override
+    public String toString () {
+        return "EvaluationStatistics{" +
+                "genomes=" + actual.length +
+                ", workers=" + workers +
+                ", predictedWallTime=" + (long) getPredictedWallTime() +
+                ", wallTime=" + wallTime +
+                ", tailTime=" + tailTime +
+                ", idleTime=" + getIdleTime() +
+                ", correlation=" + getCorrelation() +
+                '}';
+    }
+}
@@ -0,0 +1,168 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+
+
+/**
+ * Reusable evaluator of a {@link Phenotype}, which doesn't allocate any memory per call.
+ *
+ * <p>An evaluator keeps its own {@link NetworkState} and output array, created once, so that
+ * evaluating the network on every step of a long simulation produces no garbage. The array
+ * returned by {@link Evaluator#calculateOutput(double[])} is the same on every call and is
+ * overwritten by the next one, so it should be copied if the values need to be kept.
+ *
+ * <p>An evaluator is not thread-safe. To evaluate the same phenotype concurrently, create one
+ * evaluator per thread.
+ *
+ * <pre>{@code
+ * Evaluator evaluator = new Evaluator(new Phenotype(genome), function);
+ * double[] input = new double[evaluator.getPhenotype().numberOfInputs()];
+ * while (running) {
+ *     sense(input);
+ *     act(evaluator.calculateOutput(input));
+ * }
+ * }</pre>
+ *
+ * @see Phenotype
+ * @author tesla
+ * @since v1.2
+ */
+public class Evaluator {
+
+    private final Phenotype phenotype;
+    private final ActivationFunction function;
+    private final NetworkState state;
+    private final double[] output;
+
+    /**
+     * Create an evaluator with a new state.
+     *
+     * @param phenotype to evaluate;
+     * @param function activation function;
+     */
+    public Evaluator (Phenotype phenotype, ActivationFunction function) {
+        this.phenotype = phenotype;
+        this.function = function;
+        state = phenotype.newState();
+        output = new double[phenotype.numberOfOutputs()];
+    }
+
+    /**
+     * Performs propagation of the inputs through the network, applying the activation function
+     * to the outputs.
+     *
+     * @param input array of inputs;
+     *
+     * @return the output array of this evaluator, overwritten on every call;
+     * @throws IllegalArgumentException if the length of the input array doesn't correspond to
+     * the number of input nodes in the network;
+     */
+    public double[] calculateOutput (double[] input) {
+        phenotype.calculateOutput(state, input, output, function);
+        return output;
+    }
+
+    /**
+     * Performs propagation of the inputs through the network, applying the activation function
+     * to the outputs, which are written to a given array.
+     *
+     * @param input array of inputs;
+     * @param output array where the outputs are written;
+     *
+     * @throws IllegalArgumentException if the length of the input or output arrays doesn't
+     * correspond to the number of input or output nodes in the network;
+     */
+    public void calculateOutput (double[] input, double[] output) {
+        phenotype.calculateOutput(state, input, output, function);
+    }
+
+    /**
+     * Performs propagation of the inputs through the network, without applying the activation
+     * function to the outputs.
+     *
+     * @param input array of inputs;
+     *
+     * @return the output array of this evaluator, overwritten on every call;
+     * @throws IllegalArgumentException if the length of the input array doesn't correspond to
+     * the number of input nodes in the network;
+     */
+    public double[] calculateRawOutput (double[] input) {
+        phenotype.calculateRawOutput(state, input, output, function);
+        return output;
+    }
+
+    /**
+     * Performs propagation of the inputs through the network, without applying the activation
+     * function to the outputs, which are written to a given array.
+     *
+     * @param input array of inputs;
+     * @param output array where the raw outputs are written;
+     *
+     * @throws IllegalArgumentException if the length of the input or output arrays doesn't
+     * correspond to the number of input or output nodes in the network;
+     */
+    public void calculateRawOutput (double[] input, double[] output) {
+        phenotype.calculateRawOutput(state, input, output, function);
+    }
+
+    /**
+     * Evaluate the network on a sequence of inputs, one step after the other, applying the
+     * activation function to the outputs.
+     *
+     * @param inputs matrix of inputs, one row per step;
+     * @param outputs matrix where the outputs are written, one row per step;
+     *
+     * @throws IllegalArgumentException if the dimensions of the matrices don't correspond to the
+     * number of steps and of input and output nodes in the network;
+     * @see Phenotype#calculateSequence(NetworkState, double[][], double[][], ActivationFunction)
+     */
+    public void calculateSequence (double[][] inputs, double[][] outputs) {
+        phenotype.calculateSequence(state, inputs, outputs, function);
+    }
+
+    /**
+     * Run the network in a closed loop, giving the outputs of each step to a callback that
+     * writes the inputs of the next one.
+     *
+     * @param input inputs of the first step, overwritten by the callback with the next ones;
+     * @param maxSteps maximum number of steps;
+     * @param callback called after each step with the output array of this evaluator;
+     *
+     * @return number of steps run;
+     * @throws IllegalArgumentException if the length of the input array doesn't correspond to
+     * the number of input nodes in the network;
+     * @see Phenotype#calculateSequence(NetworkState, double[], double[], int, ActivationFunction,
+     * StepCallback)
+     */
+    public int calculateSequence (double[] input, int maxSteps, StepCallback callback) {
+        return phenotype.calculateSequence(state, input, output, maxSteps, function, callback);
+    }
+
+    /**
+     * Clear the values kept by recursive connections, to start a new episode.
+     */
+    public void reset () {
+        state.reset();
+    }
+
+    /**
+     * @return the state of this evaluator, which can be copied or restored;
+     */
+    public NetworkState getState () {
+        return state;
+    }
+
+    /**
+     * @return the phenotype this evaluator runs;
+     */
+    public Phenotype getPhenotype () {
+        return phenotype;
+    }
+
+    /**
+     * @return the activation function of this evaluator;
+     */
+    public ActivationFunction getFunction () {
+        return function;
+    }
+}
@@ -0,0 +1,341 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToDoubleFunction;
+
+
+/**
+ * Optimizes the weights of a genome with a fixed topology, by natural evolution strategies.
+ *
+ * <p>Once the topology of the champions has converged, mutating and crossing over the whole
+ * population spends most evaluations on structural changes that are thrown away. This takes a
+ * single genome, freezes its structure, and searches its weights only, in the style of OpenAI's
+ * evolution strategies: each iteration samples gaussian perturbations of the current weights,
+ * evaluates them, and moves the weights along the estimated gradient of the fitness.
+ *
+ * <p>The perturbations are antithetic, each is evaluated added to the weights and subtracted from
+ * them, which cancels most of the noise of the estimate. The fitness values are replaced by their
+ * centered ranks, so that the step doesn't depend on their scale or on outliers, and the weights
+ * are updated with Adam. The perturbed networks are {@link Phenotype}s that share the structure
+ * arrays of the genome's, and are evaluated in parallel on a {@link ForkJoinPool}, so the fitness
+ * function must be thread-safe.
+ *
+ * <p>The current weights are evaluated on every iteration too, and the best of them are written
+ * back to the genome, with their fitness. Since the original weights are the first to be
+ * evaluated, the genome never gets worse by the fitness function.
+ *
+ * <pre>{@code
+ * // after the evolution of the topology
+ * Genome champion = population.getLastChampion().clone();
+ * EvolutionStrategies strategies = new EvolutionStrategies(function,
+ *         phenotype -> simulate(new Evaluator(phenotype, function)));
+ * EvolutionStrategies.Result result = strategies.optimize(champion);
+ * }</pre>
+ *
+ * <p>The parameters can be changed between calls, but not during one.
+ *
+ * @see Backpropagation
+ * @author tesla
+ * @since v1.2
+ */
+public class EvolutionStrategies {
+
+    /** Number of updates of the weights. */
+    public int iterations = 100;
+
+    /** Number of antithetic pairs of perturbations evaluated in each iteration. */
+    public int pairs = 32;
+
+    /** Standard deviation of the perturbations of the weights. */
+    public double sigma = .1;
+
+    /** Size of the steps, about the largest change of a weight in an update. */
+    public double learningRate = .01;
+
+    /** Decay of the running average of the gradient of each weight. */
+    public double momentum = .9;
+
+    /** Decay of the running average of the square of the gradient of each weight. */
+    public double scaleDecay = .999;
+
+    private final ActivationFunction function;
+    private final ToDoubleFunction<Phenotype> fitness;
+
+    /**
+     * Create an optimizer.
+     *
+     * @param function activation function the networks are evaluated with, used to compile them;
+     * @param fitness thread-safe function that evaluates a network, higher is better;
+     */
+    public EvolutionStrategies (ActivationFunction function, ToDoubleFunction<Phenotype> fitness) {
+        this.function = function;
+        this.fitness = fitness;
+    }
+
+    /**
+     * Optimize the weights of a genome, on the common pool.
+     *
+     * @param genome whose enabled connections are optimized, and get the best weights found;
+     *
+     * @return result of the optimization;
+     * @see EvolutionStrategies#optimize(Genome, Random, ForkJoinPool)
+     */
+    public Result optimize (Genome genome) {
+        return optimize(genome, ThreadLocalRandom.current(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Optimize the weights of a genome.
+     *
+     * <p>Each perturbation is drawn from its own seed, taken from {@code rand}, so the result
+     * only depends on {@code rand} and on the fitness function, not on the pool.
+     *
+     * @param genome whose enabled connections are optimized, and get the best weights found;
+     * @param rand random instance;
+     * @param pool where the networks are evaluated;
+     *
+     * @return result of the optimization;
+     * @throws IllegalArgumentException if the number of iterations is negative, or the number
+     * of pairs or sigma aren't positive;
+     * @throws com.tesladodger.neat.utils.exceptions.IllegalTopologyException if an enabled
+     * connection leads to a node that doesn't exist in the genome;
+     */
+    public Result optimize (Genome genome, Random rand, ForkJoinPool pool) {
+        if (iterations < 0) {
+            throw new IllegalArgumentException("Number of iterations [" + iterations + "] " +
+                    "must not be negative.");
+        }
+        if (pairs < 1) {
+            throw new IllegalArgumentException("Number of pairs [" + pairs + "] must be " +
+                    "positive.");
+        }
+        if (!(sigma > 0)) {
+            throw new IllegalArgumentException("Sigma [" + sigma + "] must be positive.");
+        }
+
+        // the enabled genes, in the order their slots are recorded
+        int[] genes = genome.genesInEvaluationOrder();
+        int enabled = 0;
+        for (int gene : genes) {
+            if (genome.isEnabled(gene)) {
+                genes[enabled++] = gene;
+            }
+        }
+        int[] slots = new int[enabled];
+        Phenotype structure = new Phenotype(genome, function, slots);
+
+        // the weights of the connections between nodes, followed by the connections to self
+        int connectionNum = structure.weights.length;
+        int[] selfNodes = new int[structure.selfWeights.length];
+        int selfNum = 0;
+        for (int i = 0; i < selfNodes.length; i++) {
+            if (structure.selfConnected[i]) {
+                selfNodes[selfNum++] = i;
+            }
+        }
+        double[] center = new double[connectionNum + selfNum];
+        System.arraycopy(structure.weights, 0, center, 0, connectionNum);
+        for (int k = 0; k < selfNum; k++) {
+            center[connectionNum + k] = structure.selfWeights[selfNodes[k]];
+        }
+        int dimension = center.length;
+
+        double[] best = center.clone();
+        double bestFitness = Double.NEGATIVE_INFINITY;
+        double[] history = new double[iterations + 1];
+        double[] gradient = new double[dimension];
+        double[][] noise = new double[pairs][dimension];
+        double[] scores = new double[2 * pairs];
+        Adam optimizer = new Adam(dimension);
+        int[] selfIndexes = Arrays.copyOf(selfNodes, selfNum);
+
+        for (int iteration = 0; ; iteration++) {
+            double[] current = center.clone();
+            ForkJoinTask<Double> centerTask = pool.submit(() -> evaluate(structure, current,
+                    selfIndexes));
+            boolean last = iteration == iterations;
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(pairs);
+            for (int p = 0; !last && p < pairs; p++) {
+                int pair = p;
+                long seed = rand.nextLong();
+                tasks.add(pool.submit(() -> {
+                    Random noiseRand = new Random(seed);
+                    double[] epsilon = noise[pair];
+                    double[] plus = new double[dimension];
+                    double[] minus = new double[dimension];
+                    for (int j = 0; j < dimension; j++) {
+                        epsilon[j] = noiseRand.nextGaussian();
+                        plus[j] = current[j] + sigma * epsilon[j];
+                        minus[j] = current[j] - sigma * epsilon[j];
+                    }
+                    scores[2 * pair] = evaluate(structure, plus, selfIndexes);
+                    scores[2 * pair + 1] = evaluate(structure, minus, selfIndexes);
+                }));
+            }
+            double centerFitness = centerTask.join();
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+
+            history[iteration] = centerFitness;
+            if (centerFitness > bestFitness) {
+                bestFitness = centerFitness;
+                best = current;
+            }
+            if (last) {
+                break;
+            }
+
+            // ascend the ranks: Adam descends, so the gradient is negated
+            double[] ranks = centeredRanks(scores);
+            Arrays.fill(gradient, 0);
+            for (int p = 0; p < pairs; p++) {
+                double difference = ranks[2 * p] - ranks[2 * p + 1];
+                for (int j = 0; j < dimension; j++) {
+                    gradient[j] -= difference * noise[p][j];
+                }
+            }
+            for (int j = 0; j < dimension; j++) {
+                gradient[j] /= 2 * pairs * sigma;
+            }
+            optimizer.step(center, gradient, learningRate, momentum, scaleDecay);
+        }
+
+        Phenotype phenotype = phenotype(structure, best, selfIndexes);
+        for (int i = 0; i < slots.length; i++) {
+            int slot = slots[i];
+            if (slot >= 0) {
+                genome.setWeight(genes[i], phenotype.weights[slot]);
+            } else if (slot != Integer.MIN_VALUE) {
+                genome.setWeight(genes[i], phenotype.selfWeights[-slot - 1]);
+            }
+        }
+        genome.setFitness(bestFitness);
+        return new Result(genome, phenotype, bestFitness, history, 1 + iterations *
+                (2L * pairs + 1));
+    }
+
+    /**
+     * Evaluate a vector of weights, NaN counting as the lowest fitness.
+     */
+    private double evaluate (Phenotype structure, double[] vector, int[] selfNodes) {
+        double result = fitness.applyAsDouble(phenotype(structure, vector, selfNodes));
+        return Double.isNaN(result) ? Double.NEGATIVE_INFINITY : result;
+    }
+
+    /**
+     * @param structure phenotype whose structure is shared;
+     * @param vector weights of the connections between nodes, then of the connections to self;
+     * @param selfNodes index of the node of each connection to self;
+     *
+     * @return phenotype with the weights;
+     */
+    private static Phenotype phenotype (Phenotype structure, double[] vector, int[] selfNodes) {
+        int connectionNum = structure.weights.length;
+        double[] weights = Arrays.copyOf(vector, connectionNum);
+        double[] selfWeights = new double[structure.selfWeights.length];
+        for (int k = 0; k < selfNodes.length; k++) {
+            selfWeights[selfNodes[k]] = vector[connectionNum + k];
+        }
+        return new Phenotype(structure, weights, selfWeights);
+    }
+
+    /**
+     * @param scores values to rank;
+     *
+     * @return rank of each value, scaled to [-0.5, 0.5];
+     */
+    static double[] centeredRanks (double[] scores) {
+        Integer[] order = new Integer[scores.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[a], scores[b]));
+        double[] ranks = new double[scores.length];
+        for (int r = 0; r < order.length; r++) {
+            ranks[order[r]] = order.length == 1 ? 0 : (double) r / (order.length - 1) - .5;
+        }
+        return ranks;
+    }
+
+    /**
+     * Outcome of the optimization of a genome.
+     */
+    public static final class Result {
+
+        private final Genome genome;
+        private final Phenotype phenotype;
+        private final double fitness;
+        private final double[] history;
+        private final long evaluations;
+
+        private Result (Genome genome, Phenotype phenotype, double fitness, double[] history,
+                        long evaluations) {
+            this.genome = genome;
+            this.phenotype = phenotype;
+            this.fitness = fitness;
+            this.history = history;
+            this.evaluations = evaluations;
+        }
+
+        /**
+         * @return the optimized genome, with the best weights found;
+         */
+        public Genome getGenome () {
+            return genome;
+        }
+
+        /**
+         * @return phenotype with the best weights found;
+         */
+        public Phenotype getPhenotype () {
+            return phenotype;
+        }
+
+        /**
+         * @return fitness of the best weights found;
+         */
+        public double getFitness () {
+            return fitness;
+        }
+
+        /**
+         * @return fitness of the original weights;
+         */
+        public double getInitialFitness () {
+            return history[0];
+        }
+
+        /**
+         * @return fitness of the current weights before each iteration, and after the last;
+         */
+        public double[] getHistory () {
+            return history.clone();
+        }
+
+        /**
+         * @return number of networks evaluated;
+         */
+        public long getEvaluations () {
+            return evaluations;
+        }
+
+        @Override
+        public String toString () {
+            return "Result{" +
+                    "initialFitness=" + history[0] +
+                    ", fitness=" + fitness +
+                    ", evaluations=" + evaluations +
+                    '}';
+        }
+    }
+}
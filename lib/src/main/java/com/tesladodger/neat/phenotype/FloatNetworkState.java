@@ -0,0 +1,85 @@
+package com.tesladodger.neat.phenotype;
+
+import java.util.Arrays;
+
+
+/**
+ * Values of the nodes of a {@link FloatPhenotype} during an episode, in single precision.
+ *
+ * <p>Same as a {@link NetworkState}, for the single precision evaluation path.
+ *
+ * @see FloatPhenotype#newState()
+ * @author tesla
+ * @since v1.2
+ */
+public class FloatNetworkState {
+
+    /** Sum of the inputs of each node, indexed in evaluation order. */
+    final float[] values;
+
+    /**
+     * Create a state with the values of all nodes set to 0.
+     *
+     * @param nodes number of nodes of the network;
+     */
+    FloatNetworkState (int nodes) {
+        values = new float[nodes];
+    }
+
+    /**
+     * Clear all the values, as if the network had never been evaluated.
+     */
+    public void reset () {
+        Arrays.fill(values, 0);
+    }
+
+    /**
+     * Replace the values of this state with the values of another one, which must belong to a
+     * network with the same number of nodes.
+     *
+     * @param other state to copy the values from;
+     *
+     * @throws IllegalArgumentException if the other state has a different number of nodes;
+     */
+    public void restore (FloatNetworkState other) {
+        if (other.values.length != values.length) {
+            throw new IllegalArgumentException("State of a network with " + other.values.length +
+                    " nodes can't be restored into one with " + values.length + " nodes.");
+        }
+        System.arraycopy(other.values, 0, values, 0, values.length);
+    }
+
+    /**
+     * @return independent copy of this state, which can be used to restore it later;
+     */
+    public FloatNetworkState copy () {
+        FloatNetworkState result = new FloatNetworkState(values.length);
+        result.restore(this);
+        return result;
+    }
+
+    /**
+     * @return number of nodes of the network this state belongs to;
+     */
+    public int size () {
+        return values.length;
+    }
+
+    @Override
+    public boolean equals (Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FloatNetworkState x = (FloatNetworkState) o;
+        return Arrays.equals(values, x.values);
+    }
+
+    @Override
+    public int hashCode () {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString () {
+        return "FloatNetworkState" + Arrays.toString(values);
+    }
+}
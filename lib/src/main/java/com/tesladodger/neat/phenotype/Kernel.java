@@ -0,0 +1,27 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+
+
+/**
+ * Specialized evaluation of a single {@link Phenotype}, generated at runtime by
+ * {@link KernelGenerator}.
+ *
+ * <p>The arguments are not checked: the phenotype makes sure they fit before calling it.
+ *
+ * @author tesla
+ * @since v1.2
+ */
+interface Kernel {
+
+    /**
+     * Performs propagation of the inputs through the network, without applying the activation
+     * function to the outputs.
+     *
+     * @param values values of the nodes, in evaluation order, updated by this call;
+     * @param input array of inputs;
+     * @param output array where the raw outputs are written;
+     * @param function activation function;
+     */
+    void evaluate (double[] values, double[] input, double[] output, ActivationFunction function);
+}
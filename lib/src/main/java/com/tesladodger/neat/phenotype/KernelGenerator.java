@@ -0,0 +1,434 @@
+package com.tesladodger.neat.phenotype;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Generates the bytecode of a {@link Kernel} specialized for a single {@link Phenotype}, and
+ * defines it as a hidden class.
+ *
+ * <p>The generated {@code evaluate} method is straight-line code: the values of the nodes are
+ * loaded into local variables, the weights are constants, and every connection is a
+ * multiply-add between locals, in exactly the same order as
+ * {@link Phenotype#calculateRawOutput(NetworkState, double[], double[],
+ * com.tesladodger.neat.utils.functions.ActivationFunction)}, so that the results are the same.
+ * Since each hidden class has its own call sites for the activation function, which only ever
+ * see one implementation, the JIT can inline it.
+ *
+ * <p>There are no branches, so the method needs no stack map frames.
+ *
+ * @author tesla
+ * @since v1.2
+ */
+final class KernelGenerator {
+
+    /** Largest method the JVM accepts. */
+    static final int MAX_CODE_SIZE = 65535;
+
+    private static final String CLASS_NAME = "com/tesladodger/neat/phenotype/GeneratedKernel";
+    private static final String FUNCTION =
+            "com/tesladodger/neat/utils/functions/ActivationFunction";
+    private static final String EVALUATE_DESCRIPTOR = "([D[D[DL" + FUNCTION + ";)V";
+
+    /* Local variables of the evaluate method. */
+    private static final int VALUES = 1;
+    private static final int INPUT = 2;
+    private static final int OUTPUT = 3;
+    private static final int FUNCTION_ARG = 4;
+    private static final int ACTIVATION = 5;
+    private static final int FIRST_NODE = 7;
+
+    /* Opcodes. */
+    private static final int ICONST_0 = 0x03;
+    private static final int DCONST_0 = 0x0e;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int DLOAD = 0x18;
+    private static final int ALOAD = 0x19;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int DALOAD = 0x31;
+    private static final int DSTORE = 0x39;
+    private static final int DASTORE = 0x52;
+    private static final int DADD = 0x63;
+    private static final int DMUL = 0x6b;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKEINTERFACE = 0xb9;
+    private static final int WIDE = 0xc4;
+
+    /**
+     * Prevent instantiation.
+     */
+    private KernelGenerator () {}
+
+    /**
+     * Generate the class file of a kernel for a phenotype.
+     *
+     * @param phenotype to generate a kernel for;
+     * @param maxCodeSize maximum size of the bytecode of the evaluate method;
+     *
+     * @return the class file, or null if the code would be larger than {@code maxCodeSize};
+     */
+    static byte[] generate (Phenotype phenotype, int maxCodeSize) {
+        ConstantPool pool = new ConstantPool();
+        byte[] code = evaluateCode(phenotype, pool, Math.min(maxCodeSize, MAX_CODE_SIZE));
+        if (code == null) {
+            return null;
+        }
+
+        int thisClass = pool.classRef(CLASS_NAME);
+        int superClass = pool.classRef("java/lang/Object");
+        int kernelInterface = pool.classRef("com/tesladodger/neat/phenotype/Kernel");
+        int objectInit = pool.methodRef("java/lang/Object", "<init>", "()V");
+        int init = pool.utf8("<init>");
+        int initDescriptor = pool.utf8("()V");
+        int evaluate = pool.utf8("evaluate");
+        int evaluateDescriptor = pool.utf8(EVALUATE_DESCRIPTOR);
+        int codeAttribute = pool.utf8("Code");
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(code.length + 1024);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xcafebabe);
+            out.writeShort(0);
+            out.writeShort(61);
+            pool.writeTo(out);
+            out.writeShort(0x0010 | 0x0020); // final, super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(kernelInterface);
+            out.writeShort(0); // fields
+
+            out.writeShort(2); // methods
+            out.writeShort(0x0001); // public
+            out.writeShort(init);
+            out.writeShort(initDescriptor);
+            out.writeShort(1);
+            writeCode(out, codeAttribute, 1, 1, new byte[] {
+                    (byte) ALOAD_0,
+                    (byte) INVOKESPECIAL, (byte) (objectInit >> 8), (byte) objectInit,
+                    (byte) RETURN});
+
+            out.writeShort(0x0001 | 0x0010); // public, final
+            out.writeShort(evaluate);
+            out.writeShort(evaluateDescriptor);
+            out.writeShort(1);
+            writeCode(out, codeAttribute, 8, FIRST_NODE + 2 * phenotype.numberOfNodes(), code);
+
+            out.writeShort(0); // attributes
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Define a generated class file as a hidden class, and instantiate it.
+     *
+     * @param classFile generated by {@link KernelGenerator#generate(Phenotype, int)};
+     *
+     * @return new kernel;
+     * @throws IllegalStateException if the class can't be defined or instantiated;
+     */
+    static Kernel define (byte[] classFile) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            MethodHandle constructor = lookup.findConstructor(lookup.lookupClass(),
+                    MethodType.methodType(void.class));
+            return (Kernel) constructor.invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Could not define a generated kernel.", t);
+        }
+    }
+
+    private static void writeCode (DataOutputStream out, int name, int maxStack, int maxLocals,
+                                   byte[] code) throws IOException {
+        out.writeShort(name);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0); // exception table
+        out.writeShort(0); // attributes
+    }
+
+    /**
+     * Emit the code of the evaluate method.
+     *
+     * @param p phenotype;
+     * @param pool constant pool of the class;
+     * @param maxCodeSize maximum size of the bytecode;
+     *
+     * @return the bytecode, or null if it's larger than {@code maxCodeSize};
+     */
+    private static byte[] evaluateCode (Phenotype p, ConstantPool pool, int maxCodeSize) {
+        int n = p.numberOfNodes();
+        int apply = pool.interfaceMethodRef(FUNCTION, "apply", "(D)D");
+        Code code = new Code(pool, 32 * n + 16 * p.targets.length);
+
+        // load the values left by the previous call
+        for (int i = 0; i < n; i++) {
+            code.op(ALOAD_0 + VALUES);
+            code.pushInt(i);
+            code.op(DALOAD);
+            code.local(DSTORE, node(i));
+        }
+
+        for (int i = 0; i < n; i++) {
+            // give up as soon as possible, and before the constant pool fills up
+            if (code.size() > maxCodeSize) {
+                return null;
+            }
+            int v = node(i);
+            if (p.inputSlots[i] >= 0) {
+                code.local(DLOAD, v);
+                code.op(ALOAD_0 + INPUT);
+                code.pushInt(p.inputSlots[i]);
+                code.op(DALOAD);
+                code.op(DADD);
+                code.local(DSTORE, v);
+            }
+            if (p.outputSlots[i] >= 0) {
+                code.op(ALOAD_0 + OUTPUT);
+                code.pushInt(p.outputSlots[i]);
+                code.local(DLOAD, v);
+                code.op(DASTORE);
+            }
+
+            int from = p.rowStart[i];
+            int to = p.rowStart[i + 1];
+            if (from == to && !p.selfConnected[i]) {
+                code.op(DCONST_0);
+                code.local(DSTORE, v);
+                continue;
+            }
+
+            code.op(ALOAD);
+            code.op(FUNCTION_ARG);
+            code.local(DLOAD, v);
+            code.op(INVOKEINTERFACE);
+            code.u2(apply);
+            code.op(3);
+            code.op(0);
+            code.local(DSTORE, ACTIVATION);
+
+            for (int c = from; c < to; c++) {
+                int target = node(p.targets[c]);
+                code.local(DLOAD, target);
+                code.local(DLOAD, ACTIVATION);
+                code.pushDouble(p.weights[c]);
+                code.op(DMUL);
+                code.op(DADD);
+                code.local(DSTORE, target);
+            }
+            if (p.selfConnected[i]) {
+                code.local(DLOAD, ACTIVATION);
+                code.pushDouble(p.selfWeights[i]);
+                code.op(DMUL);
+            } else {
+                code.op(DCONST_0);
+            }
+            code.local(DSTORE, v);
+        }
+
+        // keep the values for the next call
+        for (int i = 0; i < n; i++) {
+            code.op(ALOAD_0 + VALUES);
+            code.pushInt(i);
+            code.local(DLOAD, node(i));
+            code.op(DASTORE);
+        }
+        code.op(RETURN);
+        return code.size() > maxCodeSize ? null : code.toByteArray();
+    }
+
+    /**
+     * @param index of a node;
+     *
+     * @return the local variable holding its value;
+     */
+    private static int node (int index) {
+        return FIRST_NODE + 2 * index;
+    }
+
+    /**
+     * Bytecode of a method being emitted.
+     */
+    private static final class Code extends ByteArrayOutputStream {
+
+        private final ConstantPool pool;
+
+        Code (ConstantPool pool, int size) {
+            super(size);
+            this.pool = pool;
+        }
+
+        void op (int opcode) {
+            write(opcode);
+        }
+
+        void u2 (int value) {
+            write(value >> 8);
+            write(value);
+        }
+
+        /**
+         * Load or store a local variable, in the wide form if needed.
+         */
+        void local (int opcode, int index) {
+            if (index > 255) {
+                op(WIDE);
+                op(opcode);
+                u2(index);
+            } else {
+                op(opcode);
+                op(index);
+            }
+        }
+
+        void pushInt (int value) {
+            if (value >= 0 && value <= 5) {
+                op(ICONST_0 + value);
+            } else if (value <= Byte.MAX_VALUE) {
+                op(BIPUSH);
+                op(value);
+            } else if (value <= Short.MAX_VALUE) {
+                op(SIPUSH);
+                u2(value);
+            } else {
+                op(LDC_W);
+                u2(pool.intConst(value));
+            }
+        }
+
+        void pushDouble (double value) {
+            op(LDC2_W);
+            u2(pool.doubleConst(value));
+        }
+    }
+
+    /**
+     * Constant pool of the class being generated, without duplicated entries.
+     */
+    private static final class ConstantPool {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<Object, Integer> entries = new HashMap<>();
+        private int count = 1;
+
+        int utf8 (String value) {
+            String key = "Utf8 " + value;
+            Integer index = entries.get(key);
+            if (index != null) return index;
+            try {
+                out.writeByte(1);
+                out.writeUTF(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return add(key, 1);
+        }
+
+        int classRef (String name) {
+            String key = "Class " + name;
+            Integer index = entries.get(key);
+            if (index != null) return index;
+            int nameIndex = utf8(name);
+            entry(7, nameIndex);
+            return add(key, 1);
+        }
+
+        int methodRef (String owner, String name, String descriptor) {
+            return memberRef(10, owner, name, descriptor);
+        }
+
+        int interfaceMethodRef (String owner, String name, String descriptor) {
+            return memberRef(11, owner, name, descriptor);
+        }
+
+        int intConst (int value) {
+            Integer index = entries.get(value);
+            if (index != null) return index;
+            try {
+                out.writeByte(3);
+                out.writeInt(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return add(value, 1);
+        }
+
+        int doubleConst (double value) {
+            // keyed by the bits, so that 0.0 and -0.0 (or different NaNs) are kept apart
+            Long key = Double.doubleToRawLongBits(value);
+            Integer index = entries.get(key);
+            if (index != null) return index;
+            try {
+                out.writeByte(6);
+                out.writeLong(key);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return add(key, 2);
+        }
+
+        private int memberRef (int tag, String owner, String name, String descriptor) {
+            String key = tag + " " + owner + "." + name + descriptor;
+            Integer index = entries.get(key);
+            if (index != null) return index;
+            int ownerIndex = classRef(owner);
+            String natKey = "NameAndType " + name + descriptor;
+            Integer nat = entries.get(natKey);
+            if (nat == null) {
+                int nameIndex = utf8(name);
+                int descriptorIndex = utf8(descriptor);
+                entry(12, nameIndex, descriptorIndex);
+                nat = add(natKey, 1);
+            }
+            entry(tag, ownerIndex, nat);
+            return add(key, 1);
+        }
+
+        private void entry (int tag, int... indices) {
+            try {
+                out.writeByte(tag);
+                for (int index : indices) {
+                    out.writeShort(index);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private int add (Object key, int slots) {
+            int index = count;
+            count += slots;
+            if (count > 65535) {
+                throw new IllegalStateException("Constant pool of a generated kernel is full.");
+            }
+            entries.put(key, index);
+            return index;
+        }
+
+        void writeTo (DataOutputStream stream) throws IOException {
+            stream.writeShort(count);
+            bytes.writeTo(stream);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.utils.structures.LruCache;
+
+import java.util.Arrays;
+
+
+/**
+ * Compiles networks into generated classes, for the fastest evaluation of a single network.
+ *
+ * <p>A {@link Phenotype} returned by this compiler is evaluated by a hidden class generated at
+ * runtime for that network only: the weights are constants, the values of the nodes are local
+ * variables, and there are no loops or array lookups for the structure, so the JIT is free to
+ * keep the whole network in registers. The results are exactly the same as the interpreted
+ * phenotype's. Generating and loading a class is expensive, so this only pays off for networks
+ * that are evaluated many times, like a champion, or the genomes of a generation with a long
+ * simulation.
+ *
+ * <p>Networks whose generated code would be larger than a threshold are not compiled, and
+ * evaluated from the arrays as usual. The default threshold is 8000 bytes of bytecode, the size
+ * above which HotSpot refuses to JIT-compile a method, so that a huge network is never left to
+ * run in the bytecode interpreter.
+ *
+ * <p>Compiled classes are kept in a least recently used cache, keyed by the structure and
+ * weights of the network, so that identical genomes (the copies of a champion, for example)
+ * aren't compiled again. The classes of evicted networks are unloaded once no phenotype uses
+ * them.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @see Phenotype
+ * @author tesla
+ * @since v1.2
+ */
+public class NetworkCompiler {
+
+    /** Default maximum size of the generated code, in bytes. */
+    public static final int DEFAULT_MAX_CODE_SIZE = 8000;
+
+    /** Default number of compiled networks kept in the cache. */
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    private final int maxCodeSize;
+
+    private final LruCache<Key, Kernel> cache;
+
+    /**
+     * Create a compiler with the default threshold and cache size.
+     */
+    public NetworkCompiler () {
+        this(DEFAULT_MAX_CODE_SIZE, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Create a compiler.
+     *
+     * @param maxCodeSize networks with generated code larger than this, in bytes, are not
+     *                    compiled;
+     * @param cacheSize maximum number of compiled networks kept, 0 for no cache;
+     *
+     * @throws IllegalArgumentException if any of the arguments is negative;
+     */
+    public NetworkCompiler (int maxCodeSize, int cacheSize) {
+        if (maxCodeSize < 0 || cacheSize < 0) {
+            throw new IllegalArgumentException("The code size [" + maxCodeSize + "] and the " +
+                    "cache size [" + cacheSize + "] can't be negative.");
+        }
+        this.maxCodeSize = maxCodeSize;
+        cache = new LruCache<>(cacheSize);
+    }
+
+    /**
+     * Compile a genome.
+     *
+     * @param genome to compile;
+     *
+     * @return phenotype of the genome, evaluated by generated code if it's small enough;
+     * @throws com.tesladodger.neat.utils.exceptions.IllegalTopologyException if an enabled
+     * connection leads to a node that doesn't exist in the genome;
+     */
+    public Phenotype compile (Genome genome) {
+        return compile(new Phenotype(genome));
+    }
+
+    /**
+     * Compile a phenotype.
+     *
+     * @param phenotype to compile;
+     *
+     * @return a phenotype evaluated by generated code, or the given phenotype if it's already
+     * compiled or too large;
+     */
+    public Phenotype compile (Phenotype phenotype) {
+        if (phenotype.isCompiled()) {
+            return phenotype;
+        }
+
+        Key key = new Key(phenotype);
+        Kernel kernel = cache.get(key);
+        if (kernel == null) {
+            // generated outside the lock: at worst, the same network is compiled twice
+            byte[] classFile = KernelGenerator.generate(phenotype, maxCodeSize);
+            if (classFile == null) {
+                return phenotype;
+            }
+            kernel = KernelGenerator.define(classFile);
+            cache.put(key, kernel);
+        }
+        return new Phenotype(phenotype, kernel);
+    }
+
+    /**
+     * @return number of compiled networks in the cache;
+     */
+    public int cacheSize () {
+        return cache.size();
+    }
+
+    /**
+     * @return the cache of compiled networks, with its hit and miss counts;
+     */
+    public LruCache<?, ?> getCache () {
+        return cache;
+    }
+
+    /**
+     * Remove all compiled networks from the cache.
+     */
+    public void clearCache () {
+        cache.clear();
+    }
+
+    /**
+     * Structure and weights of a phenotype, which determine its generated code.
+     */
+    private static final class Key {
+
+        private final Topology topology;
+        private final double[] weights;
+        private final double[] selfWeights;
+        private final int hash;
+
+        Key (Phenotype phenotype) {
+            topology = new Topology(phenotype);
+            weights = phenotype.weights;
+            selfWeights = phenotype.selfWeights;
+            int result = topology.hashCode();
+            result = 31 * result + Arrays.hashCode(weights);
+            result = 31 * result + Arrays.hashCode(selfWeights);
+            hash = result;
+        }
+
+        @Override
+        public boolean equals (Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key that = (Key) o;
+            return hash == that.hash && topology.equals(that.topology) &&
+                    Arrays.equals(weights, that.weights) &&
+                    Arrays.equals(selfWeights, that.selfWeights);
+        }
+
+        @Override
+        public int hashCode () {
+            return hash;
+        }
+    }
+}
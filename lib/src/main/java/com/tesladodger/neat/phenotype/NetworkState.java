@@ -0,0 +1,91 @@
+package com.tesladodger.neat.phenotype;
+
+import java.util.Arrays;
+
+
+/**
+ * Values of the nodes of a {@link Phenotype} during an episode.
+ *
+ * <p>Since a genome supports recursive connections, the output of a network depends on the
+ * values left in its nodes by the previous evaluations. Those values are kept in this object,
+ * apart from the network itself, so that the same {@link Phenotype} can be evaluated in many
+ * independent episodes (concurrently, if each thread has its own state), and so that the
+ * recurrent values can be saved, restored or cleared independently.
+ *
+ * <p>A state is not thread-safe, and should only be used by one episode at a time.
+ *
+ * @see Phenotype#newState()
+ * @author tesla
+ * @since v1.2
+ */
+public class NetworkState {
+
+    /** Sum of the inputs of each node, indexed in evaluation order. */
+    final double[] values;
+
+    /**
+     * Create a state with the values of all nodes set to 0.
+     *
+     * @param nodes number of nodes of the network;
+     */
+    NetworkState (int nodes) {
+        values = new double[nodes];
+    }
+
+    /**
+     * Clear all the values, as if the network had never been evaluated.
+     */
+    public void reset () {
+        Arrays.fill(values, 0);
+    }
+
+    /**
+     * Replace the values of this state with the values of another one, which must belong to a
+     * network with the same number of nodes.
+     *
+     * @param other state to copy the values from;
+     *
+     * @throws IllegalArgumentException if the other state has a different number of nodes;
+     */
+    public void restore (NetworkState other) {
+        if (other.values.length != values.length) {
+            throw new IllegalArgumentException("State of a network with " + other.values.length +
+                    " nodes can't be restored into one with " + values.length + " nodes.");
+        }
+        System.arraycopy(other.values, 0, values, 0, values.length);
+    }
+
+    /**
+     * @return independent copy of this state, which can be used to restore it later;
+     */
+    public NetworkState copy () {
+        NetworkState result = new NetworkState(values.length);
+        result.restore(this);
+        return result;
+    }
+
+    /**
+     * @return number of nodes of the network this state belongs to;
+     */
+    public int size () {
+        return values.length;
+    }
+
+    @Override
+    public boolean equals (Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        NetworkState x = (NetworkState) o;
+        return Arrays.equals(values, x.values);
+    }
+
+    @Override
+    public int hashCode () {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString () {
+        return "NetworkState" + Arrays.toString(values);
+    }
+}
@@ -0,0 +1,390 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Evaluator of a {@link Phenotype} that computes the nodes of each level of the network in
+ * parallel, on a {@link ForkJoinPool}.
+ *
+ * <p>The nodes are grouped in levels: a node is in level 0 if no connection leads forward to it,
+ * otherwise it's one level above the highest node that does. The nodes of a level only depend on
+ * the nodes of the levels below, so they can be computed at the same time. When the connections
+ * respect the layers of the genome's nodes, the levels are those layers.
+ *
+ * <p>Instead of propagating the activation of each node to its targets, as the phenotype does,
+ * each node gathers the activations of the nodes that lead to it, in the same order the phenotype
+ * would have added them, so the results are exactly the same as those of an {@link Evaluator}.
+ * After all levels, the values carried to the next call by recursive connections are gathered
+ * the same way. The state is a {@link NetworkState} of the phenotype, so it can be restored from
+ * or into one used by an {@link Evaluator}.
+ *
+ * <p>Levels with fewer connections than the threshold are computed on the calling thread, since
+ * splitting them costs more than it saves; large levels are split into tasks of about that many
+ * connections. This only pays off for wide networks, with thousands of nodes per level, such as
+ * substrates or networks with many sensor inputs: it reduces the latency of a single episode, not
+ * the total work.
+ *
+ * <p>An evaluator is not thread-safe: a call uses the pool, but evaluations must not overlap.
+ *
+ * @see Evaluator
+ * @author tesla
+ * @since v1.2
+ */
+public class ParallelEvaluator {
+
+    /** Default minimum number of connections of a level for it to be split. */
+    public static final int DEFAULT_THRESHOLD = 4096;
+
+    private final Phenotype phenotype;
+    private final ActivationFunction function;
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private final NetworkState state;
+    private final double[] output;
+
+    /** Nodes ordered by level, and by index within each level. */
+    private final int[] order;
+
+    /** Position in {@code order} of the first node of each level, followed by the total. */
+    private final int[] levelStart;
+
+    /** Number of connections gathered by the nodes before each position of {@code order}. */
+    private final long[] work;
+
+    /* Connections leading forward to each node, ordered by in-node. */
+    private final int[] forwardStart;
+    private final int[] forwardSources;
+    private final double[] forwardWeights;
+
+    /* Connections leading backward to each node, ordered by in-node. */
+    private final int[] backwardStart;
+    private final int[] backwardSources;
+    private final double[] backwardWeights;
+
+    /** Activation of each node in the current call. */
+    private final double[] activations;
+
+    /** Values of the nodes of a level, by position, activated with a single call. */
+    private final double[] levelValues;
+
+    /* Arguments of the current call, read by the tasks. */
+    private double[] input;
+    private double[] rawOutput;
+
+    /**
+     * Create an evaluator on the common pool, with the default threshold.
+     *
+     * @param phenotype to evaluate;
+     * @param function activation function;
+     */
+    public ParallelEvaluator (Phenotype phenotype, ActivationFunction function) {
+        this(phenotype, function, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Create an evaluator.
+     *
+     * @param phenotype to evaluate;
+     * @param function activation function;
+     * @param pool where the levels are computed;
+     * @param threshold minimum number of connections of a level for it to be split into tasks;
+     *
+     * @throws IllegalArgumentException if the threshold is not positive;
+     */
+    public ParallelEvaluator (Phenotype phenotype, ActivationFunction function,
+                              ForkJoinPool pool, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Threshold [" + threshold + "] must be positive.");
+        }
+        this.phenotype = phenotype;
+        this.function = function;
+        this.pool = pool;
+        this.threshold = threshold;
+        state = phenotype.newState();
+        output = new double[phenotype.numberOfOutputs()];
+
+        int n = phenotype.numberOfNodes();
+        activations = new double[n];
+        levelValues = new double[n];
+
+        // transpose the connections, keeping the in-nodes in evaluation order
+        forwardStart = new int[n + 1];
+        backwardStart = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            for (int c = phenotype.rowStart[i]; c < phenotype.rowStart[i + 1]; c++) {
+                int t = phenotype.targets[c];
+                if (t > i) forwardStart[t + 1]++;
+                else backwardStart[t + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            forwardStart[i + 1] += forwardStart[i];
+            backwardStart[i + 1] += backwardStart[i];
+        }
+        forwardSources = new int[forwardStart[n]];
+        forwardWeights = new double[forwardStart[n]];
+        backwardSources = new int[backwardStart[n]];
+        backwardWeights = new double[backwardStart[n]];
+        int[] forwardNext = forwardStart.clone();
+        int[] backwardNext = backwardStart.clone();
+        for (int i = 0; i < n; i++) {
+            for (int c = phenotype.rowStart[i]; c < phenotype.rowStart[i + 1]; c++) {
+                int t = phenotype.targets[c];
+                if (t > i) {
+                    forwardSources[forwardNext[t]] = i;
+                    forwardWeights[forwardNext[t]++] = phenotype.weights[c];
+                } else {
+                    backwardSources[backwardNext[t]] = i;
+                    backwardWeights[backwardNext[t]++] = phenotype.weights[c];
+                }
+            }
+        }
+
+        // levels, and the nodes sorted by level
+        int[] level = new int[n];
+        int levels = 0;
+        for (int i = 0; i < n; i++) {
+            for (int c = forwardStart[i]; c < forwardStart[i + 1]; c++) {
+                level[i] = Math.max(level[i], level[forwardSources[c]] + 1);
+            }
+            levels = Math.max(levels, level[i] + 1);
+        }
+        levelStart = new int[levels + 1];
+        for (int i = 0; i < n; i++) {
+            levelStart[level[i] + 1]++;
+        }
+        for (int l = 0; l < levels; l++) {
+            levelStart[l + 1] += levelStart[l];
+        }
+        order = new int[n];
+        int[] next = levelStart.clone();
+        for (int i = 0; i < n; i++) {
+            order[next[level[i]]++] = i;
+        }
+        work = new long[n + 1];
+        for (int k = 0; k < n; k++) {
+            int i = order[k];
+            work[k + 1] = work[k] + 1 + forwardStart[i + 1] - forwardStart[i] +
+                    backwardStart[i + 1] - backwardStart[i];
+        }
+    }
+
+    /**
+     * Performs propagation of the inputs through the network, applying the activation function
+     * to the outputs.
+     *
+     * @param input array of inputs;
+     *
+     * @return the output array of this evaluator, overwritten on every call;
+     * @throws IllegalArgumentException if the length of the input array doesn't correspond to
+     * the number of input nodes in the network;
+     * @see Evaluator#calculateOutput(double[])
+     */
+    public double[] calculateOutput (double[] input) {
+        calculateOutput(input, output);
+        return output;
+    }
+
+    /**
+     * Performs propagation of the inputs through the network, applying the activation function
+     * to the outputs, which are written to a given array.
+     *
+     * @param input array of inputs;
+     * @param output array where the outputs are written;
+     *
+     * @throws IllegalArgumentException if the length of the input or output arrays doesn't
+     * correspond to the number of input or output nodes in the network;
+     */
+    public void calculateOutput (double[] input, double[] output) {
+        calculateRawOutput(input, output);
+        function.applyInPlace(output, 0, output.length);
+    }
+
+    /**
+     * Performs propagation of the inputs through the network, without applying the activation
+     * function to the outputs.
+     *
+     * @param input array of inputs;
+     *
+     * @return the output array of this evaluator, overwritten on every call;
+     * @throws IllegalArgumentException if the length of the input array doesn't correspond to
+     * the number of input nodes in the network;
+     */
+    public double[] calculateRawOutput (double[] input) {
+        calculateRawOutput(input, output);
+        return output;
+    }
+
+    /**
+     * Performs propagation of the inputs through the network, without applying the activation
+     * function to the outputs, which are written to a given array.
+     *
+     * @param input array of inputs;
+     * @param output array where the raw outputs are written;
+     *
+     * @throws IllegalArgumentException if the length of the input or output arrays doesn't
+     * correspond to the number of input or output nodes in the network;
+     */
+    public void calculateRawOutput (double[] input, double[] output) {
+        if (input.length != phenotype.inputNum) {
+            throw new IllegalArgumentException("Length of input array [" + input.length + "] does" +
+                    " not correspond to number of input nodes [" + phenotype.inputNum + "].");
+        }
+        if (output.length != phenotype.outputNum) {
+            throw new IllegalArgumentException("Length of output array [" + output.length + "] " +
+                    "does not correspond to number of output nodes [" + phenotype.outputNum +
+                    "].");
+        }
+        this.input = input;
+        this.rawOutput = output;
+        try {
+            for (int l = 0; l < levelStart.length - 1; l++) {
+                run(levelStart[l], levelStart[l + 1], false);
+            }
+            run(0, order.length, true);
+        } finally {
+            this.input = null;
+            this.rawOutput = null;
+        }
+    }
+
+    /**
+     * Compute the nodes in a range of {@code order}, on this thread if they have fewer
+     * connections than the threshold, otherwise on the pool.
+     *
+     * @param from first position;
+     * @param to position after the last;
+     * @param carry whether to gather the values carried to the next call, instead of the
+     *              activations;
+     */
+    private void run (int from, int to, boolean carry) {
+        if (work[to] - work[from] < threshold) {
+            compute(from, to, carry);
+        } else {
+            pool.invoke(new Task(from, to, carry));
+        }
+    }
+
+    /**
+     * Compute the nodes in a range of {@code order}.
+     *
+     * @param from first position;
+     * @param to position after the last;
+     * @param carry whether to gather the values carried to the next call, instead of the
+     *              activations;
+     */
+    private void compute (int from, int to, boolean carry) {
+        double[] values = state.values;
+        int[] inputSlots = phenotype.inputSlots;
+        int[] outputSlots = phenotype.outputSlots;
+        int[] rowStart = phenotype.rowStart;
+        boolean[] selfConnected = phenotype.selfConnected;
+
+        if (carry) {
+            for (int k = from; k < to; k++) {
+                int i = order[k];
+                // what the phenotype leaves in the node, and then adds from the nodes after it
+                double value = selfConnected[i] ? activations[i] * phenotype.selfWeights[i] : 0;
+                for (int c = backwardStart[i]; c < backwardStart[i + 1]; c++) {
+                    value += activations[backwardSources[c]] * backwardWeights[c];
+                }
+                values[i] = value;
+            }
+            return;
+        }
+
+        // the values of the nodes whose activation is needed, packed from the first position
+        int packed = from;
+        for (int k = from; k < to; k++) {
+            int i = order[k];
+            double value = values[i];
+            for (int c = forwardStart[i]; c < forwardStart[i + 1]; c++) {
+                value += activations[forwardSources[c]] * forwardWeights[c];
+            }
+            if (inputSlots[i] >= 0) {
+                value += input[inputSlots[i]];
+            }
+            if (outputSlots[i] >= 0) {
+                rawOutput[outputSlots[i]] = value;
+            }
+            // nothing depends on this node's activation, skip the function
+            if (rowStart[i] != rowStart[i + 1] || selfConnected[i]) {
+                levelValues[packed++] = value;
+            }
+        }
+        function.applyInPlace(levelValues, from, packed);
+        for (int k = from, p = from; p < packed; k++) {
+            int i = order[k];
+            if (rowStart[i] != rowStart[i + 1] || selfConnected[i]) {
+                activations[i] = levelValues[p++];
+            }
+        }
+    }
+
+    /**
+     * Computes a range of nodes, splitting it in halves until each part has fewer connections
+     * than the threshold.
+     */
+    @SuppressWarnings("serial")
+    private class Task extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+        private final boolean carry;
+
+        Task (int from, int to, boolean carry) {
+            this.from = from;
+            this.to = to;
+            this.carry = carry;
+        }
+
+        @Override
+        protected void compute () {
+            if (to - from < 2 || work[to] - work[from] < threshold) {
+                ParallelEvaluator.this.compute(from, to, carry);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Task(from, middle, carry), new Task(middle, to, carry));
+        }
+    }
+
+    /**
+     * Clear the values kept by recursive connections, to start a new episode.
+     */
+    public void reset () {
+        state.reset();
+    }
+
+    /**
+     * @return number of levels the nodes are grouped in;
+     */
+    public int numberOfLevels () {
+        return levelStart.length - 1;
+    }
+
+    /**
+     * @return the state of this evaluator, which can be copied or restored;
+     */
+    public NetworkState getState () {
+        return state;
+    }
+
+    /**
+     * @return the phenotype this evaluator runs;
+     */
+    public Phenotype getPhenotype () {
+        return phenotype;
+    }
+
+    /**
+     * @return the activation function of this evaluator;
+     */
+    public ActivationFunction getFunction () {
+        return function;
+    }
+}
@@ -0,0 +1,938 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.Node;
+import com.tesladodger.neat.utils.exceptions.IllegalTopologyException;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+
+import java.util.Arrays;
+
+
+/**
+ * Compiled network of a {@link Genome}, for fast evaluation.
+ *
+ * <p>The nodes of the genome are stored in evaluation order (the order of the
+ * {@link com.tesladodger.neat.utils.structures.NodeList}) and identified by their index in that
+ * order. The enabled connections are stored in compressed sparse rows: the connections departing
+ * from the node with index {@code i} are in the range {@code [rowStart[i], rowStart[i+1])} of
+ * the target and weight arrays. Connections from a node to itself are kept apart, since their
+ * value has to be restored after the node is reset.
+ *
+ * <p>A phenotype is immutable: the values of the nodes, which are preserved between calls by
+ * recursive connections, are kept in a {@link NetworkState}. The same phenotype can be evaluated
+ * concurrently by many threads, as long as each uses its own state, which makes it possible to
+ * run many episodes of the same genome in parallel without cloning it.
+ *
+ * <p>The result of
+ * {@link Phenotype#calculateOutput(NetworkState, double[], ActivationFunction)} is exactly the
+ * same as the result of {@link Genome#calculateOutput(double[], ActivationFunction)} on the
+ * genome this phenotype was built from, including backward connections and connections to self,
+ * as long as the same state is used for every call.
+ *
+ * <p>Only the structure that can change the outputs is compiled: disabled connections, and
+ * hidden nodes without a path to an output, are left out. Genomes collect a lot of both over the
+ * generations, as connections are disabled by new nodes and by crossover, and the genome keeps
+ * them for crossover, but evaluating them is wasted work.
+ *
+ * <p>This is a snapshot of the genome: changing its weights or its topology afterwards has no
+ * effect on this phenotype.
+ *
+ * <p>A phenotype created by a {@link NetworkCompiler} is evaluated by code generated for it,
+ * instead of the loops over the arrays, with the same results.
+ *
+ * @see Genome
+ * @see NetworkState
+ * @see NetworkCompiler
+ * @author tesla
+ * @since v1.2
+ */
+public class Phenotype {
+
+    /** Number of rows of a batch evaluated together, bounding the memory used by a batch. */
+    private static final int BATCH_BLOCK = 128;
+
+    /* Number of nodes of each kind in this network. */
+    final int inputNum;
+    final int outputNum;
+
+    /** Index in the input array of each node, or -1 if it isn't an input. */
+    final int[] inputSlots;
+
+    /** Index in the output array of each node, or -1 if it isn't an output. */
+    final int[] outputSlots;
+
+    /** Index of the first connection departing from each node, followed by the total. */
+    final int[] rowStart;
+
+    /** Index of the out-node of each connection. */
+    final int[] targets;
+
+    /** Weight of each connection. */
+    final double[] weights;
+
+    /** Whether each node has an enabled connection to itself. */
+    final boolean[] selfConnected;
+
+    /** Weight of the connection to self of each node, 0 if it doesn't have one. */
+    final double[] selfWeights;
+
+    /** Generated evaluation of this network, or null if it's interpreted from the arrays. */
+    final Kernel kernel;
+
+    /**
+     * Compile a genome.
+     *
+     * <p>Disabled connections are discarded, as well as connections departing from nodes that
+     * don't exist in the genome. Hidden nodes without a path to an output node are discarded
+     * with their connections, since they can't change the outputs. The genome isn't changed.
+     *
+     * @param genome to compile;
+     *
+     * @throws IllegalTopologyException if an enabled connection leads to a node that doesn't
+     * exist in the genome;
+     */
+    public Phenotype (Genome genome) {
+        this(genome, null);
+    }
+
+    /**
+     * Compile a genome, to be evaluated with a given activation function.
+     *
+     * <p>Besides what {@link Phenotype#Phenotype(Genome)} discards, if {@code function} returns
+     * 0 for 0, hidden nodes that can't be reached from an input node are discarded too: their
+     * value is always 0, and so is their activation. With other functions those nodes add a
+     * constant to the nodes they lead to, so they are kept.
+     *
+     * <p>The outputs are only the same as the outputs of the genome when this phenotype is
+     * evaluated with {@code function}.
+     *
+     * @param genome to compile;
+     * @param function activation function the phenotype will be evaluated with, or null if it
+     *                 isn't known;
+     *
+     * @throws IllegalTopologyException if an enabled connection leads to a node that doesn't
+     * exist in the genome;
+     */
+    public Phenotype (Genome genome, ActivationFunction function) {
+        this(genome, function, null);
+    }
+
+    /**
+     * Compile a genome, recording where the weight of each enabled connection is stored.
+     *
+     * <p>The enabled connections are visited in the order of
+     * {@link Genome#genesInEvaluationOrder()}. For each one, {@code slots} gets its index in the
+     * weights array, or {@code -(i + 1)} if it's the connection to self of the node with index
+     * {@code i}, or {@link Integer#MIN_VALUE} if it was discarded.
+     *
+     * @param genome to compile;
+     * @param function activation function the phenotype will be evaluated with, or null;
+     * @param slots array with a position for each enabled connection, or null;
+     *
+     * @throws IllegalTopologyException if an enabled connection leads to a node that doesn't
+     * exist in the genome;
+     * @see PhenotypeCache
+     */
+    Phenotype (Genome genome, ActivationFunction function, int[] slots) {
+        int n = genome.numberOfNodes();
+        Node.Type[] types = new Node.Type[n];
+        int maxId = -1;
+        for (int i = 0; i < n; i++) {
+            types[i] = genome.getNodeType(i);
+            maxId = Math.max(maxId, genome.getNodeId(i));
+        }
+        int[] indexOf = new int[maxId + 1];
+        Arrays.fill(indexOf, -1);
+        for (int i = 0; i < n; i++) {
+            indexOf[genome.getNodeId(i)] = i;
+        }
+
+        // enabled connections between different nodes, grouped by in-node in evaluation order
+        int[] order = genome.genesInEvaluationOrder();
+        int count = 0;
+        for (int gene : order) {
+            if (genome.isEnabled(gene) && genome.getInNodeId(gene) != genome.getOutNodeId(gene)) {
+                count++;
+            }
+        }
+        int[] sources = new int[count];
+        int[] ends = new int[count];
+        double[] edgeWeights = new double[count];
+        boolean[] self = new boolean[n];
+        double[] selfWeight = new double[n];
+        // position of each connection among the enabled ones, for the slots
+        int[] enabledIndex = slots == null ? null : new int[count];
+        int enabled = 0;
+        int e = 0;
+        for (int gene : order) {
+            if (!genome.isEnabled(gene)) {
+                continue;
+            }
+            int i = indexOf[genome.getInNodeId(gene)];
+            int outId = genome.getOutNodeId(gene);
+            if (genome.getInNodeId(gene) == outId) {
+                self[i] = true;
+                selfWeight[i] = genome.getWeight(gene);
+                if (slots != null) {
+                    slots[enabled] = -(i + 1);
+                }
+                enabled++;
+                continue;
+            }
+            int target = outId < indexOf.length ? indexOf[outId] : -1;
+            if (target == -1) {
+                throw new IllegalTopologyException("Connection " +
+                        genome.getInnovationNumber(gene) + " leads to node " + outId +
+                        ", which is not present in the genome.");
+            }
+            sources[e] = i;
+            ends[e] = target;
+            edgeWeights[e] = genome.getWeight(gene);
+            if (slots != null) {
+                enabledIndex[e] = enabled;
+                slots[enabled] = Integer.MIN_VALUE;
+            }
+            enabled++;
+            e++;
+        }
+
+        boolean[] kept = keptNodes(types, sources, ends,
+                function != null && function.apply(0) == 0);
+        int[] newIndex = new int[n];
+        int kn = 0;
+        for (int i = 0; i < n; i++) {
+            newIndex[i] = kept[i] ? kn++ : -1;
+        }
+
+        inputSlots = new int[kn];
+        outputSlots = new int[kn];
+        rowStart = new int[kn + 1];
+        selfConnected = new boolean[kn];
+        selfWeights = new double[kn];
+
+        int in = 0;
+        int out = 0;
+        count = 0;
+        for (int i = 0; i < sources.length; i++) {
+            if (kept[sources[i]] && kept[ends[i]]) {
+                count++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (!kept[i]) {
+                continue;
+            }
+            int k = newIndex[i];
+            inputSlots[k] = types[i] == Node.Type.INPUT ? in++ : -1;
+            outputSlots[k] = types[i] == Node.Type.OUTPUT ? out++ : -1;
+            selfConnected[k] = self[i];
+            selfWeights[k] = selfWeight[i];
+        }
+        inputNum = in;
+        outputNum = out;
+
+        targets = new int[count];
+        weights = new double[count];
+        int[] edgeAt = slots == null ? null : new int[count];
+        int c = 0;
+        e = 0;
+        for (int i = 0; i < n; i++) {
+            if (kept[i]) {
+                rowStart[newIndex[i]] = c;
+            }
+            for (; e < sources.length && sources[e] == i; e++) {
+                if (!kept[i] || !kept[ends[e]]) {
+                    continue;
+                }
+                int target = newIndex[ends[e]];
+                int first = rowStart[newIndex[i]];
+                // insertion sort by target, so the values are written in ascending order
+                int j = c++;
+                while (j > first && targets[j - 1] > target) {
+                    targets[j] = targets[j - 1];
+                    weights[j] = weights[j - 1];
+                    if (slots != null) {
+                        edgeAt[j] = edgeAt[j - 1];
+                    }
+                    j--;
+                }
+                targets[j] = target;
+                weights[j] = edgeWeights[e];
+                if (slots != null) {
+                    edgeAt[j] = e;
+                }
+            }
+        }
+        rowStart[kn] = c;
+        kernel = null;
+
+        if (slots != null) {
+            for (int k = 0; k < enabled; k++) {
+                if (slots[k] != Integer.MIN_VALUE) {
+                    int i = -slots[k] - 1;
+                    slots[k] = kept[i] ? -(newIndex[i] + 1) : Integer.MIN_VALUE;
+                }
+            }
+            for (int j = 0; j < count; j++) {
+                slots[enabledIndex[edgeAt[j]]] = j;
+            }
+        }
+    }
+
+    /**
+     * Create a phenotype from its arrays, built elsewhere, such as by a {@link Substrate}.
+     *
+     * @param inputSlots index in the input array of each node, or -1;
+     * @param outputSlots index in the output array of each node, or -1;
+     * @param rowStart index of the first connection departing from each node, and the total;
+     * @param targets index of the out-node of each connection, ascending within each row;
+     * @param weights weight of each connection;
+     * @param selfConnected whether each node has a connection to itself;
+     * @param selfWeights weight of the connection to self of each node;
+     */
+    Phenotype (int[] inputSlots, int[] outputSlots, int[] rowStart, int[] targets,
+               double[] weights, boolean[] selfConnected, double[] selfWeights) {
+        int in = 0;
+        int out = 0;
+        for (int i = 0; i < inputSlots.length; i++) {
+            if (inputSlots[i] >= 0) in++;
+            if (outputSlots[i] >= 0) out++;
+        }
+        inputNum = in;
+        outputNum = out;
+        this.inputSlots = inputSlots;
+        this.outputSlots = outputSlots;
+        this.rowStart = rowStart;
+        this.targets = targets;
+        this.weights = weights;
+        this.selfConnected = selfConnected;
+        this.selfWeights = selfWeights;
+        kernel = null;
+    }
+
+    /**
+     * Copy the structure of a phenotype, with other weights.
+     *
+     * @param structure phenotype whose structure arrays are shared;
+     * @param weights weight of each connection;
+     * @param selfWeights weight of the connection to self of each node;
+     */
+    Phenotype (Phenotype structure, double[] weights, double[] selfWeights) {
+        inputNum = structure.inputNum;
+        outputNum = structure.outputNum;
+        inputSlots = structure.inputSlots;
+        outputSlots = structure.outputSlots;
+        rowStart = structure.rowStart;
+        targets = structure.targets;
+        this.weights = weights;
+        selfConnected = structure.selfConnected;
+        this.selfWeights = selfWeights;
+        kernel = null;
+    }
+
+    /**
+     * Copy a phenotype, evaluated by a generated kernel.
+     *
+     * @param phenotype to copy, sharing its arrays;
+     * @param kernel generated for {@code phenotype};
+     */
+    Phenotype (Phenotype phenotype, Kernel kernel) {
+        inputNum = phenotype.inputNum;
+        outputNum = phenotype.outputNum;
+        inputSlots = phenotype.inputSlots;
+        outputSlots = phenotype.outputSlots;
+        rowStart = phenotype.rowStart;
+        targets = phenotype.targets;
+        weights = phenotype.weights;
+        selfConnected = phenotype.selfConnected;
+        selfWeights = phenotype.selfWeights;
+        this.kernel = kernel;
+    }
+
+    /**
+     * Find the nodes that can change the outputs of a network. Input and output nodes are always
+     * kept, hidden nodes are kept if they have a path to an output node and, if
+     * {@code dropUnreachable}, a path from an input node.
+     *
+     * @param types of the nodes of the genome, in evaluation order;
+     * @param sources index of the in-node of each connection;
+     * @param ends index of the out-node of each connection;
+     * @param dropUnreachable whether to discard hidden nodes that no input can reach;
+     *
+     * @return whether each node is kept;
+     */
+    private static boolean[] keptNodes (Node.Type[] types, int[] sources, int[] ends,
+                                        boolean dropUnreachable) {
+        int n = types.length;
+        boolean[] toOutput = new boolean[n];
+        boolean[] fromInput = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            toOutput[i] = types[i] == Node.Type.OUTPUT;
+            fromInput[i] = types[i] == Node.Type.INPUT;
+        }
+
+        // most connections point forward, so going backwards (and forwards) usually takes a
+        // single pass, and only recursive connections need another one
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int e = sources.length - 1; e >= 0; e--) {
+                if (toOutput[ends[e]] && !toOutput[sources[e]]) {
+                    toOutput[sources[e]] = true;
+                    changed = true;
+                }
+            }
+        }
+        changed = dropUnreachable;
+        while (changed) {
+            changed = false;
+            for (int e = 0; e < sources.length; e++) {
+                if (fromInput[sources[e]] && !fromInput[ends[e]]) {
+                    fromInput[ends[e]] = true;
+                    changed = true;
+                }
+            }
+        }
+
+        boolean[] kept = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            kept[i] = types[i] != Node.Type.HIDDEN ||
+                    (toOutput[i] && (fromInput[i] || !dropUnreachable));
+        }
+        return kept;
+    }
+
+    /**
+     * Create a state for this phenotype, with the values of all nodes set to 0.
+     *
+     * @return new state;
+     */
+    public NetworkState newState () {
+        return new NetworkState(numberOfNodes());
+    }
+
+    /**
+     * Performs propagation of the inputs through the network, applying the activation function
+     * to the outputs.
+     *
+     * @param state values of the nodes, updated by this call;
+     * @param input array of inputs;
+     * @param function activation function;
+     *
+     * @return array with outputs, ordered by node id;
+     * @throws IllegalArgumentException if the length of the input array doesn't correspond to
+     * the number of input nodes in this network, or if the state doesn't belong to a network
+     * with the same number of nodes;
+     * @see Genome#calculateOutput(double[], ActivationFunction)
+     */
+    public double[] calculateOutput (NetworkState state, double[] input,
+                                     ActivationFunction function) {
+        double[] result = new double[outputNum];
+        calculateOutput(state, input, result, function);
+        return result;
+    }
+
+    /**
+     * Performs propagation of the inputs through the network, applying the activation function
+     * to the outputs, which are written to a given array.
+     *
+     * <p>This method doesn't allocate any memory, so it can be called on every step of a long
+     * simulation with the same input and output arrays.
+     *
+     * @param state values of the nodes, updated by this call;
+     * @param input array of inputs;
+     * @param output array where the outputs are written, ordered by node id;
+     * @param function activation function;
+     *
+     * @throws IllegalArgumentException if the length of the input or output arrays doesn't
+     * correspond to the number of input or output nodes in this network, or if the state doesn't
+     * belong to a network with the same number of nodes;
+     */
+    public void calculateOutput (NetworkState state, double[] input, double[] output,
+                                 ActivationFunction function) {
+        calculateRawOutput(state, input, output, function);
+        function.applyInPlace(output, 0, output.length);
+    }
+
+    /**
+     * Performs propagation of the inputs through the network, without applying the activation
+     * function to the outputs.
+     *
+     * @param state values of the nodes, updated by this call;
+     * @param input array of inputs;
+     * @param function activation function;
+     *
+     * @return array with the raw outputs, ordered by node id;
+     * @throws IllegalArgumentException if the length of the input array doesn't correspond to
+     * the number of input nodes in this network, or if the state doesn't belong to a network
+     * with the same number of nodes;
+     * @see Genome#calculateRawOutput(double[], ActivationFunction)
+     */
+    public double[] calculateRawOutput (NetworkState state, double[] input,
+                                        ActivationFunction function) {
+        double[] result = new double[outputNum];
+        calculateRawOutput(state, input, result, function);
+        return result;
+    }
+
+    /**
+     * Performs propagation of the inputs through the network, without applying the activation
+     * function to the outputs, which are written to a given array.
+     *
+     * <p>This method doesn't allocate any memory.
+     *
+     * @param state values of the nodes, updated by this call;
+     * @param input array of inputs;
+     * @param output array where the raw outputs are written, ordered by node id;
+     * @param function activation function;
+     *
+     * @throws IllegalArgumentException if the length of the input or output arrays doesn't
+     * correspond to the number of input or output nodes in this network, or if the state doesn't
+     * belong to a network with the same number of nodes;
+     */
+    public void calculateRawOutput (NetworkState state, double[] input, double[] output,
+                                    ActivationFunction function) {
+        checkArguments(state, input, output);
+        propagate(state.values, input, output, function);
+    }
+
+    /**
+     * Evaluate the network on a sequence of inputs, one step after the other, applying the
+     * activation function to the outputs.
+     *
+     * <p>This is the same as calling
+     * {@link Phenotype#calculateOutput(NetworkState, double[], double[], ActivationFunction)}
+     * for each row, with the values carried between steps by recursive connections, but the
+     * arguments are checked once for the whole sequence.
+     *
+     * @param state values of the nodes, updated by this call;
+     * @param inputs matrix of inputs, one row per step;
+     * @param outputs matrix where the outputs are written, one row per step;
+     * @param function activation function;
+     *
+     * @throws IllegalArgumentException if the dimensions of the matrices don't correspond to the
+     * number of steps and of input and output nodes in this network, or if the state doesn't
+     * belong to a network with the same number of nodes;
+     */
+    public void calculateSequence (NetworkState state, double[][] inputs, double[][] outputs,
+                                   ActivationFunction function) {
+        calculateRawSequence(state, inputs, outputs, function);
+        for (double[] output : outputs) {
+            function.applyInPlace(output, 0, output.length);
+        }
+    }
+
+    /**
+     * Evaluate the network on a sequence of inputs, one step after the other, without applying
+     * the activation function to the outputs.
+     *
+     * @param state values of the nodes, updated by this call;
+     * @param inputs matrix of inputs, one row per step;
+     * @param outputs matrix where the raw outputs are written, one row per step;
+     * @param function activation function;
+     *
+     * @throws IllegalArgumentException if the dimensions of the matrices don't correspond to the
+     * number of steps and of input and output nodes in this network, or if the state doesn't
+     * belong to a network with the same number of nodes;
+     * @see Phenotype#calculateSequence(NetworkState, double[][], double[][], ActivationFunction)
+     */
+    public void calculateRawSequence (NetworkState state, double[][] inputs, double[][] outputs,
+                                      ActivationFunction function) {
+        if (inputs.length != outputs.length) {
+            throw new IllegalArgumentException("Number of output rows [" + outputs.length + "] " +
+                    "does not correspond to number of input rows [" + inputs.length + "].");
+        }
+        for (int t = 0; t < inputs.length; t++) {
+            checkArguments(state, inputs[t], outputs[t]);
+        }
+        for (int t = 0; t < inputs.length; t++) {
+            propagate(state.values, inputs[t], outputs[t], function);
+        }
+    }
+
+    /**
+     * Run the network in a closed loop, where the outputs of each step are used to produce the
+     * inputs of the next one, such as a controller in a simulation.
+     *
+     * <p>After each step, the activated outputs are given to the callback, which writes the
+     * inputs of the next step over the input array, and decides whether to continue. The input
+     * and output arrays are the same on every step, so nothing is allocated during the loop.
+     *
+     * <pre>{@code
+     * double[] input = cart.sense();
+     * double[] output = new double[phenotype.numberOfOutputs()];
+     * int steps = phenotype.calculateSequence(state, input, output, 100000, function,
+     *         (step, out, next) -> cart.act(out[0]) && cart.sense(next));
+     * }</pre>
+     *
+     * @param state values of the nodes, updated by this call;
+     * @param input inputs of the first step, overwritten by the callback with the next ones;
+     * @param output array where the outputs of each step are written;
+     * @param maxSteps maximum number of steps;
+     * @param function activation function;
+     * @param callback called after each step;
+     *
+     * @return number of steps run;
+     * @throws IllegalArgumentException if the length of the input or output arrays doesn't
+     * correspond to the number of input or output nodes in this network, or if the state doesn't
+     * belong to a network with the same number of nodes;
+     */
+    public int calculateSequence (NetworkState state, double[] input, double[] output,
+                                  int maxSteps, ActivationFunction function,
+                                  StepCallback callback) {
+        checkArguments(state, input, output);
+        for (int t = 0; t < maxSteps; t++) {
+            propagate(state.values, input, output, function);
+            function.applyInPlace(output, 0, output.length);
+            if (!callback.step(t, output, input)) {
+                return t + 1;
+            }
+        }
+        return Math.max(maxSteps, 0);
+    }
+
+    /**
+     * Propagate the inputs through the network, after the arguments were checked.
+     *
+     * @param values of the nodes, updated by this call;
+     * @param input array of inputs;
+     * @param output array where the raw outputs are written;
+     * @param function activation function;
+     */
+    private void propagate (double[] values, double[] input, double[] output,
+                            ActivationFunction function) {
+        if (kernel != null) {
+            kernel.evaluate(values, input, output, function);
+            return;
+        }
+
+        for (int i = 0; i < values.length; i++) {
+            double value = values[i];
+            if (inputSlots[i] >= 0) {
+                value += input[inputSlots[i]];
+            }
+            if (outputSlots[i] >= 0) {
+                output[outputSlots[i]] = value;
+            }
+
+            int from = rowStart[i];
+            int to = rowStart[i + 1];
+            // nothing depends on this node's activation, skip the function
+            if (from == to && !selfConnected[i]) {
+                values[i] = 0;
+                continue;
+            }
+
+            double activation = function.apply(value);
+            for (int c = from; c < to; c++) {
+                values[targets[c]] += activation * weights[c];
+            }
+            values[i] = selfConnected[i] ? activation * selfWeights[i] : 0;
+        }
+    }
+
+    /**
+     * Evaluate the network on many inputs at once, applying the activation function to the
+     * outputs.
+     *
+     * <p>Each row of {@code inputs} is evaluated independently, starting with all node values
+     * at 0, as if by a new {@link NetworkState}. The results are exactly the same as evaluating
+     * each row with {@link Phenotype#calculateOutput(NetworkState, double[], ActivationFunction)}
+     * on a new state, which for networks without recursive connections is the same as evaluating
+     * them one after the other.
+     *
+     * <p>The values of the nodes are laid out batch-major, so that the propagation through each
+     * connection is a single multiply-add loop over the rows of the batch, which the JIT can
+     * vectorize. This is much faster than evaluating the rows one by one when there are many of
+     * them, as in a supervised fitness function.
+     *
+     * @param inputs matrix of inputs, one row per evaluation;
+     * @param function activation function;
+     *
+     * @return matrix of outputs, one row per row of {@code inputs};
+     * @throws IllegalArgumentException if the length of any row doesn't correspond to the
+     * number of input nodes in this network;
+     */
+    public double[][] calculateOutput (double[][] inputs, ActivationFunction function) {
+        double[][] result = new double[inputs.length][outputNum];
+        calculateOutput(inputs, result, function);
+        return result;
+    }
+
+    /**
+     * Evaluate the network on many inputs at once, applying the activation function to the
+     * outputs, which are written to a given matrix.
+     *
+     * @param inputs matrix of inputs, one row per evaluation;
+     * @param outputs matrix where the outputs are written, one row per row of {@code inputs};
+     * @param function activation function;
+     *
+     * @throws IllegalArgumentException if the dimensions of the matrices don't correspond to the
+     * number of rows and of input and output nodes in this network;
+     * @see Phenotype#calculateOutput(double[][], ActivationFunction)
+     */
+    public void calculateOutput (double[][] inputs, double[][] outputs,
+                                 ActivationFunction function) {
+        calculateRawOutput(inputs, outputs, function);
+        for (double[] output : outputs) {
+            function.applyInPlace(output, 0, output.length);
+        }
+    }
+
+    /**
+     * Evaluate the network on many inputs at once, without applying the activation function to
+     * the outputs.
+     *
+     * @param inputs matrix of inputs, one row per evaluation;
+     * @param function activation function;
+     *
+     * @return matrix of raw outputs, one row per row of {@code inputs};
+     * @throws IllegalArgumentException if the length of any row doesn't correspond to the
+     * number of input nodes in this network;
+     * @see Phenotype#calculateOutput(double[][], ActivationFunction)
+     */
+    public double[][] calculateRawOutput (double[][] inputs, ActivationFunction function) {
+        double[][] result = new double[inputs.length][outputNum];
+        calculateRawOutput(inputs, result, function);
+        return result;
+    }
+
+    /**
+     * Evaluate the network on many inputs at once, without applying the activation function to
+     * the outputs, which are written to a given matrix.
+     *
+     * @param inputs matrix of inputs, one row per evaluation;
+     * @param outputs matrix where the raw outputs are written, one row per row of
+     *                {@code inputs};
+     * @param function activation function;
+     *
+     * @throws IllegalArgumentException if the dimensions of the matrices don't correspond to the
+     * number of rows and of input and output nodes in this network;
+     * @see Phenotype#calculateOutput(double[][], ActivationFunction)
+     */
+    public void calculateRawOutput (double[][] inputs, double[][] outputs,
+                                    ActivationFunction function) {
+        if (inputs.length != outputs.length) {
+            throw new IllegalArgumentException("Number of output rows [" + outputs.length + "] " +
+                    "does not correspond to number of input rows [" + inputs.length + "].");
+        }
+        for (int r = 0; r < inputs.length; r++) {
+            if (inputs[r].length != inputNum) {
+                throw new IllegalArgumentException("Length of input row " + r + " [" +
+                        inputs[r].length + "] does not correspond to number of input nodes [" +
+                        inputNum + "].");
+            }
+            if (outputs[r].length != outputNum) {
+                throw new IllegalArgumentException("Length of output row " + r + " [" +
+                        outputs[r].length + "] does not correspond to number of output nodes [" +
+                        outputNum + "].");
+            }
+        }
+
+        int block = Math.min(BATCH_BLOCK, inputs.length);
+        double[] values = new double[numberOfNodes() * block];
+        double[] activations = new double[block];
+        for (int from = 0; from < inputs.length; from += block) {
+            int size = Math.min(block, inputs.length - from);
+            // recursive connections leave values behind, which belong to the previous block
+            Arrays.fill(values, 0);
+            calculateBlock(inputs, outputs, from, size, block, values, activations, function);
+        }
+    }
+
+    /**
+     * Evaluate a block of consecutive rows of a batch.
+     *
+     * <p>The value of the node with index {@code i} for row {@code r} of the block is in
+     * {@code values[i * stride + r]}, and all values must be 0 when this method starts.
+     *
+     * @param inputs matrix of inputs;
+     * @param outputs matrix of raw outputs;
+     * @param first first row of the block;
+     * @param size number of rows in the block;
+     * @param stride distance between the values of consecutive nodes;
+     * @param values values of the nodes, all 0;
+     * @param activations scratch array for the activations of a node;
+     * @param function activation function;
+     */
+    private void calculateBlock (double[][] inputs, double[][] outputs, int first, int size,
+                                 int stride, double[] values, double[] activations,
+                                 ActivationFunction function) {
+        for (int i = 0; i < rowStart.length - 1; i++) {
+            int base = i * stride;
+            int inputSlot = inputSlots[i];
+            if (inputSlot >= 0) {
+                for (int r = 0; r < size; r++) {
+                    values[base + r] += inputs[first + r][inputSlot];
+                }
+            }
+            int outputSlot = outputSlots[i];
+            if (outputSlot >= 0) {
+                for (int r = 0; r < size; r++) {
+                    outputs[first + r][outputSlot] = values[base + r];
+                }
+            }
+
+            int from = rowStart[i];
+            int to = rowStart[i + 1];
+            if (from == to && !selfConnected[i]) {
+                Arrays.fill(values, base, base + size, 0);
+                continue;
+            }
+
+            System.arraycopy(values, base, activations, 0, size);
+            function.applyInPlace(activations, 0, size);
+            for (int c = from; c < to; c++) {
+                int target = targets[c] * stride;
+                double weight = weights[c];
+                for (int r = 0; r < size; r++) {
+                    values[target + r] += activations[r] * weight;
+                }
+            }
+            if (selfConnected[i]) {
+                double weight = selfWeights[i];
+                for (int r = 0; r < size; r++) {
+                    values[base + r] = activations[r] * weight;
+                }
+            } else {
+                Arrays.fill(values, base, base + size, 0);
+            }
+        }
+    }
+
+    /**
+     * Make sure the arrays and the state of an evaluation fit this network.
+     *
+     * @param state values of the nodes;
+     * @param input array of inputs;
+     * @param output array of outputs;
+     *
+     * @throws IllegalArgumentException if they don't;
+     */
+    private void checkArguments (NetworkState state, double[] input, double[] output) {
+        if (input.length != inputNum) {
+            throw new IllegalArgumentException("Length of input array [" + input.length + "] does" +
+                    " not correspond to number of input nodes [" + inputNum + "].");
+        }
+        if (output.length != outputNum) {
+            throw new IllegalArgumentException("Length of output array [" + output.length + "] " +
+                    "does not correspond to number of output nodes [" + outputNum + "].");
+        }
+        if (state.values.length != numberOfNodes()) {
+            throw new IllegalArgumentException("State of a network with " + state.values.length +
+                    " nodes used in a network with " + numberOfNodes() + " nodes.");
+        }
+    }
+
+    /**
+     * @return true if the single evaluation of this network is done by generated code;
+     * @see NetworkCompiler
+     */
+    public boolean isCompiled () {
+        return kernel != null;
+    }
+
+    /**
+     * @param node index of a node, in evaluation order;
+     *
+     * @return index of the node in the input array, or -1 if it isn't an input;
+     */
+    public int inputIndex (int node) {
+        return inputSlots[node];
+    }
+
+    /**
+     * @param node index of a node, in evaluation order;
+     *
+     * @return index of the node in the output array, or -1 if it isn't an output;
+     */
+    public int outputIndex (int node) {
+        return outputSlots[node];
+    }
+
+    /**
+     * Index of the first connection departing from a node.
+     *
+     * <p>The connections departing from the node with index {@code i}, apart from a connection
+     * to itself, are the ones with indices in
+     * {@code [firstConnection(i), firstConnection(i + 1))}. The argument can be the number of
+     * nodes, to get the total number of those connections.
+     *
+     * @param node index of a node, in evaluation order, or the number of nodes;
+     *
+     * @return index of its first connection;
+     */
+    public int firstConnection (int node) {
+        return rowStart[node];
+    }
+
+    /**
+     * @param connection index of a connection;
+     *
+     * @return index of the node the connection leads to;
+     * @see Phenotype#firstConnection(int)
+     */
+    public int connectionTarget (int connection) {
+        return targets[connection];
+    }
+
+    /**
+     * @param connection index of a connection;
+     *
+     * @return weight of the connection;
+     * @see Phenotype#firstConnection(int)
+     */
+    public double connectionWeight (int connection) {
+        return weights[connection];
+    }
+
+    /**
+     * @param node index of a node, in evaluation order;
+     *
+     * @return whether the node has an enabled connection to itself;
+     */
+    public boolean hasSelfConnection (int node) {
+        return selfConnected[node];
+    }
+
+    /**
+     * @param node index of a node, in evaluation order;
+     *
+     * @return weight of the connection of the node to itself, 0 if it doesn't have one;
+     */
+    public double selfConnectionWeight (int node) {
+        return selfWeights[node];
+    }
+
+    /**
+     * @return number of input nodes in this network;
+     */
+    public int numberOfInputs () {
+        return inputNum;
+    }
+
+    /**
+     * @return number of output nodes in this network;
+     */
+    public int numberOfOutputs () {
+        return outputNum;
+    }
+
+    /**
+     * @return number of nodes in this network;
+     */
+    public int numberOfNodes () {
+        return rowStart.length - 1;
+    }
+
+    /**
+     * @return number of enabled connections in this network, including connections to self;
+     */
+    public int numberOfConnections () {
+        int result = targets.length;
+        for (boolean b : selfConnected) {
+            if (b) result++;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,210 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+import com.tesladodger.neat.utils.structures.LruCache;
+
+import java.util.Arrays;
+
+
+/**
+ * Builds phenotypes, reusing the structure of the ones built before for genomes with the same
+ * topology.
+ *
+ * <p>Most offspring have exactly the structure of a parent, since the most likely mutation only
+ * changes weights. Building a {@link Phenotype} orders the nodes, prunes them and sorts the
+ * connections, which is wasted work when the result is the same as for another genome. This
+ * cache keeps, for each topology, the structure arrays of a phenotype and the position of the
+ * weight of each connection in them. A genome with a known topology gets a phenotype sharing
+ * those arrays, with only its own weights copied into new ones.
+ *
+ * <p>The topology is identified by a fingerprint of the genome: the ids and types of the nodes in
+ * evaluation order, and the out-nodes of the enabled connections departing from each. Genomes
+ * with the same nodes and enabled connections have the same fingerprint, whatever their weights
+ * and disabled connections. The plans are kept in a {@link LruCache}, whose hit rate can be used
+ * to tune its size: it should hold about as many topologies as there are species.
+ *
+ * <p>Phenotypes that share the structure arrays are also grouped faster by a
+ * {@link PopulationEvaluator} created with this cache, since comparing their arrays stops at the
+ * references, although they are still hashed.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @see Phenotype
+ * @author tesla
+ * @since v1.2
+ */
+public class PhenotypeCache {
+
+    /** Default number of topologies kept. */
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private final LruCache<Fingerprint, Plan> cache;
+
+    /**
+     * Create a cache with the default capacity.
+     */
+    public PhenotypeCache () {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a cache.
+     *
+     * @param capacity maximum number of topologies kept;
+     *
+     * @throws IllegalArgumentException if the capacity is negative;
+     */
+    public PhenotypeCache (int capacity) {
+        cache = new LruCache<>(capacity);
+    }
+
+    /**
+     * Build the phenotype of a genome.
+     *
+     * @param genome to compile;
+     *
+     * @return phenotype of the genome, the same as {@link Phenotype#Phenotype(Genome)};
+     * @throws com.tesladodger.neat.utils.exceptions.IllegalTopologyException if an enabled
+     * connection leads to a node that doesn't exist in the genome;
+     */
+    public Phenotype build (Genome genome) {
+        return build(genome, null);
+    }
+
+    /**
+     * Build the phenotype of a genome, to be evaluated with a given activation function.
+     *
+     * @param genome to compile;
+     * @param function activation function the phenotype will be evaluated with, or null;
+     *
+     * @return phenotype of the genome, the same as
+     * {@link Phenotype#Phenotype(Genome, ActivationFunction)};
+     * @throws com.tesladodger.neat.utils.exceptions.IllegalTopologyException if an enabled
+     * connection leads to a node that doesn't exist in the genome;
+     */
+    public Phenotype build (Genome genome, ActivationFunction function) {
+        boolean prune = function != null && function.apply(0) == 0;
+        int n = genome.numberOfNodes();
+        int[] order = genome.genesInEvaluationOrder();
+
+        int enabled = 0;
+        for (int gene : order) {
+            if (genome.isEnabled(gene)) {
+                enabled++;
+            }
+        }
+        int[] structure = new int[2 + 3 * n + enabled];
+        double[] connectionWeights = new double[enabled];
+        structure[0] = prune ? 1 : 0;
+        structure[1] = n;
+        int s = 2;
+        int c = 0;
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            int id = genome.getNodeId(i);
+            structure[s++] = id;
+            structure[s++] = genome.getNodeType(i).ordinal();
+            int countIndex = s++;
+            // the genes are grouped by in-node, in the order of the nodes
+            for (; k < order.length && genome.getInNodeId(order[k]) == id; k++) {
+                int gene = order[k];
+                if (genome.isEnabled(gene)) {
+                    structure[s++] = genome.getOutNodeId(gene);
+                    structure[countIndex]++;
+                    connectionWeights[c++] = genome.getWeight(gene);
+                }
+            }
+        }
+
+        Fingerprint fingerprint = new Fingerprint(structure);
+        Plan plan = cache.get(fingerprint);
+        if (plan == null) {
+            int[] slots = new int[enabled];
+            Phenotype phenotype = new Phenotype(genome, function, slots);
+            cache.put(fingerprint, new Plan(phenotype, slots));
+            return phenotype;
+        }
+
+        double[] weights = new double[plan.structure.weights.length];
+        double[] selfWeights = new double[plan.structure.selfWeights.length];
+        for (int i = 0; i < enabled; i++) {
+            int slot = plan.slots[i];
+            if (slot >= 0) {
+                weights[slot] = connectionWeights[i];
+            } else if (slot != Integer.MIN_VALUE) {
+                selfWeights[-slot - 1] = connectionWeights[i];
+            }
+        }
+        return new Phenotype(plan.structure, weights, selfWeights);
+    }
+
+    /**
+     * @return number of topologies in the cache;
+     */
+    public int size () {
+        return cache.size();
+    }
+
+    /**
+     * @return fraction of the genomes built whose topology was in the cache;
+     */
+    public double hitRate () {
+        return cache.hitRate();
+    }
+
+    /**
+     * @return the cache of plans, with its hit, miss and eviction counts;
+     */
+    public LruCache<?, ?> getCache () {
+        return cache;
+    }
+
+    /**
+     * Remove all topologies from the cache.
+     */
+    public void clear () {
+        cache.clear();
+    }
+
+    /**
+     * Structure of a genome, as the nodes and the out-nodes of the enabled connections.
+     */
+    private static final class Fingerprint {
+
+        private final int[] structure;
+        private final int hash;
+
+        Fingerprint (int[] structure) {
+            this.structure = structure;
+            hash = Arrays.hashCode(structure);
+        }
+
+        @Override
+        public boolean equals (Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Fingerprint that = (Fingerprint) o;
+            return hash == that.hash && Arrays.equals(structure, that.structure);
+        }
+
+        @Override
+        public int hashCode () {
+            return hash;
+        }
+    }
+
+    /**
+     * Phenotype built for a topology, and where each weight of the genome goes in it.
+     */
+    private static final class Plan {
+
+        private final Phenotype structure;
+        private final int[] slots;
+
+        Plan (Phenotype structure, int[] slots) {
+            this.structure = structure;
+            this.slots = slots;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Evaluator of a whole population at once, grouping the genomes that share a topology.
+ *
+ * <p>Right after {@link com.tesladodger.neat.Population#spawn(Genome, int)}, every genome is a
+ * copy of the template with different weights, and many offspring of later generations still
+ * share their structure. Genomes with the same {@link Topology} are evaluated together: their
+ * weights are packed in a {@code connections x genomes} matrix, and the values of their nodes in
+ * a {@code nodes x genomes} matrix, so that the propagation through each connection is a single
+ * multiply-add loop over the genomes of the group, which the JIT can vectorize.
+ *
+ * <p>The genomes can be compiled by a {@link PhenotypeCache}, which skips building the structure
+ * of the topologies it has already seen. The phenotypes it returns for a topology share their
+ * structure arrays, so comparing two of them stops at the references. Each genome's topology is
+ * still hashed over its arrays once, to find its group.
+ *
+ * <p>Like a {@link Genome}, this keeps the values left in the nodes by recursive connections
+ * between calls, for every genome. The results are exactly the same as evaluating each genome
+ * with its own {@link Phenotype} and {@link NetworkState}.
+ *
+ * <p>This is a snapshot of the genomes: it should be created once per generation, after
+ * evolution. It is not thread-safe.
+ *
+ * @see Phenotype
+ * @author tesla
+ * @since v1.2
+ */
+public class PopulationEvaluator {
+
+    private final ActivationFunction function;
+
+    /** Number of genomes evaluated. */
+    private final int size;
+
+    /** Groups of genomes with the same topology, in order of first appearance. */
+    private final Group[] groups;
+
+    /**
+     * Compile and group a collection of genomes.
+     *
+     * @param genomes to evaluate, in the order of the outputs;
+     * @param function activation function;
+     *
+     * @throws com.tesladodger.neat.utils.exceptions.IllegalTopologyException if any of the
+     * genomes can't be compiled;
+     */
+    public PopulationEvaluator (Collection<Genome> genomes, ActivationFunction function) {
+        this(genomes, function, null);
+    }
+
+    /**
+     * Compile the genomes with a cache, and group them.
+     *
+     * @param genomes to evaluate, in the order of the outputs;
+     * @param function activation function;
+     * @param cache phenotype cache used to compile the genomes, or null to compile each one
+     *              from scratch;
+     *
+     * @throws com.tesladodger.neat.utils.exceptions.IllegalTopologyException if any of the
+     * genomes can't be compiled;
+     */
+    public PopulationEvaluator (Collection<Genome> genomes, ActivationFunction function,
+                                PhenotypeCache cache) {
+        this.function = function;
+        size = genomes.size();
+
+        Map<Topology, List<Integer>> members = new LinkedHashMap<>();
+        Map<Topology, List<Phenotype>> phenotypes = new LinkedHashMap<>();
+        int index = 0;
+        for (Genome genome : genomes) {
+            Phenotype phenotype = cache == null ? new Phenotype(genome, function) :
+                    cache.build(genome, function);
+            Topology topology = new Topology(phenotype);
+            members.computeIfAbsent(topology, t -> new ArrayList<>()).add(index++);
+            phenotypes.computeIfAbsent(topology, t -> new ArrayList<>()).add(phenotype);
+        }
+
+        groups = new Group[members.size()];
+        int g = 0;
+        for (Topology topology : members.keySet()) {
+            groups[g++] = new Group(phenotypes.get(topology), members.get(topology));
+        }
+    }
+
+    /**
+     * Evaluate every genome with the same inputs, applying the activation function to the
+     * outputs.
+     *
+     * @param input array of inputs, the same for every genome;
+     *
+     * @return matrix with one row of outputs per genome, in the order they were given;
+     * @throws IllegalArgumentException if the length of the input array doesn't correspond to
+     * the number of input nodes of any genome;
+     */
+    public double[][] calculateOutput (double[] input) {
+        double[][] outputs = newOutputs();
+        evaluate(new double[][] {input}, true, outputs);
+        applyFunction(outputs);
+        return outputs;
+    }
+
+    /**
+     * Evaluate every genome with its own inputs, applying the activation function to the
+     * outputs, which are written to a given matrix.
+     *
+     * @param inputs matrix with one row of inputs per genome, in the order they were given;
+     * @param outputs matrix where the outputs are written, one row per genome;
+     *
+     * @throws IllegalArgumentException if the dimensions of the matrices don't correspond to the
+     * number of genomes and their number of input and output nodes;
+     */
+    public void calculateOutput (double[][] inputs, double[][] outputs) {
+        calculateRawOutput(inputs, outputs);
+        applyFunction(outputs);
+    }
+
+    /**
+     * Evaluate every genome with its own inputs, without applying the activation function to
+     * the outputs, which are written to a given matrix.
+     *
+     * @param inputs matrix with one row of inputs per genome, in the order they were given;
+     * @param outputs matrix where the raw outputs are written, one row per genome;
+     *
+     * @throws IllegalArgumentException if the dimensions of the matrices don't correspond to the
+     * number of genomes and their number of input and output nodes;
+     */
+    public void calculateRawOutput (double[][] inputs, double[][] outputs) {
+        if (inputs.length != size) {
+            throw new IllegalArgumentException("Number of input rows [" + inputs.length + "] " +
+                    "does not correspond to number of genomes [" + size + "].");
+        }
+        evaluate(inputs, false, outputs);
+    }
+
+    /**
+     * Clear the values kept by recursive connections of every genome, to start a new episode.
+     */
+    public void reset () {
+        for (Group group : groups) {
+            Arrays.fill(group.values, 0);
+        }
+    }
+
+    /**
+     * @return number of genomes evaluated;
+     */
+    public int numberOfGenomes () {
+        return size;
+    }
+
+    /**
+     * @return number of distinct topologies among the genomes;
+     */
+    public int numberOfGroups () {
+        return groups.length;
+    }
+
+    /**
+     * @return matrix with one row of the right length per genome;
+     */
+    private double[][] newOutputs () {
+        double[][] outputs = new double[size][];
+        for (Group group : groups) {
+            for (int member : group.members) {
+                outputs[member] = new double[group.structure.outputNum];
+            }
+        }
+        return outputs;
+    }
+
+    private void applyFunction (double[][] outputs) {
+        for (double[] output : outputs) {
+            function.applyInPlace(output, 0, output.length);
+        }
+    }
+
+    /**
+     * Evaluate every group.
+     *
+     * @param inputs one row of inputs per genome, or a single row if shared;
+     * @param shared whether every genome reads the first row of inputs;
+     * @param outputs matrix of raw outputs;
+     */
+    private void evaluate (double[][] inputs, boolean shared, double[][] outputs) {
+        if (outputs.length != size) {
+            throw new IllegalArgumentException("Number of output rows [" + outputs.length + "] " +
+                    "does not correspond to number of genomes [" + size + "].");
+        }
+        for (Group group : groups) {
+            group.check(inputs, shared, outputs);
+        }
+        for (Group group : groups) {
+            group.evaluate(inputs, shared, outputs, function);
+        }
+    }
+
+    /**
+     * Genomes with the same topology, evaluated together.
+     *
+     * <p>The value of the node with index {@code i} of the genome with index {@code g} in the
+     * group is in {@code values[i * members.length + g]}, and the weight of its connection
+     * {@code c} in {@code weights[c * members.length + g]}.
+     */
+    private static class Group {
+
+        /** Phenotype of the first genome, for the structure. */
+        private final Phenotype structure;
+
+        /** Index of each genome of the group in the population. */
+        private final int[] members;
+
+        private final double[] weights;
+        private final double[] selfWeights;
+        private final double[] values;
+        private final double[] activations;
+
+        Group (List<Phenotype> phenotypes, List<Integer> indices) {
+            structure = phenotypes.get(0);
+            int width = phenotypes.size();
+            members = new int[width];
+            for (int g = 0; g < width; g++) {
+                members[g] = indices.get(g);
+            }
+
+            int nodes = structure.numberOfNodes();
+            weights = new double[structure.targets.length * width];
+            selfWeights = new double[nodes * width];
+            values = new double[nodes * width];
+            activations = new double[width];
+            for (int g = 0; g < width; g++) {
+                Phenotype p = phenotypes.get(g);
+                for (int c = 0; c < p.weights.length; c++) {
+                    weights[c * width + g] = p.weights[c];
+                }
+                for (int i = 0; i < nodes; i++) {
+                    selfWeights[i * width + g] = p.selfWeights[i];
+                }
+            }
+        }
+
+        void check (double[][] inputs, boolean shared, double[][] outputs) {
+            for (int member : members) {
+                double[] input = inputs[shared ? 0 : member];
+                if (input.length != structure.inputNum) {
+                    throw new IllegalArgumentException("Length of input array [" + input.length +
+                            "] of genome " + member + " does not correspond to number of input " +
+                            "nodes [" + structure.inputNum + "].");
+                }
+                if (outputs[member].length != structure.outputNum) {
+                    throw new IllegalArgumentException("Length of output array [" +
+                            outputs[member].length + "] of genome " + member + " does not " +
+                            "correspond to number of output nodes [" + structure.outputNum + "].");
+                }
+            }
+        }
+
+        void evaluate (double[][] inputs, boolean shared, double[][] outputs,
+                       ActivationFunction function) {
+            int width = members.length;
+            int[] inputSlots = structure.inputSlots;
+            int[] outputSlots = structure.outputSlots;
+            int[] rowStart = structure.rowStart;
+            int[] targets = structure.targets;
+            boolean[] selfConnected = structure.selfConnected;
+
+            for (int i = 0; i < rowStart.length - 1; i++) {
+                int base = i * width;
+                int inputSlot = inputSlots[i];
+                if (inputSlot >= 0) {
+                    for (int g = 0; g < width; g++) {
+                        values[base + g] += inputs[shared ? 0 : members[g]][inputSlot];
+                    }
+                }
+                int outputSlot = outputSlots[i];
+                if (outputSlot >= 0) {
+                    for (int g = 0; g < width; g++) {
+                        outputs[members[g]][outputSlot] = values[base + g];
+                    }
+                }
+
+                int from = rowStart[i];
+                int to = rowStart[i + 1];
+                if (from == to && !selfConnected[i]) {
+                    Arrays.fill(values, base, base + width, 0);
+                    continue;
+                }
+
+                System.arraycopy(values, base, activations, 0, width);
+                function.applyInPlace(activations, 0, width);
+                for (int c = from; c < to; c++) {
+                    int target = targets[c] * width;
+                    int weight = c * width;
+                    for (int g = 0; g < width; g++) {
+                        values[target + g] += activations[g] * weights[weight + g];
+                    }
+                }
+                if (selfConnected[i]) {
+                    for (int g = 0; g < width; g++) {
+                        values[base + g] = activations[g] * selfWeights[base + g];
+                    }
+                } else {
+                    Arrays.fill(values, base, base + width, 0);
+                }
+            }
+        }
+    }
+}
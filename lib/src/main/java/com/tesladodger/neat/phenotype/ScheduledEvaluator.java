@@ -0,0 +1,179 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+
+
+/**
+ * Evaluates the fitness of a population in parallel, starting with the genomes that take the
+ * longest.
+ *
+ * <p>The time it takes to evaluate a genome grows with its size, and the sizes in a population
+ * vary a lot. Evaluated in the order of the population, as by a parallel stream, the largest
+ * genomes may come last, and the generation ends with a long tail where a single thread is
+ * working and the others wait. Here, each genome is compiled to a {@link Phenotype}, its cost is
+ * estimated by a {@link CostModel}, and the genomes are evaluated in decreasing order of cost:
+ * each thread of the pool takes the next genome as soon as it's done with the previous one, so
+ * the shortest genomes, last, fill the gaps at the end.
+ *
+ * <p>The fitness function gets the phenotype of each genome, and its result is set as the
+ * fitness of the genome. It is called from the threads of the pool, so it must be thread-safe;
+ * it can use its own {@link NetworkState} or {@link Evaluator}. After each call to
+ * {@link ScheduledEvaluator#evaluate(Collection)}, its {@link EvaluationStatistics} show the
+ * predicted and measured times, and the idle tail.
+ *
+ * <pre>{@code
+ * ScheduledEvaluator evaluator = new ScheduledEvaluator(function,
+ *         phenotype -> simulate(new Evaluator(phenotype, function)));
+ * while (running) {
+ *     EvaluationStatistics statistics = evaluator.evaluate(genomes);
+ *     genomes = population.nextGeneration(genomes, history);
+ * }
+ * }</pre>
+ *
+ * <p>The cost model and the order can be changed between calls, but not during one.
+ *
+ * @see CostModel
+ * @author tesla
+ * @since v1.2
+ */
+public class ScheduledEvaluator {
+
+    /** Estimates the cost of each genome. */
+    public CostModel costModel = new CostModel();
+
+    /** Whether the genomes are evaluated longest first, or in the order they were given. */
+    public boolean longestFirst = true;
+
+    private final ActivationFunction function;
+    private final ToDoubleFunction<Phenotype> fitness;
+    private final ForkJoinPool pool;
+
+    /** Statistics of the last evaluation. */
+    private EvaluationStatistics statistics;
+
+    /**
+     * Create an evaluator on the common pool.
+     *
+     * @param function activation function the networks are evaluated with, used to compile them;
+     * @param fitness thread-safe function that evaluates a network;
+     */
+    public ScheduledEvaluator (ActivationFunction function, ToDoubleFunction<Phenotype> fitness) {
+        this(function, fitness, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create an evaluator.
+     *
+     * @param function activation function the networks are evaluated with, used to compile them;
+     * @param fitness thread-safe function that evaluates a network;
+     * @param pool where the genomes are evaluated;
+     */
+    public ScheduledEvaluator (ActivationFunction function, ToDoubleFunction<Phenotype> fitness,
+                               ForkJoinPool pool) {
+        this.function = function;
+        this.fitness = fitness;
+        this.pool = pool;
+        statistics = new EvaluationStatistics(new double[0], new long[0], 0, 0, 0);
+    }
+
+    /**
+     * Set the fitness of every genome.
+     *
+     * @param genomes to evaluate;
+     *
+     * @return statistics of this evaluation;
+     * @throws com.tesladodger.neat.utils.exceptions.IllegalTopologyException if any of the
+     * genomes can't be compiled;
+     */
+    public EvaluationStatistics evaluate (Collection<Genome> genomes) {
+        Genome[] members = genomes.toArray(new Genome[0]);
+        int n = members.length;
+        int workers = Math.max(1, Math.min(pool.getParallelism(), n));
+
+        // compiling is cheap next to the evaluation, any order will do
+        Phenotype[] phenotypes = new Phenotype[n];
+        double[] costs = new double[n];
+        AtomicInteger next = new AtomicInteger();
+        run(workers, () -> {
+            for (int i; (i = next.getAndIncrement()) < n; ) {
+                phenotypes[i] = new Phenotype(members[i], function);
+                costs[i] = costModel.estimate(phenotypes[i]);
+            }
+            return 0L;
+        });
+
+        Integer[] boxed = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            boxed[i] = i;
+        }
+        if (longestFirst) {
+            Arrays.sort(boxed, (a, b) -> Double.compare(costs[b], costs[a]));
+        }
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = boxed[i];
+        }
+
+        long[] times = new long[n];
+        AtomicInteger position = new AtomicInteger();
+        long start = System.nanoTime();
+        List<Long> finishes = run(workers, () -> {
+            for (int p; (p = position.getAndIncrement()) < n; ) {
+                int i = order[p];
+                long before = System.nanoTime();
+                double result = fitness.applyAsDouble(phenotypes[i]);
+                times[i] = System.nanoTime() - before;
+                members[i].setFitness(result);
+            }
+            return System.nanoTime();
+        });
+
+        long first = Long.MAX_VALUE;
+        long last = start;
+        for (long finish : finishes) {
+            first = Math.min(first, finish);
+            last = Math.max(last, finish);
+        }
+        statistics = new EvaluationStatistics(costs, times, workers, last - start,
+                last - Math.min(first, last));
+        return statistics;
+    }
+
+    /**
+     * Run the same loop on a number of threads of the pool, and wait for all of them.
+     *
+     * @param workers number of threads;
+     * @param loop that takes work until there's none left, returning when it was done;
+     *
+     * @return result of each thread;
+     */
+    private List<Long> run (int workers, Callable<Long> loop) {
+        List<ForkJoinTask<Long>> tasks = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            tasks.add(pool.submit(loop));
+        }
+        List<Long> results = new ArrayList<>(workers);
+        for (ForkJoinTask<Long> task : tasks) {
+            results.add(task.join());
+        }
+        return results;
+    }
+
+    /**
+     * @return statistics of the last evaluation, empty before the first;
+     */
+    public EvaluationStatistics getStatistics () {
+        return statistics;
+    }
+}
@@ -0,0 +1,24 @@
+package com.tesladodger.neat.phenotype;
+
+
+/**
+ * Called after each step of a closed loop evaluation, to feed the outputs of the network back
+ * into its environment and to produce the inputs of the next step.
+ *
+ * @see Phenotype#calculateSequence(NetworkState, double[], double[], int,
+ * com.tesladodger.neat.utils.functions.ActivationFunction, StepCallback)
+ * @author tesla
+ * @since v1.2
+ */
+@FunctionalInterface
+public interface StepCallback {
+
+    /**
+     * @param step index of the step that just ended, starting at 0;
+     * @param output outputs of the step, which must not be kept after the call;
+     * @param nextInput array where the inputs of the next step are written;
+     *
+     * @return true to run the next step, false to end the sequence;
+     */
+    boolean step (int step, double[] output, double[] nextInput);
+}
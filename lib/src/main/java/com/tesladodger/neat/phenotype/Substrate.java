@@ -0,0 +1,419 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Geometry of a large network whose weights are generated by a smaller one, as in HyperNEAT.
+ *
+ * <p>The nodes of the substrate are placed in layers, each node at a point with a given number
+ * of coordinates. A genome evolved by NEAT acts as a compositional pattern producing network
+ * (CPPN): for every pair of nodes of linked layers, it's given the coordinates of the source,
+ * followed by those of the target (and 1, if it has an extra input for bias), and its first
+ * output decides the weight of the connection between them. Outputs whose magnitude is not above
+ * the threshold produce no connection; the others are scaled to {@code (0, maxWeight]}, keeping
+ * their sign. Since the CPPN should give both positive and negative weights, its activation
+ * function should be symmetric, such as the hyperbolic tangent.
+ *
+ * <p>The first layer holds the inputs of the resulting {@link Phenotype}, and the last its
+ * outputs. Layers are usually linked each to the next, but any two can be, including a layer to
+ * itself or to a previous one, which makes recursive connections.
+ *
+ * <pre>{@code
+ * Substrate substrate = new Substrate(3)
+ *         .addLayer(Substrate.grid(16, 16, -1))
+ *         .addLayer(Substrate.grid(8, 8, 0))
+ *         .addLayer(Substrate.grid(4, 1, 1))
+ *         .connectLayers();
+ * Phenotype network = substrate.build(genome, new TanhActivationFunction());
+ * }</pre>
+ *
+ * <p>A substrate with a few hundred nodes per layer needs millions of queries, all of the same
+ * small network and independent of each other. Instead of one call per pair, the queries are
+ * split between the threads of a {@link ForkJoinPool} in batches, and each batch is evaluated
+ * with {@link Phenotype#calculateOutput(double[][], double[][], ActivationFunction)}, which
+ * propagates each connection of the CPPN across the whole batch in one loop. The result only
+ * depends on the genome, not on the pool or the size of the batches.
+ *
+ * <p>The parameters and layers can be changed between builds, but not during one.
+ *
+ * @author tesla
+ * @since v1.2
+ */
+public class Substrate {
+
+    /** Magnitude the output of the CPPN must exceed for a connection to be expressed. */
+    public double weightThreshold = .2;
+
+    /** Largest magnitude of the weight of a connection. */
+    public double maxWeight = 3;
+
+    /** Maximum number of queries evaluated in a single batch. */
+    public int batchSize = 4096;
+
+    private final int dimension;
+    private final List<double[][]> layers;
+    private final List<int[]> links;
+
+    /**
+     * Create an empty substrate.
+     *
+     * @param dimension number of coordinates of each node;
+     *
+     * @throws IllegalArgumentException if the dimension is not positive;
+     */
+    public Substrate (int dimension) {
+        if (dimension < 1) {
+            throw new IllegalArgumentException("Dimension [" + dimension + "] must be " +
+                    "positive.");
+        }
+        this.dimension = dimension;
+        layers = new ArrayList<>();
+        links = new ArrayList<>();
+    }
+
+    /**
+     * Add a layer after the existing ones.
+     *
+     * @param coordinates of each node of the layer;
+     *
+     * @return this substrate;
+     * @throws IllegalArgumentException if the layer is empty, or a node doesn't have as many
+     * coordinates as the dimension of the substrate;
+     */
+    public Substrate addLayer (double[]... coordinates) {
+        if (coordinates.length == 0) {
+            throw new IllegalArgumentException("A layer must have at least one node.");
+        }
+        double[][] layer = new double[coordinates.length][];
+        for (int i = 0; i < coordinates.length; i++) {
+            if (coordinates[i].length != dimension) {
+                throw new IllegalArgumentException("Number of coordinates of node " + i + " [" +
+                        coordinates[i].length + "] does not correspond to the dimension [" +
+                        dimension + "].");
+            }
+            layer[i] = coordinates[i].clone();
+        }
+        layers.add(layer);
+        return this;
+    }
+
+    /**
+     * Query the CPPN for the connections from every node of a layer to every node of another.
+     *
+     * @param from index of the layer of the sources;
+     * @param to index of the layer of the targets;
+     *
+     * @return this substrate;
+     * @throws IllegalArgumentException if a layer doesn't exist, or the layers are already
+     * linked in this direction;
+     */
+    public Substrate connect (int from, int to) {
+        if (from < 0 || from >= layers.size() || to < 0 || to >= layers.size()) {
+            throw new IllegalArgumentException("Layers [" + from + ", " + to + "] must be in " +
+                    "[0, " + layers.size() + ").");
+        }
+        for (int[] link : links) {
+            if (link[0] == from && link[1] == to) {
+                throw new IllegalArgumentException("Layer " + from + " is already linked to " +
+                        "layer " + to + ".");
+            }
+        }
+        links.add(new int[] {from, to});
+        return this;
+    }
+
+    /**
+     * Link each layer to the next, if they aren't already.
+     *
+     * @return this substrate;
+     */
+    public Substrate connectLayers () {
+        for (int l = 0; l + 1 < layers.size(); l++) {
+            boolean linked = false;
+            for (int[] link : links) {
+                linked |= link[0] == l && link[1] == l + 1;
+            }
+            if (!linked) {
+                connect(l, l + 1);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Coordinates of the nodes of a grid, evenly spread over [-1, 1] in x and y.
+     *
+     * @param columns number of nodes along x;
+     * @param rows number of nodes along y;
+     * @param z third coordinate of all nodes;
+     *
+     * @return coordinates (x, y, z) of each node, row by row;
+     * @throws IllegalArgumentException if the number of columns or rows is not positive;
+     */
+    public static double[][] grid (int columns, int rows, double z) {
+        if (columns < 1 || rows < 1) {
+            throw new IllegalArgumentException("Number of columns [" + columns + "] and rows [" +
+                    rows + "] must be positive.");
+        }
+        double[][] result = new double[columns * rows][];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                result[r * columns + c] = new double[] {spread(c, columns), spread(r, rows), z};
+            }
+        }
+        return result;
+    }
+
+    private static double spread (int index, int count) {
+        return count == 1 ? 0 : 2. * index / (count - 1) - 1;
+    }
+
+    /**
+     * Build the network of a CPPN, on the common pool.
+     *
+     * @param cppn genome that generates the weights;
+     * @param function activation function of the CPPN;
+     *
+     * @return network of this substrate;
+     * @see Substrate#build(Phenotype, ActivationFunction, ForkJoinPool)
+     */
+    public Phenotype build (Genome cppn, ActivationFunction function) {
+        return build(new Phenotype(cppn, function), function, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Build the network of a CPPN.
+     *
+     * <p>The nodes of the network are the nodes of the substrate, layer by layer, and in each
+     * layer in the order they were given. Within a layer, the order of evaluation is that order,
+     * so a layer linked to itself is evaluated like a genome whose nodes share a layer.
+     *
+     * @param cppn phenotype of the genome that generates the weights;
+     * @param function activation function of the CPPN;
+     * @param pool where the queries are evaluated;
+     *
+     * @return network of this substrate;
+     * @throws IllegalArgumentException if the CPPN doesn't have twice as many inputs as the
+     * dimension, or one more, or doesn't have outputs;
+     * @throws IllegalStateException if the substrate has less than two layers, the threshold is
+     * not in [0, 1), the size of the batches is not positive, or there are too many queries;
+     */
+    public Phenotype build (Phenotype cppn, ActivationFunction function, ForkJoinPool pool) {
+        int inputs = cppn.numberOfInputs();
+        if (inputs != 2 * dimension && inputs != 2 * dimension + 1) {
+            throw new IllegalArgumentException("Number of inputs of the CPPN [" + inputs + "] " +
+                    "must be twice the dimension [" + dimension + "], or one more.");
+        }
+        if (cppn.numberOfOutputs() < 1) {
+            throw new IllegalArgumentException("The CPPN must have at least one output.");
+        }
+        if (layers.size() < 2) {
+            throw new IllegalStateException("Number of layers [" + layers.size() + "] must be " +
+                    "at least 2.");
+        }
+        if (!(weightThreshold >= 0 && weightThreshold < 1)) {
+            throw new IllegalStateException("Weight threshold [" + weightThreshold + "] must be " +
+                    "in [0, 1).");
+        }
+        if (batchSize < 1) {
+            throw new IllegalStateException("Batch size [" + batchSize + "] must be positive.");
+        }
+
+        int[] layerStart = new int[layers.size() + 1];
+        for (int l = 0; l < layers.size(); l++) {
+            layerStart[l + 1] = layerStart[l] + layers.get(l).length;
+        }
+
+        // queried by source layer, then by target layer, then by source node and target node
+        int[][] sorted = links.toArray(new int[0][]);
+        Arrays.sort(sorted, (a, b) -> a[0] != b[0] ? a[0] - b[0] : a[1] - b[1]);
+        int[] linkStart = new int[sorted.length + 1];
+        for (int k = 0; k < sorted.length; k++) {
+            long end = linkStart[k] + (long) layers.get(sorted[k][0]).length *
+                    layers.get(sorted[k][1]).length;
+            if (end > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Too many queries [" + end + "] in a substrate.");
+            }
+            linkStart[k + 1] = (int) end;
+        }
+
+        double[] queried = new double[linkStart[sorted.length]];
+        pool.invoke(new Query(cppn, function, sorted, linkStart, queried, 0, queried.length));
+
+        int nodeNum = layerStart[layers.size()];
+        int[] rowStart = new int[nodeNum + 1];
+        boolean[] selfConnected = new boolean[nodeNum];
+        double[] selfWeights = new double[nodeNum];
+        for (int k = 0; k < sorted.length; k++) {
+            int width = layers.get(sorted[k][1]).length;
+            for (int q = linkStart[k]; q < linkStart[k + 1]; q++) {
+                int source = layerStart[sorted[k][0]] + (q - linkStart[k]) / width;
+                int target = layerStart[sorted[k][1]] + (q - linkStart[k]) % width;
+                if (queried[q] != 0 && source != target) {
+                    rowStart[source + 1]++;
+                }
+            }
+        }
+        for (int i = 0; i < nodeNum; i++) {
+            rowStart[i + 1] += rowStart[i];
+        }
+
+        int[] targets = new int[rowStart[nodeNum]];
+        double[] weights = new double[targets.length];
+        int[] next = Arrays.copyOf(rowStart, nodeNum);
+        for (int k = 0; k < sorted.length; k++) {
+            int fromLayer = sorted[k][0];
+            int toLayer = sorted[k][1];
+            int width = layers.get(toLayer).length;
+            for (int q = linkStart[k]; q < linkStart[k + 1]; q++) {
+                if (queried[q] == 0) {
+                    continue;
+                }
+                int source = layerStart[fromLayer] + (q - linkStart[k]) / width;
+                int target = layerStart[toLayer] + (q - linkStart[k]) % width;
+                if (source == target) {
+                    selfConnected[source] = true;
+                    selfWeights[source] = queried[q];
+                } else {
+                    // the target layers of a source are ascending, so are its targets
+                    targets[next[source]] = target;
+                    weights[next[source]++] = queried[q];
+                }
+            }
+        }
+
+        int[] inputSlots = new int[nodeNum];
+        int[] outputSlots = new int[nodeNum];
+        Arrays.fill(inputSlots, -1);
+        Arrays.fill(outputSlots, -1);
+        for (int i = 0; i < layerStart[1]; i++) {
+            inputSlots[i] = i;
+        }
+        int outputStart = layerStart[layers.size() - 1];
+        for (int i = outputStart; i < nodeNum; i++) {
+            outputSlots[i] = i - outputStart;
+        }
+        return new Phenotype(inputSlots, outputSlots, rowStart, targets, weights, selfConnected,
+                selfWeights);
+    }
+
+    /**
+     * @param output first output of the CPPN;
+     *
+     * @return weight of the connection, 0 if it isn't expressed;
+     */
+    double weight (double output) {
+        double magnitude = Math.abs(output);
+        if (!(magnitude > weightThreshold)) {
+            return 0;
+        }
+        return Math.copySign(Math.min(1, (magnitude - weightThreshold) / (1 - weightThreshold)) *
+                maxWeight, output);
+    }
+
+    /**
+     * @return number of coordinates of each node;
+     */
+    public int getDimension () {
+        return dimension;
+    }
+
+    /**
+     * @return number of layers;
+     */
+    public int numberOfLayers () {
+        return layers.size();
+    }
+
+    /**
+     * @return number of nodes in all layers;
+     */
+    public int numberOfNodes () {
+        int result = 0;
+        for (double[][] layer : layers) {
+            result += layer.length;
+        }
+        return result;
+    }
+
+    /**
+     * @return number of times the CPPN is evaluated to build a network;
+     */
+    public long numberOfQueries () {
+        long result = 0;
+        for (int[] link : links) {
+            result += (long) layers.get(link[0]).length * layers.get(link[1]).length;
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates a range of queries, splitting it in halves while it's larger than a batch.
+     */
+    @SuppressWarnings("serial")
+    private class Query extends RecursiveAction {
+
+        private final Phenotype cppn;
+        private final ActivationFunction function;
+        private final int[][] links;
+        private final int[] linkStart;
+        private final double[] queried;
+        private final int from;
+        private final int to;
+
+        Query (Phenotype cppn, ActivationFunction function, int[][] links, int[] linkStart,
+               double[] queried, int from, int to) {
+            this.cppn = cppn;
+            this.function = function;
+            this.links = links;
+            this.linkStart = linkStart;
+            this.queried = queried;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute () {
+            if (to - from > batchSize) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Query(cppn, function, links, linkStart, queried, from, middle),
+                        new Query(cppn, function, links, linkStart, queried, middle, to));
+                return;
+            }
+
+            int size = to - from;
+            double[][] inputs = new double[size][cppn.numberOfInputs()];
+            double[][] outputs = new double[size][cppn.numberOfOutputs()];
+            int k = 0;
+            while (linkStart[k + 1] <= from) {
+                k++;
+            }
+            for (int q = from; q < to; q++) {
+                while (linkStart[k + 1] <= q) {
+                    k++;
+                }
+                double[][] sources = layers.get(links[k][0]);
+                double[][] targets = layers.get(links[k][1]);
+                int pair = q - linkStart[k];
+                double[] input = inputs[q - from];
+                System.arraycopy(sources[pair / targets.length], 0, input, 0, dimension);
+                System.arraycopy(targets[pair % targets.length], 0, input, dimension, dimension);
+                if (input.length > 2 * dimension) {
+                    input[2 * dimension] = 1;
+                }
+            }
+            cppn.calculateOutput(inputs, outputs, function);
+            for (int q = from; q < to; q++) {
+                queried[q] = weight(outputs[q - from][0]);
+            }
+        }
+    }
+}
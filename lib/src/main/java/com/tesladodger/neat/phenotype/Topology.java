@@ -0,0 +1,54 @@
+package com.tesladodger.neat.phenotype;
+
+import java.util.Arrays;
+
+
+/**
+ * Structure of a {@link Phenotype}, without its weights.
+ *
+ * <p>Two phenotypes have the same topology when their nodes are in the same order with the same
+ * kinds, and their enabled connections link the same nodes, so that they can be evaluated by the
+ * same loops with different weights. This is used as a key to group them.
+ *
+ * <p>The arrays are shared with the phenotype, not copied, since it is immutable.
+ *
+ * @author tesla
+ * @since v1.2
+ */
+final class Topology {
+
+    private final Phenotype phenotype;
+    private final int hash;
+
+    /**
+     * @param phenotype whose structure this represents;
+     */
+    Topology (Phenotype phenotype) {
+        this.phenotype = phenotype;
+        int result = Arrays.hashCode(phenotype.inputSlots);
+        result = 31 * result + Arrays.hashCode(phenotype.outputSlots);
+        result = 31 * result + Arrays.hashCode(phenotype.rowStart);
+        result = 31 * result + Arrays.hashCode(phenotype.targets);
+        result = 31 * result + Arrays.hashCode(phenotype.selfConnected);
+        hash = result;
+    }
+
+    @Override
+    public boolean equals (Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Topology that = (Topology) o;
+        Phenotype p = that.phenotype;
+        return hash == that.hash &&
+                Arrays.equals(phenotype.inputSlots, p.inputSlots) &&
+                Arrays.equals(phenotype.outputSlots, p.outputSlots) &&
+                Arrays.equals(phenotype.rowStart, p.rowStart) &&
+                Arrays.equals(phenotype.targets, p.targets) &&
+                Arrays.equals(phenotype.selfConnected, p.selfConnected);
+    }
+
+    @Override
+    public int hashCode () {
+        return hash;
+    }
+}
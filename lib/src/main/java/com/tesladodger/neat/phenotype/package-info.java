@@ -0,0 +1,38 @@
+/**
+ * Compiled representations of {@link com.tesladodger.neat.Genome}s, meant for evaluation.
+ *
+ * <p>A genome is a good structure for evolution, but not for evaluation: its nodes and
+ * connections are linked objects, organized for crossover and mutation. A
+ * {@link com.tesladodger.neat.phenotype.Phenotype} is a snapshot of a genome where the nodes are
+ * stored in evaluation order, and the connections in flat primitive arrays, so that the output of
+ * the network can be calculated in tight loops.
+ *
+ * <p>A phenotype is immutable, the values its nodes keep between evaluations (because of
+ * recursive connections) are stored in a {@link com.tesladodger.neat.phenotype.NetworkState}.
+ * Many episodes of the same network can be run concurrently, each with its own state.
+ *
+ * <p>A {@link com.tesladodger.neat.phenotype.PhenotypeCache} builds the phenotypes of genomes
+ * that share a topology, as most offspring do, from a plan made for the first of them.
+ *
+ * <p>For networks that are evaluated many times, a
+ * {@link com.tesladodger.neat.phenotype.NetworkCompiler} turns a phenotype into a class generated
+ * at runtime, with the weights as constants.
+ *
+ * <p>A {@link com.tesladodger.neat.phenotype.ParallelEvaluator} splits the nodes of each level of
+ * a very wide network between the threads of a pool, to reduce the latency of a single episode.
+ *
+ * <p>A {@link com.tesladodger.neat.phenotype.ScheduledEvaluator} evaluates the fitness of a
+ * population in parallel, starting with the genomes a
+ * {@link com.tesladodger.neat.phenotype.CostModel} estimates to take the longest.
+ *
+ * <p>A {@link com.tesladodger.neat.phenotype.Substrate} uses a genome as a CPPN, to generate the
+ * weights of a much larger network, as in HyperNEAT.
+ *
+ * <p>The phenotype is a snapshot: changes to the genome it was built from (mutation, for
+ * example) are not reflected on it. It should be built once per genome, after evolution and
+ * before evaluation.
+ *
+ * @author tesla
+ * @since v1.2
+ */
+package com.tesladodger.neat.phenotype;
@@ -1,8 +1,6 @@
 package com.tesladodger.neat.tools.drawer;
 
-import com.tesladodger.neat.Connection;
 import com.tesladodger.neat.Genome;
-import com.tesladodger.neat.Node;
 
 import javax.swing.*;
 import java.awt.*;
@@ -39,7 +37,7 @@ public class GenomeDrawer {
         frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
 
         // calculate width according to phenotype
-        width = Math.max(width, genome.getConnections().size() * GeneFigure.w);
+        width = Math.max(width, genome.numberOfGenes() * GeneFigure.w);
 
         frame.setSize(new Dimension(width, height));
         frame.setResizable(false);
@@ -51,11 +49,11 @@ public class GenomeDrawer {
     }
 
     private static NodeFigure[] drawNodes (Genome genome, JFrame frame, int width, int height) {
-        Node[] nodes = genome.getNodes().asArray();
-        NodeFigure[] nFigs = new NodeFigure[nodes.length];
+        int nodeNum = genome.numberOfNodes();
+        NodeFigure[] nFigs = new NodeFigure[nodeNum];
 
         // number of layers, step of each layer
-        int layers = nodes[nodes.length-1].getLayer() + 1;
+        int layers = genome.getNodeLayer(nodeNum - 1) + 1;
         float w =.25f * (layers - 2f) / 3 + 0.6f;
         int yStep = (int) (height * w) / (layers - 1);
         int y = height - ((int) (height * (1 - w)) >> 1);
@@ -65,7 +63,7 @@ public class GenomeDrawer {
         for (int l = 0; l < layers; l++) {
             // calculate number of nodes in layer
             int nodesInLayer = 0;
-            for (int j = i; j < nodes.length && nodes[j].getLayer() == l; j++) {
+            for (int j = i; j < nodeNum && genome.getNodeLayer(j) == l; j++) {
                 nodesInLayer++;
             }
 
@@ -83,7 +81,7 @@ public class GenomeDrawer {
 
             // add nodes to layer
             for (int n = 0; n < nodesInLayer; n++) {
-                NodeFigure nF = new NodeFigure(x, y, nodes[i].getId(), nodes[i].getLayer());
+                NodeFigure nF = new NodeFigure(x, y, genome.getNodeId(i), genome.getNodeLayer(i));
                 nFigs[i++] = nF;
                 add(nF, frame);
                 x += xStep;
@@ -97,23 +95,24 @@ public class GenomeDrawer {
     }
 
     private static void drawConnections (Genome genome, JFrame frame, NodeFigure[] nFigs) {
-        for (Connection con : genome.getConnections().asOrderedList()) {
-            if (!con.isEnabled()) continue;
+        for (int c = 0; c < genome.numberOfGenes(); c++) {
+            if (!genome.isEnabled(c)) continue;
+            float weight = (float) genome.getWeight(c);
             // get the nodes
-            NodeFigure in = getNode(nFigs, con.getInNodeId());
-            NodeFigure out = getNode(nFigs, con.getOutNodeId());
+            NodeFigure in = getNode(nFigs, genome.getInNodeId(c));
+            NodeFigure out = getNode(nFigs, genome.getOutNodeId(c));
             if (in == null || out == null) continue;
             // normal connection
             if (in.layer < out.layer) {
-                add(new ConnectionFigure((float) con.getWeight(), in.x, in.y, out.x, out.y), frame);
+                add(new ConnectionFigure(weight, in.x, in.y, out.x, out.y), frame);
             }
             // backwards connection
             else if (in.layer > out.layer) {
-                add(new ArcConnectionFigure((float) con.getWeight(), out.x, out.y, in.x, in.y), frame);
+                add(new ArcConnectionFigure(weight, out.x, out.y, in.x, in.y), frame);
             }
             // recursive connection (to the same node)
             else {
-                add(new SelfConnectionFigure((float) con.getWeight(), in.x, in.y), frame);
+                add(new SelfConnectionFigure(weight, in.x, in.y), frame);
             }
         }
     }
@@ -129,10 +128,10 @@ public class GenomeDrawer {
 
     private static void drawPhenotype (Genome genome, JFrame frame) {
         int x = 0;
-        for (Connection con : genome.getConnections().asOrderedList()) {
+        for (int c = 0; c < genome.numberOfGenes(); c++) {
             add(new GeneFigure(
-                    x, con.getInnovationNumber(), con.getInNodeId(), con.getOutNodeId(),
-                    con.getWeight(), con.isEnabled()
+                    x, genome.getInnovationNumber(c), genome.getInNodeId(c),
+                    genome.getOutNodeId(c), genome.getWeight(c), genome.isEnabled(c)
             ), frame);
             x += GeneFigure.w;
         }
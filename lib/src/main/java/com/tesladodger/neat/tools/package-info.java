@@ -7,6 +7,10 @@
  *     javax.swing, for visual debugging.</li>
  *     <li>{@link com.tesladodger.neat.tools.save.SaveFile}, which is intended to save the
  *     topology of a genome, or of a group of genomes, into a file for later loading.</li>
+ *     <li>{@link com.tesladodger.neat.tools.quantize.Quantizer}, which converts a network into
+ *     one with 8 or 16 bit integer weights, evaluated with integer arithmetic.</li>
+ *     <li>{@link com.tesladodger.neat.tools.runtime.ChampionRuntime}, which serves the current
+ *     champion of an evolution to other threads, and replaces it atomically.</li>
  * </ul>
  *
  * @author tesla
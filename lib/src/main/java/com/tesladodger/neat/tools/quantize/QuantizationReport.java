@@ -0,0 +1,73 @@
+package com.tesladodger.neat.tools.quantize;
+
+
+/**
+ * Difference between the outputs of a {@link QuantizedNetwork} and the outputs of the
+ * double precision network it was created from, on the same inputs.
+ *
+ * @see Quantizer#compare(QuantizedNetwork, com.tesladodger.neat.phenotype.Phenotype,
+ * com.tesladodger.neat.utils.functions.ActivationFunction, double[][])
+ * @author tesla
+ * @since v1.2
+ */
+public class QuantizationReport {
+
+    private final int bits;
+    private final int samples;
+    private final double maxDeviation;
+    private final double meanDeviation;
+
+    QuantizationReport (int bits, int samples, double maxDeviation, double meanDeviation) {
+        this.bits = bits;
+        this.samples = samples;
+        this.maxDeviation = maxDeviation;
+        this.meanDeviation = meanDeviation;
+    }
+
+    /**
+     * @param tolerance maximum acceptable difference of any output;
+     *
+     * @return true if no output differed more than {@code tolerance};
+     */
+    public boolean isAcceptable (double tolerance) {
+        return maxDeviation <= tolerance;
+    }
+
+    /**
+     * @return number of bits of the quantized network;
+     */
+    public int getBits () {
+        return bits;
+    }
+
+    /**
+     * @return number of evaluations compared;
+     */
+    public int getSamples () {
+        return samples;
+    }
+
+    /**
+     * @return largest absolute difference of any output, in any evaluation;
+     */
+    public double getMaxDeviation () {
+        return maxDeviation;
+    }
+
+    /**
+     * @return average absolute difference of the outputs;
+     */
+    public double getMeanDeviation () {
+        return meanDeviation;
+    }
+
+    @Override
+    public String toString () {
+        return "QuantizationReport{" +
+                "bits=" + bits +
+                ", samples=" + samples +
+                ", maxDeviation=" + maxDeviation +
+                ", meanDeviation=" + meanDeviation +
+                '}';
+    }
+}
@@ -0,0 +1,341 @@
+package com.tesladodger.neat.tools.quantize;
+
+import java.util.Arrays;
+
+
+/**
+ * Network with fixed-point integer weights, evaluated with integer arithmetic only.
+ *
+ * <p>Created by a {@link Quantizer}. There are three scale factors, chosen for each network:
+ *
+ * <ul>
+ *     <li>a weight {@code w} is stored as the integer {@code round(w / weightScale)};</li>
+ *     <li>the result {@code a} of the activation function as {@code round(a / activationScale)};
+ *     </li>
+ *     <li>the sum of the inputs of a node (and the inputs themselves) as
+ *     {@code round(s / sumScale)}, where {@code sumScale = weightScale * activationScale}, so
+ *     that the product of an activation and a weight is directly a sum.</li>
+ * </ul>
+ *
+ * <p>The activation function is a lookup table, indexed by the sum of a node, shifted right so
+ * that the table covers the range of sums seen during calibration. Sums outside that range use
+ * the first or last entry.
+ *
+ * <p>With 8 bits or less, the weights are stored in bytes, which halves their memory, and that of
+ * the connections is then mostly their targets. The sums are always 64 bit integers.
+ *
+ * <p>Like an {@link com.tesladodger.neat.phenotype.Evaluator}, this keeps the values left by
+ * recursive connections between calls, and it doesn't allocate any memory after being created.
+ * It is not thread-safe.
+ *
+ * @see Quantizer
+ * @author tesla
+ * @since v1.2
+ */
+public class QuantizedNetwork {
+
+    private final int bits;
+
+    /* Number of nodes of each kind in this network. */
+    private final int inputNum;
+    private final int outputNum;
+
+    /* Structure, in compressed sparse rows, like in the phenotype. */
+    private final int[] inputSlots;
+    private final int[] outputSlots;
+    private final int[] rowStart;
+    private final int[] targets;
+    private final boolean[] selfConnected;
+
+    /* Quantized weights, in bytes with 8 bits or less, and in shorts otherwise. */
+    private final byte[] byteWeights;
+    private final byte[] byteSelfWeights;
+    private final short[] weights;
+    private final short[] selfWeights;
+
+    private final double weightScale;
+    private final double activationScale;
+
+    /* Lookup table of the activation function. */
+    private final short[] table;
+    private final long tableMin;
+    private final int tableShift;
+
+    /** Sums of the inputs of each node. */
+    private final long[] values;
+
+    /* Buffers used by the floating point methods. */
+    private final long[] quantizedInput;
+    private final int[] quantizedOutput;
+    private final long[] rawOutput;
+
+    QuantizedNetwork (int bits, int[] inputSlots, int[] outputSlots, int[] rowStart,
+                      int[] targets, boolean[] selfConnected, short[] weights, short[] selfWeights,
+                      double weightScale, double activationScale, short[] table, long tableMin,
+                      int tableShift) {
+        this.bits = bits;
+        this.inputSlots = inputSlots;
+        this.outputSlots = outputSlots;
+        this.rowStart = rowStart;
+        this.targets = targets;
+        this.selfConnected = selfConnected;
+        if (bits <= 8) {
+            byteWeights = toBytes(weights);
+            byteSelfWeights = toBytes(selfWeights);
+            this.weights = null;
+            this.selfWeights = null;
+        } else {
+            byteWeights = null;
+            byteSelfWeights = null;
+            this.weights = weights;
+            this.selfWeights = selfWeights;
+        }
+        this.weightScale = weightScale;
+        this.activationScale = activationScale;
+        this.table = table;
+        this.tableMin = tableMin;
+        this.tableShift = tableShift;
+
+        int in = 0;
+        int out = 0;
+        for (int i = 0; i < inputSlots.length; i++) {
+            if (inputSlots[i] >= 0) in++;
+            if (outputSlots[i] >= 0) out++;
+        }
+        inputNum = in;
+        outputNum = out;
+        values = new long[inputSlots.length];
+        quantizedInput = new long[inputNum];
+        quantizedOutput = new int[outputNum];
+        rawOutput = new long[outputNum];
+    }
+
+    /**
+     * Performs propagation of the inputs through the network, applying the activation function
+     * to the outputs.
+     *
+     * <p>The inputs are quantized and the outputs converted back, so this is a replacement for
+     * {@link com.tesladodger.neat.phenotype.Evaluator#calculateOutput(double[], double[])}.
+     *
+     * @param input array of inputs;
+     * @param output array where the outputs are written, ordered by node id;
+     *
+     * @throws IllegalArgumentException if the length of the input or output arrays doesn't
+     * correspond to the number of input or output nodes in this network;
+     */
+    public void calculateOutput (double[] input, double[] output) {
+        checkLengths(input.length, output.length);
+        for (int i = 0; i < inputNum; i++) {
+            quantizedInput[i] = quantizeSum(input[i]);
+        }
+        calculateOutput(quantizedInput, quantizedOutput);
+        for (int i = 0; i < outputNum; i++) {
+            output[i] = quantizedOutput[i] * activationScale;
+        }
+    }
+
+    /**
+     * Performs propagation of the inputs through the network, applying the activation function
+     * to the outputs.
+     *
+     * @param input array of inputs;
+     *
+     * @return new array with outputs, ordered by node id;
+     * @throws IllegalArgumentException if the length of the input array doesn't correspond to
+     * the number of input nodes in this network;
+     */
+    public double[] calculateOutput (double[] input) {
+        double[] result = new double[outputNum];
+        calculateOutput(input, result);
+        return result;
+    }
+
+    /**
+     * Performs propagation of the inputs through the network, without applying the activation
+     * function to the outputs.
+     *
+     * @param input array of inputs;
+     * @param output array where the raw outputs are written, ordered by node id;
+     *
+     * @throws IllegalArgumentException if the length of the input or output arrays doesn't
+     * correspond to the number of input or output nodes in this network;
+     */
+    public void calculateRawOutput (double[] input, double[] output) {
+        checkLengths(input.length, output.length);
+        for (int i = 0; i < inputNum; i++) {
+            quantizedInput[i] = quantizeSum(input[i]);
+        }
+        evaluate(quantizedInput, rawOutput);
+        for (int i = 0; i < outputNum; i++) {
+            output[i] = rawOutput[i] * getSumScale();
+        }
+    }
+
+    /**
+     * Performs propagation of already quantized inputs through the network, applying the
+     * activation function to the outputs, with integer arithmetic only.
+     *
+     * @param input array of inputs, in units of {@link QuantizedNetwork#getSumScale()};
+     * @param output array where the outputs are written, in units of
+     *               {@link QuantizedNetwork#getActivationScale()};
+     *
+     * @throws IllegalArgumentException if the length of the input or output arrays doesn't
+     * correspond to the number of input or output nodes in this network;
+     */
+    public void calculateOutput (long[] input, int[] output) {
+        checkLengths(input.length, output.length);
+        evaluate(input, rawOutput);
+        for (int i = 0; i < outputNum; i++) {
+            output[i] = activate(rawOutput[i]);
+        }
+    }
+
+    /**
+     * Propagate the inputs through the network.
+     *
+     * @param input quantized inputs;
+     * @param output where the quantized sums of the output nodes are written;
+     */
+    private void evaluate (long[] input, long[] output) {
+        for (int i = 0; i < values.length; i++) {
+            long value = values[i];
+            if (inputSlots[i] >= 0) {
+                value += input[inputSlots[i]];
+            }
+            if (outputSlots[i] >= 0) {
+                output[outputSlots[i]] = value;
+            }
+
+            int from = rowStart[i];
+            int to = rowStart[i + 1];
+            if (from == to && !selfConnected[i]) {
+                values[i] = 0;
+                continue;
+            }
+
+            long activation = activate(value);
+            if (byteWeights != null) {
+                for (int c = from; c < to; c++) {
+                    values[targets[c]] += activation * byteWeights[c];
+                }
+                values[i] = selfConnected[i] ? activation * byteSelfWeights[i] : 0;
+            } else {
+                for (int c = from; c < to; c++) {
+                    values[targets[c]] += activation * weights[c];
+                }
+                values[i] = selfConnected[i] ? activation * selfWeights[i] : 0;
+            }
+        }
+    }
+
+    private static byte[] toBytes (short[] values) {
+        byte[] result = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (byte) values[i];
+        }
+        return result;
+    }
+
+    /**
+     * Look up the activation of a sum.
+     *
+     * @param sum quantized sum of the inputs of a node;
+     *
+     * @return quantized activation;
+     */
+    private int activate (long sum) {
+        long index = (sum - tableMin) >> tableShift;
+        if (index < 0) {
+            return table[0];
+        }
+        if (index >= table.length) {
+            return table[table.length - 1];
+        }
+        return table[(int) index];
+    }
+
+    /**
+     * Quantize an input, or any other sum of a node.
+     *
+     * @param value to quantize;
+     *
+     * @return value in units of {@link QuantizedNetwork#getSumScale()};
+     */
+    public long quantizeSum (double value) {
+        return Math.round(value / getSumScale());
+    }
+
+    /**
+     * Clear the values kept by recursive connections, to start a new episode.
+     */
+    public void reset () {
+        Arrays.fill(values, 0);
+    }
+
+    private void checkLengths (int input, int output) {
+        if (input != inputNum) {
+            throw new IllegalArgumentException("Length of input array [" + input + "] does" +
+                    " not correspond to number of input nodes [" + inputNum + "].");
+        }
+        if (output != outputNum) {
+            throw new IllegalArgumentException("Length of output array [" + output + "] " +
+                    "does not correspond to number of output nodes [" + outputNum + "].");
+        }
+    }
+
+    /**
+     * @return number of bits of the weights and activations;
+     */
+    public int getBits () {
+        return bits;
+    }
+
+    /**
+     * @return number of bytes each weight is stored in, 1 with 8 bits or less and 2 otherwise;
+     */
+    public int bytesPerWeight () {
+        return byteWeights != null ? 1 : 2;
+    }
+
+    /**
+     * @return value of one unit of a quantized weight;
+     */
+    public double getWeightScale () {
+        return weightScale;
+    }
+
+    /**
+     * @return value of one unit of a quantized activation;
+     */
+    public double getActivationScale () {
+        return activationScale;
+    }
+
+    /**
+     * @return value of one unit of a quantized sum, or input;
+     */
+    public double getSumScale () {
+        return weightScale * activationScale;
+    }
+
+    /**
+     * @return number of entries in the lookup table of the activation function;
+     */
+    public int getTableSize () {
+        return table.length;
+    }
+
+    /**
+     * @return number of input nodes in this network;
+     */
+    public int numberOfInputs () {
+        return inputNum;
+    }
+
+    /**
+     * @return number of output nodes in this network;
+     */
+    public int numberOfOutputs () {
+        return outputNum;
+    }
+}
@@ -0,0 +1,240 @@
+package com.tesladodger.neat.tools.quantize;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.phenotype.NetworkState;
+import com.tesladodger.neat.phenotype.Phenotype;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+
+
+/**
+ * Converts a network into a {@link QuantizedNetwork}, with 8 or 16 bit integer weights.
+ *
+ * <p>The weight scale is chosen from the largest weight of the network, rather than from
+ * {@link com.tesladodger.neat.utils.Parameters#weightUpperBound}, since weight perturbations
+ * can take a weight beyond the bounds, and most networks don't use the whole range. The
+ * activation scale and the range of the lookup table are chosen from the values seen while
+ * evaluating the network on calibration inputs, which should be representative of the inputs
+ * it will get when deployed (a recorded episode, for example).
+ *
+ * <pre>{@code
+ * Quantizer quantizer = new Quantizer();
+ * Phenotype champion = new Phenotype(population.getLastChampion());
+ * QuantizedNetwork network = quantizer.quantize(champion, function, recordedInputs);
+ * QuantizationReport report = quantizer.compare(network, champion, function, testInputs);
+ * if (report.isAcceptable(0.01)) {
+ *     deploy(network);
+ * }
+ * }</pre>
+ *
+ * @author tesla
+ * @since v1.2
+ */
+public class Quantizer {
+
+    /** Number of bits of the weights and activations, between 2 and 16. */
+    public int bits = 8;
+
+    /** Maximum number of entries of the lookup table of the activation function. */
+    public int tableSize = 4096;
+
+    /**
+     * The lookup table covers the largest sum seen during calibration times this margin, since
+     * the sums are different with other inputs.
+     */
+    public double rangeMargin = 1.25;
+
+    /**
+     * Quantize a genome.
+     *
+     * @param genome to quantize;
+     * @param function activation function;
+     * @param calibrationInputs inputs evaluated in sequence to find the ranges of the values;
+     *
+     * @return quantized network;
+     * @throws IllegalArgumentException if the parameters of this quantizer are invalid, or if
+     * the length of a row of inputs doesn't correspond to the number of input nodes;
+     * @see Quantizer#quantize(Phenotype, ActivationFunction, double[][])
+     */
+    public QuantizedNetwork quantize (Genome genome, ActivationFunction function,
+                                      double[][] calibrationInputs) {
+        return quantize(new Phenotype(genome, function), function, calibrationInputs);
+    }
+
+    /**
+     * Quantize a phenotype.
+     *
+     * @param phenotype to quantize;
+     * @param function activation function;
+     * @param calibrationInputs inputs evaluated in sequence to find the ranges of the values;
+     *
+     * @return quantized network;
+     * @throws IllegalArgumentException if the parameters of this quantizer are invalid, or if
+     * the length of a row of inputs doesn't correspond to the number of input nodes;
+     */
+    public QuantizedNetwork quantize (Phenotype phenotype, ActivationFunction function,
+                                      double[][] calibrationInputs) {
+        if (bits < 2 || bits > 16) {
+            throw new IllegalArgumentException("Number of bits [" + bits + "] must be between " +
+                    "2 and 16.");
+        }
+        if (tableSize < 2) {
+            throw new IllegalArgumentException("Size of the table [" + tableSize + "] must be at" +
+                    " least 2.");
+        }
+        int max = (1 << (bits - 1)) - 1;
+        int n = phenotype.numberOfNodes();
+        int connections = phenotype.firstConnection(n);
+
+        // weights
+        double maxWeight = 0;
+        for (int c = 0; c < connections; c++) {
+            maxWeight = Math.max(maxWeight, Math.abs(phenotype.connectionWeight(c)));
+        }
+        for (int i = 0; i < n; i++) {
+            maxWeight = Math.max(maxWeight, Math.abs(phenotype.selfConnectionWeight(i)));
+        }
+        double weightScale = maxWeight > 0 ? maxWeight / max : 1;
+
+        // activations and sums
+        double[] range = calibrate(phenotype, function, calibrationInputs);
+        double activationScale = range[0] > 0 ? range[0] / max : 1;
+        double sumScale = weightScale * activationScale;
+
+        int[] inputSlots = new int[n];
+        int[] outputSlots = new int[n];
+        int[] rowStart = new int[n + 1];
+        int[] targets = new int[connections];
+        boolean[] selfConnected = new boolean[n];
+        short[] weights = new short[connections];
+        short[] selfWeights = new short[n];
+        for (int i = 0; i < n; i++) {
+            inputSlots[i] = phenotype.inputIndex(i);
+            outputSlots[i] = phenotype.outputIndex(i);
+            rowStart[i] = phenotype.firstConnection(i);
+            selfConnected[i] = phenotype.hasSelfConnection(i);
+            selfWeights[i] = quantize(phenotype.selfConnectionWeight(i) / weightScale, max);
+        }
+        rowStart[n] = connections;
+        for (int c = 0; c < connections; c++) {
+            targets[c] = phenotype.connectionTarget(c);
+            weights[c] = quantize(phenotype.connectionWeight(c) / weightScale, max);
+        }
+
+        // lookup table covering [-limit, limit], in units of sums
+        long limit = Math.max(1, (long) Math.ceil(range[1] * rangeMargin / sumScale));
+        int shift = 0;
+        while (((2 * limit) >> shift) >= tableSize) {
+            shift++;
+        }
+        short[] table = new short[(int) ((2 * limit) >> shift) + 1];
+        long tableMin = -limit;
+        for (int i = 0; i < table.length; i++) {
+            long center = tableMin + ((long) i << shift) + ((1L << shift) >> 1);
+            table[i] = quantize(function.apply(center * sumScale) / activationScale, max);
+        }
+
+        return new QuantizedNetwork(bits, inputSlots, outputSlots, rowStart, targets,
+                selfConnected, weights, selfWeights, weightScale, activationScale, table,
+                tableMin, shift);
+    }
+
+    /**
+     * Compare a quantized network with the network it was created from.
+     *
+     * <p>Both networks are reset and evaluated in sequence, as one episode, on the same inputs,
+     * and the activated outputs are compared. The quantized network is reset afterwards.
+     *
+     * @param network quantized network;
+     * @param phenotype original network;
+     * @param function activation function;
+     * @param inputs inputs evaluated in sequence;
+     *
+     * @return report with the differences of the outputs;
+     * @throws IllegalArgumentException if the length of a row of inputs doesn't correspond to
+     * the number of input nodes;
+     */
+    public QuantizationReport compare (QuantizedNetwork network, Phenotype phenotype,
+                                       ActivationFunction function, double[][] inputs) {
+        NetworkState state = phenotype.newState();
+        double[] expected = new double[phenotype.numberOfOutputs()];
+        double[] result = new double[network.numberOfOutputs()];
+        double maxDeviation = 0;
+        double deviationSum = 0;
+
+        network.reset();
+        for (double[] input : inputs) {
+            phenotype.calculateOutput(state, input, expected, function);
+            network.calculateOutput(input, result);
+            for (int i = 0; i < expected.length; i++) {
+                double deviation = Math.abs(expected[i] - result[i]);
+                maxDeviation = Math.max(maxDeviation, deviation);
+                deviationSum += deviation;
+            }
+        }
+        network.reset();
+
+        int count = inputs.length * expected.length;
+        return new QuantizationReport(network.getBits(), inputs.length, maxDeviation,
+                count == 0 ? 0 : deviationSum / count);
+    }
+
+    /**
+     * Evaluate a network in double precision and find the largest absolute activation and sum
+     * of any node whose activation is used.
+     *
+     * @param p phenotype;
+     * @param f activation function;
+     * @param inputs evaluated in sequence;
+     *
+     * @return largest activation and largest sum;
+     */
+    private static double[] calibrate (Phenotype p, ActivationFunction f, double[][] inputs) {
+        int n = p.numberOfNodes();
+        double[] values = new double[n];
+        double maxActivation = 0;
+        double maxSum = 0;
+        for (double[] input : inputs) {
+            if (input.length != p.numberOfInputs()) {
+                throw new IllegalArgumentException("Length of input array [" + input.length +
+                        "] does not correspond to number of input nodes [" +
+                        p.numberOfInputs() + "].");
+            }
+            for (int i = 0; i < n; i++) {
+                double value = values[i];
+                if (p.inputIndex(i) >= 0) {
+                    value += input[p.inputIndex(i)];
+                }
+                int from = p.firstConnection(i);
+                int to = p.firstConnection(i + 1);
+                boolean propagates = from != to || p.hasSelfConnection(i);
+                if (!propagates && p.outputIndex(i) < 0) {
+                    values[i] = 0;
+                    continue;
+                }
+
+                double activation = f.apply(value);
+                maxSum = Math.max(maxSum, Math.abs(value));
+                maxActivation = Math.max(maxActivation, Math.abs(activation));
+                if (!propagates) {
+                    values[i] = 0;
+                    continue;
+                }
+                for (int c = from; c < to; c++) {
+                    values[p.connectionTarget(c)] += activation * p.connectionWeight(c);
+                }
+                values[i] = p.hasSelfConnection(i) ? activation * p.selfConnectionWeight(i) : 0;
+            }
+        }
+        return new double[] {maxActivation, maxSum};
+    }
+
+    /**
+     * @param value in units of the scale;
+     * @param max largest absolute integer;
+     *
+     * @return rounded and clamped value;
+     */
+    private static short quantize (double value, int max) {
+        return (short) Math.max(-max, Math.min(max, Math.round(value)));
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * Conversion of a network into fixed-point integers, for deployment in latency-sensitive
+ * control loops.
+ *
+ * <p>A {@link com.tesladodger.neat.tools.quantize.Quantizer} converts the weights of a
+ * {@link com.tesladodger.neat.phenotype.Phenotype} (a champion, usually) into 8 or 16 bit
+ * integers, with scale factors chosen for that network. The resulting
+ * {@link com.tesladodger.neat.tools.quantize.QuantizedNetwork} is evaluated with integer
+ * arithmetic only, and the activation function is replaced by a lookup table. Since this loses
+ * precision, the quantizer also compares the quantized network with the original one, in a
+ * {@link com.tesladodger.neat.tools.quantize.QuantizationReport}, so that the quantized model
+ * can be accepted or rejected.
+ *
+ * @author tesla
+ * @since v1.2
+ */
+package com.tesladodger.neat.tools.quantize;
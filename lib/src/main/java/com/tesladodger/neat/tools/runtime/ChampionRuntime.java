@@ -0,0 +1,355 @@
+package com.tesladodger.neat.tools.runtime;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.Population;
+import com.tesladodger.neat.phenotype.NetworkCompiler;
+import com.tesladodger.neat.phenotype.NetworkState;
+import com.tesladodger.neat.phenotype.Phenotype;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * Serves the current champion of an evolution to other threads, which can evaluate it
+ * concurrently while the evolution publishes new champions.
+ *
+ * <p>A published genome is compiled into a {@link Phenotype}, which is an immutable snapshot, so
+ * later changes to the genome (it may be mutated or reused by the next generation) have no effect
+ * on the network being served. The champion is replaced with a single atomic reference update:
+ * a reader gets either the old network or the new one, never a mix of both, and neither readers
+ * nor the evolution ever take a lock.
+ *
+ * <p>Each call to {@link ChampionRuntime#calculateOutput(double[])} is independent, starting
+ * with all node values at 0. Readers that run episodes of a recurrent network use a
+ * {@link Session}, which keeps the values between calls and stays on the same champion until it's
+ * refreshed, so that an episode isn't switched to another network half-way.
+ *
+ * <pre>{@code
+ * ChampionRuntime runtime = new ChampionRuntime(function);
+ * // evolution thread
+ * while (evolving) {
+ *     evaluate(genomes);
+ *     genomes = population.nextGeneration(genomes, history);
+ *     runtime.publish(population);
+ * }
+ * // any number of reader threads
+ * double[] action = runtime.calculateOutput(observation);
+ * }</pre>
+ *
+ * <p>The activation function is shared by all readers, so it must not be changed after the
+ * runtime is created. The built-in functions are safe to share as long as their parameters
+ * aren't changed.
+ *
+ * @author tesla
+ * @since v1.2
+ */
+public class ChampionRuntime {
+
+    private final ActivationFunction function;
+    private final NetworkCompiler compiler;
+    private final AtomicReference<Champion> champion = new AtomicReference<>();
+    private final AtomicLong versions = new AtomicLong();
+
+    /**
+     * Create a runtime without a champion, whose networks are interpreted.
+     *
+     * @param function activation function;
+     */
+    public ChampionRuntime (ActivationFunction function) {
+        this(function, null);
+    }
+
+    /**
+     * Create a runtime without a champion.
+     *
+     * @param function activation function;
+     * @param compiler used to compile the published champions, or null to interpret them;
+     */
+    public ChampionRuntime (ActivationFunction function, NetworkCompiler compiler) {
+        this.function = function;
+        this.compiler = compiler;
+    }
+
+    /**
+     * Replace the champion with a genome.
+     *
+     * @param genome new champion, copied, so it can be changed afterwards;
+     * @param fitness of the genome;
+     *
+     * @return the published champion;
+     * @throws com.tesladodger.neat.utils.exceptions.IllegalTopologyException if an enabled
+     * connection of the genome leads to a node that doesn't exist;
+     */
+    public Champion publish (Genome genome, double fitness) {
+        Champion next = newChampion(genome, fitness);
+        champion.set(next);
+        return next;
+    }
+
+    /**
+     * Replace the champion with the champion of the last generation of a population.
+     *
+     * @param population that computed at least one generation;
+     *
+     * @return the published champion;
+     * @throws IllegalStateException if the population hasn't computed a generation yet, or has
+     * no champion;
+     */
+    public Champion publish (Population population) {
+        Genome genome = population.getLastChampion();
+        if (genome == null) {
+            throw new IllegalStateException("The population has no champion to publish.");
+        }
+        return publish(genome, population.getLastHighestFitness());
+    }
+
+    /**
+     * Replace the champion with a genome, only if it's fitter than the current one, or if there
+     * is none. Many threads (the islands of an evolution, for example) can offer genomes at the
+     * same time, and the fittest one is kept.
+     *
+     * @param genome candidate, copied, so it can be changed afterwards;
+     * @param fitness of the genome;
+     *
+     * @return true if the genome became the champion;
+     * @throws com.tesladodger.neat.utils.exceptions.IllegalTopologyException if an enabled
+     * connection of the genome leads to a node that doesn't exist;
+     */
+    public boolean offer (Genome genome, double fitness) {
+        Champion current = champion.get();
+        if (current != null && current.fitness >= fitness) {
+            return false;
+        }
+        Champion next = newChampion(genome, fitness);
+        while (!champion.compareAndSet(current, next)) {
+            current = champion.get();
+            if (current != null && current.fitness >= fitness) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Champion newChampion (Genome genome, double fitness) {
+        Phenotype phenotype = new Phenotype(genome, function);
+        if (compiler != null) {
+            phenotype = compiler.compile(phenotype);
+        }
+        return new Champion(phenotype, function, fitness, versions.incrementAndGet());
+    }
+
+    /**
+     * @return the current champion, null if none was published;
+     */
+    public Champion getChampion () {
+        return champion.get();
+    }
+
+    /**
+     * Evaluate the current champion once, from a clear state, applying the activation function
+     * to the outputs.
+     *
+     * @param input array of inputs;
+     *
+     * @return new array with the outputs;
+     * @throws IllegalStateException if no champion was published;
+     * @throws IllegalArgumentException if the length of the input array doesn't correspond to
+     * the number of input nodes of the champion;
+     */
+    public double[] calculateOutput (double[] input) {
+        return current().calculateOutput(input);
+    }
+
+    /**
+     * Evaluate the current champion once, from a clear state, applying the activation function
+     * to the outputs, which are written to a given array.
+     *
+     * @param input array of inputs;
+     * @param output array where the outputs are written;
+     *
+     * @throws IllegalStateException if no champion was published;
+     * @throws IllegalArgumentException if the length of the input or output arrays doesn't
+     * correspond to the number of input or output nodes of the champion;
+     */
+    public void calculateOutput (double[] input, double[] output) {
+        current().calculateOutput(input, output);
+    }
+
+    /**
+     * Start an episode on the current champion.
+     *
+     * @return new session, not thread-safe;
+     * @throws IllegalStateException if no champion was published;
+     */
+    public Session newSession () {
+        return new Session(current());
+    }
+
+    private Champion current () {
+        Champion result = champion.get();
+        if (result == null) {
+            throw new IllegalStateException("No champion was published.");
+        }
+        return result;
+    }
+
+    /**
+     * @return the activation function of the networks;
+     */
+    public ActivationFunction getFunction () {
+        return function;
+    }
+
+    /**
+     * Immutable snapshot of a published champion.
+     */
+    public static final class Champion {
+
+        private final Phenotype phenotype;
+        private final ActivationFunction function;
+        private final double fitness;
+        private final long version;
+
+        private Champion (Phenotype phenotype, ActivationFunction function, double fitness,
+                          long version) {
+            this.phenotype = phenotype;
+            this.function = function;
+            this.fitness = fitness;
+            this.version = version;
+        }
+
+        /**
+         * Evaluate this network once, from a clear state.
+         *
+         * @param input array of inputs;
+         *
+         * @return new array with the outputs;
+         * @throws IllegalArgumentException if the length of the input array doesn't correspond
+         * to the number of input nodes;
+         */
+        public double[] calculateOutput (double[] input) {
+            return phenotype.calculateOutput(phenotype.newState(), input, function);
+        }
+
+        /**
+         * Evaluate this network once, from a clear state, writing the outputs to a given array.
+         *
+         * @param input array of inputs;
+         * @param output array where the outputs are written;
+         *
+         * @throws IllegalArgumentException if the length of the input or output arrays doesn't
+         * correspond to the number of input or output nodes;
+         */
+        public void calculateOutput (double[] input, double[] output) {
+            phenotype.calculateOutput(phenotype.newState(), input, output, function);
+        }
+
+        /**
+         * @return the network of this champion;
+         */
+        public Phenotype getPhenotype () {
+            return phenotype;
+        }
+
+        /**
+         * @return fitness of the genome when it was published;
+         */
+        public double getFitness () {
+            return fitness;
+        }
+
+        /**
+         * @return number of the publication, higher for newer champions of the same runtime;
+         */
+        public long getVersion () {
+            return version;
+        }
+
+        @Override
+        public String toString () {
+            return "Champion{" +
+                    "version=" + version +
+                    ", fitness=" + fitness +
+                    ", nodes=" + phenotype.numberOfNodes() +
+                    ", connections=" + phenotype.numberOfConnections() +
+                    '}';
+        }
+    }
+
+    /**
+     * Episode of a champion, which keeps the values of its nodes between calls.
+     *
+     * <p>A session stays on the champion it was created with, even after another one is
+     * published, until {@link Session#refresh()} is called. It is not thread-safe: each reader
+     * thread uses its own.
+     */
+    public final class Session {
+
+        private Champion pinned;
+        private NetworkState state;
+        private double[] output;
+
+        private Session (Champion champion) {
+            pin(champion);
+        }
+
+        private void pin (Champion champion) {
+            pinned = champion;
+            state = champion.phenotype.newState();
+            output = new double[champion.phenotype.numberOfOutputs()];
+        }
+
+        /**
+         * Performs propagation of the inputs through the network of this session.
+         *
+         * @param input array of inputs;
+         *
+         * @return the output array of this session, overwritten on every call;
+         * @throws IllegalArgumentException if the length of the input array doesn't correspond
+         * to the number of input nodes;
+         */
+        public double[] calculateOutput (double[] input) {
+            pinned.phenotype.calculateOutput(state, input, output, pinned.function);
+            return output;
+        }
+
+        /**
+         * @return true if another champion was published after this session's;
+         */
+        public boolean isStale () {
+            return champion.get() != pinned;
+        }
+
+        /**
+         * Move this session to the current champion, starting a new episode, if a new one was
+         * published.
+         *
+         * @return true if the champion changed;
+         */
+        public boolean refresh () {
+            Champion current = champion.get();
+            if (current == pinned) {
+                return false;
+            }
+            pin(current);
+            return true;
+        }
+
+        /**
+         * Clear the values kept by recursive connections, to start a new episode on the same
+         * champion.
+         */
+        public void reset () {
+            state.reset();
+        }
+
+        /**
+         * @return the champion this session evaluates;
+         */
+        public Champion getChampion () {
+            return pinned;
+        }
+    }
+}
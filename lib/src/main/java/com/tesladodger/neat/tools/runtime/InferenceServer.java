@@ -0,0 +1,470 @@
+package com.tesladodger.neat.tools.runtime;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.phenotype.Phenotype;
+import com.tesladodger.neat.tools.save.SaveFile;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Local HTTP server that evaluates the champion of a {@link ChampionRuntime} for other
+ * processes, collecting concurrent requests into batches.
+ *
+ * <p>The server is built on the JDK's HTTP server and only listens on the loopback address. It
+ * has two endpoints:
+ *
+ * <ul>
+ *     <li>{@code POST /evaluate}, with the inputs as comma separated numbers in the body,
+ *     answers with the outputs in the same format, with status 400 if the inputs are
+ *     invalid, or with status 503 if the evaluation failed;</li>
+ *     <li>{@code GET /statistics} answers with the {@link ServerStatistics}, as lines of
+ *     {@code name=value}.</li>
+ * </ul>
+ *
+ * <p>Requests are queued and evaluated by a single thread, in batches: a batch starts with the
+ * oldest request and collects the ones that arrive until it has the maximum size, or until the
+ * maximum delay since the first one has passed. Each batch is evaluated with one call to
+ * {@link Phenotype#calculateOutput(double[][], ActivationFunction)}, which is much faster per
+ * row than evaluating the requests one by one. The delay trades latency for throughput: with
+ * few concurrent clients it only adds latency, so it should be small.
+ *
+ * <p>Every request is evaluated independently, starting with all node values at 0. The
+ * champion can be replaced through the runtime while the server runs; each batch is evaluated
+ * entirely by one champion.
+ *
+ * <pre>{@code
+ * InferenceServer server = InferenceServer.load(new FileInputStream("champion.txt"), function);
+ * int port = server.start(0);
+ * // curl -d "0.5,1,0" http://localhost:port/evaluate
+ * }</pre>
+ *
+ * @see ChampionRuntime
+ * @author tesla
+ * @since v1.2
+ */
+public class InferenceServer {
+
+    /** Default maximum number of requests evaluated together. */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+
+    /** Default maximum time a request waits for others to join its batch, in nanoseconds. */
+    public static final long DEFAULT_MAX_DELAY = 200_000;
+
+    /** Number of recent latencies kept for the percentiles. */
+    private static final int LATENCY_SAMPLES = 10_000;
+
+    private final ChampionRuntime runtime;
+    private final int maxBatchSize;
+    private final long maxDelay;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+
+    /* Statistics, guarded by the lock of the array. */
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private int nextLatency;
+    private int latencySamples;
+    private long requests;
+    private long batches;
+    private long statisticsStart;
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private Thread batcher;
+    private volatile boolean running;
+
+    /**
+     * Create a server with the default batch size and delay.
+     *
+     * @param runtime whose champion is evaluated;
+     */
+    public InferenceServer (ChampionRuntime runtime) {
+        this(runtime, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY);
+    }
+
+    /**
+     * Create a server.
+     *
+     * @param runtime whose champion is evaluated;
+     * @param maxBatchSize maximum number of requests evaluated together;
+     * @param maxDelay maximum time a request waits for others to join its batch, in
+     *                 nanoseconds;
+     *
+     * @throws IllegalArgumentException if the batch size isn't positive, or the delay is
+     * negative;
+     */
+    public InferenceServer (ChampionRuntime runtime, int maxBatchSize, long maxDelay) {
+        if (maxBatchSize < 1 || maxDelay < 0) {
+            throw new IllegalArgumentException("Batch size [" + maxBatchSize + "] must be " +
+                    "positive and delay [" + maxDelay + "] can't be negative.");
+        }
+        this.runtime = runtime;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * Create a server for the first genome of a file saved with
+     * {@link SaveFile#saveGenomes(OutputStream, String, Genome...)}, with the default batch size
+     * and delay.
+     *
+     * @param saveFile stream of the file;
+     * @param function activation function;
+     *
+     * @return new server, not started;
+     * @throws IOException if there is a problem reading the file;
+     * @throws IllegalArgumentException if the file has a structural mistake or no genomes;
+     */
+    public static InferenceServer load (InputStream saveFile, ActivationFunction function)
+            throws IOException {
+        List<Genome> genomes = SaveFile.loadGenomes(saveFile);
+        if (genomes == null || genomes.isEmpty()) {
+            throw new IllegalArgumentException("The file doesn't contain a valid genome.");
+        }
+        ChampionRuntime runtime = new ChampionRuntime(function);
+        runtime.publish(genomes.get(0), genomes.get(0).getFitness());
+        return new InferenceServer(runtime);
+    }
+
+    /**
+     * Start listening on the loopback address.
+     *
+     * @param port to listen on, 0 for any free port;
+     *
+     * @return the port the server is listening on;
+     * @throws IOException if the server can't be bound to the port;
+     * @throws IllegalStateException if the server is already running;
+     */
+    public synchronized int start (int port) throws IOException {
+        if (running) {
+            throw new IllegalStateException("The server is already running.");
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                0);
+        server.createContext("/evaluate", this::handleEvaluate);
+        server.createContext("/statistics", this::handleStatistics);
+        // requests block until their batch is evaluated, so each needs its own thread
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "inference-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+
+        running = true;
+        resetStatistics();
+        batcher = new Thread(this::batchLoop, "inference-batcher");
+        batcher.setDaemon(true);
+        batcher.start();
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stop the server, failing the requests that are still queued.
+     */
+    public synchronized void stop () {
+        if (!running) {
+            return;
+        }
+        running = false;
+        server.stop(0);
+        executor.shutdownNow();
+        batcher.interrupt();
+        try {
+            batcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Request request;
+        while ((request = queue.poll()) != null) {
+            request.result.completeExceptionally(new IllegalStateException("Server stopped."));
+        }
+    }
+
+    /**
+     * Evaluate a row of inputs in the next batch, from this process.
+     *
+     * @param input array of inputs;
+     *
+     * @return new array with the outputs;
+     * @throws IllegalStateException if the server isn't running;
+     * @throws IllegalArgumentException if the length of the input array doesn't correspond to
+     * the number of input nodes of the champion;
+     * @throws InterruptedException if interrupted while waiting for the batch;
+     */
+    public double[] calculateOutput (double[] input) throws InterruptedException {
+        try {
+            return submit(input).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private CompletableFuture<double[]> submit (double[] input) {
+        if (!running) {
+            throw new IllegalStateException("The server isn't running.");
+        }
+        Request request = new Request(input);
+        queue.add(request);
+        // stopped after the check, the queue may have been drained already
+        if (!running) {
+            request.result.completeExceptionally(new IllegalStateException("Server stopped."));
+        }
+        return request.result;
+    }
+
+    /**
+     * Collect requests into batches and evaluate them, until the server stops.
+     */
+    private void batchLoop () {
+        List<Request> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = first.arrival + maxDelay;
+                while (batch.size() < maxBatchSize) {
+                    long wait = deadline - System.nanoTime();
+                    Request next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // stopped
+            }
+            if (!batch.isEmpty()) {
+                try {
+                    evaluate(batch);
+                } catch (RuntimeException e) {
+                    // the activation function may throw; fail the batch, not the server
+                    IllegalStateException failure = new IllegalStateException(
+                            "Evaluation failed: " + e, e);
+                    for (Request request : batch) {
+                        request.result.completeExceptionally(failure);
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Evaluate a batch of requests with one call, and complete them.
+     *
+     * @param batch requests;
+     */
+    private void evaluate (List<Request> batch) {
+        ChampionRuntime.Champion champion = runtime.getChampion();
+        if (champion == null) {
+            for (Request request : batch) {
+                request.result.completeExceptionally(
+                        new IllegalStateException("No champion was published."));
+            }
+            return;
+        }
+        Phenotype phenotype = champion.getPhenotype();
+
+        List<Request> valid = new ArrayList<>(batch.size());
+        for (Request request : batch) {
+            if (request.input.length == phenotype.numberOfInputs()) {
+                valid.add(request);
+            } else {
+                request.result.completeExceptionally(new IllegalArgumentException("Length of " +
+                        "input array [" + request.input.length + "] does not correspond to " +
+                        "number of input nodes [" + phenotype.numberOfInputs() + "]."));
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+        double[][] inputs = new double[valid.size()][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = valid.get(i).input;
+        }
+        double[][] outputs = phenotype.calculateOutput(inputs, runtime.getFunction());
+
+        long now = System.nanoTime();
+        synchronized (latencies) {
+            for (Request request : valid) {
+                latencies[nextLatency] = now - request.arrival;
+                nextLatency = (nextLatency + 1) % LATENCY_SAMPLES;
+                latencySamples = Math.min(latencySamples + 1, LATENCY_SAMPLES);
+            }
+            requests += valid.size();
+            batches++;
+        }
+        for (int i = 0; i < inputs.length; i++) {
+            valid.get(i).result.complete(outputs[i]);
+        }
+    }
+
+    private void handleEvaluate (HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                respond(exchange, 405, "Use POST.\n");
+                return;
+            }
+            double[] input;
+            try {
+                input = parse(new String(exchange.getRequestBody().readAllBytes(),
+                        StandardCharsets.UTF_8));
+            } catch (NumberFormatException e) {
+                respond(exchange, 400, "Invalid number: " + e.getMessage() + '\n');
+                return;
+            }
+
+            double[] output;
+            try {
+                output = submit(input).get();
+            } catch (ExecutionException e) {
+                int status = e.getCause() instanceof IllegalArgumentException ? 400 : 503;
+                respond(exchange, status, e.getCause().getMessage() + '\n');
+                return;
+            } catch (IllegalStateException e) {
+                respond(exchange, 503, e.getMessage() + '\n');
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                respond(exchange, 503, "Server stopped.\n");
+                return;
+            }
+
+            StringBuilder body = new StringBuilder();
+            for (int i = 0; i < output.length; i++) {
+                if (i > 0) body.append(',');
+                body.append(output[i]);
+            }
+            respond(exchange, 200, body.append('\n').toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleStatistics (HttpExchange exchange) throws IOException {
+        try {
+            respond(exchange, 200, getStatistics().toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond (HttpExchange exchange, int status, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * @param body comma separated numbers;
+     *
+     * @return the numbers;
+     * @throws NumberFormatException if any of them isn't a number;
+     */
+    private static double[] parse (String body) {
+        String trimmed = body.trim();
+        if (trimmed.isEmpty()) {
+            return new double[0];
+        }
+        String[] elements = trimmed.split(",");
+        double[] result = new double[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            result[i] = Double.parseDouble(elements[i].trim());
+        }
+        return result;
+    }
+
+    /**
+     * @return number of requests waiting to be put in a batch;
+     */
+    int queued () {
+        return queue.size();
+    }
+
+    /**
+     * @return the performance of this server since it started or the statistics were reset;
+     */
+    public ServerStatistics getStatistics () {
+        synchronized (latencies) {
+            int samples = latencySamples;
+            long[] sorted = Arrays.copyOf(latencies, samples);
+            Arrays.sort(sorted);
+            long p50 = samples == 0 ? 0 : sorted[(samples - 1) / 2];
+            long p99 = samples == 0 ? 0 : sorted[(int) Math.ceil(samples * .99) - 1];
+            double seconds = (System.nanoTime() - statisticsStart) / 1e9;
+            return new ServerStatistics(requests, batches, p50, p99,
+                    seconds > 0 ? requests / seconds : 0);
+        }
+    }
+
+    /**
+     * Clear the statistics, to measure from now on.
+     */
+    public void resetStatistics () {
+        synchronized (latencies) {
+            nextLatency = 0;
+            latencySamples = 0;
+            requests = 0;
+            batches = 0;
+            statisticsStart = System.nanoTime();
+        }
+    }
+
+    /**
+     * @return the runtime whose champion this server evaluates;
+     */
+    public ChampionRuntime getRuntime () {
+        return runtime;
+    }
+
+    /**
+     * @return true if the server was started and not stopped;
+     */
+    public boolean isRunning () {
+        return running;
+    }
+
+    /**
+     * A row of inputs waiting for its batch.
+     */
+    private static final class Request {
+
+        private final double[] input;
+        private final long arrival = System.nanoTime();
+        private final CompletableFuture<double[]> result = new CompletableFuture<>();
+
+        Request (double[] input) {
+            this.input = input;
+        }
+    }
+}
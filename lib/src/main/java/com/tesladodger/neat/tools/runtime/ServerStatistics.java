@@ -0,0 +1,86 @@
+package com.tesladodger.neat.tools.runtime;
+
+
+/**
+ * Snapshot of the performance of an {@link InferenceServer}, to size its batches and delay.
+ *
+ * <p>The latency of a request is measured from when it's queued until its outputs are ready,
+ * so it includes the time spent waiting for a batch to fill, but not the parsing of the request
+ * or the HTTP exchange. The percentiles are computed over the most recent requests.
+ *
+ * @see InferenceServer#getStatistics()
+ * @author tesla
+ * @since v1.2
+ */
+public class ServerStatistics {
+
+    private final long requests;
+    private final long batches;
+    private final long p50;
+    private final long p99;
+    private final double throughput;
+
+    ServerStatistics (long requests, long batches, long p50, long p99, double throughput) {
+        this.requests = requests;
+        this.batches = batches;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.throughput = throughput;
+    }
+
+    /**
+     * @return number of requests evaluated;
+     */
+    public long getRequests () {
+        return requests;
+    }
+
+    /**
+     * @return number of batches evaluated;
+     */
+    public long getBatches () {
+        return batches;
+    }
+
+    /**
+     * @return average number of requests per batch, 0 if there were none;
+     */
+    public double getMeanBatchSize () {
+        return batches == 0 ? 0 : (double) requests / batches;
+    }
+
+    /**
+     * @return median latency of the recent requests, in nanoseconds;
+     */
+    public long getP50Latency () {
+        return p50;
+    }
+
+    /**
+     * @return 99th percentile of the latency of the recent requests, in nanoseconds;
+     */
+    public long getP99Latency () {
+        return p99;
+    }
+
+    /**
+     * @return requests evaluated per second, since the server started or the statistics were
+     * reset;
+     */
+    public double getThroughput () {
+        return throughput;
+    }
+
+    /**
+     * @return the statistics as lines of {@code name=value}, as served by the server;
+     */
+    @Override
+    public String toString () {
+        return "requests=" + requests + '\n' +
+                "batches=" + batches + '\n' +
+                "meanBatchSize=" + getMeanBatchSize() + '\n' +
+                "p50LatencyNanos=" + p50 + '\n' +
+                "p99LatencyNanos=" + p99 + '\n' +
+                "throughput=" + throughput + '\n';
+    }
+}
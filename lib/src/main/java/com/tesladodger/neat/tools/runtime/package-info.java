@@ -0,0 +1,15 @@
+/**
+ * Serving evolved networks to other threads and processes while an evolution runs.
+ *
+ * <p>A {@link com.tesladodger.neat.tools.runtime.ChampionRuntime} holds the current champion as
+ * an immutable {@link com.tesladodger.neat.phenotype.Phenotype}, which any number of threads can
+ * evaluate without locks while the evolution replaces it atomically after each generation.
+ *
+ * <p>An {@link com.tesladodger.neat.tools.runtime.InferenceServer} serves that champion to other
+ * processes on the same host over HTTP, evaluating concurrent requests in batches, and reports
+ * its latency and throughput in {@link com.tesladodger.neat.tools.runtime.ServerStatistics}.
+ *
+ * @author tesla
+ * @since v1.2
+ */
+package com.tesladodger.neat.tools.runtime;
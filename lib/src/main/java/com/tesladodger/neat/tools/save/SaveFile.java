@@ -3,7 +3,6 @@ package com.tesladodger.neat.tools.save;
 import com.tesladodger.neat.Connection;
 import com.tesladodger.neat.Genome;
 import com.tesladodger.neat.Node;
-import com.tesladodger.neat.utils.structures.NodeList;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -14,7 +13,6 @@ import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.LinkedList;
-import java.util.List;
 
 
 /**
@@ -82,23 +80,23 @@ public class SaveFile {
 
     private static void writeGenome (Genome genome, PrintWriter writer) {
         writer.println("<Genome>");
-        writeNodes(genome.getNodes(), writer);
-        writeConnections(genome.getConnections().asOrderedList(), writer);
+        writeNodes(genome, writer);
+        writeConnections(genome, writer);
         writer.println("</Genome>");
     }
 
-    private static void writeNodes (NodeList nodes, PrintWriter writer) {
-        for (Node n : nodes) {
-            writer.printf("<node id=%d type=%s layer=%d />\n", n.getId(), n.getType(),
-                    n.getLayer());
+    private static void writeNodes (Genome genome, PrintWriter writer) {
+        for (int i = 0; i < genome.numberOfNodes(); i++) {
+            writer.printf("<node id=%d type=%s layer=%d />\n", genome.getNodeId(i),
+                    genome.getNodeType(i), genome.getNodeLayer(i));
         }
     }
 
-    private static void writeConnections (List<Connection> connections, PrintWriter writer) {
-        for (Connection c : connections) {
+    private static void writeConnections (Genome genome, PrintWriter writer) {
+        for (int i = 0; i < genome.numberOfGenes(); i++) {
             writer.printf("<connection id=%d in=%d out=%d weight=%f enabled=%b />\n",
-                    c.getInnovationNumber(), c.getInNodeId(), c.getOutNodeId(), c.getWeight(),
-                    c.isEnabled());
+                    genome.getInnovationNumber(i), genome.getInNodeId(i), genome.getOutNodeId(i),
+                    genome.getWeight(i), genome.isEnabled(i));
         }
     }
 
@@ -0,0 +1,148 @@
+package com.tesladodger.neat.utils;
+
+import java.util.Arrays;
+
+
+/**
+ * Population-wide map from the innovation number of a connection gene to its in and out nodes.
+ *
+ * <p>An innovation number is given by an {@link InnovationHistory} to exactly one pair of nodes,
+ * so every genome that has a gene with that number repeats the same pair. The history records
+ * each pair here when it assigns the number, and a
+ * {@link com.tesladodger.neat.PackedGenome} built with this dictionary stores only the
+ * innovation number, weight and enabled flag of each gene, looking its nodes up instead.
+ *
+ * <p>The pairs are packed in a single {@code long} per innovation number, in an array indexed by
+ * it, so a lookup is one array read. Entries are only ever added, and never change; like the
+ * history, this is not thread-safe while they are being added, but can be read concurrently
+ * otherwise.
+ *
+ * @see InnovationHistory#getGeneDictionary()
+ * @author tesla
+ * @since v1.2
+ */
+public class GeneDictionary {
+
+    /** Default initial capacity. */
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /** Value of the innovation numbers that aren't in this dictionary. */
+    private static final long ABSENT = -1;
+
+    /** In-node id in the high bits and out-node id in the low bits, by innovation number. */
+    private long[] genes;
+
+    /** Highest innovation number in this dictionary, plus one. */
+    private int size;
+
+    /**
+     * Create an empty dictionary.
+     */
+    public GeneDictionary () {
+        genes = new long[DEFAULT_CAPACITY];
+        Arrays.fill(genes, ABSENT);
+        size = 0;
+    }
+
+    /**
+     * Record the nodes of a connection gene.
+     *
+     * <p>Genes the history assigned are recorded by it. Genomes created by hand, or loaded from
+     * a file, can record theirs with this method.
+     *
+     * @param innovationNumber of the gene;
+     * @param inNodeId id of the in-node;
+     * @param outNodeId id of the out-node;
+     *
+     * @throws IllegalArgumentException if any argument is negative, or the innovation number is
+     * already recorded with other nodes;
+     */
+    public void register (int innovationNumber, int inNodeId, int outNodeId) {
+        if (innovationNumber < 0 || inNodeId < 0 || outNodeId < 0) {
+            throw new IllegalArgumentException("Innovation number [" + innovationNumber + "] " +
+                    "and node ids [" + inNodeId + ", " + outNodeId + "] must not be negative.");
+        }
+        long gene = ((long) inNodeId << 32) | outNodeId;
+        if (innovationNumber < size && genes[innovationNumber] != ABSENT) {
+            if (genes[innovationNumber] != gene) {
+                throw new IllegalArgumentException("Innovation number [" + innovationNumber +
+                        "] is already recorded from node " + getInNodeId(innovationNumber) +
+                        " to node " + getOutNodeId(innovationNumber) + ".");
+            }
+            return;
+        }
+        if (innovationNumber >= genes.length) {
+            int capacity = Math.max(innovationNumber + 1, genes.length + (genes.length >> 1));
+            int old = genes.length;
+            genes = Arrays.copyOf(genes, capacity);
+            Arrays.fill(genes, old, capacity, ABSENT);
+        }
+        genes[innovationNumber] = gene;
+        size = Math.max(size, innovationNumber + 1);
+    }
+
+    /**
+     * Record the nodes of a gene assigned by the history, unless they can't be: the history
+     * accepts any ids, and its counter can be set back, so these are left to be detected when
+     * the genes are looked up.
+     */
+    void record (int innovationNumber, int inNodeId, int outNodeId) {
+        if (innovationNumber >= 0 && inNodeId >= 0 && outNodeId >= 0 &&
+                !contains(innovationNumber)) {
+            register(innovationNumber, inNodeId, outNodeId);
+        }
+    }
+
+    /**
+     * @param innovationNumber of a gene;
+     *
+     * @return whether the gene is recorded in this dictionary;
+     */
+    public boolean contains (int innovationNumber) {
+        return innovationNumber >= 0 && innovationNumber < size &&
+                genes[innovationNumber] != ABSENT;
+    }
+
+    /**
+     * @param innovationNumber of a recorded gene;
+     *
+     * @return id of the in-node of the gene;
+     * @throws IllegalArgumentException if the gene is not recorded;
+     */
+    public int getInNodeId (int innovationNumber) {
+        return (int) (get(innovationNumber) >>> 32);
+    }
+
+    /**
+     * @param innovationNumber of a recorded gene;
+     *
+     * @return id of the out-node of the gene;
+     * @throws IllegalArgumentException if the gene is not recorded;
+     */
+    public int getOutNodeId (int innovationNumber) {
+        return (int) get(innovationNumber);
+    }
+
+    private long get (int innovationNumber) {
+        if (!contains(innovationNumber)) {
+            throw new IllegalArgumentException("Innovation number [" + innovationNumber + "] " +
+                    "is not recorded.");
+        }
+        return genes[innovationNumber];
+    }
+
+    /**
+     * @return highest innovation number recorded, plus one;
+     */
+    public int size () {
+        return size;
+    }
+
+    /**
+     * Delete every gene, when the history is reset.
+     */
+    void clear () {
+        Arrays.fill(genes, 0, size, ABSENT);
+        size = 0;
+    }
+}
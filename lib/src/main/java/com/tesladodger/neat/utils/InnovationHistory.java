@@ -39,6 +39,9 @@ public class InnovationHistory {
      */
     private final HashMap<ConnectionMutationKey, NewConnectionMutation> newConnectionMutations;
 
+    /** Nodes of each connection gene, by innovation number. */
+    private final GeneDictionary genes;
+
     /** Highest node id given so far. */
     private int nodeIdCounter;
 
@@ -82,6 +85,7 @@ public class InnovationHistory {
         setInitialHighestInnovationNumber(initialHighestInnovationNumber);
         newNodeMutations = new HashMap<>();
         newConnectionMutations = new HashMap<>();
+        genes = new GeneDictionary();
         lastReturnedNodeId = -1;
         lastReturnedInnovationNumber = -1;
         generationCounter = 0;
@@ -135,6 +139,8 @@ public class InnovationHistory {
      * order is important, to distinguish recursive from normal connections: a connection from
      * node 3 to node 5 should never have the same innovation number has a connection from 5 to 3.
      *
+     * <p>A new innovation number is recorded in the {@link GeneDictionary} of this history.
+     *
      * @param inNodeId {@link Node#getId()} of the in-node;
      * @param outNodeId {@link Node#getId()} of the out-node;
      *
@@ -143,7 +149,10 @@ public class InnovationHistory {
     public int getNewConnectionMutationInnovationNumber (int inNodeId, int outNodeId) {
         return lastReturnedInnovationNumber = newConnectionMutations.computeIfAbsent(
                 new ConnectionMutationKey(inNodeId, outNodeId),
-                k -> new NewConnectionMutation(++innovationNumberCounter)
+                k -> {
+                    genes.record(++innovationNumberCounter, inNodeId, outNodeId);
+                    return new NewConnectionMutation(innovationNumberCounter);
+                }
         ).innovationNumber;
     }
 
@@ -195,6 +204,7 @@ public class InnovationHistory {
         generationCounter = 0;
         newNodeMutations.clear();
         newConnectionMutations.clear();
+        genes.clear();
     }
 
     /**
@@ -204,6 +214,17 @@ public class InnovationHistory {
         reset(-1, -1);
     }
 
+    /**
+     * Get the dictionary of the nodes of every connection gene this history assigned an
+     * innovation number to.
+     *
+     * @return gene dictionary of this history;
+     * @since v1.2
+     */
+    public GeneDictionary getGeneDictionary () {
+        return genes;
+    }
+
     /**
      * @return highest node id ever assigned by this history;
      */
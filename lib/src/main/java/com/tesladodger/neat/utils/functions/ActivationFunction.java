@@ -17,4 +17,57 @@ public interface ActivationFunction {
      * @return result of the function;
      */
     double apply (double value);
+
+    /**
+     * Derivative of the activation function, used to refine the weights of a network by
+     * gradient descent.
+     *
+     * <p>By default, it's approximated by a central difference, with a step proportional to the
+     * value. Implementations can override it with the exact derivative.
+     *
+     * @param value sum of the inputs of the node;
+     *
+     * @return slope of the function at the value;
+     * @see com.tesladodger.neat.phenotype.Backpropagation
+     * @since v1.2
+     */
+    default double derivative (double value) {
+        double h = 1e-6 * Math.max(1, Math.abs(value));
+        return (apply(value + h) - apply(value - h)) / (2 * h);
+    }
+
+    /**
+     * Apply the activation function to a range of values, replacing them with the results.
+     *
+     * <p>Evaluators call this once for a whole slice of nodes or rows, instead of calling
+     * {@link ActivationFunction#apply(double)} for each. By default, it does just that, in a
+     * loop. Implementations can override it with a faster loop, which must give exactly the same
+     * results as {@code apply}.
+     *
+     * @param values array of sums of the inputs, where the results are written;
+     * @param from index of the first value;
+     * @param to index after the last value;
+     *
+     * @since v1.2
+     */
+    default void applyInPlace (double[] values, int from, int to) {
+        for (int i = from; i < to; i++) {
+            values[i] = apply(values[i]);
+        }
+    }
+
+    /**
+     * Single precision version of this function, for
+     * {@link com.tesladodger.neat.phenotype.FloatPhenotype}.
+     *
+     * <p>By default, this function is applied to the value converted to {@code double}, and the
+     * result is rounded to {@code float}. Implementations can override it with a version that
+     * is computed in single precision.
+     *
+     * @return single precision version of this function;
+     * @since v1.2
+     */
+    default FloatActivationFunction toFloat () {
+        return value -> (float) apply(value);
+    }
 }
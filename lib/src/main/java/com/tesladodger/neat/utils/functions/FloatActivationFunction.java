@@ -0,0 +1,25 @@
+package com.tesladodger.neat.utils.functions;
+
+
+/**
+ * Single precision version of an {@link ActivationFunction}, used by
+ * {@link com.tesladodger.neat.phenotype.FloatPhenotype}.
+ *
+ * <p>The functions in this package return their own single precision version from
+ * {@link ActivationFunction#toFloat()}, computed in {@code float} arithmetic wherever possible.
+ *
+ * @author tesla
+ * @since v1.2
+ */
+@FunctionalInterface
+public interface FloatActivationFunction {
+
+    /**
+     * Apply the activation function to the sum of the inputs.
+     *
+     * @param value sum of the inputs of the node;
+     *
+     * @return result of the function;
+     */
+    float apply (float value);
+}
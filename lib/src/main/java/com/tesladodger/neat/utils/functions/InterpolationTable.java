@@ -0,0 +1,75 @@
+package com.tesladodger.neat.utils.functions;
+
+import java.util.function.DoubleUnaryOperator;
+
+
+/**
+ * Samples of a function at evenly spaced points, between which it's linearly interpolated.
+ *
+ * <p>The error of the interpolation is at most {@code h^2 / 8 * max|f''|}, where h is the
+ * distance between samples, and that of its slope at most {@code h / 2 * max|f''|}. Outside the sampled range, the value at the nearest end is returned.
+ *
+ * @author tesla
+ * @since v1.2
+ */
+final class InterpolationTable {
+
+    private final double[] values;
+    private final double min;
+    private final double scale;
+    private final int intervals;
+
+    /**
+     * Sample a function.
+     *
+     * @param function to sample;
+     * @param min first sampled point;
+     * @param max last sampled point;
+     * @param intervals number of intervals between the samples;
+     */
+    InterpolationTable (DoubleUnaryOperator function, double min, double max, int intervals) {
+        values = new double[intervals + 1];
+        for (int i = 0; i <= intervals; i++) {
+            values[i] = function.applyAsDouble(min + (max - min) * i / intervals);
+        }
+        this.min = min;
+        this.scale = intervals / (max - min);
+        this.intervals = intervals;
+    }
+
+    /**
+     * @param x point, NaN results in NaN;
+     *
+     * @return interpolated value of the function at the point;
+     */
+    double get (double x) {
+        double t = (x - min) * scale;
+        if (t <= 0) {
+            return values[0];
+        }
+        if (t >= intervals) {
+            return values[intervals];
+        }
+        int i = (int) t;
+        double a = values[i];
+        return a + (t - i) * (values[i + 1] - a);
+    }
+
+    /**
+     * @param x point, NaN results in NaN;
+     *
+     * @return slope of the interpolation at the point, that of the interval to the right at a
+     * sample, and 0 outside the sampled range;
+     */
+    double slope (double x) {
+        double t = (x - min) * scale;
+        if (Double.isNaN(t)) {
+            return t;
+        }
+        if (t < 0 || t >= intervals) {
+            return 0;
+        }
+        int i = (int) t;
+        return (values[i + 1] - values[i]) * scale;
+    }
+}
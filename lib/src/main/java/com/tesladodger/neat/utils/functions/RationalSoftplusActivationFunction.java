@@ -0,0 +1,115 @@
+package com.tesladodger.neat.utils.functions;
+
+
+/**
+ * Approximation of the {@link SoftplusActivationFunction} by a rational function, which is
+ * faster than the exponential and logarithm it replaces.
+ *
+ * <p>Softplus is computed as {@code max(kx, 0) + ln(1 + e^-|kx|)} divided by k, where the
+ * second term is approximated by a fitted ratio of polynomials of degrees 5 and 6 below
+ * 16, and by 0 above. The maximum absolute error is {@code 2e-7 / k}, where k is the
+ * {@link SoftplusActivationFunction#sharpness}, which is read on every call.
+ *
+ * <p>The derivative is that of this approximation, by the quotient rule, so that gradient descent
+ * follows this function rather than the exact one.
+ *
+ * @see TableSoftplusActivationFunction
+ * @author tesla
+ * @since v1.2
+ */
+public class RationalSoftplusActivationFunction extends SoftplusActivationFunction {
+
+    /** Above this value, {@code ln(1 + e^-t)} is approximated by 0. */
+    private static final double CUTOFF = 16;
+
+    /** Coefficients of the polynomials of the ratio, from the constant term up. */
+    private static final double[] NUMERATOR = {0.6931471604015507, -0.2147482579885148,
+            0.02740440098333794, -0.0017951427734069782, 6.016612526753014e-05,
+            -8.226518216789058e-07};
+    private static final double[] DENOMINATOR = {1, 0.4115297152811154, 0.1560716723720796,
+            0.03570988060971748, 0.005359261117036328, 0.0003393900370472174,
+            8.415473162733151e-05};
+
+    @Override
+    public double apply (double value) {
+        double u = sharpness * value;
+        double t = Math.abs(u);
+        double tail = 0;
+        if (t < CUTOFF) {
+            tail = polynomial(NUMERATOR, t) / polynomial(DENOMINATOR, t);
+        }
+        return (Math.max(u, 0) + tail) / sharpness;
+    }
+
+    /**
+     * @param value sum of the inputs of the node;
+     *
+     * @return derivative of this approximation at the value;
+     */
+    @Override
+    public double derivative (double value) {
+        double u = sharpness * value;
+        double t = Math.abs(u);
+        double slope = 0;
+        if (t < CUTOFF) {
+            // the quotient rule on the ratio of polynomials
+            double n = polynomial(NUMERATOR, t);
+            double d = polynomial(DENOMINATOR, t);
+            slope = (polynomialDerivative(NUMERATOR, t) * d
+                    - n * polynomialDerivative(DENOMINATOR, t)) / (d * d);
+        }
+        return u >= 0 ? 1 + slope : -slope;
+    }
+
+    /**
+     * @param c coefficients, from the constant term up;
+     * @param t value;
+     *
+     * @return polynomial at t, by Horner's method;
+     */
+    private static double polynomial (double[] c, double t) {
+        double result = c[c.length - 1];
+        for (int i = c.length - 2; i >= 0; i--) {
+            result = c[i] + t * result;
+        }
+        return result;
+    }
+
+    /**
+     * @param c coefficients, from the constant term up;
+     * @param t value;
+     *
+     * @return derivative of the polynomial at t;
+     */
+    private static double polynomialDerivative (double[] c, double t) {
+        double result = (c.length - 1) * c[c.length - 1];
+        for (int i = c.length - 2; i >= 1; i--) {
+            result = i * c[i] + t * result;
+        }
+        return result;
+    }
+
+    /**
+     * Loop over this approximation, instead of the exact version of the parent.
+     *
+     * @param values array of sums of the inputs, where the results are written;
+     * @param from index of the first value;
+     * @param to index after the last value;
+     */
+    @Override
+    public void applyInPlace (double[] values, int from, int to) {
+        for (int i = from; i < to; i++) {
+            values[i] = apply(values[i]);
+        }
+    }
+
+    /**
+     * Single precision version, computing the approximation in double precision.
+     *
+     * @return single precision version of this function;
+     */
+    @Override
+    public FloatActivationFunction toFloat () {
+        return value -> (float) apply(value);
+    }
+}
@@ -16,4 +16,47 @@ public class RectifierActivationFunction implements ActivationFunction {
     public double apply (double value) {
         return Math.max(0, value);
     }
+
+    /**
+     * @param value sum of the inputs of the node;
+     *
+     * @return 1 for positive values, otherwise 0;
+     * @since v1.2
+     */
+    @Override
+    public double derivative (double value) {
+        return value > 0 ? 1 : 0;
+    }
+
+    /**
+     * Unrolled loop.
+     *
+     * @param values array of sums of the inputs, where the results are written;
+     * @param from index of the first value;
+     * @param to index after the last value;
+     *
+     * @since v1.2
+     */
+    @Override
+    public void applyInPlace (double[] values, int from, int to) {
+        int i = from;
+        for (; i < to - 3; i += 4) {
+            values[i] = Math.max(0, values[i]);
+            values[i + 1] = Math.max(0, values[i + 1]);
+            values[i + 2] = Math.max(0, values[i + 2]);
+            values[i + 3] = Math.max(0, values[i + 3]);
+        }
+        for (; i < to; i++) {
+            values[i] = Math.max(0, values[i]);
+        }
+    }
+
+    /**
+     * @return single precision version of this function;
+     * @since v1.2
+     */
+    @Override
+    public FloatActivationFunction toFloat () {
+        return value -> Math.max(0f, value);
+    }
 }
@@ -27,4 +27,53 @@ public class SigmoidActivationFunction implements ActivationFunction {
     public double apply (double value) {
         return 1.0 / (1.0 + Math.pow(Math.E, -logisticGrowthRate * (value - offset)));
     }
+
+    /**
+     * @param value sum of the inputs of the node;
+     *
+     * @return {@code k * f(x) * (1 - f(x))};
+     * @since v1.2
+     */
+    @Override
+    public double derivative (double value) {
+        double s = 1.0 / (1.0 + Math.exp(-logisticGrowthRate * (value - offset)));
+        return logisticGrowthRate * s * (1 - s);
+    }
+
+    /**
+     * Unrolled loop, reading the growth rate and offset once.
+     *
+     * @param values array of sums of the inputs, where the results are written;
+     * @param from index of the first value;
+     * @param to index after the last value;
+     *
+     * @since v1.2
+     */
+    @Override
+    public void applyInPlace (double[] values, int from, int to) {
+        double k = logisticGrowthRate;
+        double x0 = offset;
+        int i = from;
+        for (; i < to - 3; i += 4) {
+            values[i] = 1.0 / (1.0 + Math.pow(Math.E, -k * (values[i] - x0)));
+            values[i + 1] = 1.0 / (1.0 + Math.pow(Math.E, -k * (values[i + 1] - x0)));
+            values[i + 2] = 1.0 / (1.0 + Math.pow(Math.E, -k * (values[i + 2] - x0)));
+            values[i + 3] = 1.0 / (1.0 + Math.pow(Math.E, -k * (values[i + 3] - x0)));
+        }
+        for (; i < to; i++) {
+            values[i] = 1.0 / (1.0 + Math.pow(Math.E, -k * (values[i] - x0)));
+        }
+    }
+
+    /**
+     * Single precision version, reading the current growth rate and offset on every call.
+     *
+     * @return single precision version of this function;
+     * @since v1.2
+     */
+    @Override
+    public FloatActivationFunction toFloat () {
+        return value -> 1f / (1f + (float) Math.exp(-(float) logisticGrowthRate *
+                (value - (float) offset)));
+    }
 }
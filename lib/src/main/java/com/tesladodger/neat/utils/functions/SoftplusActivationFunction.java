@@ -28,4 +28,53 @@ public class SoftplusActivationFunction implements ActivationFunction {
     public double apply (double value) {
         return Math.log(1 + Math.exp(sharpness * value)) / sharpness;
     }
+
+    /**
+     * @param value sum of the inputs of the node;
+     *
+     * @return {@code 1 / (1 + e^(-kx))};
+     * @since v1.2
+     */
+    @Override
+    public double derivative (double value) {
+        return 1 / (1 + Math.exp(-sharpness * value));
+    }
+
+    /**
+     * Unrolled loop, reading the sharpness once.
+     *
+     * @param values array of sums of the inputs, where the results are written;
+     * @param from index of the first value;
+     * @param to index after the last value;
+     *
+     * @since v1.2
+     */
+    @Override
+    public void applyInPlace (double[] values, int from, int to) {
+        double k = sharpness;
+        int i = from;
+        for (; i < to - 3; i += 4) {
+            values[i] = Math.log(1 + Math.exp(k * values[i])) / k;
+            values[i + 1] = Math.log(1 + Math.exp(k * values[i + 1])) / k;
+            values[i + 2] = Math.log(1 + Math.exp(k * values[i + 2])) / k;
+            values[i + 3] = Math.log(1 + Math.exp(k * values[i + 3])) / k;
+        }
+        for (; i < to; i++) {
+            values[i] = Math.log(1 + Math.exp(k * values[i])) / k;
+        }
+    }
+
+    /**
+     * Single precision version, reading the current sharpness on every call.
+     *
+     * @return single precision version of this function;
+     * @since v1.2
+     */
+    @Override
+    public FloatActivationFunction toFloat () {
+        return value -> {
+            float k = (float) sharpness;
+            return (float) Math.log(1f + (float) Math.exp(k * value)) / k;
+        };
+    }
 }
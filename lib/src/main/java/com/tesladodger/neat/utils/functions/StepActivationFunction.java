@@ -24,4 +24,55 @@ public class StepActivationFunction implements ActivationFunction {
     public double apply (double value) {
         return value < offset ? lowValue : highValue;
     }
+
+    /**
+     * The step is flat everywhere but at the offset, so a network of step functions can't be
+     * refined by gradient descent.
+     *
+     * @param value sum of the inputs of the node;
+     *
+     * @return 0;
+     * @since v1.2
+     */
+    @Override
+    public double derivative (double value) {
+        return 0;
+    }
+
+    /**
+     * Unrolled loop, reading the offset and values once.
+     *
+     * @param values array of sums of the inputs, where the results are written;
+     * @param from index of the first value;
+     * @param to index after the last value;
+     *
+     * @since v1.2
+     */
+    @Override
+    public void applyInPlace (double[] values, int from, int to) {
+        double x0 = offset;
+        double low = lowValue;
+        double high = highValue;
+        int i = from;
+        for (; i < to - 3; i += 4) {
+            values[i] = values[i] < x0 ? low : high;
+            values[i + 1] = values[i + 1] < x0 ? low : high;
+            values[i + 2] = values[i + 2] < x0 ? low : high;
+            values[i + 3] = values[i + 3] < x0 ? low : high;
+        }
+        for (; i < to; i++) {
+            values[i] = values[i] < x0 ? low : high;
+        }
+    }
+
+    /**
+     * Single precision version, reading the current offset and values on every call.
+     *
+     * @return single precision version of this function;
+     * @since v1.2
+     */
+    @Override
+    public FloatActivationFunction toFloat () {
+        return value -> value < (float) offset ? (float) lowValue : (float) highValue;
+    }
 }
@@ -0,0 +1,64 @@
+package com.tesladodger.neat.utils.functions;
+
+
+/**
+ * Approximation of the {@link SigmoidActivationFunction} by linear interpolation in a table,
+ * which replaces the exponential with a lookup and a multiplication.
+ *
+ * <p>The table holds the logistic function of {@code k * (x-x0)}, with 4096 intervals between
+ * -16 and 16 (32 KiB, shared by all instances), beyond which the result is clamped. The maximum
+ * absolute error is {@code 1e-6}, whatever the growth rate and offset, which are read on every
+ * call.
+ *
+ * <p>The derivative is the slope of the interpolation, so that gradient descent follows this
+ * function rather than the exact one. It's a step function, within {@code 5e-4 * k} of the exact
+ * derivative.
+ *
+ * @see RationalSigmoidActivationFunction
+ * @author tesla
+ * @since v1.2
+ */
+public class TableSigmoidActivationFunction extends SigmoidActivationFunction {
+
+    private static final InterpolationTable TABLE = new InterpolationTable(
+            u -> 1 / (1 + Math.exp(-u)), -16, 16, 4096);
+
+    @Override
+    public double apply (double value) {
+        return TABLE.get(logisticGrowthRate * (value - offset));
+    }
+
+    /**
+     * @param value sum of the inputs of the node;
+     *
+     * @return slope of the interpolation at {@code k * (x-x0)}, times k;
+     */
+    @Override
+    public double derivative (double value) {
+        return logisticGrowthRate * TABLE.slope(logisticGrowthRate * (value - offset));
+    }
+
+    /**
+     * Loop over this approximation, instead of the exact version of the parent.
+     *
+     * @param values array of sums of the inputs, where the results are written;
+     * @param from index of the first value;
+     * @param to index after the last value;
+     */
+    @Override
+    public void applyInPlace (double[] values, int from, int to) {
+        for (int i = from; i < to; i++) {
+            values[i] = apply(values[i]);
+        }
+    }
+
+    /**
+     * Single precision version, interpolating in the same table.
+     *
+     * @return single precision version of this function;
+     */
+    @Override
+    public FloatActivationFunction toFloat () {
+        return value -> (float) apply(value);
+    }
+}
@@ -0,0 +1,66 @@
+package com.tesladodger.neat.utils.functions;
+
+
+/**
+ * Approximation of the {@link SoftplusActivationFunction} by linear interpolation in a table,
+ * which replaces the exponential and logarithm with a lookup and a multiplication.
+ *
+ * <p>Softplus is computed as {@code max(kx, 0) + ln(1 + e^-|kx|)} divided by k, where the second
+ * term is interpolated in a table with 4096 intervals between 0 and 16 (32 KiB, shared by all
+ * instances), and is 0 above. The maximum absolute error is {@code 1e-6 / k}, where k is the
+ * {@link SoftplusActivationFunction#sharpness}, which is read on every call.
+ *
+ * <p>The derivative is that of this approximation, with the slope of the interpolation, so that
+ * gradient descent follows this function rather than the exact one. It's a step function, within
+ * {@code 5e-4} of the exact derivative.
+ *
+ * @see RationalSoftplusActivationFunction
+ * @author tesla
+ * @since v1.2
+ */
+public class TableSoftplusActivationFunction extends SoftplusActivationFunction {
+
+    private static final InterpolationTable TABLE = new InterpolationTable(
+            t -> t >= 16 ? 0 : Math.log1p(Math.exp(-t)), 0, 16, 4096);
+
+    @Override
+    public double apply (double value) {
+        double u = sharpness * value;
+        return (Math.max(u, 0) + TABLE.get(Math.abs(u))) / sharpness;
+    }
+
+    /**
+     * @param value sum of the inputs of the node;
+     *
+     * @return derivative of this approximation, with the slope of the interpolation;
+     */
+    @Override
+    public double derivative (double value) {
+        double u = sharpness * value;
+        return u >= 0 ? 1 + TABLE.slope(u) : -TABLE.slope(-u);
+    }
+
+    /**
+     * Loop over this approximation, instead of the exact version of the parent.
+     *
+     * @param values array of sums of the inputs, where the results are written;
+     * @param from index of the first value;
+     * @param to index after the last value;
+     */
+    @Override
+    public void applyInPlace (double[] values, int from, int to) {
+        for (int i = from; i < to; i++) {
+            values[i] = apply(values[i]);
+        }
+    }
+
+    /**
+     * Single precision version, interpolating in the same table.
+     *
+     * @return single precision version of this function;
+     */
+    @Override
+    public FloatActivationFunction toFloat () {
+        return value -> (float) apply(value);
+    }
+}
@@ -0,0 +1,27 @@
+package com.tesladodger.neat.utils.functions;
+
+
+/**
+ * Hyperbolic tangent activation function. The result ranges [-1,1].
+ *
+ * @author tesla
+ * @since v1.2
+ */
+public class TanhActivationFunction implements ActivationFunction {
+
+    @Override
+    public double apply (double value) {
+        return Math.tanh(value);
+    }
+
+    /**
+     * @param value sum of the inputs of the node;
+     *
+     * @return {@code 1 - tanh(x)^2};
+     */
+    @Override
+    public double derivative (double value) {
+        double t = Math.tanh(value);
+        return 1 - t * t;
+    }
+}
@@ -2,12 +2,12 @@ package com.tesladodger.neat.utils.structures;
 
 import com.tesladodger.neat.Connection;
 
-import java.util.Collections;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 
 
 /**
@@ -38,10 +38,13 @@ public class ConnectionHashTable {
     private ConnectionBucket[] buckets;
 
     /**
-     * Copy of this list in the form of a LinkedList, ordered by
-     * {@link Connection#getInnovationNumber()}.
+     * The connections of this table ordered by {@link Connection#getInnovationNumber()},
+     * followed by nulls.
      */
-    private final LinkedList<Connection> orderedConnections;
+    private Connection[] orderedConnections;
+
+    /** Unmodifiable view of the ordered connections. */
+    private final OrderedView orderedView;
 
     /** Total number of connections. */
     private int size;
@@ -68,7 +71,8 @@ public class ConnectionHashTable {
     public ConnectionHashTable (int initialCapacity) {
         int initialSize = Math.max(DEFAULT_CAPACITY, initialCapacity+1);
         buckets = new ConnectionBucket[initialSize];
-        orderedConnections = new LinkedList<>();
+        orderedConnections = new Connection[initialSize];
+        orderedView = new OrderedView();
         size = 0;
     }
 
@@ -107,24 +111,37 @@ public class ConnectionHashTable {
     }
 
     /**
-     * Add a connection to the ordered list.
+     * Add a connection to the ordered array, after the connections with the same innovation
+     * number.
+     *
+     * <p>Connections are usually added in ascending order of innovation number, when cloning or
+     * crossing over genomes, or with a new innovation number, when mutating, so they are
+     * appended without searching. Otherwise, the position is found by binary search.
      *
      * @param con to add;
      */
     void addConnection1 (Connection con) {
-        ListIterator<Connection> it = orderedConnections.listIterator();
-        while (true) {
-            if (!it.hasNext()) {
-                it.add(con);
-                return;
-            }
-            Connection next = it.next();
-            if (next.compareTo(con) < 0) {
-                it.previous();
-                it.add(con);
-                return;
+        int count = orderedView.count;
+        if (count == orderedConnections.length) {
+            orderedConnections = Arrays.copyOf(orderedConnections, count + (count >> 1) + 1);
+        }
+        int innovation = con.getInnovationNumber();
+        int low = count;
+        if (count > 0 && orderedConnections[count - 1].getInnovationNumber() > innovation) {
+            low = 0;
+            int high = count - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (orderedConnections[middle].getInnovationNumber() > innovation) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
             }
+            System.arraycopy(orderedConnections, low, orderedConnections, low + 1, count - low);
         }
+        orderedConnections[low] = con;
+        orderedView.added();
     }
 
     /**
@@ -193,19 +210,35 @@ public class ConnectionHashTable {
      * @return array of connections;
      */
     public Connection[] asArray () {
-        return orderedConnections.toArray(new Connection[size()]);
+        return Arrays.copyOf(orderedConnections, orderedView.count);
+    }
+
+    /**
+     * Get a connection by its position in the order of innovation numbers.
+     *
+     * <p>Together with {@link ConnectionHashTable#size()}, this iterates over the connections in
+     * order without allocating anything.
+     *
+     * @param index position of the connection, from 0 to the size of this table;
+     *
+     * @return connection with the {@code index}-th lowest innovation number;
+     * @throws IndexOutOfBoundsException if the index is not in [0, size);
+     */
+    public Connection connectionAt (int index) {
+        return orderedView.get(index);
     }
 
     /**
      * Get the {@link Connection}s on this table, ordered by
      * {@link Connection#getInnovationNumber()}.
      *
-     * <p>Returns an unmodifiable view of the internal list in this table.
+     * <p>Returns an unmodifiable view of the internal array in this table, with constant time
+     * random access.
      *
      * @return Unmodifiable List containing the ordered connections;
      */
     public List<Connection> asOrderedList () {
-        return Collections.unmodifiableList(orderedConnections);
+        return orderedView;
     }
 
     /**
@@ -229,19 +262,61 @@ public class ConnectionHashTable {
         return size == 0;
     }
 
+    /**
+     * Unmodifiable list backed by the ordered array of the table.
+     */
+    private class OrderedView extends AbstractList<Connection> implements RandomAccess {
+
+        /** Number of connections in the ordered array. */
+        private int count;
+
+        private void added () {
+            count++;
+            modCount++;
+        }
+
+        @Override
+        public Connection get (int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Index [" + index + "] must be in [0, " +
+                        count + ").");
+            }
+            return orderedConnections[index];
+        }
+
+        @Override
+        public int size () {
+            return count;
+        }
+    }
+
     /**
      * Group of connections that have the same in-node.
      *
      * <p>Implemented as singly-linked list, only supports iterating over the elements.
      *
-     * <p>No particular order is imposed to the elements returned by the iterator.
+     * <p>The elements are returned in descending order of innovation number, and those with the
+     * same innovation number from the last added to the first. That is the reverse of the order
+     * of {@link ConnectionHashTable#connectionAt(int)}, so a genome is evaluated in the same
+     * order however its connections were added.
      */
     static class ConnectionBucket implements Iterable<Connection> {
         private ConnectionBucketElement root;
         int size;
 
         private void add (Connection con) {
-            root = new ConnectionBucketElement(con, root);
+            int innovation = con.getInnovationNumber();
+            if (root == null || root.value.getInnovationNumber() <= innovation) {
+                // the usual case, since new connections have the highest innovation number
+                root = new ConnectionBucketElement(con, root);
+            } else {
+                ConnectionBucketElement previous = root;
+                while (previous.next != null
+                        && previous.next.value.getInnovationNumber() > innovation) {
+                    previous = previous.next;
+                }
+                previous.next = new ConnectionBucketElement(con, previous.next);
+            }
             size++;
         }
 
@@ -279,7 +354,7 @@ public class ConnectionHashTable {
          */
         static class ConnectionBucketElement {
             private final Connection value;
-            private final ConnectionBucketElement next;
+            private ConnectionBucketElement next;
 
             private ConnectionBucketElement (Connection value, ConnectionBucketElement next) {
                 this.value = value;
@@ -294,10 +369,8 @@ public class ConnectionHashTable {
         if (o == null || getClass() != o.getClass()) return false;
         ConnectionHashTable x = (ConnectionHashTable) o;
         if (size != x.size) return false;
-        Connection[] ta = asArray();
-        Connection[] xa = x.asArray();
         for (int i = 0; i < size; i++) {
-            if (!ta[i].equals(xa[i])) {
+            if (!connectionAt(i).equals(x.connectionAt(i))) {
                 return false;
             }
         }
@@ -0,0 +1,152 @@
+package com.tesladodger.neat.utils.structures;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Bounded map that evicts the least recently used entry, and counts its hits and misses.
+ *
+ * <p>The statistics are there to tune the capacity: a low hit rate with many evictions means
+ * the cache is too small for the working set, a low hit rate with few evictions means the keys
+ * rarely repeat, and the cache isn't worth keeping.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @param <K> type of the keys;
+ * @param <V> type of the values;
+ *
+ * @author tesla
+ * @since v1.2
+ */
+public class LruCache<K, V> {
+
+    private final int capacity;
+    private final LinkedHashMap<K, V> map;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Create an empty cache.
+     *
+     * @param capacity maximum number of entries, 0 to keep none;
+     *
+     * @throws IllegalArgumentException if the capacity is negative;
+     */
+    public LruCache (int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity [" + capacity + "] can't be negative.");
+        }
+        this.capacity = capacity;
+        map = new LinkedHashMap<>(16, .75f, true) {
+            @Override
+            protected boolean removeEldestEntry (Map.Entry<K, V> eldest) {
+                if (size() > LruCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the value of a key, marking it as the most recently used, and count a hit or a miss.
+     *
+     * @param key to look up;
+     *
+     * @return value of the key, null if it's not in the cache;
+     */
+    public synchronized V get (K key) {
+        V value = map.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Add or replace the value of a key, evicting the least recently used entry if the cache is
+     * full.
+     *
+     * @param key of the entry;
+     * @param value of the entry;
+     */
+    public synchronized void put (K key, V value) {
+        map.put(key, value);
+    }
+
+    /**
+     * @return number of entries in the cache;
+     */
+    public synchronized int size () {
+        return map.size();
+    }
+
+    /**
+     * @return maximum number of entries;
+     */
+    public int capacity () {
+        return capacity;
+    }
+
+    /**
+     * Remove all entries. The statistics are kept.
+     */
+    public synchronized void clear () {
+        map.clear();
+    }
+
+    /**
+     * @return number of lookups that found a value;
+     */
+    public synchronized long hits () {
+        return hits;
+    }
+
+    /**
+     * @return number of lookups that didn't find a value;
+     */
+    public synchronized long misses () {
+        return misses;
+    }
+
+    /**
+     * @return number of entries removed to make room for others;
+     */
+    public synchronized long evictions () {
+        return evictions;
+    }
+
+    /**
+     * @return fraction of the lookups that found a value, 0 if there were none;
+     */
+    public synchronized double hitRate () {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Set the hits, misses and evictions to 0.
+     */
+    public synchronized void resetStatistics () {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    @Override
+    public synchronized String toString () {
+        return "LruCache{" +
+                "size=" + map.size() +
+                ", capacity=" + capacity +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                '}';
+    }
+}
@@ -2,6 +2,8 @@ package com.tesladodger.neat.utils.structures;
 
 import com.tesladodger.neat.Node;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -9,13 +11,30 @@ import java.util.NoSuchElementException;
 
 
 /**
- * Special purpose Singly-Linked List that stores ordered Nodes.
+ * Special purpose list that stores ordered Nodes.
+ *
+ * <p>The nodes are kept in an array, in the order established by {@link Node#compareTo(Node)},
+ * and indexed by id in another, so that {@link NodeList#get(int)} and
+ * {@link NodeList#containsId(int)} take constant time. They are called for every connection
+ * during mutation and crossover, which with a linked list made structural operations on large
+ * genomes quadratic.
+ *
+ * <p>Like in {@link ConnectionHashTable}, there's no actual hashing involved: the id of a node is
+ * its index in the second array, so node ids should start at 0 and be incremented. The arrays
+ * grow if needed.
  *
  * @author tesla
  */
 public class NodeList implements Iterable<Node> {
 
-    private Member root;
+    /** Default initial capacity. */
+    private static final int DEFAULT_CAPACITY = 14;
+
+    /** Nodes of this list, in order, followed by nulls. */
+    private Node[] nodes;
+
+    /** Node with each id, or null. */
+    private Node[] index;
 
     /** Number of nodes on this list. */
     private int size;
@@ -24,6 +43,8 @@ public class NodeList implements Iterable<Node> {
      * Default constructor, creates an empty list.
      */
     public NodeList () {
+        nodes = new Node[DEFAULT_CAPACITY];
+        index = new Node[DEFAULT_CAPACITY];
         size = 0;
     }
 
@@ -34,17 +55,37 @@ public class NodeList implements Iterable<Node> {
      * {@link Node#compareTo(Node)}.
      *
      * @param node to add;
+     *
+     * @throws IllegalArgumentException if the node has a negative id;
      */
     public void add (Node node) {
-        if (isEmpty() || root.node.compareTo(node) < 0) {
-            root = new Member(node, root);
-        } else {
-            Member current = root;
-            while (current.next != null && current.next.node.compareTo(node) > 0) {
-                current = current.next;
+        int id = node.getId();
+        if (id < 0) {
+            throw new IllegalArgumentException("Illegal node id [" + id + "].");
+        }
+        if (id >= index.length) {
+            index = Arrays.copyOf(index, (int) (id + (id * .4)) + 1);
+        }
+        if (index[id] == null) {
+            index[id] = node;
+        }
+
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size + (size >> 1) + 1);
+        }
+        // after every node that comes before it
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (nodes[middle].compareTo(node) > 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
             }
-            current.next = new Member(node, current.next);
         }
+        System.arraycopy(nodes, low, nodes, low + 1, size - low);
+        nodes[low] = node;
         size++;
     }
 
@@ -56,12 +97,24 @@ public class NodeList implements Iterable<Node> {
      * @return node, null if not present;
      */
     public Node get (int nodeId) {
-        for (Node n : this) {
-            if (n.getId() == nodeId) {
-                return n;
-            }
+        return nodeId >= 0 && nodeId < index.length ? index[nodeId] : null;
+    }
+
+    /**
+     * Get the node at a position of this list.
+     *
+     * @param index of the node, in the order of this list;
+     *
+     * @return node at that index;
+     * @throws IndexOutOfBoundsException if the index is not in [0, size());
+     * @since v1.2
+     */
+    public Node nodeAt (int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index [" + index + "] must be in [0, " + size +
+                    ").");
         }
-        return null;
+        return nodes[index];
     }
 
     /**
@@ -71,9 +124,9 @@ public class NodeList implements Iterable<Node> {
      */
     public List<Node> getOutputs () {
         List<Node> result = new LinkedList<>();
-        for (Node n : this) {
-            if (n.getType().equals(Node.Type.OUTPUT)) {
-                result.add(n);
+        for (int i = 0; i < size; i++) {
+            if (nodes[i].getType().equals(Node.Type.OUTPUT)) {
+                result.add(nodes[i]);
             }
         }
         return result;
@@ -87,12 +140,7 @@ public class NodeList implements Iterable<Node> {
      * @return true if node is present, false otherwise;
      */
     public boolean containsId (int nodeId) {
-        for (Node n : this) {
-            if (n.getId() == nodeId) {
-                return true;
-            }
-        }
-        return false;
+        return get(nodeId) != null;
     }
 
     /**
@@ -102,11 +150,8 @@ public class NodeList implements Iterable<Node> {
      * when fixing the layer of nodes after mutation.
      */
     public void sort () {
-        Node[] temp = asArray();
-        clear();
-        for (Node n : temp) {
-            add(n);
-        }
+        // the list is in reverse order of compareTo
+        Arrays.sort(nodes, 0, size, Collections.reverseOrder());
     }
 
     /**
@@ -120,7 +165,8 @@ public class NodeList implements Iterable<Node> {
      * Remove all elements from this list.
      */
     public void clear () {
-        root = null;
+        Arrays.fill(nodes, 0, size, null);
+        Arrays.fill(index, null);
         size = 0;
     }
 
@@ -130,12 +176,7 @@ public class NodeList implements Iterable<Node> {
      * @return array with the elements of this list;
      */
     public Node[] asArray () {
-        Node[] result = new Node[size];
-        int i = 0;
-        for (Node n : this) {
-            result[i++] = n;
-        }
-        return result;
+        return Arrays.copyOf(nodes, size);
     }
 
     /**
@@ -162,15 +203,15 @@ public class NodeList implements Iterable<Node> {
      * Iterator for {@link NodeList}. Only supports {@code next}.
      */
     private class NodeListIterator implements Iterator<Node> {
-        private Member next;
+        private int next;
 
         private NodeListIterator () {
-            next = root;
+            next = 0;
         }
 
         @Override
         public boolean hasNext () {
-            return next != null;
+            return next < size;
         }
 
         @Override
@@ -178,23 +219,7 @@ public class NodeList implements Iterable<Node> {
             if (!hasNext()) {
                 throw new NoSuchElementException("The iterator has no next element.");
             }
-
-            Node result = next.node;
-            next = next.next;  // nice
-            return result;
-        }
-    }
-
-    /**
-     * Represents a member of this list. Contains a Node and a reference to the next member.
-     */
-    private static class Member {
-        private final Node node;
-        private Member next;
-
-        private Member (Node node, Member next) {
-            this.node = node;
-            this.next = next;
+            return nodes[next++];
         }
     }
 
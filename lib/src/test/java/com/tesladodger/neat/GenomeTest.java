@@ -7,15 +7,23 @@ import com.tesladodger.neat.utils.exceptions.IllegalTopologyException;
 import com.tesladodger.neat.utils.functions.ActivationFunction;
 import com.tesladodger.neat.utils.functions.SigmoidActivationFunction;
 import com.tesladodger.neat.utils.functions.StepActivationFunction;
+import com.tesladodger.neat.tools.save.SaveFile;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 public class GenomeTest {
@@ -769,4 +777,160 @@ public class GenomeTest {
         assertArrayEquals(new double[] {0.71052, 0.87522, 1.03993},
                 g.calculateRawOutput(new double[] {-.2, .3, .5}, f), 0.00001);
     }
+
+    /**
+     * Writing the outputs to a given array gives the same result as creating a new one.
+     */
+    @Test
+    public void outputBufferTest () {
+        Node n0 = new Node(0, Node.Type.INPUT);
+        Node n1 = new Node(1, Node.Type.OUTPUT);
+        Node n2 = new Node(2, Node.Type.OUTPUT);
+        Genome g0 = new Genome().addNodes(n0, n1, n2).addConnections(
+                new Connection(0, 0, 1, 2),
+                new Connection(1, 0, 2, -1),
+                new Connection(2, 2, 2, .5));
+        Genome g1 = g0.clone();
+        ActivationFunction f = new SigmoidActivationFunction();
+
+        double[] output = new double[2];
+        for (double x : new double[] {0, 1, -1, .3}) {
+            g0.calculateOutput(new double[] {x}, output, f);
+            assertArrayEquals(g1.calculateOutput(new double[] {x}, f), output);
+            g0.calculateRawOutput(new double[] {x}, output, f);
+            assertArrayEquals(g1.calculateRawOutput(new double[] {x}, f), output);
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> g0.calculateOutput(new double[] {1}, new double[3], f));
+    }
+
+    /**
+     * A clone is packed, and only gets nodes and connections when they are requested.
+     */
+    @Test
+    public void packedCloneTest () {
+        Genome g0 = new Genome().addNodes(
+                new Node(0, Node.Type.INPUT),
+                new Node(1, Node.Type.OUTPUT)).addConnections(
+                new Connection(0, 0, 1, 2),
+                new Connection(1, 1, 1, .5));
+        Connection held = g0.getConnections().connectionAt(0);
+        Genome g1 = g0.clone();
+        Genome g2 = g0.clone();
+        assertEquals(g0, g1);
+        assertEquals(g1, g2);
+
+        // the original is left as it was, and the clones don't see later changes to it
+        assertSame(held, g0.getConnections().connectionAt(0));
+        held.setWeight(4);
+        assertEquals(2, g1.getWeight(0));
+        held.setWeight(2);
+
+        // changing the weights of a clone doesn't change the others
+        g1.setWeight(0, 3);
+        assertEquals(2, g0.getWeight(0));
+        assertEquals(2, g2.getWeight(0));
+        assertEquals(3, g1.getWeight(0));
+        assertNotEquals(g0, g1);
+        assertEquals(.5, Genome.averageWeightDifferenceBetween(g0, g1));
+
+        // neither does changing the structure of the original
+        g0.getConnections().connectionAt(1).disable();
+        g0.addNode(new Node(2, Node.Type.HIDDEN, 1));
+        assertEquals(2, g2.numberOfNodes());
+        assertEquals(3, g0.numberOfNodes());
+        assertEquals(1, g0.numberOfHidden());
+        assertEquals(0, g2.numberOfHidden());
+        assertTrue(g2.isEnabled(1));
+
+        // the values kept by recursive connections are not shared either
+        ActivationFunction f = x -> x;
+        Genome g3 = g2.clone();
+        assertArrayEquals(new double[] {2}, g2.calculateOutput(new double[] {1}, f));
+        assertArrayEquals(new double[] {3}, g2.calculateOutput(new double[] {1}, f));
+        assertArrayEquals(new double[] {2}, g3.calculateOutput(new double[] {1}, f));
+        assertEquals(g2, g3);
+
+        // the nodes and connections of a clone have its values
+        Genome g4 = g2.clone();
+        assertEquals(g2.toString(), g4.toString());
+        g4.getNodes();
+        assertEquals(g2, g4);
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(g2.calculateOutput(new double[] {i}, f),
+                    g4.calculateOutput(new double[] {i}, f));
+        }
+
+        // a clone of a clone
+        Genome g5 = g3.clone();
+        g3.getNodes().get(1).setLayer(5);
+        assertEquals(1, g5.getNodeLayer(1));
+        assertEquals(5, g3.getNodeLayer(1));
+    }
+
+    /**
+     * A packed genome is evaluated in the same order as its nodes and connections.
+     */
+    @Test
+    public void packedEvaluationOrderTest () {
+        Random random = new Random(7);
+        ActivationFunction f = new SigmoidActivationFunction();
+        for (int t = 0; t < 20; t++) {
+            Genome genome = new Genome().addNodes(
+                    new Node(0, Node.Type.INPUT),
+                    new Node(1, Node.Type.INPUT),
+                    new Node(2, Node.Type.HIDDEN, 1),
+                    new Node(3, Node.Type.OUTPUT, 2));
+            // added out of innovation order, with recursive connections
+            genome.addConnections(
+                    new Connection(4, 2, 3, random.nextGaussian()),
+                    new Connection(1, 0, 2, random.nextGaussian()),
+                    new Connection(5, 3, 2, random.nextGaussian()),
+                    new Connection(0, 0, 3, random.nextGaussian()),
+                    new Connection(3, 1, 3, random.nextGaussian()),
+                    new Connection(2, 1, 2, random.nextGaussian()),
+                    new Connection(6, 2, 2, random.nextGaussian()));
+            Genome packed = genome.clone();
+            assertArrayEquals(new int[] {1, 0, 3, 2, 6, 4, 5}, packed.genesInEvaluationOrder());
+            assertArrayEquals(genome.genesInEvaluationOrder(), packed.genesInEvaluationOrder());
+            for (int i = 0; i < 5; i++) {
+                double[] input = {random.nextDouble(), random.nextDouble()};
+                assertArrayEquals(genome.calculateOutput(input, f),
+                        packed.calculateOutput(input, f));
+            }
+        }
+    }
+
+    /**
+     * Reading a packed genome, or a mutation that fails, leaves it packed.
+     */
+    @Test
+    public void packedReadTest () {
+        Random random = new Random(0);
+        InnovationHistory history = new InnovationHistory();
+        Parameters params = new Parameters();
+        params.recursiveConnectionProbability = 0;
+        Genome genome = new Genome().addNodes(
+                new Node(0, Node.Type.INPUT),
+                new Node(1, Node.Type.INPUT),
+                new Node(2, Node.Type.OUTPUT));
+        genome.fullyConnect(history, params, random);
+        Genome packed = genome.clone();
+
+        SaveFile.saveGenomes(new ByteArrayOutputStream(), "", packed);
+        assertTrue(packed.containsConnection(0, 2));
+        assertFalse(packed.containsConnection(2, 0));
+        Genome.compatibilityBetween(genome, packed, params);
+        packed.calculateOutput(new double[] {1, 1}, new SigmoidActivationFunction());
+        Mutation.mutateWeights(packed, history, params, random);
+        // fully connected, so no connection can be added
+        assertFalse(Mutation.addConnectionMutation(packed, history, params, random));
+        assertTrue(packed.isPacked());
+
+        // a structural change unpacks it
+        assertTrue(Mutation.addNodeMutation(packed, history, random));
+        assertFalse(packed.isPacked());
+        assertEquals(1, packed.numberOfHidden());
+    }
 }
@@ -0,0 +1,185 @@
+package com.tesladodger.neat;
+
+import com.tesladodger.neat.evolution.Mutation;
+import com.tesladodger.neat.utils.GeneDictionary;
+import com.tesladodger.neat.utils.InnovationHistory;
+import com.tesladodger.neat.utils.Parameters;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class PackedGenomeTest {
+
+    /**
+     * Genomes descending from the same template, with many structural mutations.
+     */
+    private static List<Genome> relatedGenomes (Random rand, int count) {
+        return relatedGenomes(rand, count, new InnovationHistory());
+    }
+
+    private static List<Genome> relatedGenomes (Random rand, int count,
+                                                InnovationHistory history) {
+        Parameters params = new Parameters();
+        params.newNodeMutationProbability = 0.3;
+        params.newConnectionMutationProbability = 0.5;
+        params.recursiveConnectionProbability = 0.2;
+        Genome template = new GenomeBuilder(history, params)
+                .setNumberOfNodes(3, 2)
+                .setFullyConnected(true)
+                .build(rand);
+        List<Genome> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Genome genome = template.clone();
+            for (int m = rand.nextInt(30); m > 0; m--) {
+                Mutation.mutate(genome, history, params, rand);
+            }
+            if (rand.nextInt(4) == 0) {
+                genome.getConnections().connectionAt(0).disable();
+            }
+            genome.setFitness(rand.nextDouble());
+            result.add(genome);
+        }
+        return result;
+    }
+
+    @Test
+    public void unpackTest () {
+        for (Genome genome : relatedGenomes(new Random(0), 20)) {
+            PackedGenome packed = new PackedGenome(genome);
+            assertEquals(genome.getConnections().size(), packed.numberOfGenes());
+            assertEquals(genome.getNodes().size(), packed.numberOfNodes());
+
+            Genome unpacked = packed.unpack();
+            assertEquals(genome, unpacked);
+            assertEquals(genome.toString(), unpacked.toString());
+            assertEquals(genome.getFitness(), unpacked.getFitness());
+            assertEquals(genome.numberOfInputs(), unpacked.numberOfInputs());
+            assertEquals(genome.numberOfHidden(), unpacked.numberOfHidden());
+        }
+    }
+
+    /**
+     * The compatibility of packed genomes is the same as that of the genomes.
+     */
+    @Test
+    public void compatibilityTest () {
+        Parameters params = new Parameters();
+        params.largeGenomeNormalizerThreshold = 5;
+        List<Genome> genomes = relatedGenomes(new Random(0), 20);
+        genomes.add(new Genome());
+        List<PackedGenome> packed = new ArrayList<>();
+        for (Genome genome : genomes) {
+            packed.add(new PackedGenome(genome));
+        }
+        for (int i = 0; i < genomes.size(); i++) {
+            for (int j = 0; j < genomes.size(); j++) {
+                Genome a = genomes.get(i);
+                Genome b = genomes.get(j);
+                PackedGenome pa = packed.get(i);
+                PackedGenome pb = packed.get(j);
+                assertEquals(Genome.excessGenesBetween(a, b),
+                        PackedGenome.excessGenesBetween(pa, pb));
+                assertEquals(Genome.disjointGenesBetween(a, b),
+                        PackedGenome.disjointGenesBetween(pa, pb));
+                assertEquals(Genome.averageWeightDifferenceBetween(a, b),
+                        PackedGenome.averageWeightDifferenceBetween(pa, pb));
+                assertEquals(Genome.compatibilityBetween(a, b, params),
+                        PackedGenome.compatibilityBetween(pa, pb, params));
+            }
+        }
+    }
+
+    /**
+     * A connection view reads and writes the arrays of the packed genome.
+     */
+    @Test
+    public void viewTest () {
+        Genome genome = new Genome()
+                .addNodes(new Node(0, Node.Type.INPUT), new Node(1, Node.Type.OUTPUT))
+                .addConnections(new Connection(3, 0, 1, .5), new Connection(7, 1, 1, -2, false));
+        PackedGenome packed = new PackedGenome(genome);
+
+        Connection view = packed.getConnection(1);
+        assertEquals(genome.getConnections().connectionAt(1), view);
+        assertEquals(genome.getConnections().connectionAt(1).toString(), view.toString());
+        assertEquals(7, view.getInnovationNumber());
+        assertEquals(1, view.getInNodeId());
+        assertFalse(view.isEnabled());
+
+        view.setWeight(4);
+        view.enable();
+        assertEquals(4, packed.getWeight(1));
+        assertTrue(packed.isEnabled(1));
+        packed.setWeight(1, 5);
+        packed.setEnabled(1, false);
+        assertEquals(5, view.getWeight());
+        assertFalse(view.isEnabled());
+        // the original isn't affected
+        assertEquals(-2, genome.getConnections().connectionAt(1).getWeight());
+
+        Connection clone = view.clone();
+        assertNotSame(view, clone);
+        assertEquals(Connection.class, clone.getClass());
+        clone.setWeight(6);
+        assertEquals(5, packed.getWeight(1));
+        assertEquals(new Connection(7, 1, 1, 6, false), clone);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> packed.getConnection(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> packed.isEnabled(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> packed.setEnabled(-1, true));
+    }
+
+    /**
+     * Genes packed with the dictionary of the history are the same as those packed with their
+     * node ids.
+     */
+    @Test
+    public void dictionaryTest () {
+        Parameters params = new Parameters();
+        InnovationHistory history = new InnovationHistory();
+        GeneDictionary dictionary = history.getGeneDictionary();
+        List<Genome> genomes = relatedGenomes(new Random(0), 20, history);
+        for (Genome a : genomes) {
+            PackedGenome packed = new PackedGenome(a, dictionary);
+            PackedGenome plain = new PackedGenome(a);
+            assertSame(dictionary, packed.getGeneDictionary());
+            assertNull(plain.getGeneDictionary());
+            assertEquals(a, packed.unpack());
+            for (int i = 0; i < packed.numberOfGenes(); i++) {
+                assertEquals(plain.getInNodeId(i), packed.getInNodeId(i));
+                assertEquals(plain.getOutNodeId(i), packed.getOutNodeId(i));
+                assertEquals(a.getConnections().connectionAt(i), packed.getConnection(i));
+            }
+            for (Genome b : genomes) {
+                assertEquals(Genome.compatibilityBetween(a, b, params),
+                        PackedGenome.compatibilityBetween(packed,
+                                new PackedGenome(b, dictionary), params));
+            }
+        }
+
+        // genes unknown to the dictionary are registered, and conflicting ones rejected
+        GeneDictionary other = new GeneDictionary();
+        Genome genome = new Genome()
+                .addNodes(new Node(0, Node.Type.INPUT), new Node(1, Node.Type.OUTPUT))
+                .addConnections(new Connection(3, 0, 1, .5));
+        assertEquals(genome, new PackedGenome(genome, other).unpack());
+        assertEquals(0, other.getInNodeId(3));
+        assertEquals(1, other.getOutNodeId(3));
+        Genome conflicting = new Genome()
+                .addNodes(new Node(0, Node.Type.INPUT), new Node(1, Node.Type.OUTPUT))
+                .addConnections(new Connection(3, 1, 1, .5));
+        assertThrows(IllegalArgumentException.class, () -> new PackedGenome(conflicting, other));
+    }
+}
@@ -0,0 +1,86 @@
+package com.tesladodger.neat;
+
+import com.tesladodger.neat.evolution.Mutation;
+import com.tesladodger.neat.utils.InnovationHistory;
+import com.tesladodger.neat.utils.Parameters;
+
+import java.util.Random;
+
+
+/**
+ * Genomes shared by the tests.
+ */
+public final class TestGenomes {
+
+    private TestGenomes () {}
+
+    /**
+     * XOR gate, with a step function at .5: two inputs, one hidden node and one output.
+     *
+     * @return new genome;
+     */
+    public static Genome xor () {
+        return new Genome()
+                .addNodes(new Node(0, Node.Type.INPUT, 0), new Node(1, Node.Type.INPUT, 0),
+                        new Node(2, Node.Type.HIDDEN, 1), new Node(3, Node.Type.OUTPUT, 2))
+                .addConnections(
+                        new Connection(0, 0, 3, 1),
+                        new Connection(1, 0, 2, .4),
+                        new Connection(2, 1, 2, .4),
+                        new Connection(3, 1, 3, 1),
+                        new Connection(5, 2, 3, -2));
+    }
+
+    /**
+     * Evolve a random genome with 4 inputs and 3 outputs.
+     *
+     * @param rand random instance;
+     * @param mutations number of mutations;
+     *
+     * @return evolved genome;
+     * @see TestGenomes#randomGenome(Random, int, int, int)
+     */
+    public static Genome randomGenome (Random rand, int mutations) {
+        return randomGenome(rand, 4, 3, mutations);
+    }
+
+    /**
+     * Evolve a random genome, with a high probability of structural and recursive mutations.
+     *
+     * @param rand random instance;
+     * @param inputs number of inputs;
+     * @param outputs number of outputs;
+     * @param mutations number of mutations;
+     *
+     * @return evolved genome;
+     */
+    public static Genome randomGenome (Random rand, int inputs, int outputs, int mutations) {
+        Parameters params = new Parameters();
+        params.connectionWeightsMutationProbability = 0.2;
+        params.newNodeMutationProbability = 0.4;
+        params.newConnectionMutationProbability = 0.4;
+        params.recursiveConnectionProbability = 0.3;
+        params.mutateRecentGenesBias = 0;
+
+        InnovationHistory history = new InnovationHistory();
+        Genome genome = new GenomeBuilder(history, params)
+                .setNumberOfNodes(inputs, outputs)
+                .build(rand);
+        for (int i = 0; i < mutations; i++) {
+            Mutation.mutate(genome, history, params, rand);
+        }
+        return genome;
+    }
+
+    /**
+     * @param rand random instance, for the weights;
+     *
+     * @return genome with 3 inputs connected to 2 outputs;
+     */
+    public static Genome fullyConnected (Random rand) {
+        return new GenomeBuilder(new InnovationHistory())
+                .setNumberOfNodes(3, 2)
+                .setFullyConnected(true)
+                .build(rand);
+    }
+}
@@ -0,0 +1,250 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.Population;
+import com.tesladodger.neat.TestGenomes;
+import com.tesladodger.neat.utils.Parameters;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+import com.tesladodger.neat.utils.functions.SigmoidActivationFunction;
+import com.tesladodger.neat.utils.functions.TanhActivationFunction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class BackpropagationTest {
+
+    private static double[][][] randomSequences (Random rand, int count, int steps, int width) {
+        double[][][] result = new double[count][steps][width];
+        for (double[][] sequence : result) {
+            for (double[] row : sequence) {
+                for (int i = 0; i < width; i++) {
+                    row[i] = rand.nextDouble() * 2 - 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The loss is the mean squared error of the outputs of the phenotype, skipping the steps
+     * without a target.
+     */
+    @Test
+    public void lossTest () {
+        Random rand = new Random(0);
+        Phenotype phenotype = new Phenotype(TestGenomes.randomGenome(rand, 40));
+        ActivationFunction f = new SigmoidActivationFunction();
+        double[][][] inputs = randomSequences(rand, 5, 8, phenotype.numberOfInputs());
+        double[][][] targets = randomSequences(rand, 5, 8, phenotype.numberOfOutputs());
+        targets[2][3] = null;
+
+        double sum = 0;
+        int count = 0;
+        for (int q = 0; q < inputs.length; q++) {
+            Evaluator evaluator = new Evaluator(phenotype, f);
+            for (int s = 0; s < inputs[q].length; s++) {
+                double[] output = evaluator.calculateOutput(inputs[q][s]);
+                if (targets[q][s] == null) {
+                    continue;
+                }
+                for (int o = 0; o < output.length; o++) {
+                    sum += Math.pow(output[o] - targets[q][s][o], 2);
+                    count++;
+                }
+            }
+        }
+        assertEquals(sum / count, new Backpropagation(f).loss(phenotype, inputs, targets), 1e-12);
+    }
+
+    /**
+     * Without truncation, the gradient of a recurrent network is the same as the one found by
+     * finite differences, up to the error of the central difference, which grows with the
+     * curvature of the loss.
+     */
+    @Test
+    public void gradientTest () {
+        Random rand = new Random(0);
+        TanhActivationFunction f = new TanhActivationFunction();
+        Backpropagation backpropagation = new Backpropagation(f);
+        backpropagation.truncation = 100;
+
+        for (int repetition = 0; repetition < 5; repetition++) {
+            Phenotype phenotype = new Phenotype(TestGenomes.randomGenome(rand, 40));
+            double[][][] inputs = randomSequences(rand, 3, 6, phenotype.numberOfInputs());
+            double[][][] targets = randomSequences(rand, 3, 6, phenotype.numberOfOutputs());
+
+            double[] weightGradient = new double[phenotype.weights.length];
+            double[] selfGradient = new double[phenotype.numberOfNodes()];
+            backpropagation.gradient(phenotype, inputs, targets, weightGradient, selfGradient);
+
+            double h = 1e-6;
+            for (int c = 0; c < weightGradient.length; c++) {
+                double[] plus = phenotype.weights.clone();
+                double[] minus = phenotype.weights.clone();
+                plus[c] += h;
+                minus[c] -= h;
+                double expected = (backpropagation.loss(new Phenotype(phenotype, plus,
+                        phenotype.selfWeights), inputs, targets) - backpropagation.loss(
+                        new Phenotype(phenotype, minus, phenotype.selfWeights), inputs,
+                        targets)) / (2 * h);
+                assertEquals(expected, weightGradient[c], 1e-4 * Math.max(1, Math.abs(expected)));
+            }
+            for (int i = 0; i < selfGradient.length; i++) {
+                if (!phenotype.hasSelfConnection(i)) {
+                    assertEquals(0, selfGradient[i]);
+                    continue;
+                }
+                double[] plus = phenotype.selfWeights.clone();
+                double[] minus = phenotype.selfWeights.clone();
+                plus[i] += h;
+                minus[i] -= h;
+                double expected = (backpropagation.loss(new Phenotype(phenotype,
+                        phenotype.weights, plus), inputs, targets) - backpropagation.loss(
+                        new Phenotype(phenotype, phenotype.weights, minus), inputs,
+                        targets)) / (2 * h);
+                assertEquals(expected, selfGradient[i], 1e-4 * Math.max(1, Math.abs(expected)));
+            }
+        }
+    }
+
+    /**
+     * Training lowers the error of a genome, and the trained weights are written back to it.
+     */
+    @Test
+    public void lamarckianTest () {
+        Random rand = new Random(0);
+        SigmoidActivationFunction f = new SigmoidActivationFunction();
+        f.logisticGrowthRate = 1;
+        Genome genome = TestGenomes.fullyConnected(rand);
+        // a target the network can represent: the outputs of another one
+        Phenotype teacher = new Phenotype(TestGenomes.fullyConnected(rand));
+        double[][] inputs = randomSequences(rand, 1, 200, 3)[0];
+        double[][] targets = teacher.calculateOutput(inputs, f);
+
+        Backpropagation backpropagation = new Backpropagation(f);
+        backpropagation.epochs = 300;
+        Backpropagation.Result result = backpropagation.train(genome, inputs, targets);
+        assertTrue(result.isImproved(), result.toString());
+        assertTrue(result.getFinalLoss() < result.getInitialLoss() / 2, result.toString());
+        assertSame(genome, result.getGenome());
+
+        Phenotype trained = new Phenotype(genome, f);
+        assertArrayEquals(result.getPhenotype().calculateOutput(inputs, f),
+                trained.calculateOutput(inputs, f));
+    }
+
+    /**
+     * Without write-back, the genome keeps its weights.
+     */
+    @Test
+    public void darwinianTest () {
+        Random rand = new Random(0);
+        ActivationFunction f = new SigmoidActivationFunction();
+        Genome genome = TestGenomes.fullyConnected(rand);
+        double[][] inputs = randomSequences(rand, 1, 50, 3)[0];
+        double[][] targets = randomSequences(rand, 1, 50, 2)[0];
+        double[][] before = new Phenotype(genome).calculateOutput(inputs, f);
+
+        Backpropagation backpropagation = new Backpropagation(f);
+        backpropagation.lamarckian = false;
+        Backpropagation.Result result = backpropagation.train(genome, inputs, targets);
+        assertTrue(result.getFinalLoss() <= result.getInitialLoss());
+        assertArrayEquals(before, new Phenotype(genome).calculateOutput(inputs, f));
+
+        Backpropagation.Result phenotypeResult = backpropagation.train(new Phenotype(genome),
+                new double[][][] {inputs}, new double[][][] {targets});
+        assertNull(phenotypeResult.getGenome());
+    }
+
+    /**
+     * A recurrent network learns to output its previous input, which needs the gradient to flow
+     * back in time.
+     */
+    @Test
+    public void recurrentTest () {
+        Random rand = new Random(0);
+        TanhActivationFunction f = new TanhActivationFunction();
+        Genome genome = TestGenomes.randomGenome(rand, 60);
+        double[][][] inputs = randomSequences(rand, 20, 12, genome.numberOfInputs());
+        double[][][] targets = new double[20][12][];
+        for (int q = 0; q < inputs.length; q++) {
+            for (int s = 1; s < 12; s++) {
+                targets[q][s] = new double[genome.numberOfOutputs()];
+                for (int o = 0; o < targets[q][s].length; o++) {
+                    targets[q][s][o] = inputs[q][s - 1][0] / 2;
+                }
+            }
+        }
+
+        Backpropagation backpropagation = new Backpropagation(f);
+        backpropagation.learningRate = .02;
+        backpropagation.truncation = 4;
+        backpropagation.batchSize = 4;
+        Backpropagation.Result result = backpropagation.train(genome, inputs, targets);
+        assertTrue(result.getFinalLoss() <= result.getInitialLoss(), result.toString());
+        assertEquals(result.getFinalLoss(), backpropagation.loss(new Phenotype(genome, f),
+                inputs, targets), 1e-12);
+    }
+
+    /**
+     * The fittest genomes of each species are trained, and only them.
+     */
+    @Test
+    public void speciesTest () {
+        Random rand = new Random(0);
+        ActivationFunction f = new SigmoidActivationFunction();
+        Parameters params = new Parameters();
+        // a single species
+        params.compatibilityThreshold = 100;
+        Population population = new Population(params);
+        List<Genome> genomes = population.spawn(TestGenomes.fullyConnected(rand), 30, rand);
+        for (Genome genome : genomes) {
+            genome.setFitness(rand.nextDouble());
+        }
+        double[][][] inputs = randomSequences(rand, 20, 1, 3);
+        double[][][] targets = randomSequences(rand, 20, 1, 2);
+
+        Backpropagation backpropagation = new Backpropagation(f);
+        backpropagation.epochs = 5;
+        List<Backpropagation.Result> results = backpropagation.trainSpecies(population, genomes,
+                2, inputs, targets);
+        List<Genome> fittest = new ArrayList<>(genomes);
+        fittest.sort(Comparator.comparingDouble(Genome::getFitness).reversed());
+        assertEquals(2, results.size());
+        assertSame(fittest.get(0), results.get(0).getGenome());
+        assertSame(fittest.get(1), results.get(1).getGenome());
+        // the population itself isn't speciated
+        assertTrue(population.getSpecies().isEmpty());
+    }
+
+    @Test
+    public void exceptionTest () {
+        Phenotype phenotype = new Phenotype(TestGenomes.fullyConnected(new Random(0)));
+        Backpropagation backpropagation = new Backpropagation(new SigmoidActivationFunction());
+        assertThrows(IllegalArgumentException.class, () -> backpropagation.train(phenotype,
+                new double[2][1][3], new double[1][1][2]));
+        assertThrows(IllegalArgumentException.class, () -> backpropagation.train(phenotype,
+                new double[1][2][3], new double[1][1][2]));
+        assertThrows(IllegalArgumentException.class, () -> backpropagation.train(phenotype,
+                new double[1][1][2], new double[1][1][2]));
+        assertThrows(IllegalArgumentException.class, () -> backpropagation.train(phenotype,
+                new double[1][1][3], new double[1][1][3]));
+        assertThrows(IllegalArgumentException.class, () -> backpropagation.gradient(phenotype,
+                new double[1][1][3], new double[1][1][2], new double[1], new double[5]));
+        backpropagation.truncation = 0;
+        assertThrows(IllegalArgumentException.class, () -> backpropagation.train(phenotype,
+                new double[1][1][3], new double[1][1][2]));
+    }
+}
@@ -0,0 +1,176 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.TestGenomes;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+import com.tesladodger.neat.utils.functions.SigmoidActivationFunction;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class EvaluatorTest {
+
+    @Test
+    public void sameAsGenomeTest () {
+        Random rand = new Random(0);
+        Genome genome = TestGenomes.randomGenome(rand, 60);
+        ActivationFunction f = new SigmoidActivationFunction();
+        Evaluator evaluator = new Evaluator(new Phenotype(genome), f);
+
+        double[] input = new double[genome.numberOfInputs()];
+        double[] first = evaluator.calculateOutput(input);
+        assertArrayEquals(genome.calculateOutput(input, f), first);
+        for (int step = 0; step < 50; step++) {
+            for (int i = 0; i < input.length; i++) {
+                input[i] = rand.nextDouble() * 2 - 1;
+            }
+            double[] output = evaluator.calculateOutput(input);
+            assertSame(first, output);
+            assertArrayEquals(genome.calculateOutput(input, f), output);
+        }
+
+        for (int i = 0; i < 20; i++) {
+            assertArrayEquals(genome.calculateRawOutput(input, f),
+                    evaluator.calculateRawOutput(input));
+        }
+    }
+
+    @Test
+    public void resetTest () {
+        Genome genome = TestGenomes.randomGenome(new Random(0), 60);
+        Evaluator evaluator = new Evaluator(new Phenotype(genome), new SigmoidActivationFunction());
+        double[] input = new double[genome.numberOfInputs()];
+        Arrays.fill(input, .5);
+
+        double[] expected = evaluator.calculateOutput(input).clone();
+        for (int i = 0; i < 10; i++) {
+            evaluator.calculateOutput(input);
+        }
+        evaluator.reset();
+        assertArrayEquals(expected, evaluator.calculateOutput(input));
+    }
+
+    /**
+     * A sequence is the same as evaluating its steps one by one, interpreted or compiled.
+     */
+    @Test
+    public void sequenceTest () {
+        Random rand = new Random(0);
+        Phenotype phenotype = new Phenotype(TestGenomes.randomGenome(rand, 60));
+        ActivationFunction f = new SigmoidActivationFunction();
+        double[][] inputs = new double[100][phenotype.numberOfInputs()];
+        for (double[] input : inputs) {
+            for (int i = 0; i < input.length; i++) {
+                input[i] = rand.nextDouble() * 2 - 1;
+            }
+        }
+
+        for (Phenotype p : new Phenotype[] {phenotype, new NetworkCompiler().compile(phenotype)}) {
+            Evaluator stepper = new Evaluator(p, f);
+            Evaluator sequence = new Evaluator(p, f);
+            double[][] outputs = new double[inputs.length][p.numberOfOutputs()];
+            sequence.calculateSequence(inputs, outputs);
+            for (int t = 0; t < inputs.length; t++) {
+                assertArrayEquals(stepper.calculateOutput(inputs[t]), outputs[t]);
+            }
+            assertEquals(stepper.getState(), sequence.getState());
+
+            double[][] raw = new double[inputs.length][p.numberOfOutputs()];
+            NetworkState state = p.newState();
+            p.calculateRawSequence(state, inputs, raw, f);
+            stepper.reset();
+            for (int t = 0; t < inputs.length; t++) {
+                assertArrayEquals(stepper.calculateRawOutput(inputs[t]), raw[t]);
+            }
+        }
+
+        Evaluator evaluator = new Evaluator(phenotype, f);
+        assertThrows(IllegalArgumentException.class, () -> evaluator.calculateSequence(inputs,
+                new double[inputs.length - 1][phenotype.numberOfOutputs()]));
+        inputs[50] = new double[phenotype.numberOfInputs() + 1];
+        assertThrows(IllegalArgumentException.class, () -> evaluator.calculateSequence(inputs,
+                new double[inputs.length][phenotype.numberOfOutputs()]));
+        // nothing was evaluated before the invalid row was found
+        assertEquals(phenotype.newState(), evaluator.getState());
+    }
+
+    /**
+     * In a closed loop, the outputs are fed back as inputs until the callback stops.
+     */
+    @Test
+    public void closedLoopTest () {
+        Random rand = new Random(0);
+        Phenotype phenotype = new Phenotype(TestGenomes.randomGenome(rand, 60));
+        ActivationFunction f = new SigmoidActivationFunction();
+        Evaluator stepper = new Evaluator(phenotype, f);
+        Evaluator loop = new Evaluator(phenotype, f);
+
+        double[] input = new double[phenotype.numberOfInputs()];
+        double[] expectedInput = new double[phenotype.numberOfInputs()];
+        int steps = loop.calculateSequence(input, 1000, (step, output, next) -> {
+            assertArrayEquals(stepper.calculateOutput(expectedInput), output);
+            for (int i = 0; i < next.length; i++) {
+                next[i] = output[i % output.length] - .5;
+                expectedInput[i] = next[i];
+            }
+            return step < 99;
+        });
+        assertEquals(100, steps);
+        assertEquals(stepper.getState(), loop.getState());
+        assertEquals(1000, loop.calculateSequence(input, 1000, (step, output, next) -> true));
+        assertEquals(0, loop.calculateSequence(input, 0, (step, output, next) -> true));
+    }
+
+    /**
+     * After warming up, evaluating the network doesn't allocate any memory.
+     */
+    @Test
+    public void allocationTest () {
+        Assumptions.assumeTrue(ManagementFactory.getThreadMXBean()
+                instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(bean.isThreadAllocatedMemorySupported());
+        bean.setThreadAllocatedMemoryEnabled(true);
+
+        Random rand = new Random(0);
+        Genome genome = TestGenomes.randomGenome(rand, 100);
+        Phenotype phenotype = new Phenotype(genome);
+        Evaluator evaluator = new Evaluator(phenotype, new SigmoidActivationFunction());
+        double[] input = new double[phenotype.numberOfInputs()];
+        double[] output = new double[phenotype.numberOfOutputs()];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = rand.nextDouble();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        double sum = 0;
+        // warm up, so that the methods are compiled
+        for (int i = 0; i < 20_000; i++) {
+            sum += evaluator.calculateOutput(input)[0];
+            evaluator.calculateRawOutput(input, output);
+        }
+
+        long before = bean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            sum += evaluator.calculateOutput(input)[0];
+            evaluator.calculateRawOutput(input, output);
+            sum += output[0];
+        }
+        long allocated = bean.getThreadAllocatedBytes(threadId) - before;
+
+        // the measurement itself may allocate a few bytes, but nothing proportional to the calls
+        assertTrue(allocated < 1024, "Allocated " + allocated + " bytes (" + sum + ")");
+    }
+}
@@ -0,0 +1,148 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.TestGenomes;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+import com.tesladodger.neat.utils.functions.SigmoidActivationFunction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToDoubleFunction;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class EvolutionStrategiesTest {
+
+    /**
+     * Fitness of a network as the negative squared error of its outputs to another network's.
+     */
+    private static ToDoubleFunction<Phenotype> imitate (Phenotype teacher, double[][] inputs,
+                                                      ActivationFunction f) {
+        double[][] targets = teacher.calculateOutput(inputs, f);
+        return phenotype -> {
+            double[][] outputs = phenotype.calculateOutput(inputs, f);
+            double error = 0;
+            for (int r = 0; r < outputs.length; r++) {
+                for (int o = 0; o < outputs[r].length; o++) {
+                    error += Math.pow(outputs[r][o] - targets[r][o], 2);
+                }
+            }
+            return -error / outputs.length;
+        };
+    }
+
+    private static double[][] randomInputs (Random rand, int rows) {
+        double[][] inputs = new double[rows][3];
+        for (double[] row : inputs) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = rand.nextDouble() * 2 - 1;
+            }
+        }
+        return inputs;
+    }
+
+    /**
+     * The weights of a genome get closer to those of a network it has to imitate, and the best
+     * are written back to it, with their fitness.
+     */
+    @Test
+    public void optimizeTest () {
+        Random rand = new Random(0);
+        SigmoidActivationFunction f = new SigmoidActivationFunction();
+        f.logisticGrowthRate = 1;
+        Genome genome = TestGenomes.fullyConnected(rand);
+        ToDoubleFunction<Phenotype> fitness = imitate(
+                new Phenotype(TestGenomes.fullyConnected(rand)), randomInputs(rand, 50), f);
+
+        EvolutionStrategies strategies = new EvolutionStrategies(f, fitness);
+        strategies.iterations = 200;
+        strategies.pairs = 16;
+        strategies.learningRate = .1;
+        EvolutionStrategies.Result result = strategies.optimize(genome);
+
+        assertTrue(result.getFitness() > result.getInitialFitness() / 2, result.toString());
+        assertEquals(fitness.applyAsDouble(new Phenotype(genome, f)), result.getFitness());
+        assertEquals(result.getFitness(), genome.getFitness());
+        assertEquals(1 + 200 * 33, result.getEvaluations());
+        assertEquals(201, result.getHistory().length);
+        assertEquals(result.getFitness(), fitness.applyAsDouble(result.getPhenotype()));
+        assertEquals(6, result.getPhenotype().numberOfConnections());
+    }
+
+    /**
+     * The result only depends on the random instance, not on the number of threads.
+     */
+    @Test
+    public void repeatabilityTest () {
+        Random rand = new Random(0);
+        ActivationFunction f = new SigmoidActivationFunction();
+        Genome genome = TestGenomes.fullyConnected(rand);
+        ToDoubleFunction<Phenotype> fitness = imitate(
+                new Phenotype(TestGenomes.fullyConnected(rand)), randomInputs(rand, 20), f);
+        EvolutionStrategies strategies = new EvolutionStrategies(f, fitness);
+        strategies.iterations = 10;
+
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool many = new ForkJoinPool(4);
+        try {
+            double[] first = strategies.optimize(genome.clone(), new Random(3), single)
+                    .getHistory();
+            double[] second = strategies.optimize(genome.clone(), new Random(3), many)
+                    .getHistory();
+            assertArrayEquals(first, second);
+        } finally {
+            single.shutdown();
+            many.shutdown();
+        }
+    }
+
+    /**
+     * The original weights are kept if no perturbation is better.
+     */
+    @Test
+    public void neverWorseTest () {
+        Random rand = new Random(0);
+        ActivationFunction f = new SigmoidActivationFunction();
+        Genome genome = TestGenomes.fullyConnected(rand);
+        double[][] inputs = randomInputs(rand, 20);
+        // the genome already is the optimum
+        ToDoubleFunction<Phenotype> fitness = imitate(new Phenotype(genome), inputs, f);
+        double[][] before = new Phenotype(genome).calculateOutput(inputs, f);
+
+        EvolutionStrategies strategies = new EvolutionStrategies(f, fitness);
+        strategies.iterations = 5;
+        EvolutionStrategies.Result result = strategies.optimize(genome);
+        assertEquals(0, result.getFitness(), 0);
+        assertArrayEquals(before, new Phenotype(genome).calculateOutput(inputs, f));
+    }
+
+    @Test
+    public void centeredRanksTest () {
+        assertArrayEquals(new double[] {.5, -.5, 0},
+                EvolutionStrategies.centeredRanks(new double[] {10, -3, 2}));
+        assertArrayEquals(new double[] {0}, EvolutionStrategies.centeredRanks(new double[] {1}));
+    }
+
+    @Test
+    public void exceptionTest () {
+        Genome genome = TestGenomes.fullyConnected(new Random(0));
+        EvolutionStrategies strategies = new EvolutionStrategies(x -> x, p -> 0);
+        strategies.pairs = 0;
+        assertThrows(IllegalArgumentException.class, () -> strategies.optimize(genome));
+        strategies.pairs = 1;
+        strategies.sigma = 0;
+        assertThrows(IllegalArgumentException.class, () -> strategies.optimize(genome));
+        strategies.sigma = 1;
+        strategies.iterations = -1;
+        assertThrows(IllegalArgumentException.class, () -> strategies.optimize(genome));
+        assertThrows(RuntimeException.class, () -> new EvolutionStrategies(x -> x, p -> {
+            throw new IllegalStateException();
+        }).optimize(genome));
+    }
+}
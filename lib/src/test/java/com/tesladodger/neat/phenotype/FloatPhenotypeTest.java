@@ -0,0 +1,106 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.TestGenomes;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+import com.tesladodger.neat.utils.functions.FloatActivationFunction;
+import com.tesladodger.neat.utils.functions.SigmoidActivationFunction;
+import com.tesladodger.neat.utils.functions.StepActivationFunction;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+public class FloatPhenotypeTest {
+
+    @Test
+    public void xorTest () {
+        Genome genome = TestGenomes.xor();
+        FloatPhenotype phenotype = new FloatPhenotype(genome);
+        FloatNetworkState state = phenotype.newState();
+        StepActivationFunction step = new StepActivationFunction();
+        step.offset = .5;
+        FloatActivationFunction f = step.toFloat();
+
+        assertArrayEquals(new float[] {0}, phenotype.calculateOutput(state, new float[] {0, 0}, f));
+        assertArrayEquals(new float[] {1}, phenotype.calculateOutput(state, new float[] {0, 1}, f));
+        assertArrayEquals(new float[] {1}, phenotype.calculateOutput(state, new float[] {1, 0}, f));
+        assertArrayEquals(new float[] {0}, phenotype.calculateOutput(state, new float[] {1, 1}, f));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> phenotype.calculateOutput(state, new float[] {1}, f));
+        assertThrows(IllegalArgumentException.class, () -> phenotype.calculateOutput(
+                new FloatNetworkState(3), new float[] {1, 1}, f));
+    }
+
+    /**
+     * On the first step, the outputs are close to the double precision ones.
+     */
+    @RepeatedTest(10)
+    public void accuracyTest () {
+        Random rand = new Random(0);
+        Phenotype phenotype = new Phenotype(TestGenomes.randomGenome(rand, 40));
+        FloatPhenotype floatPhenotype = new FloatPhenotype(phenotype);
+        ActivationFunction f = new SigmoidActivationFunction();
+
+        for (int test = 0; test < 50; test++) {
+            double[] input = new double[phenotype.numberOfInputs()];
+            float[] floatInput = new float[input.length];
+            for (int i = 0; i < input.length; i++) {
+                floatInput[i] = rand.nextFloat() * 2 - 1;
+                input[i] = floatInput[i];
+            }
+            double[] expected = phenotype.calculateOutput(phenotype.newState(), input, f);
+            float[] result = floatPhenotype.calculateOutput(floatPhenotype.newState(), floatInput,
+                    f.toFloat());
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], result[i], 1e-3);
+            }
+        }
+    }
+
+    /**
+     * Each row of a batch is exactly the same as evaluating it with a new state.
+     */
+    @RepeatedTest(10)
+    public void batchTest () {
+        Random rand = new Random(0);
+        FloatPhenotype phenotype = new FloatPhenotype(TestGenomes.randomGenome(rand, 60));
+        FloatActivationFunction f = new SigmoidActivationFunction().toFloat();
+
+        float[][] inputs = new float[600][phenotype.numberOfInputs()];
+        for (float[] input : inputs) {
+            for (int i = 0; i < input.length; i++) {
+                input[i] = rand.nextFloat() * 2 - 1;
+            }
+        }
+        float[][] outputs = phenotype.calculateOutput(inputs, f);
+        for (int r = 0; r < inputs.length; r++) {
+            assertArrayEquals(phenotype.calculateOutput(phenotype.newState(), inputs[r], f),
+                    outputs[r]);
+        }
+    }
+
+    @Test
+    public void stateTest () {
+        FloatPhenotype phenotype = new FloatPhenotype(TestGenomes.randomGenome(new Random(0), 30));
+        FloatActivationFunction f = new SigmoidActivationFunction().toFloat();
+        FloatNetworkState state = phenotype.newState();
+        float[] input = new float[phenotype.numberOfInputs()];
+        input[0] = 1;
+
+        phenotype.calculateOutput(state, input, f);
+        FloatNetworkState snapshot = state.copy();
+        float[] expected = phenotype.calculateOutput(state, input, f);
+        state.restore(snapshot);
+        assertArrayEquals(expected, phenotype.calculateOutput(state, input, f));
+        state.reset();
+        assertEquals(phenotype.newState(), state);
+    }
+}
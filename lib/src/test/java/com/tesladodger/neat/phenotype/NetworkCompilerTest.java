@@ -0,0 +1,113 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Connection;
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.TestGenomes;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+import com.tesladodger.neat.utils.functions.SigmoidActivationFunction;
+import com.tesladodger.neat.utils.functions.StepActivationFunction;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class NetworkCompilerTest {
+
+    @Test
+    public void xorTest () {
+        Genome genome = TestGenomes.xor();
+        Phenotype phenotype = new NetworkCompiler().compile(genome);
+        assertTrue(phenotype.isCompiled());
+        NetworkState state = phenotype.newState();
+
+        StepActivationFunction f = new StepActivationFunction();
+        f.offset = .5;
+        assertArrayEquals(new double[] {0},
+                phenotype.calculateOutput(state, new double[] {0, 0}, f));
+        assertArrayEquals(new double[] {1},
+                phenotype.calculateOutput(state, new double[] {0, 1}, f));
+        assertArrayEquals(new double[] {1},
+                phenotype.calculateOutput(state, new double[] {1, 0}, f));
+        assertArrayEquals(new double[] {0},
+                phenotype.calculateOutput(state, new double[] {1, 1}, f));
+    }
+
+    /**
+     * The outputs must be exactly the same as the interpreted phenotype's, step after step,
+     * including networks with more than 256 local variables.
+     */
+    @RepeatedTest(10)
+    public void sameAsInterpretedTest () {
+        Random rand = new Random(0);
+        NetworkCompiler compiler = new NetworkCompiler(KernelGenerator.MAX_CODE_SIZE, 16);
+        ActivationFunction f = new SigmoidActivationFunction();
+
+        for (int mutations : new int[] {0, 30, 300}) {
+            Phenotype interpreted = new Phenotype(TestGenomes.randomGenome(rand, mutations));
+            Phenotype compiled = compiler.compile(interpreted);
+            assertTrue(compiled.isCompiled());
+            assertEquals(interpreted.numberOfConnections(), compiled.numberOfConnections());
+
+            NetworkState interpretedState = interpreted.newState();
+            NetworkState compiledState = compiled.newState();
+            double[] input = new double[interpreted.numberOfInputs()];
+            for (int step = 0; step < 30; step++) {
+                for (int i = 0; i < input.length; i++) {
+                    input[i] = rand.nextDouble() * 2 - 1;
+                }
+                assertArrayEquals(interpreted.calculateRawOutput(interpretedState, input, f),
+                        compiled.calculateRawOutput(compiledState, input, f));
+                assertEquals(interpretedState, compiledState);
+            }
+        }
+    }
+
+    @Test
+    public void thresholdTest () {
+        Phenotype phenotype = new Phenotype(TestGenomes.randomGenome(new Random(0), 300));
+        Phenotype result = new NetworkCompiler(100, 16).compile(phenotype);
+        assertSame(phenotype, result);
+        assertFalse(result.isCompiled());
+
+        assertThrows(IllegalArgumentException.class, () -> new NetworkCompiler(-1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new NetworkCompiler(1, -1));
+    }
+
+    @Test
+    public void cacheTest () {
+        Genome genome = TestGenomes.randomGenome(new Random(0), 30);
+        NetworkCompiler compiler = new NetworkCompiler(KernelGenerator.MAX_CODE_SIZE, 2);
+
+        Phenotype p0 = compiler.compile(genome);
+        Phenotype p1 = compiler.compile(genome.clone());
+        assertNotSame(p0, p1);
+        assertSame(p0.kernel, p1.kernel);
+        assertSame(p0, compiler.compile(p0));
+        assertEquals(1, compiler.cacheSize());
+
+        // different weights are a different network
+        for (Connection con : genome.getConnections().asArray()) {
+            con.setWeight(con.getWeight() + 1);
+        }
+        Phenotype p2 = compiler.compile(genome);
+        assertNotSame(p0.kernel, p2.kernel);
+        assertEquals(2, compiler.cacheSize());
+        assertEquals(1, compiler.getCache().hits());
+        assertEquals(2, compiler.getCache().misses());
+
+        compiler.compile(TestGenomes.randomGenome(new Random(0), 30));
+        assertEquals(2, compiler.cacheSize());
+        compiler.clearCache();
+        assertEquals(0, compiler.cacheSize());
+    }
+}
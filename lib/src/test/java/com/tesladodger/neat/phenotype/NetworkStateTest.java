@@ -0,0 +1,106 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Connection;
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.Node;
+import com.tesladodger.neat.TestGenomes;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+import com.tesladodger.neat.utils.functions.SigmoidActivationFunction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+public class NetworkStateTest {
+
+    private static Phenotype recursivePhenotype () {
+        Node n0 = new Node(0, Node.Type.INPUT);
+        Node n1 = new Node(1, Node.Type.OUTPUT);
+        Genome g = new Genome().addNodes(n0, n1).addConnections(
+                new Connection(0, 0, 1, 5),
+                new Connection(1, 1, 0, -3),
+                new Connection(2, 1, 1, 0.5));
+        return new Phenotype(g);
+    }
+
+    @Test
+    public void resetTest () {
+        Phenotype p = recursivePhenotype();
+        ActivationFunction f = new SigmoidActivationFunction();
+        NetworkState state = p.newState();
+        assertEquals(2, state.size());
+        assertEquals(p.newState(), state);
+
+        double first = p.calculateOutput(state, new double[] {1}, f)[0];
+        assertNotEquals(p.newState(), state);
+        assertNotEquals(first, p.calculateOutput(state, new double[] {1}, f)[0]);
+
+        state.reset();
+        assertEquals(p.newState(), state);
+        assertEquals(first, p.calculateOutput(state, new double[] {1}, f)[0]);
+    }
+
+    @Test
+    public void copyRestoreTest () {
+        Phenotype p = recursivePhenotype();
+        ActivationFunction f = new SigmoidActivationFunction();
+        NetworkState state = p.newState();
+        p.calculateOutput(state, new double[] {.3}, f);
+
+        NetworkState snapshot = state.copy();
+        assertEquals(state, snapshot);
+        assertNotSame(state, snapshot);
+
+        double[] expected = p.calculateOutput(state, new double[] {-.7}, f);
+        p.calculateOutput(state, new double[] {2}, f);
+        state.restore(snapshot);
+        assertArrayEquals(expected, p.calculateOutput(state, new double[] {-.7}, f));
+
+        NetworkState other = new Phenotype(TestGenomes.randomGenome(new Random(0), 30))
+                .newState();
+        if (other.size() != state.size()) {
+            assertThrows(IllegalArgumentException.class, () -> state.restore(other));
+        }
+    }
+
+    /**
+     * Many episodes of the same phenotype, running concurrently with their own states, give the
+     * same results as running them one after the other.
+     */
+    @Test
+    public void concurrentEpisodesTest () {
+        Random rand = new Random(0);
+        Phenotype p = new Phenotype(TestGenomes.randomGenome(rand, 60));
+        ActivationFunction f = new SigmoidActivationFunction();
+        double[][] inputs = new double[200][p.numberOfInputs()];
+        for (double[] input : inputs) {
+            for (int i = 0; i < input.length; i++) {
+                input[i] = rand.nextDouble() * 2 - 1;
+            }
+        }
+
+        NetworkState state = p.newState();
+        double[] expected = new double[p.numberOfOutputs()];
+        for (double[] input : inputs) {
+            expected = p.calculateOutput(state, input, f);
+        }
+        double[] finalExpected = expected;
+
+        IntStream.range(0, 64).parallel().forEach(episode -> {
+            NetworkState s = p.newState();
+            double[] result = null;
+            for (double[] input : inputs) {
+                result = p.calculateOutput(s, input, f);
+            }
+            assertArrayEquals(finalExpected, result);
+        });
+    }
+}
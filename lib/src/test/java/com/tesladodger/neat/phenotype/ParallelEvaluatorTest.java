@@ -0,0 +1,126 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.GenomeBuilder;
+import com.tesladodger.neat.TestGenomes;
+import com.tesladodger.neat.utils.InnovationHistory;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+import com.tesladodger.neat.utils.functions.SigmoidActivationFunction;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+public class ParallelEvaluatorTest {
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    public static void createPool () {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    public static void shutdownPool () {
+        pool.shutdown();
+    }
+
+    private static double[] randomInput (Random rand, int length) {
+        double[] input = new double[length];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = rand.nextDouble() * 2 - 1;
+        }
+        return input;
+    }
+
+    /**
+     * The outputs must be exactly the same as a sequential evaluator's, step after step, even
+     * when every node is a task.
+     */
+    @RepeatedTest(20)
+    public void sameAsEvaluatorTest () {
+        Random rand = new Random(0);
+        Phenotype phenotype = new Phenotype(TestGenomes.randomGenome(rand, 60));
+        ActivationFunction f = new SigmoidActivationFunction();
+        Evaluator evaluator = new Evaluator(phenotype, f);
+        ParallelEvaluator parallel = new ParallelEvaluator(phenotype, f, pool, 1);
+
+        for (int step = 0; step < 50; step++) {
+            double[] input = randomInput(rand, phenotype.numberOfInputs());
+            assertArrayEquals(evaluator.calculateRawOutput(input),
+                    parallel.calculateRawOutput(input));
+            assertEquals(evaluator.getState(), parallel.getState());
+        }
+
+        parallel.reset();
+        evaluator.reset();
+        double[] input = randomInput(rand, phenotype.numberOfInputs());
+        assertArrayEquals(evaluator.calculateOutput(input), parallel.calculateOutput(input));
+    }
+
+    /**
+     * A wide network, where the levels are split into tasks with the default threshold.
+     */
+    @Test
+    public void wideNetworkTest () {
+        Random rand = new Random(0);
+        Genome genome = new GenomeBuilder(new InnovationHistory())
+                .setNumberOfNodes(500, 20)
+                .setFullyConnected(true)
+                .build(rand);
+        Phenotype phenotype = new Phenotype(genome);
+        ActivationFunction f = new SigmoidActivationFunction();
+        Evaluator evaluator = new Evaluator(phenotype, f);
+        ParallelEvaluator parallel = new ParallelEvaluator(phenotype, f, pool,
+                ParallelEvaluator.DEFAULT_THRESHOLD);
+
+        assertEquals(2, parallel.numberOfLevels());
+        for (int step = 0; step < 10; step++) {
+            double[] input = randomInput(rand, phenotype.numberOfInputs());
+            assertArrayEquals(evaluator.calculateOutput(input), parallel.calculateOutput(input));
+        }
+    }
+
+    /**
+     * The state can be moved between a parallel and a sequential evaluator.
+     */
+    @Test
+    public void stateTest () {
+        Random rand = new Random(0);
+        Phenotype phenotype = new Phenotype(TestGenomes.randomGenome(rand, 60));
+        ActivationFunction f = new SigmoidActivationFunction();
+        Evaluator evaluator = new Evaluator(phenotype, f);
+        ParallelEvaluator parallel = new ParallelEvaluator(phenotype, f);
+
+        for (int step = 0; step < 10; step++) {
+            parallel.calculateOutput(randomInput(rand, phenotype.numberOfInputs()));
+        }
+        evaluator.getState().restore(parallel.getState());
+        double[] input = randomInput(rand, phenotype.numberOfInputs());
+        assertArrayEquals(parallel.calculateOutput(input).clone(),
+                evaluator.calculateOutput(input));
+    }
+
+    @Test
+    public void exceptionTest () {
+        Phenotype phenotype = new Phenotype(TestGenomes.randomGenome(new Random(0), 5));
+        ActivationFunction f = new SigmoidActivationFunction();
+        assertThrows(IllegalArgumentException.class,
+                () -> new ParallelEvaluator(phenotype, f, pool, 0));
+        ParallelEvaluator parallel = new ParallelEvaluator(phenotype, f);
+        assertThrows(IllegalArgumentException.class,
+                () -> parallel.calculateOutput(new double[phenotype.numberOfInputs() + 1]));
+        assertThrows(IllegalArgumentException.class,
+                () -> parallel.calculateOutput(new double[phenotype.numberOfInputs()],
+                        new double[0]));
+    }
+}
@@ -0,0 +1,111 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Connection;
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.TestGenomes;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+import com.tesladodger.neat.utils.functions.RectifierActivationFunction;
+import com.tesladodger.neat.utils.functions.SigmoidActivationFunction;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+
+public class PhenotypeCacheTest {
+
+    /**
+     * @param genome to copy;
+     * @param rand random instance;
+     *
+     * @return copy of the genome with different weights;
+     */
+    private static Genome withOtherWeights (Genome genome, Random rand) {
+        Genome copy = genome.clone();
+        for (Connection con : copy.getConnections().asArray()) {
+            con.setWeight(rand.nextDouble() * 4 - 2);
+        }
+        return copy;
+    }
+
+    private static void assertSameOutputs (Phenotype expected, Phenotype actual,
+                                           ActivationFunction f, Random rand) {
+        NetworkState expectedState = expected.newState();
+        NetworkState actualState = actual.newState();
+        for (int step = 0; step < 20; step++) {
+            double[] input = new double[expected.numberOfInputs()];
+            for (int i = 0; i < input.length; i++) {
+                input[i] = rand.nextDouble() * 2 - 1;
+            }
+            assertArrayEquals(expected.calculateRawOutput(expectedState, input, f),
+                    actual.calculateRawOutput(actualState, input, f));
+        }
+    }
+
+    /**
+     * Genomes with the same topology share the structure, with their own weights.
+     */
+    @RepeatedTest(20)
+    public void sameTopologyTest () {
+        Random rand = new Random(0);
+        Genome genome = TestGenomes.randomGenome(rand, 60);
+        ActivationFunction f = new SigmoidActivationFunction();
+        PhenotypeCache cache = new PhenotypeCache();
+
+        Phenotype first = cache.build(genome, f);
+        assertSameOutputs(new Phenotype(genome, f), first, f, rand);
+        for (int i = 0; i < 5; i++) {
+            Genome other = withOtherWeights(genome, rand);
+            Phenotype phenotype = cache.build(other, f);
+            assertSame(first.targets, phenotype.targets);
+            assertNotSame(first.weights, phenotype.weights);
+            assertSameOutputs(new Phenotype(other, f), phenotype, f, rand);
+        }
+        assertEquals(1, cache.size());
+        assertEquals(5 / 6.0, cache.hitRate());
+    }
+
+    /**
+     * Pruning is part of the plan, so it depends on the function.
+     */
+    @RepeatedTest(10)
+    public void prunedTest () {
+        Random rand = new Random(0);
+        Genome genome = TestGenomes.randomGenome(rand, 60);
+        ActivationFunction f = new RectifierActivationFunction();
+        PhenotypeCache cache = new PhenotypeCache();
+
+        cache.build(genome);
+        Genome other = withOtherWeights(genome, rand);
+        assertSameOutputs(new Phenotype(other, f), cache.build(other, f), f, rand);
+        assertSameOutputs(new Phenotype(other), cache.build(other), f, rand);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void evictionTest () {
+        Random rand = new Random(0);
+        PhenotypeCache cache = new PhenotypeCache(1);
+        Genome g0 = TestGenomes.randomGenome(rand, 10);
+        Genome g1 = g0.clone();
+        Connection con = g1.getConnections().asArray()[0];
+        if (con.isEnabled()) con.disable();
+        else con.enable();
+
+        cache.build(g0);
+        cache.build(g1);
+        cache.build(g0);
+        assertEquals(1, cache.size());
+        assertEquals(0, cache.hitRate());
+        assertEquals(2, cache.getCache().evictions());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}
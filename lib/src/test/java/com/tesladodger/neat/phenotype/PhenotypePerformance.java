@@ -0,0 +1,85 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.TestGenomes;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+import com.tesladodger.neat.utils.functions.SigmoidActivationFunction;
+
+import java.util.Random;
+
+
+/**
+ * Testing the throughput (evaluations per unit of time) of a genome, of a phenotype evaluated
+ * row by row, of a phenotype evaluated in batches and of a compiled phenotype, on a dataset-like
+ * task.
+ */
+public class PhenotypePerformance {
+
+    static double genomeRowsPerMilli (Genome genome, double[][] inputs, ActivationFunction f) {
+        double[] output = new double[genome.numberOfOutputs()];
+        long t = System.nanoTime();
+        for (double[] input : inputs) {
+            genome.calculateOutput(input, output, f);
+        }
+        t = System.nanoTime() - t;
+        return inputs.length / (t / 1e6);
+    }
+
+    static double phenotypeRowsPerMilli (Phenotype phenotype, double[][] inputs,
+                                         ActivationFunction f) {
+        Evaluator evaluator = new Evaluator(phenotype, f);
+        long t = System.nanoTime();
+        for (double[] input : inputs) {
+            evaluator.calculateOutput(input);
+        }
+        t = System.nanoTime() - t;
+        return inputs.length / (t / 1e6);
+    }
+
+    static double batchRowsPerMilli (Phenotype phenotype, double[][] inputs,
+                                     ActivationFunction f) {
+        double[][] outputs = new double[inputs.length][phenotype.numberOfOutputs()];
+        long t = System.nanoTime();
+        phenotype.calculateOutput(inputs, outputs, f);
+        t = System.nanoTime() - t;
+        return inputs.length / (t / 1e6);
+    }
+
+    public static void main (String[] args) {
+        Random rand = new Random(0);
+        ActivationFunction f = new SigmoidActivationFunction();
+        NetworkCompiler compiler = new NetworkCompiler();
+
+        for (int mutations : new int[] {20, 100, 400}) {
+            Genome genome = TestGenomes.randomGenome(rand, mutations);
+            Phenotype phenotype = new Phenotype(genome);
+            Phenotype compiled = compiler.compile(phenotype);
+            double[][] inputs = new double[20_000][genome.numberOfInputs()];
+            for (double[] input : inputs) {
+                for (int i = 0; i < input.length; i++) {
+                    input[i] = rand.nextDouble() * 2 - 1;
+                }
+            }
+
+            double genomeSum = 0;
+            double phenotypeSum = 0;
+            double batchSum = 0;
+            double compiledSum = 0;
+            int tests = 20;
+            for (int i = 0; i < tests; i++) {
+                genomeSum += genomeRowsPerMilli(genome, inputs, f);
+                phenotypeSum += phenotypeRowsPerMilli(phenotype, inputs, f);
+                batchSum += batchRowsPerMilli(phenotype, inputs, f);
+                compiledSum += phenotypeRowsPerMilli(compiled, inputs, f);
+            }
+
+            System.out.printf("Nodes: %4d of %4d   Connections: %4d of %4d\n",
+                    phenotype.numberOfNodes(), genome.getNodes().size(),
+                    phenotype.numberOfConnections(), genome.getConnections().size());
+            System.out.printf("  Average rows/ms   genome: %8.1f   phenotype: %8.1f   " +
+                    "batch: %8.1f   compiled: %8.1f\n", genomeSum / tests, phenotypeSum / tests,
+                    batchSum / tests, compiledSum / tests);
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Connection;
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.Node;
+import com.tesladodger.neat.TestGenomes;
+import com.tesladodger.neat.utils.exceptions.IllegalTopologyException;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+import com.tesladodger.neat.utils.functions.RectifierActivationFunction;
+import com.tesladodger.neat.utils.functions.SigmoidActivationFunction;
+import com.tesladodger.neat.utils.functions.StepActivationFunction;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+public class PhenotypeTest {
+
+    @Test
+    public void xorTest () {
+        Genome genome = TestGenomes.xor();
+        Phenotype phenotype = new Phenotype(genome);
+        NetworkState state = phenotype.newState();
+
+        StepActivationFunction f = new StepActivationFunction();
+        f.offset = .5;
+
+        assertEquals(2, phenotype.numberOfInputs());
+        assertEquals(1, phenotype.numberOfOutputs());
+        assertEquals(4, phenotype.numberOfNodes());
+        assertEquals(5, phenotype.numberOfConnections());
+
+        assertArrayEquals(new double[] {0},
+                phenotype.calculateOutput(state, new double[] {0, 0}, f));
+        assertArrayEquals(new double[] {1},
+                phenotype.calculateOutput(state, new double[] {0, 1}, f));
+        assertArrayEquals(new double[] {1},
+                phenotype.calculateOutput(state, new double[] {1, 0}, f));
+        assertArrayEquals(new double[] {0},
+                phenotype.calculateOutput(state, new double[] {1, 1}, f));
+    }
+
+    /**
+     * Backward connection and connection to self.
+     */
+    @Test
+    public void recursiveTest () {
+        Node n0 = new Node(0, Node.Type.INPUT);
+        Node n1 = new Node(1, Node.Type.OUTPUT);
+        Connection c0 = new Connection(0, 0, 1, 5);
+        Connection c1 = new Connection(1, 1, 0, -3);
+        Connection c2 = new Connection(2, 1, 1, -0.1);
+        Genome g = new Genome().addNodes(n0, n1).addConnections(c0, c1, c2);
+        Phenotype phenotype = new Phenotype(g);
+        NetworkState state = phenotype.newState();
+
+        SigmoidActivationFunction f = new SigmoidActivationFunction();
+        f.logisticGrowthRate = 3;
+
+        for (double x : new double[] {0, 0, -1, .5, 3, -2}) {
+            assertArrayEquals(g.calculateOutput(new double[] {x}, f),
+                    phenotype.calculateOutput(state, new double[] {x}, f));
+        }
+
+        // the phenotype is a snapshot, and reset clears the recursive values
+        c1.setWeight(0);
+        n0.reset();
+        n1.reset();
+        state.reset();
+        Phenotype other = new Phenotype(g);
+        NetworkState otherState = other.newState();
+        double[] in = new double[] {0};
+        // the backward connection only has an effect in the second call
+        double expected = g.calculateOutput(in, f)[0];
+        assertEquals(expected, phenotype.calculateOutput(state, in, f)[0]);
+        assertEquals(expected, other.calculateOutput(otherState, in, f)[0]);
+        expected = g.calculateOutput(in, f)[0];
+        assertNotEquals(expected, phenotype.calculateOutput(state, in, f)[0]);
+        assertEquals(expected, other.calculateOutput(otherState, in, f)[0]);
+    }
+
+    @Test
+    public void disabledConnectionTest () {
+        Node n0 = new Node(0, Node.Type.INPUT);
+        Node n1 = new Node(1, Node.Type.OUTPUT);
+        Genome g = new Genome().addNodes(n0, n1).addConnections(
+                new Connection(0, 0, 1, 2, false),
+                new Connection(1, 1, 1, 2, false));
+        Phenotype phenotype = new Phenotype(g);
+        NetworkState state = phenotype.newState();
+
+        assertEquals(0, phenotype.numberOfConnections());
+        assertArrayEquals(new double[] {0},
+                phenotype.calculateRawOutput(state, new double[] {1}, x -> x));
+    }
+
+    /**
+     * Hidden nodes that can't change the outputs are not compiled, and the genome is not
+     * changed.
+     */
+    @Test
+    public void pruneTest () {
+        // 2 is a dead end, 3 is only reached through a disabled connection, 4 has no inputs
+        Genome g = new Genome()
+                .addNodes(new Node(0, Node.Type.INPUT, 0), new Node(1, Node.Type.OUTPUT, 3),
+                        new Node(2, Node.Type.HIDDEN, 1), new Node(3, Node.Type.HIDDEN, 1),
+                        new Node(4, Node.Type.HIDDEN, 2))
+                .addConnections(
+                        new Connection(0, 0, 1, 1.5),
+                        new Connection(1, 0, 2, 2),
+                        new Connection(2, 2, 2, .5),
+                        new Connection(3, 0, 3, 1, false),
+                        new Connection(4, 3, 2, 1),
+                        new Connection(5, 4, 1, -1));
+        ActivationFunction sigmoid = new SigmoidActivationFunction();
+        ActivationFunction rectifier = new RectifierActivationFunction();
+
+        Phenotype phenotype = new Phenotype(g);
+        assertEquals(3, phenotype.numberOfNodes());
+        assertEquals(2, phenotype.numberOfConnections());
+        // the sigmoid of 0 isn't 0, so node 4 adds a constant to the output
+        assertEquals(3, new Phenotype(g, sigmoid).numberOfNodes());
+        Phenotype pruned = new Phenotype(g, rectifier);
+        assertEquals(2, pruned.numberOfNodes());
+        assertEquals(1, pruned.numberOfConnections());
+
+        assertEquals(5, g.getNodes().size());
+        assertEquals(6, g.getConnections().size());
+
+        NetworkState state = phenotype.newState();
+        NetworkState prunedState = pruned.newState();
+        for (double x : new double[] {0, 1, -1, .5}) {
+            double[] in = new double[] {x};
+            assertArrayEquals(g.calculateRawOutput(in, sigmoid),
+                    phenotype.calculateRawOutput(state, in, sigmoid));
+            assertArrayEquals(g.calculateRawOutput(in, rectifier),
+                    pruned.calculateRawOutput(prunedState, in, rectifier));
+        }
+    }
+
+    @Test
+    public void exceptionTest () {
+        Genome g = new Genome()
+                .addNodes(new Node(0, Node.Type.INPUT), new Node(1, Node.Type.OUTPUT))
+                .addConnections(new Connection(0, 0, 2));
+        assertThrows(IllegalTopologyException.class, () -> new Phenotype(g));
+
+        Genome g1 = new Genome()
+                .addNodes(new Node(0, Node.Type.INPUT), new Node(1, Node.Type.OUTPUT))
+                .addConnections(new Connection(0, 0, 1));
+        Phenotype phenotype = new Phenotype(g1);
+        NetworkState state = phenotype.newState();
+        assertThrows(IllegalArgumentException.class,
+                () -> phenotype.calculateOutput(state, new double[] {1, 2}, x -> x));
+        assertThrows(IllegalArgumentException.class,
+                () -> phenotype.calculateOutput(new NetworkState(3), new double[] {1}, x -> x));
+    }
+
+    /**
+     * The outputs must be exactly the same as the genome's, step after step.
+     */
+    @RepeatedTest(20)
+    public void evolvedGenomeTest () {
+        Random rand = new Random(0);
+        Genome genome = TestGenomes.randomGenome(rand, 60);
+        Phenotype phenotype = new Phenotype(genome);
+        NetworkState state = phenotype.newState();
+        ActivationFunction f = new SigmoidActivationFunction();
+
+        for (int step = 0; step < 50; step++) {
+            double[] input = new double[genome.numberOfInputs()];
+            for (int i = 0; i < input.length; i++) {
+                input[i] = rand.nextDouble() * 2 - 1;
+            }
+            assertArrayEquals(genome.calculateRawOutput(input, f),
+                    phenotype.calculateRawOutput(state, input, f));
+        }
+    }
+
+    /**
+     * A genome, its packed clone and their phenotypes add up the inputs of each node in the same
+     * order, so their outputs are exactly the same.
+     */
+    @Test
+    public void packedOutputTest () {
+        Random rand = new Random(0);
+        ActivationFunction f = new SigmoidActivationFunction();
+        for (int t = 0; t < 20; t++) {
+            Genome genome = TestGenomes.randomGenome(rand, 60);
+            Genome packed = genome.clone();
+            Phenotype phenotype = new Phenotype(genome);
+            Phenotype packedPhenotype = new Phenotype(packed);
+            NetworkState state = phenotype.newState();
+            NetworkState packedState = packedPhenotype.newState();
+
+            for (int step = 0; step < 10; step++) {
+                double[] input = new double[genome.numberOfInputs()];
+                for (int i = 0; i < input.length; i++) {
+                    input[i] = rand.nextDouble() * 2 - 1;
+                }
+                double[] expected = genome.calculateRawOutput(input, f);
+                assertArrayEquals(expected, packed.calculateRawOutput(input, f));
+                assertArrayEquals(expected, phenotype.calculateRawOutput(state, input, f));
+                assertArrayEquals(expected,
+                        packedPhenotype.calculateRawOutput(packedState, input, f));
+            }
+        }
+    }
+
+    /**
+     * Also discarding the nodes that no input reaches keeps the same outputs, with a function
+     * that returns 0 for 0.
+     */
+    @RepeatedTest(20)
+    public void prunedGenomeTest () {
+        Random rand = new Random(0);
+        Genome genome = TestGenomes.randomGenome(rand, 60);
+        ActivationFunction f = new RectifierActivationFunction();
+        Phenotype phenotype = new Phenotype(genome, f);
+        NetworkState state = phenotype.newState();
+
+        for (int step = 0; step < 50; step++) {
+            double[] input = new double[genome.numberOfInputs()];
+            for (int i = 0; i < input.length; i++) {
+                input[i] = rand.nextDouble() * 2 - 1;
+            }
+            // a discarded node no longer adds its 0 to a node that may hold -0, so only the
+            // sign of zero can differ
+            assertArrayEquals(genome.calculateRawOutput(input, f),
+                    phenotype.calculateRawOutput(state, input, f), 0);
+        }
+    }
+
+    /**
+     * Each row of a batch is the same as evaluating it with a new state, including batches
+     * larger than a block.
+     */
+    @RepeatedTest(10)
+    public void batchTest () {
+        Random rand = new Random(0);
+        Phenotype phenotype = new Phenotype(TestGenomes.randomGenome(rand, 60));
+        ActivationFunction f = new SigmoidActivationFunction();
+
+        double[][] inputs = new double[300][phenotype.numberOfInputs()];
+        for (double[] input : inputs) {
+            for (int i = 0; i < input.length; i++) {
+                input[i] = rand.nextDouble() * 2 - 1;
+            }
+        }
+
+        double[][] outputs = phenotype.calculateOutput(inputs, f);
+        double[][] rawOutputs = phenotype.calculateRawOutput(inputs, f);
+        for (int r = 0; r < inputs.length; r++) {
+            assertArrayEquals(phenotype.calculateOutput(phenotype.newState(), inputs[r], f),
+                    outputs[r]);
+            assertArrayEquals(phenotype.calculateRawOutput(phenotype.newState(), inputs[r], f),
+                    rawOutputs[r]);
+        }
+
+        assertEquals(0, phenotype.calculateOutput(new double[0][], f).length);
+        assertThrows(IllegalArgumentException.class, () -> phenotype.calculateOutput(inputs,
+                new double[inputs.length - 1][phenotype.numberOfOutputs()], f));
+        assertThrows(IllegalArgumentException.class, () -> phenotype.calculateOutput(
+                new double[][] {new double[phenotype.numberOfInputs() + 1]}, f));
+    }
+}
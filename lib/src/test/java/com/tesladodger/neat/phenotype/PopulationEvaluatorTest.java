@@ -0,0 +1,151 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.GenomeBuilder;
+import com.tesladodger.neat.Population;
+import com.tesladodger.neat.evolution.Mutation;
+import com.tesladodger.neat.utils.InnovationHistory;
+import com.tesladodger.neat.utils.Parameters;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+import com.tesladodger.neat.utils.functions.SigmoidActivationFunction;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class PopulationEvaluatorTest {
+
+    /**
+     * Spawn a population and mutate some of its genomes, so that there are groups of many sizes.
+     */
+    private static List<Genome> population (Random rand, int mutations) {
+        Parameters params = new Parameters();
+        params.connectionWeightsMutationProbability = 0.5;
+        params.newNodeMutationProbability = 0.25;
+        params.newConnectionMutationProbability = 0.25;
+        params.recursiveConnectionProbability = 0.3;
+        params.mutateRecentGenesBias = 0;
+
+        InnovationHistory history = new InnovationHistory();
+        Genome template = new GenomeBuilder(history, params)
+                .setNumberOfNodes(4, 3)
+                .setFullyConnected(true)
+                .build(rand);
+        List<Genome> genomes = new Population(params).spawn(template, 100, rand);
+        for (int i = 0; i < mutations; i++) {
+            Mutation.mutate(genomes.get(rand.nextInt(genomes.size())), history, params, rand);
+        }
+        return genomes;
+    }
+
+    @Test
+    public void spawnTest () {
+        Random rand = new Random(0);
+        List<Genome> genomes = population(rand, 0);
+        PopulationEvaluator evaluator =
+                new PopulationEvaluator(genomes, new SigmoidActivationFunction());
+        assertEquals(100, evaluator.numberOfGenomes());
+        assertEquals(1, evaluator.numberOfGroups());
+    }
+
+    /**
+     * The outputs of every genome must be exactly the same as its own phenotype's, step after
+     * step, with shared and individual inputs.
+     */
+    @RepeatedTest(10)
+    public void sameAsPhenotypeTest () {
+        Random rand = new Random(0);
+        List<Genome> genomes = population(rand, 150);
+        ActivationFunction f = new SigmoidActivationFunction();
+        PopulationEvaluator evaluator = new PopulationEvaluator(genomes, f);
+        assertTrue(evaluator.numberOfGroups() < genomes.size());
+
+        Evaluator[] expected = new Evaluator[genomes.size()];
+        for (int g = 0; g < expected.length; g++) {
+            expected[g] = new Evaluator(new Phenotype(genomes.get(g)), f);
+        }
+
+        double[][] inputs = new double[genomes.size()][4];
+        double[][] outputs = new double[genomes.size()][3];
+        for (int step = 0; step < 30; step++) {
+            for (double[] input : inputs) {
+                for (int i = 0; i < input.length; i++) {
+                    input[i] = rand.nextDouble() * 2 - 1;
+                }
+            }
+            if (step % 2 == 0) {
+                evaluator.calculateOutput(inputs, outputs);
+                for (int g = 0; g < expected.length; g++) {
+                    assertArrayEquals(expected[g].calculateOutput(inputs[g]), outputs[g]);
+                }
+            } else {
+                outputs = evaluator.calculateOutput(inputs[0]);
+                for (int g = 0; g < expected.length; g++) {
+                    assertArrayEquals(expected[g].calculateOutput(inputs[0]), outputs[g]);
+                }
+            }
+        }
+
+        evaluator.reset();
+        for (Evaluator e : expected) {
+            e.reset();
+        }
+        evaluator.calculateRawOutput(inputs, outputs);
+        for (int g = 0; g < expected.length; g++) {
+            assertArrayEquals(expected[g].calculateRawOutput(inputs[g]), outputs[g]);
+        }
+    }
+
+    /**
+     * Compiling with a cache gives the same groups and outputs.
+     */
+    @Test
+    public void cacheTest () {
+        Random rand = new Random(0);
+        List<Genome> genomes = population(rand, 150);
+        ActivationFunction f = new SigmoidActivationFunction();
+        PhenotypeCache cache = new PhenotypeCache();
+        PopulationEvaluator cached = new PopulationEvaluator(genomes, f, cache);
+        PopulationEvaluator evaluator = new PopulationEvaluator(genomes, f);
+        assertEquals(evaluator.numberOfGroups(), cached.numberOfGroups());
+        assertEquals(genomes.size(), cached.numberOfGenomes());
+        assertTrue(cache.hitRate() > 0);
+
+        double[][] inputs = new double[genomes.size()][4];
+        for (int step = 0; step < 10; step++) {
+            for (double[] input : inputs) {
+                for (int i = 0; i < input.length; i++) {
+                    input[i] = rand.nextDouble() * 2 - 1;
+                }
+            }
+            double[][] expected = new double[genomes.size()][3];
+            double[][] outputs = new double[genomes.size()][3];
+            evaluator.calculateOutput(inputs, expected);
+            cached.calculateOutput(inputs, outputs);
+            for (int g = 0; g < genomes.size(); g++) {
+                assertArrayEquals(expected[g], outputs[g]);
+            }
+        }
+    }
+
+    @Test
+    public void exceptionTest () {
+        List<Genome> genomes = population(new Random(0), 10);
+        PopulationEvaluator evaluator =
+                new PopulationEvaluator(genomes, new SigmoidActivationFunction());
+        assertThrows(IllegalArgumentException.class,
+                () -> evaluator.calculateOutput(new double[3]));
+        assertThrows(IllegalArgumentException.class,
+                () -> evaluator.calculateOutput(new double[99][4], new double[100][3]));
+        assertThrows(IllegalArgumentException.class,
+                () -> evaluator.calculateOutput(new double[100][4], new double[100][2]));
+    }
+}
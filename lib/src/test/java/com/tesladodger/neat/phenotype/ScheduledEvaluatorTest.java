@@ -0,0 +1,154 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.TestGenomes;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+import com.tesladodger.neat.utils.functions.SigmoidActivationFunction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class ScheduledEvaluatorTest {
+
+    private static List<Genome> randomGenomes (Random rand, int count) {
+        List<Genome> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(TestGenomes.randomGenome(rand, rand.nextInt(60)));
+        }
+        return result;
+    }
+
+    private static double sumOfOutputs (Phenotype phenotype, ActivationFunction f) {
+        double result = 0;
+        for (double output : phenotype.calculateOutput(phenotype.newState(),
+                new double[] {1, 2, 3, 4}, f)) {
+            result += output;
+        }
+        return result;
+    }
+
+    /**
+     * The cost of a phenotype grows with its nodes and connections, and recursive connections
+     * cost extra.
+     */
+    @Test
+    public void costModelTest () {
+        Random rand = new Random(0);
+        CostModel model = new CostModel();
+        model.baseCost = 10;
+        model.nodeCost = 2;
+        model.connectionCost = 3;
+        model.recursiveConnectionCost = 5;
+        for (int repetition = 0; repetition < 10; repetition++) {
+            Phenotype phenotype = new Phenotype(TestGenomes.randomGenome(rand, 50));
+            int recursive = 0;
+            for (int i = 0; i < phenotype.numberOfNodes(); i++) {
+                if (phenotype.hasSelfConnection(i)) recursive++;
+                for (int c = phenotype.firstConnection(i); c < phenotype.firstConnection(i + 1);
+                     c++) {
+                    if (phenotype.connectionTarget(c) < i) recursive++;
+                }
+            }
+            assertEquals(10 + 2 * phenotype.numberOfNodes() + 3 *
+                    phenotype.numberOfConnections() + 5 * recursive, model.estimate(phenotype));
+        }
+    }
+
+    /**
+     * Every genome gets the fitness of its phenotype, whatever the order.
+     */
+    @Test
+    public void fitnessTest () {
+        Random rand = new Random(0);
+        ActivationFunction f = new SigmoidActivationFunction();
+        List<Genome> genomes = randomGenomes(rand, 50);
+        ScheduledEvaluator evaluator = new ScheduledEvaluator(f,
+                phenotype -> sumOfOutputs(phenotype, f));
+
+        for (boolean longestFirst : new boolean[] {true, false}) {
+            evaluator.longestFirst = longestFirst;
+            EvaluationStatistics statistics = evaluator.evaluate(genomes);
+            assertSame(statistics, evaluator.getStatistics());
+            for (Genome genome : genomes) {
+                assertEquals(sumOfOutputs(new Phenotype(genome, f), f), genome.getFitness());
+            }
+            assertEquals(50, statistics.getGenomes());
+            assertEquals(50, statistics.getPredictedCosts().length);
+            assertTrue(statistics.getWorkers() >= 1);
+            assertTrue(statistics.getBusyTime() > 0);
+            assertTrue(statistics.getWallTime() > 0);
+            assertTrue(statistics.getTailTime() >= 0);
+            assertTrue(statistics.getTailTime() <= statistics.getWallTime());
+            assertTrue(statistics.getPredictedWallTime() > 0);
+            assertTrue(Math.abs(statistics.getCorrelation()) <= 1 + 1e-12);
+        }
+    }
+
+    /**
+     * With a single thread, the genomes are evaluated in decreasing order of cost.
+     */
+    @Test
+    public void orderTest () {
+        Random rand = new Random(0);
+        ActivationFunction f = new SigmoidActivationFunction();
+        List<Genome> genomes = randomGenomes(rand, 30);
+        List<Double> costs = Collections.synchronizedList(new ArrayList<>());
+        CostModel model = new CostModel();
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            ScheduledEvaluator evaluator = new ScheduledEvaluator(f, phenotype -> {
+                costs.add(model.estimate(phenotype));
+                return 0;
+            }, pool);
+            EvaluationStatistics statistics = evaluator.evaluate(genomes);
+            assertEquals(1, statistics.getWorkers());
+            assertEquals(0, statistics.getTailTime());
+            for (int i = 1; i < costs.size(); i++) {
+                assertTrue(costs.get(i - 1) >= costs.get(i), costs.toString());
+            }
+
+            // in the order they were given
+            costs.clear();
+            evaluator.longestFirst = false;
+            evaluator.evaluate(genomes);
+            double[] expected = new double[genomes.size()];
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = model.estimate(new Phenotype(genomes.get(i), f));
+            }
+            assertArrayEquals(expected, costs.stream().mapToDouble(Double::doubleValue).toArray());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The predicted wall time is that of the longest-first schedule of the predicted costs.
+     */
+    @Test
+    public void statisticsTest () {
+        EvaluationStatistics statistics = new EvaluationStatistics(new double[] {3, 3, 2, 2, 2},
+                new long[] {30, 30, 20, 20, 20}, 2, 70, 10);
+        assertEquals(10, statistics.getNanosPerUnit(), 1e-12);
+        assertEquals(120, statistics.getBusyTime());
+        assertEquals(20, statistics.getIdleTime());
+        // {3, 2, 2} and {3, 2}
+        assertEquals(70, statistics.getPredictedWallTime(), 1e-9);
+        assertEquals(1, statistics.getCorrelation(), 1e-12);
+
+        EvaluationStatistics empty = new ScheduledEvaluator(x -> x, p -> 0).getStatistics();
+        assertEquals(0, empty.getGenomes());
+        assertEquals(0, empty.getPredictedWallTime());
+        assertEquals(0, empty.getCorrelation());
+    }
+}
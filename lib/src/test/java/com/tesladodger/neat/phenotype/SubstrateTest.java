@@ -0,0 +1,223 @@
+package com.tesladodger.neat.phenotype;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.GenomeBuilder;
+import com.tesladodger.neat.evolution.Mutation;
+import com.tesladodger.neat.utils.InnovationHistory;
+import com.tesladodger.neat.utils.Parameters;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+import com.tesladodger.neat.utils.functions.TanhActivationFunction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class SubstrateTest {
+
+    private static Genome randomCppn (Random rand, int inputs) {
+        Parameters params = new Parameters();
+        params.newNodeMutationProbability = 0.4;
+        params.newConnectionMutationProbability = 0.4;
+        params.recursiveConnectionProbability = 0;
+
+        InnovationHistory history = new InnovationHistory();
+        Genome genome = new GenomeBuilder(history, params)
+                .setNumberOfNodes(inputs, 1)
+                .setFullyConnected(true)
+                .build(rand);
+        for (int i = 0; i < 20; i++) {
+            Mutation.mutate(genome, history, params, rand);
+        }
+        return genome;
+    }
+
+    private static Substrate substrate () {
+        return new Substrate(3)
+                .addLayer(Substrate.grid(3, 2, -1))
+                .addLayer(Substrate.grid(4, 4, 0))
+                .addLayer(Substrate.grid(2, 1, 1))
+                .connectLayers()
+                .connect(1, 1)
+                .connect(2, 1);
+    }
+
+    /**
+     * Each connection of the network has the weight given by querying the CPPN for its nodes
+     * one at a time.
+     */
+    @Test
+    public void queryTest () {
+        Random rand = new Random(0);
+        ActivationFunction f = new TanhActivationFunction();
+        Substrate substrate = substrate();
+        substrate.weightThreshold = .1;
+        double[][][] layers = new double[][][] {Substrate.grid(3, 2, -1),
+                Substrate.grid(4, 4, 0), Substrate.grid(2, 1, 1)};
+        int[] layerStart = new int[] {0, 6, 22, 24};
+        int[][] links = new int[][] {{0, 1}, {1, 1}, {1, 2}, {2, 1}};
+
+        for (int inputs = 6; inputs <= 7; inputs++) {
+            Phenotype cppn = new Phenotype(randomCppn(rand, inputs), f);
+            Phenotype network = substrate.build(cppn, f, ForkJoinPool.commonPool());
+            assertEquals(24, network.numberOfNodes());
+            assertEquals(6, network.numberOfInputs());
+            assertEquals(2, network.numberOfOutputs());
+            assertEquals(0, network.inputIndex(0));
+            assertEquals(1, network.outputIndex(23));
+
+            double[][] expected = new double[24][24];
+            int connections = 0;
+            for (int[] link : links) {
+                double[][] sources = layers[link[0]];
+                double[][] targets = layers[link[1]];
+                for (int i = 0; i < sources.length; i++) {
+                    for (int j = 0; j < targets.length; j++) {
+                        double[] input = new double[inputs];
+                        System.arraycopy(sources[i], 0, input, 0, 3);
+                        System.arraycopy(targets[j], 0, input, 3, 3);
+                        if (inputs == 7) {
+                            input[6] = 1;
+                        }
+                        double weight = substrate.weight(cppn.calculateOutput(cppn.newState(),
+                                input, f)[0]);
+                        expected[layerStart[link[0]] + i][layerStart[link[1]] + j] = weight;
+                        if (weight != 0) connections++;
+                    }
+                }
+            }
+
+            assertEquals(connections, network.numberOfConnections());
+            double[][] actual = new double[24][24];
+            for (int i = 0; i < 24; i++) {
+                int previous = -1;
+                for (int c = network.firstConnection(i); c < network.firstConnection(i + 1); c++) {
+                    assertTrue(network.connectionTarget(c) > previous);
+                    previous = network.connectionTarget(c);
+                    actual[i][previous] = network.connectionWeight(c);
+                }
+                assertEquals(expected[i][i] != 0, network.hasSelfConnection(i));
+                actual[i][i] = network.selfConnectionWeight(i);
+            }
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    /**
+     * The network doesn't depend on the size of the batches or on the pool.
+     */
+    @Test
+    public void batchTest () {
+        Random rand = new Random(0);
+        ActivationFunction f = new TanhActivationFunction();
+        Phenotype cppn = new Phenotype(randomCppn(rand, 7), f);
+        Substrate substrate = substrate();
+        Phenotype expected = substrate.build(cppn, f, new ForkJoinPool(1));
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int batchSize : new int[] {1, 7, 100}) {
+                substrate.batchSize = batchSize;
+                Phenotype actual = substrate.build(cppn, f, pool);
+                assertArrayEquals(expected.rowStart, actual.rowStart);
+                assertArrayEquals(expected.targets, actual.targets);
+                assertArrayEquals(expected.weights, actual.weights);
+                assertArrayEquals(expected.selfWeights, actual.selfWeights);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void weightTest () {
+        Substrate substrate = new Substrate(1);
+        substrate.weightThreshold = .2;
+        substrate.maxWeight = 3;
+        assertEquals(0, substrate.weight(.2));
+        assertEquals(0, substrate.weight(-.1));
+        assertEquals(0, substrate.weight(Double.NaN));
+        assertEquals(1.5, substrate.weight(.6), 1e-12);
+        assertEquals(-3, substrate.weight(-1), 1e-12);
+        assertEquals(3, substrate.weight(5), 1e-12);
+    }
+
+    @Test
+    public void gridTest () {
+        double[][] grid = Substrate.grid(3, 2, .5);
+        assertEquals(6, grid.length);
+        assertArrayEquals(new double[] {-1, -1, .5}, grid[0]);
+        assertArrayEquals(new double[] {0, -1, .5}, grid[1]);
+        assertArrayEquals(new double[] {1, 1, .5}, grid[5]);
+        assertArrayEquals(new double[] {0, 0, 0}, Substrate.grid(1, 1, 0)[0]);
+
+        Substrate substrate = substrate();
+        assertEquals(3, substrate.numberOfLayers());
+        assertEquals(24, substrate.numberOfNodes());
+        assertEquals(6 * 16 + 16 * 16 + 16 * 2 + 2 * 16, substrate.numberOfQueries());
+    }
+
+    /**
+     * A network built from a substrate is evaluated like any other phenotype.
+     */
+    @Test
+    public void evaluationTest () {
+        Random rand = new Random(0);
+        ActivationFunction f = new TanhActivationFunction();
+        Substrate substrate = new Substrate(3)
+                .addLayer(Substrate.grid(4, 1, -1))
+                .addLayer(Substrate.grid(3, 1, 1))
+                .connectLayers();
+        substrate.weightThreshold = 0;
+        Phenotype network = substrate.build(new Phenotype(randomCppn(rand, 6), f), f,
+                ForkJoinPool.commonPool());
+
+        double[] input = new double[] {rand.nextDouble(), rand.nextDouble(), rand.nextDouble(),
+                rand.nextDouble()};
+        double[] expected = new double[3];
+        for (int i = 0; i < 4; i++) {
+            for (int c = network.firstConnection(i); c < network.firstConnection(i + 1); c++) {
+                expected[network.connectionTarget(c) - 4] += f.apply(input[i]) *
+                        network.connectionWeight(c);
+            }
+        }
+        assertArrayEquals(expected, network.calculateRawOutput(network.newState(), input, f),
+                1e-12);
+    }
+
+    @Test
+    public void exceptionTest () {
+        ActivationFunction f = new TanhActivationFunction();
+        Phenotype cppn = new Phenotype(randomCppn(new Random(0), 7), f);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        assertThrows(IllegalArgumentException.class, () -> new Substrate(0));
+        Substrate substrate = new Substrate(3);
+        assertThrows(IllegalArgumentException.class, () -> substrate.addLayer());
+        assertThrows(IllegalArgumentException.class, () -> substrate.addLayer(new double[2]));
+        assertThrows(IllegalArgumentException.class, () -> Substrate.grid(0, 1, 0));
+        substrate.addLayer(Substrate.grid(2, 2, -1));
+        assertThrows(IllegalStateException.class, () -> substrate.build(cppn, f, pool));
+        substrate.addLayer(Substrate.grid(2, 2, 1));
+        assertThrows(IllegalArgumentException.class, () -> substrate.connect(0, 2));
+        substrate.connect(0, 1);
+        assertThrows(IllegalArgumentException.class, () -> substrate.connect(0, 1));
+        substrate.connectLayers();
+
+        assertThrows(IllegalArgumentException.class, () -> substrate.build(
+                new Phenotype(randomCppn(new Random(0), 5), f), f, pool));
+        substrate.weightThreshold = 1;
+        assertThrows(IllegalStateException.class, () -> substrate.build(cppn, f, pool));
+        substrate.weightThreshold = .2;
+        substrate.batchSize = 0;
+        assertThrows(IllegalStateException.class, () -> substrate.build(cppn, f, pool));
+        substrate.batchSize = 1;
+        assertEquals(4, substrate.build(cppn, f, pool).numberOfOutputs());
+    }
+}
@@ -0,0 +1,134 @@
+package com.tesladodger.neat.tools.quantize;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.TestGenomes;
+import com.tesladodger.neat.phenotype.Phenotype;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+import com.tesladodger.neat.utils.functions.SigmoidActivationFunction;
+import com.tesladodger.neat.utils.functions.StepActivationFunction;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class QuantizerTest {
+
+    private static double[][] randomInputs (Random rand, int rows, int columns) {
+        double[][] inputs = new double[rows][columns];
+        for (double[] input : inputs) {
+            for (int i = 0; i < columns; i++) {
+                input[i] = rand.nextDouble() * 2 - 1;
+            }
+        }
+        return inputs;
+    }
+
+    @Test
+    public void xorTest () {
+        Genome genome = TestGenomes.xor();
+        StepActivationFunction f = new StepActivationFunction();
+        f.offset = .5;
+        double[][] patterns = new double[][] {{0, 0}, {0, 1}, {1, 0}, {1, 1}};
+
+        QuantizedNetwork network = new Quantizer().quantize(genome, f, patterns);
+        assertEquals(8, network.getBits());
+        assertEquals(1, network.bytesPerWeight());
+        assertArrayEquals(new double[] {0}, network.calculateOutput(new double[] {0, 0}));
+        assertArrayEquals(new double[] {1}, network.calculateOutput(new double[] {0, 1}));
+        assertArrayEquals(new double[] {1}, network.calculateOutput(new double[] {1, 0}));
+        assertArrayEquals(new double[] {0}, network.calculateOutput(new double[] {1, 1}));
+    }
+
+    /**
+     * The deviation is small, and smaller with more bits.
+     */
+    @RepeatedTest(10)
+    public void deviationTest () {
+        Random rand = new Random(0);
+        Phenotype phenotype = new Phenotype(TestGenomes.randomGenome(rand, 3, 2, 20));
+        ActivationFunction f = new SigmoidActivationFunction();
+        double[][] calibration = randomInputs(rand, 200, 3);
+        double[][] test = randomInputs(rand, 200, 3);
+
+        Quantizer quantizer = new Quantizer();
+        quantizer.bits = 8;
+        QuantizationReport report8 = quantizer.compare(
+                quantizer.quantize(phenotype, f, calibration), phenotype, f, test);
+        quantizer.bits = 16;
+        quantizer.tableSize = 1 << 16;
+        QuantizationReport report16 = quantizer.compare(
+                quantizer.quantize(phenotype, f, calibration), phenotype, f, test);
+
+        assertEquals(200, report8.getSamples());
+        assertEquals(16, report16.getBits());
+        // with 8 bits, a steep sigmoid can round a sum to the other side of a step
+        assertTrue(report8.getMeanDeviation() < .05, report8.toString());
+        assertTrue(report16.isAcceptable(.05), report16.toString());
+        assertTrue(report16.getMeanDeviation() < 1e-3, report16.toString());
+        assertTrue(report16.getMeanDeviation() <= report8.getMeanDeviation(),
+                report8 + " " + report16);
+    }
+
+    /**
+     * The integer methods give the same results as the floating point ones.
+     */
+    @Test
+    public void integerTest () {
+        Random rand = new Random(0);
+        Genome genome = TestGenomes.randomGenome(rand, 3, 2, 20);
+        ActivationFunction f = new SigmoidActivationFunction();
+        double[][] inputs = randomInputs(rand, 50, 3);
+        QuantizedNetwork n0 = new Quantizer().quantize(genome, f, inputs);
+        QuantizedNetwork n1 = new Quantizer().quantize(genome, f, inputs);
+
+        long[] quantizedInput = new long[3];
+        int[] quantizedOutput = new int[2];
+        double[] output = new double[2];
+        for (double[] input : inputs) {
+            for (int i = 0; i < 3; i++) {
+                quantizedInput[i] = n1.quantizeSum(input[i]);
+            }
+            n0.calculateOutput(input, output);
+            n1.calculateOutput(quantizedInput, quantizedOutput);
+            for (int i = 0; i < 2; i++) {
+                assertEquals(output[i], quantizedOutput[i] * n1.getActivationScale());
+            }
+        }
+
+        // the raw outputs are sums of many rounded products, so compare them with 16 bits
+        Quantizer quantizer = new Quantizer();
+        quantizer.bits = 16;
+        quantizer.tableSize = 1 << 16;
+        QuantizedNetwork n2 = quantizer.quantize(genome, f, inputs);
+        assertEquals(2, n2.bytesPerWeight());
+        n2.calculateRawOutput(inputs[0], output);
+        double[] raw = new Phenotype(genome).calculateRawOutput(
+                new Phenotype(genome).newState(), inputs[0], f);
+        assertArrayEquals(raw, output, .05);
+    }
+
+    @Test
+    public void exceptionTest () {
+        Genome genome = TestGenomes.randomGenome(new Random(0), 3, 2, 5);
+        ActivationFunction f = new SigmoidActivationFunction();
+        Quantizer quantizer = new Quantizer();
+        assertThrows(IllegalArgumentException.class,
+                () -> quantizer.quantize(genome, f, new double[][] {{1, 2}}));
+        quantizer.bits = 17;
+        assertThrows(IllegalArgumentException.class,
+                () -> quantizer.quantize(genome, f, new double[0][]));
+
+        QuantizedNetwork network = new Quantizer().quantize(genome, f, new double[0][]);
+        assertThrows(IllegalArgumentException.class,
+                () -> network.calculateOutput(new double[] {1, 2}));
+        assertThrows(IllegalArgumentException.class,
+                () -> network.calculateOutput(new long[3], new int[3]));
+    }
+}
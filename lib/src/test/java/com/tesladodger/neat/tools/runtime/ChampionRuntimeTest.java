@@ -0,0 +1,200 @@
+package com.tesladodger.neat.tools.runtime;
+
+import com.tesladodger.neat.Connection;
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.Node;
+import com.tesladodger.neat.Population;
+import com.tesladodger.neat.phenotype.NetworkCompiler;
+import com.tesladodger.neat.phenotype.Phenotype;
+import com.tesladodger.neat.utils.InnovationHistory;
+import com.tesladodger.neat.utils.Parameters;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class ChampionRuntimeTest {
+
+    private static final ActivationFunction IDENTITY = x -> x;
+
+    /**
+     * Network with one input, two outputs with the same weight, and a recursive connection on
+     * the first output.
+     *
+     * @param weight of the connections;
+     *
+     * @return genome;
+     */
+    private static Genome network (double weight) {
+        return new Genome()
+                .addNodes(new Node(0, Node.Type.INPUT, 0), new Node(1, Node.Type.OUTPUT, 1),
+                        new Node(2, Node.Type.OUTPUT, 1))
+                .addConnections(
+                        new Connection(0, 0, 1, weight),
+                        new Connection(1, 0, 2, weight),
+                        new Connection(2, 1, 1, 1));
+    }
+
+    @Test
+    public void publishTest () {
+        ChampionRuntime runtime = new ChampionRuntime(IDENTITY);
+        assertNull(runtime.getChampion());
+        assertThrows(IllegalStateException.class, () -> runtime.calculateOutput(new double[1]));
+        assertThrows(IllegalStateException.class, runtime::newSession);
+
+        Genome genome = network(2);
+        ChampionRuntime.Champion champion = runtime.publish(genome, 10);
+        assertSame(champion, runtime.getChampion());
+        assertEquals(10, champion.getFitness());
+        assertEquals(1, champion.getVersion());
+
+        // the genome can change without affecting the champion
+        genome.getConnections().asArray()[0].setWeight(5);
+        assertArrayEquals(new double[] {6, 6}, runtime.calculateOutput(new double[] {3}));
+        // every call starts from a clear state
+        assertArrayEquals(new double[] {6, 6}, runtime.calculateOutput(new double[] {3}));
+        double[] output = new double[2];
+        runtime.calculateOutput(new double[] {1}, output);
+        assertArrayEquals(new double[] {2, 2}, output);
+
+        ChampionRuntime compiled = new ChampionRuntime(IDENTITY, new NetworkCompiler());
+        Phenotype phenotype = compiled.publish(network(2), 1).getPhenotype();
+        assertTrue(phenotype.isCompiled());
+        assertArrayEquals(new double[] {6, 6}, compiled.calculateOutput(new double[] {3}));
+    }
+
+    /**
+     * The champion of a population is that of its last generation, and there is none before.
+     */
+    @Test
+    public void publishPopulationTest () {
+        ChampionRuntime runtime = new ChampionRuntime(IDENTITY);
+        Random rand = new Random(0);
+        Population population = new Population(new Parameters());
+        assertThrows(IllegalStateException.class, () -> runtime.publish(population));
+        assertNull(runtime.getChampion());
+
+        List<Genome> genomes = population.spawn(network(1), 10, rand);
+        for (int i = 0; i < genomes.size(); i++) {
+            genomes.get(i).setFitness(i);
+        }
+        population.nextGeneration(genomes, new InnovationHistory(), rand);
+        ChampionRuntime.Champion champion = runtime.publish(population);
+        assertEquals(9, champion.getFitness());
+        double[] expected = genomes.get(9).calculateOutput(new double[] {1}, IDENTITY);
+        assertArrayEquals(expected, runtime.calculateOutput(new double[] {1}));
+
+        // a population that doesn't keep its champion
+        Population empty = new Population(new Parameters()) {
+            @Override
+            public Genome getLastChampion () {
+                return null;
+            }
+        };
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> runtime.publish(empty));
+        assertEquals("The population has no champion to publish.", e.getMessage());
+        assertSame(champion, runtime.getChampion());
+    }
+
+    @Test
+    public void sessionTest () {
+        ChampionRuntime runtime = new ChampionRuntime(IDENTITY);
+        runtime.publish(network(1), 0);
+        ChampionRuntime.Session session = runtime.newSession();
+
+        // the recursive connection accumulates in a session
+        assertArrayEquals(new double[] {1, 1}, session.calculateOutput(new double[] {1}));
+        assertArrayEquals(new double[] {2, 1}, session.calculateOutput(new double[] {1}));
+
+        runtime.publish(network(3), 1);
+        assertTrue(session.isStale());
+        assertArrayEquals(new double[] {3, 1}, session.calculateOutput(new double[] {1}));
+        assertTrue(session.refresh());
+        assertFalse(session.isStale());
+        assertFalse(session.refresh());
+        assertSame(runtime.getChampion(), session.getChampion());
+        assertArrayEquals(new double[] {3, 3}, session.calculateOutput(new double[] {1}));
+        session.reset();
+        assertArrayEquals(new double[] {3, 3}, session.calculateOutput(new double[] {1}));
+    }
+
+    /**
+     * Many threads offering genomes keep the fittest.
+     */
+    @Test
+    public void offerTest () throws InterruptedException {
+        ChampionRuntime runtime = new ChampionRuntime(IDENTITY);
+        assertTrue(runtime.offer(network(1), 5));
+        assertFalse(runtime.offer(network(1), 5));
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Random rand = new Random(t);
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    double fitness = rand.nextDouble() * 1000;
+                    runtime.offer(network(fitness), fitness);
+                }
+            }));
+        }
+        threads.add(new Thread(() -> runtime.offer(network(1000), 1000)));
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(1000, runtime.getChampion().getFitness());
+        assertArrayEquals(new double[] {1000, 1000}, runtime.calculateOutput(new double[] {1}));
+    }
+
+    /**
+     * Readers never see a mix of two champions: both outputs always come from the same network.
+     */
+    @Test
+    public void concurrentReadersTest () throws InterruptedException {
+        ChampionRuntime runtime = new ChampionRuntime(IDENTITY);
+        runtime.publish(network(0), 0);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            readers.add(new Thread(() -> {
+                double[] input = new double[] {1};
+                double[] output = new double[2];
+                long lastVersion = 0;
+                while (running.get()) {
+                    ChampionRuntime.Champion champion = runtime.getChampion();
+                    champion.calculateOutput(input, output);
+                    if (output[0] != output[1] || output[0] != champion.getFitness() ||
+                            champion.getVersion() < lastVersion) {
+                        failure.set(champion + " " + output[0] + " " + output[1]);
+                    }
+                    lastVersion = champion.getVersion();
+                }
+            }));
+        }
+        for (Thread reader : readers) reader.start();
+        for (int i = 1; i <= 2000; i++) {
+            runtime.publish(network(i), i);
+        }
+        running.set(false);
+        for (Thread reader : readers) reader.join();
+
+        assertNull(failure.get(), failure.get());
+        assertEquals(2001, runtime.getChampion().getVersion());
+    }
+}
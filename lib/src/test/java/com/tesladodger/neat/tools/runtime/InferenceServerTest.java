@@ -0,0 +1,220 @@
+package com.tesladodger.neat.tools.runtime;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.GenomeBuilder;
+import com.tesladodger.neat.phenotype.Phenotype;
+import com.tesladodger.neat.tools.save.SaveFile;
+import com.tesladodger.neat.utils.InnovationHistory;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+import com.tesladodger.neat.utils.functions.SigmoidActivationFunction;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class InferenceServerTest {
+
+    private static Genome genome () {
+        return new GenomeBuilder(new InnovationHistory())
+                .setNumberOfNodes(3, 2)
+                .setFullyConnected(true)
+                .build(new Random(0));
+    }
+
+    private static HttpResponse<String> post (HttpClient client, int port, String body)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(
+                URI.create("http://localhost:" + port + "/evaluate"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static double[] parse (String body) {
+        String[] elements = body.trim().split(",");
+        double[] result = new double[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            result[i] = Double.parseDouble(elements[i]);
+        }
+        return result;
+    }
+
+    /**
+     * A genome loaded from a save file is served over HTTP, with the same outputs as its
+     * phenotype.
+     */
+    @Test
+    public void httpTest () throws Exception {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        SaveFile.saveGenomes(file, "champion", genome());
+        ActivationFunction f = new SigmoidActivationFunction();
+        InferenceServer server = InferenceServer.load(
+                new ByteArrayInputStream(file.toByteArray()), f);
+        Phenotype phenotype = server.getRuntime().getChampion().getPhenotype();
+
+        int port = server.start(0);
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            HttpResponse<String> response = post(client, port, "0.5, -1,2");
+            assertEquals(200, response.statusCode());
+            assertArrayEquals(phenotype.calculateOutput(phenotype.newState(),
+                    new double[] {.5, -1, 2}, f), parse(response.body()));
+
+            assertEquals(400, post(client, port, "1,2").statusCode());
+            assertEquals(400, post(client, port, "1,x,2").statusCode());
+
+            HttpResponse<String> statistics = client.send(HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + port + "/statistics")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, statistics.statusCode());
+            assertTrue(statistics.body().contains("requests=1\n"), statistics.body());
+            // the batch of the rejected request isn't counted
+            assertTrue(statistics.body().contains("batches=1\n"), statistics.body());
+            assertTrue(statistics.body().contains("p99LatencyNanos="), statistics.body());
+        } finally {
+            server.stop();
+        }
+        assertFalse(server.isRunning());
+    }
+
+    /**
+     * Requests that arrive while a batch is evaluated are evaluated in batches, and each gets its
+     * own outputs.
+     */
+    @Test
+    public void batchingTest () throws Exception {
+        SigmoidActivationFunction sigmoid = new SigmoidActivationFunction();
+        // blocks the first evaluation, until the other requests are queued
+        AtomicBoolean blocking = new AtomicBoolean();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        ActivationFunction f = x -> {
+            if (blocking.get()) {
+                entered.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return sigmoid.apply(x);
+        };
+        ChampionRuntime runtime = new ChampionRuntime(f);
+        Phenotype phenotype = runtime.publish(genome(), 0).getPhenotype();
+        InferenceServer server = new InferenceServer(runtime, 16, 0);
+        int port = server.start(0);
+
+        ExecutorService clients = Executors.newFixedThreadPool(64);
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            List<Future<double[]>> responses = new ArrayList<>();
+            List<double[]> inputs = new ArrayList<>();
+            Random rand = new Random(0);
+            blocking.set(true);
+            for (int i = 0; i < 64; i++) {
+                double[] input = new double[] {rand.nextDouble(), rand.nextDouble(), i};
+                inputs.add(input);
+                String body = input[0] + "," + input[1] + "," + input[2];
+                responses.add(clients.submit(() -> parse(post(client, port, body).body())));
+                if (i == 0) {
+                    assertTrue(entered.await(10, TimeUnit.SECONDS));
+                }
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (server.queued() < 63 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(63, server.queued());
+            blocking.set(false);
+            gate.countDown();
+
+            for (int i = 0; i < 64; i++) {
+                assertArrayEquals(phenotype.calculateOutput(phenotype.newState(),
+                        inputs.get(i), f), responses.get(i).get());
+            }
+
+            ServerStatistics statistics = server.getStatistics();
+            assertEquals(64, statistics.getRequests());
+            // the first request, then the others in full batches
+            assertEquals(5, statistics.getBatches(), statistics.toString());
+            assertTrue(statistics.getMeanBatchSize() > 1, statistics.toString());
+            assertTrue(statistics.getP50Latency() <= statistics.getP99Latency());
+            assertTrue(statistics.getThroughput() > 0);
+
+            // in-process requests share the same batches
+            assertArrayEquals(phenotype.calculateOutput(phenotype.newState(),
+                    new double[] {1, 2, 3}, f), server.calculateOutput(new double[] {1, 2, 3}));
+            assertThrows(IllegalArgumentException.class,
+                    () -> server.calculateOutput(new double[] {1}));
+            server.resetStatistics();
+            assertEquals(0, server.getStatistics().getRequests());
+        } finally {
+            clients.shutdown();
+            server.stop();
+        }
+        assertThrows(IllegalStateException.class,
+                () -> server.calculateOutput(new double[] {1, 2, 3}));
+    }
+
+    /**
+     * An activation function that throws fails its batch, and the server keeps running.
+     */
+    @Test
+    public void failingFunctionTest () throws Exception {
+        ActivationFunction f = x -> {
+            if (Math.abs(x) > 100) {
+                throw new IllegalArgumentException("Out of range.");
+            }
+            return x;
+        };
+        ChampionRuntime runtime = new ChampionRuntime(f);
+        Phenotype phenotype = runtime.publish(genome(), 0).getPhenotype();
+        InferenceServer server = new InferenceServer(runtime, 16, 0);
+        int port = server.start(0);
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            assertEquals(503, post(client, port, "1000,0,0").statusCode());
+            assertThrows(IllegalStateException.class,
+                    () -> server.calculateOutput(new double[] {0, 1000, 0}));
+            assertTrue(server.isRunning());
+
+            HttpResponse<String> response = post(client, port, "1,2,3");
+            assertEquals(200, response.statusCode());
+            assertArrayEquals(phenotype.calculateOutput(phenotype.newState(),
+                    new double[] {1, 2, 3}, f), parse(response.body()));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void exceptionTest () {
+        ChampionRuntime runtime = new ChampionRuntime(x -> x);
+        assertThrows(IllegalArgumentException.class, () -> new InferenceServer(runtime, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new InferenceServer(runtime, 1, -1));
+        assertThrows(IllegalArgumentException.class, () -> InferenceServer.load(
+                new ByteArrayInputStream(new byte[0]), x -> x));
+    }
+}
@@ -0,0 +1,89 @@
+package com.tesladodger.neat.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class GeneDictionaryTest {
+
+    @Test
+    public void registerTest () {
+        GeneDictionary dictionary = new GeneDictionary();
+        assertEquals(0, dictionary.size());
+        assertFalse(dictionary.contains(0));
+        assertFalse(dictionary.contains(-1));
+        assertThrows(IllegalArgumentException.class, () -> dictionary.getInNodeId(0));
+
+        dictionary.register(3, 1, 4);
+        assertEquals(4, dictionary.size());
+        assertTrue(dictionary.contains(3));
+        assertFalse(dictionary.contains(2));
+        assertEquals(1, dictionary.getInNodeId(3));
+        assertEquals(4, dictionary.getOutNodeId(3));
+        assertThrows(IllegalArgumentException.class, () -> dictionary.getOutNodeId(2));
+
+        // again with the same nodes
+        dictionary.register(3, 1, 4);
+        assertThrows(IllegalArgumentException.class, () -> dictionary.register(3, 4, 1));
+        assertThrows(IllegalArgumentException.class, () -> dictionary.register(-1, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> dictionary.register(5, -1, 1));
+        assertThrows(IllegalArgumentException.class, () -> dictionary.register(5, 1, -1));
+        assertEquals(4, dictionary.size());
+
+        // largest ids
+        dictionary.register(0, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        assertEquals(Integer.MAX_VALUE, dictionary.getInNodeId(0));
+        assertEquals(Integer.MAX_VALUE, dictionary.getOutNodeId(0));
+    }
+
+    @Test
+    public void growTest () {
+        GeneDictionary dictionary = new GeneDictionary();
+        for (int i = 1000; i >= 0; i -= 2) {
+            dictionary.register(i, i + 1, i + 2);
+        }
+        assertEquals(1001, dictionary.size());
+        for (int i = 0; i <= 1000; i++) {
+            assertEquals(i % 2 == 0, dictionary.contains(i));
+            if (i % 2 == 0) {
+                assertEquals(i + 1, dictionary.getInNodeId(i));
+                assertEquals(i + 2, dictionary.getOutNodeId(i));
+            }
+        }
+        assertFalse(dictionary.contains(1001));
+        dictionary.register(5000, 0, 0);
+        assertEquals(5001, dictionary.size());
+    }
+
+    /**
+     * The history records every innovation number it assigns.
+     */
+    @Test
+    public void historyTest () {
+        InnovationHistory history = new InnovationHistory();
+        GeneDictionary dictionary = history.getGeneDictionary();
+        assertEquals(0, history.getNewConnectionMutationInnovationNumber(2, 5));
+        assertEquals(1, history.getNewConnectionMutationInnovationNumber(5, 2));
+        assertEquals(0, history.getNewConnectionMutationInnovationNumber(2, 5));
+        assertEquals(2, dictionary.size());
+        assertEquals(2, dictionary.getInNodeId(0));
+        assertEquals(5, dictionary.getOutNodeId(0));
+        assertEquals(5, dictionary.getInNodeId(1));
+        assertEquals(2, dictionary.getOutNodeId(1));
+
+        // a number given twice after the counter is set back keeps its first nodes
+        history.setInitialHighestInnovationNumber(0);
+        assertEquals(1, history.getNewConnectionMutationInnovationNumber(7, 8));
+        assertEquals(5, dictionary.getInNodeId(1));
+
+        history.reset();
+        assertEquals(0, dictionary.size());
+        assertFalse(dictionary.contains(0));
+        assertEquals(0, history.getNewConnectionMutationInnovationNumber(3, 3));
+        assertEquals(3, dictionary.getInNodeId(0));
+    }
+}
@@ -0,0 +1,86 @@
+package com.tesladodger.neat.utils.functions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Comparing the time per call of the exact activation functions and their table and rational
+ * approximations, on values distributed like the sums of inputs of the nodes.
+ *
+ * <p>Run with the main method, from the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ActivationFunctionBenchmark {
+
+    private static final int VALUES = 1024;
+
+    @Param({"sigmoid", "tanh", "softplus"})
+    public String function;
+
+    @Param({"exact", "table", "rational"})
+    public String version;
+
+    private ActivationFunction f;
+    private final double[] values = new double[VALUES];
+
+    @Setup
+    public void setup () {
+        switch (function + " " + version) {
+            case "sigmoid exact": f = new SigmoidActivationFunction(); break;
+            case "sigmoid table": f = new TableSigmoidActivationFunction(); break;
+            case "sigmoid rational": f = new RationalSigmoidActivationFunction(); break;
+            case "tanh exact": f = new TanhActivationFunction(); break;
+            case "tanh table": f = new TableTanhActivationFunction(); break;
+            case "tanh rational": f = new RationalTanhActivationFunction(); break;
+            case "softplus exact": f = new SoftplusActivationFunction(); break;
+            case "softplus table": f = new TableSoftplusActivationFunction(); break;
+            case "softplus rational": f = new RationalSoftplusActivationFunction(); break;
+            default: throw new IllegalArgumentException(function + " " + version);
+        }
+        Random rand = new Random(0);
+        for (int i = 0; i < VALUES; i++) {
+            values[i] = rand.nextGaussian() * 2;
+        }
+    }
+
+    /**
+     * @return sum of the function over the values, so that the calls aren't optimized away;
+     */
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public double apply () {
+        double sum = 0;
+        for (double value : values) {
+            sum += f.apply(value);
+        }
+        return sum;
+    }
+
+    public static void main (String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ActivationFunctionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
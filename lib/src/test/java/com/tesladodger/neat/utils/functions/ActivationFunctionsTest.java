@@ -8,8 +8,10 @@ import org.junit.jupiter.api.TestFactory;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 
@@ -79,6 +81,74 @@ public class ActivationFunctionsTest {
         return generateStream(inputs, outputs, f, 0.00001);
     }
 
+    /**
+     * The single precision versions are close to the double precision functions, and read the
+     * current values of their parameters.
+     */
+    @TestFactory
+    public Stream<DynamicTest> floatTest () {
+        SigmoidActivationFunction sigmoid = new SigmoidActivationFunction();
+        SoftplusActivationFunction softplus = new SoftplusActivationFunction();
+        StepActivationFunction step = new StepActivationFunction();
+        step.offset = .5;
+        List<ActivationFunction> functions = Arrays.asList(sigmoid, softplus, step,
+                new RectifierActivationFunction(), Math::tanh);
+        return functions.stream().map(f -> DynamicTest.dynamicTest(
+                "Float version of " + f.getClass().getSimpleName(),
+                () -> {
+                    FloatActivationFunction floatF = f.toFloat();
+                    for (float x = -8f; x <= 8f; x += .125f) {
+                        double expected = f.apply(x);
+                        assertEquals(expected, floatF.apply(x),
+                                Math.max(1e-6, Math.abs(expected) * 1e-6));
+                    }
+                    sigmoid.logisticGrowthRate = 1;
+                    softplus.sharpness = 2;
+                    step.offset = -.5;
+                    assertEquals(f.apply(.25), floatF.apply(.25f), 1e-6);
+                    sigmoid.logisticGrowthRate = 4.9;
+                    softplus.sharpness = 1;
+                    step.offset = .5;
+                }
+        ));
+    }
+
+    /**
+     * The bulk versions give exactly the results of the scalar ones, only in the given range.
+     */
+    @TestFactory
+    public Stream<DynamicTest> applyInPlaceTest () {
+        SigmoidActivationFunction sigmoid = new SigmoidActivationFunction();
+        sigmoid.offset = .1;
+        SoftplusActivationFunction softplus = new SoftplusActivationFunction();
+        softplus.sharpness = 3;
+        StepActivationFunction step = new StepActivationFunction();
+        step.lowValue = -1;
+        List<ActivationFunction> functions = Arrays.asList(sigmoid, softplus, step,
+                new RectifierActivationFunction(), new TanhActivationFunction(),
+                new TableSigmoidActivationFunction(), new RationalSigmoidActivationFunction(),
+                new TableSoftplusActivationFunction(), new RationalSoftplusActivationFunction(),
+                Math::sin);
+        return functions.stream().map(f -> DynamicTest.dynamicTest(
+                "Bulk version of " + f.getClass().getSimpleName(),
+                () -> {
+                    Random rand = new Random(0);
+                    for (int to = 0; to < 12; to++) {
+                        double[] values = new double[14];
+                        for (int i = 0; i < values.length; i++) {
+                            values[i] = rand.nextGaussian() * 3;
+                        }
+                        double[] expected = values.clone();
+                        for (int i = 2; i < to; i++) {
+                            expected[i] = f.apply(expected[i]);
+                        }
+                        f.applyInPlace(values, 2, to);
+                        assertArrayEquals(expected, values);
+                    }
+                }
+        ));
+    }
+
     // test method reference
     static double passThrough (double value) {
         return value;
@@ -0,0 +1,168 @@
+package com.tesladodger.neat.utils.functions;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class ApproximateActivationFunctionsTest {
+
+    private static double error (ActivationFunction exact, ActivationFunction approximate,
+                                 double x) {
+        double expected = exact.apply(x);
+        // the exact softplus overflows long before its approximations
+        return Double.isInfinite(expected) ? 0 : Math.abs(expected - approximate.apply(x));
+    }
+
+    /**
+     * Largest error of an approximation over a dense grid and random values.
+     */
+    private static double maxError (ActivationFunction exact, ActivationFunction approximate) {
+        double max = 0;
+        for (int i = -300_000; i <= 300_000; i++) {
+            max = Math.max(max, error(exact, approximate, i * 1e-4));
+        }
+        Random rand = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            max = Math.max(max, error(exact, approximate, rand.nextGaussian() * 100));
+        }
+        return max;
+    }
+
+    private static DynamicTest errorTest (String name, ActivationFunction exact,
+                                          ActivationFunction approximate, double bound) {
+        return DynamicTest.dynamicTest(name, () -> {
+            double error = maxError(exact, approximate);
+            assertTrue(error <= bound, name + " has error " + error);
+        });
+    }
+
+    private static SigmoidActivationFunction sigmoid (SigmoidActivationFunction f, double k,
+                                                      double offset) {
+        f.logisticGrowthRate = k;
+        f.offset = offset;
+        return f;
+    }
+
+    private static SoftplusActivationFunction softplus (SoftplusActivationFunction f, double k) {
+        f.sharpness = k;
+        return f;
+    }
+
+    /**
+     * The approximations are within their documented maximum error, for a few parameters.
+     */
+    @TestFactory
+    public Stream<DynamicTest> errorTest () {
+        return Stream.of(
+                errorTest("Rational tanh", new TanhActivationFunction(),
+                        new RationalTanhActivationFunction(), 1e-5),
+                errorTest("Table tanh", new TanhActivationFunction(),
+                        new TableTanhActivationFunction(), 2e-6),
+                errorTest("Rational sigmoid", new SigmoidActivationFunction(),
+                        new RationalSigmoidActivationFunction(), 5e-6),
+                errorTest("Rational sigmoid k=1 x0=.3",
+                        sigmoid(new SigmoidActivationFunction(), 1, .3),
+                        sigmoid(new RationalSigmoidActivationFunction(), 1, .3), 5e-6),
+                errorTest("Table sigmoid", new SigmoidActivationFunction(),
+                        new TableSigmoidActivationFunction(), 1e-6),
+                errorTest("Table sigmoid k=1 x0=.3",
+                        sigmoid(new SigmoidActivationFunction(), 1, .3),
+                        sigmoid(new TableSigmoidActivationFunction(), 1, .3), 1e-6),
+                errorTest("Rational softplus", new SoftplusActivationFunction(),
+                        new RationalSoftplusActivationFunction(), 2e-7),
+                errorTest("Rational softplus k=4",
+                        softplus(new SoftplusActivationFunction(), 4),
+                        softplus(new RationalSoftplusActivationFunction(), 4), 2e-7 / 4),
+                errorTest("Table softplus", new SoftplusActivationFunction(),
+                        new TableSoftplusActivationFunction(), 1e-6),
+                errorTest("Table softplus k=4",
+                        softplus(new SoftplusActivationFunction(), 4),
+                        softplus(new TableSoftplusActivationFunction(), 4), 1e-6 / 4));
+    }
+
+    /**
+     * The approximations keep the values of the exact functions at their center and limits.
+     */
+    @Test
+    public void specialValuesTest () {
+        ActivationFunction[] functions = {new RationalTanhActivationFunction(),
+                new TableTanhActivationFunction(), new RationalSigmoidActivationFunction(),
+                new TableSigmoidActivationFunction(), new RationalSoftplusActivationFunction(),
+                new TableSoftplusActivationFunction()};
+        for (ActivationFunction f : functions) {
+            assertTrue(Double.isNaN(f.apply(Double.NaN)), f.getClass().getSimpleName());
+            assertEquals(f instanceof TanhActivationFunction ? -1 : 0,
+                    f.apply(Double.NEGATIVE_INFINITY), 1e-6, f.getClass().getSimpleName());
+            assertEquals(f instanceof SoftplusActivationFunction ? Double.POSITIVE_INFINITY : 1,
+                    f.apply(Double.POSITIVE_INFINITY), 1e-6, f.getClass().getSimpleName());
+        }
+        assertEquals(0, new RationalTanhActivationFunction().apply(0));
+        assertEquals(0, new TableTanhActivationFunction().apply(0), 1e-15);
+        assertEquals(.5, new RationalSigmoidActivationFunction().apply(0));
+        assertEquals(.5, new TableSigmoidActivationFunction().apply(0), 1e-15);
+    }
+
+    /**
+     * The single precision versions are the approximations rounded to float.
+     */
+    @Test
+    public void floatTest () {
+        ActivationFunction[] functions = {new RationalTanhActivationFunction(),
+                new TableTanhActivationFunction(), new RationalSigmoidActivationFunction(),
+                new TableSigmoidActivationFunction(), new RationalSoftplusActivationFunction(),
+                new TableSoftplusActivationFunction()};
+        for (ActivationFunction f : functions) {
+            FloatActivationFunction floatF = f.toFloat();
+            for (float x = -8f; x <= 8f; x += .125f) {
+                assertEquals((float) f.apply(x), floatF.apply(x));
+            }
+        }
+    }
+
+    private static DynamicTest derivativeTest (String name, ActivationFunction exact,
+                                               ActivationFunction approximate, double bound) {
+        return DynamicTest.dynamicTest(name, () -> {
+            Random rand = new Random(7);
+            // small enough that the difference seldom straddles a sample of a table
+            double h = 1e-8;
+            for (int i = 0; i < 10_000; i++) {
+                double x = rand.nextGaussian() * 10;
+                double slope = approximate.derivative(x);
+                // the slope of the approximation itself, then how far it is from the exact one
+                assertEquals((approximate.apply(x + h) - approximate.apply(x - h)) / (2 * h),
+                        slope, 1e-6, name + " at " + x);
+                assertEquals(exact.derivative(x), slope, bound, name + " at " + x);
+            }
+        });
+    }
+
+    /**
+     * The derivatives of the approximations are their own slopes, within a bound of the exact
+     * derivatives.
+     */
+    @TestFactory
+    public Stream<DynamicTest> derivativeTest () {
+        return Stream.of(
+                derivativeTest("Rational tanh", new TanhActivationFunction(),
+                        new RationalTanhActivationFunction(), 1e-4),
+                derivativeTest("Table tanh", new TanhActivationFunction(),
+                        new TableTanhActivationFunction(), 2e-3),
+                derivativeTest("Rational sigmoid k=1 x0=.3",
+                        sigmoid(new SigmoidActivationFunction(), 1, .3),
+                        sigmoid(new RationalSigmoidActivationFunction(), 1, .3), 1e-4),
+                derivativeTest("Table sigmoid", new SigmoidActivationFunction(),
+                        new TableSigmoidActivationFunction(), 5e-4 * 4.9),
+                derivativeTest("Rational softplus k=4",
+                        softplus(new SoftplusActivationFunction(), 4),
+                        softplus(new RationalSoftplusActivationFunction(), 4), 1e-5),
+                derivativeTest("Table softplus", new SoftplusActivationFunction(),
+                        new TableSoftplusActivationFunction(), 5e-4));
+    }
+}
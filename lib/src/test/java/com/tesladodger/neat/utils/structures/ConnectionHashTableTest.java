@@ -4,8 +4,12 @@ import com.tesladodger.neat.Connection;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 
 import static com.tesladodger.neat.utils.structures.ConnectionHashTable.ConnectionBucket;
 
@@ -161,4 +165,71 @@ public class ConnectionHashTableTest {
         assertSame(c6, cons[5]);
         assertSame(c7, cons[6]);
     }
+
+    /**
+     * Connections added in any order are kept in order of innovation number, the ones with the
+     * same innovation number in the order they were added.
+     */
+    @Test
+    public void testSortedArray () {
+        Random rand = new Random(0);
+        List<Connection> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            expected.add(new Connection(rand.nextInt(300), rand.nextInt(50), rand.nextInt(50)));
+        }
+        ConnectionHashTable table = new ConnectionHashTable();
+        List<Connection> shuffled = new ArrayList<>(expected);
+        Collections.shuffle(shuffled, rand);
+        for (Connection con : shuffled) {
+            table.addConnection(con);
+        }
+        // stable, so equal innovation numbers keep the order they were added in
+        shuffled.sort((a, b) -> a.getInnovationNumber() - b.getInnovationNumber());
+
+        List<Connection> ordered = table.asOrderedList();
+        assertEquals(1000, ordered.size());
+        for (int i = 0; i < 1000; i++) {
+            assertSame(shuffled.get(i), ordered.get(i));
+            assertSame(shuffled.get(i), table.connectionAt(i));
+            assertSame(shuffled.get(i), table.asArray()[i]);
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> table.connectionAt(1000));
+        assertThrows(IndexOutOfBoundsException.class, () -> table.connectionAt(-1));
+
+        // the view follows the table
+        Iterator<Connection> it = ordered.iterator();
+        it.next();
+        Connection last = new Connection(1000, 1, 2);
+        table.addConnection(last);
+        assertSame(last, ordered.get(1000));
+        assertThrows(ConcurrentModificationException.class, it::next);
+        assertThrows(UnsupportedOperationException.class, () -> ordered.add(last));
+    }
+
+    /**
+     * The connections from a node are returned in the reverse of the order of the ordered array,
+     * whatever order they were added in.
+     */
+    @Test
+    public void testBucketOrder () {
+        Random rand = new Random(0);
+        List<Connection> shuffled = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            shuffled.add(new Connection(rand.nextInt(300), rand.nextInt(20), rand.nextInt(50)));
+        }
+        ConnectionHashTable table = new ConnectionHashTable();
+        for (Connection con : shuffled) {
+            table.addConnection(con);
+        }
+
+        for (int node = 0; node < 20; node++) {
+            Iterator<Connection> it = table.getConnectionsFrom(node).iterator();
+            for (int i = table.size() - 1; i >= 0; i--) {
+                if (table.connectionAt(i).getInNodeId() == node) {
+                    assertSame(table.connectionAt(i), it.next());
+                }
+            }
+            assertFalse(it.hasNext());
+        }
+    }
 }
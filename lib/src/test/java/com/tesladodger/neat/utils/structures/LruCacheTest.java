@@ -0,0 +1,64 @@
+package com.tesladodger.neat.utils.structures;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+public class LruCacheTest {
+
+    @Test
+    public void evictionTest () {
+        LruCache<Integer, String> cache = new LruCache<>(2);
+        cache.put(1, "a");
+        cache.put(2, "b");
+        // 1 becomes the most recently used, so 2 is evicted
+        assertEquals("a", cache.get(1));
+        cache.put(3, "c");
+        assertEquals(2, cache.size());
+        assertNull(cache.get(2));
+        assertEquals("a", cache.get(1));
+        assertEquals("c", cache.get(3));
+        assertEquals(1, cache.evictions());
+
+        // replacing a value doesn't evict anything
+        cache.put(3, "d");
+        assertEquals("d", cache.get(3));
+        assertEquals(1, cache.evictions());
+    }
+
+    @Test
+    public void statisticsTest () {
+        LruCache<Integer, String> cache = new LruCache<>(10);
+        assertEquals(0, cache.hitRate());
+        cache.put(1, "a");
+        cache.get(1);
+        cache.get(1);
+        cache.get(1);
+        cache.get(2);
+        assertEquals(3, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(.75, cache.hitRate());
+        assertEquals("LruCache{size=1, capacity=10, hits=3, misses=1, evictions=0}",
+                cache.toString());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(3, cache.hits());
+        cache.resetStatistics();
+        assertEquals(0, cache.hits());
+        assertEquals(0, cache.misses());
+    }
+
+    @Test
+    public void emptyTest () {
+        LruCache<Integer, String> cache = new LruCache<>(0);
+        cache.put(1, "a");
+        assertNull(cache.get(1));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.evictions());
+        assertThrows(IllegalArgumentException.class, () -> new LruCache<>(-1));
+    }
+}
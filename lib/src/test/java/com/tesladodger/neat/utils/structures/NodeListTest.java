@@ -4,11 +4,17 @@ import com.tesladodger.neat.Node;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -147,4 +153,48 @@ public class NodeListTest {
         assertSame(n1, outputs.get(0));
         assertSame(n3, outputs.get(1));
     }
+
+    /**
+     * Many nodes with sparse ids, added in random order, are iterated in the order of
+     * {@link Node#compareTo(Node)}, and found by id.
+     */
+    @Test
+    public void largeTest () {
+        Random rand = new Random(0);
+        List<Node> expected = new ArrayList<>();
+        NodeList list = new NodeList();
+        for (int i = 0; i < 600; i++) {
+            Node node = new Node(i * 7 + rand.nextInt(7), Node.Type.HIDDEN, rand.nextInt(20));
+            expected.add(node);
+        }
+        Collections.shuffle(expected, rand);
+        for (Node node : expected) {
+            list.add(node);
+        }
+        expected.sort(Collections.reverseOrder());
+        assertEquals(600, list.size());
+        assertArrayEquals(expected.toArray(new Node[0]), list.asArray());
+        for (Node node : expected) {
+            assertSame(node, list.get(node.getId()));
+            assertTrue(list.containsId(node.getId()));
+        }
+        assertNull(list.get(-1));
+        assertNull(list.get(600 * 7));
+
+        // change the layers, as when fixing them after mutation
+        for (Node node : expected) {
+            node.setLayer(rand.nextInt(20));
+        }
+        list.sort();
+        expected.sort(Collections.reverseOrder());
+        List<Node> actual = new ArrayList<>();
+        list.forEach(actual::add);
+        assertEquals(expected, actual);
+
+        list.clear();
+        assertNull(list.get(expected.get(0).getId()));
+        assertFalse(list.iterator().hasNext());
+        assertThrows(IllegalArgumentException.class, () -> list.add(new Node(-1,
+                Node.Type.HIDDEN)));
+    }
 }
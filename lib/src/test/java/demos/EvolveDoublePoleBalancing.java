@@ -5,6 +5,8 @@ import com.tesladodger.neat.Population;
 import com.tesladodger.neat.utils.InnovationHistory;
 import com.tesladodger.neat.utils.Parameters;
 import com.tesladodger.neat.GenomeBuilder;
+import com.tesladodger.neat.phenotype.Evaluator;
+import com.tesladodger.neat.phenotype.Phenotype;
 import com.tesladodger.neat.utils.functions.ActivationFunction;
 import com.tesladodger.neat.utils.functions.SigmoidActivationFunction;
 
@@ -68,7 +70,11 @@ public class EvolveDoublePoleBalancing {
 
         private final Genome genome;
 
-        private final ActivationFunction function;
+        /** Evaluator of the genome, which doesn't allocate memory on each update. */
+        private final Evaluator evaluator;
+
+        /** Inputs of the network, overwritten on each update. */
+        private final double[] cartState = new double[7];
 
         private boolean isAlive;
         private int timeAlive;
@@ -107,7 +113,7 @@ public class EvolveDoublePoleBalancing {
 
         CartDPV (Genome genome, ActivationFunction function) {
             this.genome = genome;
-            this.function = function;
+            evaluator = new Evaluator(new Phenotype(genome), function);
             longPoleAngle = longPoleInitialAngle;
             isAlive = true;
         }
@@ -134,17 +140,17 @@ public class EvolveDoublePoleBalancing {
 
             timeAlive++;
 
-            double[] cartState = new double[] {
-                    1, // bias
-                    mapToUnit(cartPosition, - TRACK_LENGTH / 2, TRACK_LENGTH),
-                    mapToUnit(cartVelocity, -maximumVelocity, maximumVelocity),
-                    mapToUnit(shortPoleAngle, - MAXIMUM_ALLOWED_INCLINATION, MAXIMUM_ALLOWED_INCLINATION),
-                    mapToUnit(longPoleAngle, - MAXIMUM_ALLOWED_INCLINATION, MAXIMUM_ALLOWED_INCLINATION),
-                    shortPoleAngularVelocity,
-                    longPoleAngularAcceleration
-            };
-
-            double output = genome.calculateOutput(cartState, function)[0];
+            cartState[0] = 1; // bias
+            cartState[1] = mapToUnit(cartPosition, - TRACK_LENGTH / 2, TRACK_LENGTH);
+            cartState[2] = mapToUnit(cartVelocity, -maximumVelocity, maximumVelocity);
+            cartState[3] = mapToUnit(shortPoleAngle, - MAXIMUM_ALLOWED_INCLINATION,
+                    MAXIMUM_ALLOWED_INCLINATION);
+            cartState[4] = mapToUnit(longPoleAngle, - MAXIMUM_ALLOWED_INCLINATION,
+                    MAXIMUM_ALLOWED_INCLINATION);
+            cartState[5] = shortPoleAngularVelocity;
+            cartState[6] = longPoleAngularAcceleration;
+
+            double output = evaluator.calculateOutput(cartState)[0];
 
             // force to be applied given the output of the genome
             double force = (output * maximumForce * 2) - maximumForce;
@@ -131,7 +131,7 @@ public class EvolvePoleBalancingNV {
                     mapToUnit(theta, - MAXIMUM_ALLOWED_INCLINATION, MAXIMUM_ALLOWED_INCLINATION),
             };
 
-            double output = genome.calculateOutput(cartState, function)[0];
+            double output = think(cartState);
 
             for (int i = 0; i < PHYSICS_CALCULATION_RESOLUTION; i++) {
 
@@ -159,9 +159,24 @@ public class EvolvePoleBalancingNV {
             }
         }
 
+        /**
+         * Calculate the output of the genome, which controls the force.
+         *
+         * @param cartState inputs of the genome;
+         *
+         * @return output of the genome, between 0 and 1;
+         */
+        double think (double[] cartState) {
+            return genome.calculateOutput(cartState, function)[0];
+        }
+
         public boolean isAlive () {
             return isAlive;
         }
+
+        public int getTimeAlive () {
+            return timeAlive;
+        }
     }
 
     public static void main (String[] args) {
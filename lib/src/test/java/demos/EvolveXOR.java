@@ -5,6 +5,7 @@ import com.tesladodger.neat.Population;
 import com.tesladodger.neat.utils.InnovationHistory;
 import com.tesladodger.neat.utils.Parameters;
 import com.tesladodger.neat.GenomeBuilder;
+import com.tesladodger.neat.phenotype.Phenotype;
 import com.tesladodger.neat.utils.functions.ActivationFunction;
 import com.tesladodger.neat.utils.functions.SigmoidActivationFunction;
 
@@ -36,8 +37,10 @@ public class EvolveXOR {
         genomes.parallelStream().forEach(genome -> {
             int correct = 0;
             double diffSum = 0.0;
+            // all patterns in a single batch
+            double[][] outputs = new Phenotype(genome).calculateOutput(inputPatterns, f);
             for (int i = 0; i < 4; i++) {
-                double output = genome.calculateOutput(inputPatterns[i], f)[0];
+                double output = outputs[i][0];
                 diffSum += Math.abs(output - solution[i]);
                 if (Math.round(output) == solution[i]) {
                     correct++;
@@ -0,0 +1,184 @@
+package demos;
+
+import com.tesladodger.neat.Genome;
+import com.tesladodger.neat.GenomeBuilder;
+import com.tesladodger.neat.Population;
+import com.tesladodger.neat.phenotype.Evaluator;
+import com.tesladodger.neat.phenotype.FloatNetworkState;
+import com.tesladodger.neat.phenotype.FloatPhenotype;
+import com.tesladodger.neat.phenotype.Phenotype;
+import com.tesladodger.neat.utils.InnovationHistory;
+import com.tesladodger.neat.utils.Parameters;
+import com.tesladodger.neat.utils.functions.ActivationFunction;
+import com.tesladodger.neat.utils.functions.FloatActivationFunction;
+import com.tesladodger.neat.utils.functions.SigmoidActivationFunction;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Compares the single precision evaluation path with the double precision one, on the XOR and
+ * pole balancing demos.
+ *
+ * <p>For XOR, every genome of the population that contains a solution is evaluated on the four
+ * patterns by both paths. For pole balancing, the best cart of an evolved population is
+ * simulated with a float network, and on every step the output is compared with the output of
+ * the double network for the same state.
+ */
+public class FloatAccuracyComparison {
+
+    /** Maximum number of generations evolved for pole balancing. */
+    static final int POLE_GENERATIONS = 50;
+
+    /**
+     * Cart controlled by the single precision network, which also records how far its outputs
+     * are from the double precision ones.
+     */
+    static class FloatCart extends EvolvePoleBalancingNV.CartSPNV {
+
+        private final FloatPhenotype phenotype;
+        private final FloatNetworkState state;
+        private final FloatActivationFunction floatFunction;
+        private final Evaluator reference;
+        private final float[] input = new float[3];
+        private final float[] output = new float[1];
+
+        private double maxDeviation;
+        private double deviationSum;
+        private int steps;
+
+        FloatCart (Genome genome, ActivationFunction function) {
+            super(genome, function);
+            Phenotype doublePhenotype = new Phenotype(genome);
+            phenotype = new FloatPhenotype(doublePhenotype);
+            state = phenotype.newState();
+            floatFunction = function.toFloat();
+            reference = new Evaluator(doublePhenotype, function);
+        }
+
+        @Override
+        double think (double[] cartState) {
+            for (int i = 0; i < input.length; i++) {
+                input[i] = (float) cartState[i];
+            }
+            phenotype.calculateOutput(state, input, output, floatFunction);
+
+            // the reference is fed the same states, so that only the network is compared
+            double expected = reference.calculateOutput(cartState)[0];
+            double deviation = Math.abs(expected - output[0]);
+            maxDeviation = Math.max(maxDeviation, deviation);
+            deviationSum += deviation;
+            steps++;
+            return output[0];
+        }
+    }
+
+    static void compareXOR () {
+        InnovationHistory history = new InnovationHistory();
+        Genome template = new GenomeBuilder(history)
+                .setNumberOfNodes(3, 1)
+                .setFullyConnected(true)
+                .build();
+        Parameters parameters = new Parameters();
+        parameters.recursiveConnectionProbability = 0.0;
+        parameters.mutateRecentGenesBias = 0;
+        Population population = new Population(parameters);
+        LinkedList<Genome> genomes = population.spawn(template, 150);
+        ActivationFunction f = new SigmoidActivationFunction();
+        FloatActivationFunction floatF = f.toFloat();
+
+        while (!EvolveXOR.containsSolution(genomes, f)) {
+            genomes = population.nextGeneration(genomes, history);
+        }
+
+        float[][] floatPatterns = new float[4][3];
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 3; j++) {
+                floatPatterns[i][j] = (float) EvolveXOR.inputPatterns[i][j];
+            }
+        }
+
+        double maxDeviation = 0;
+        int differentAnswers = 0;
+        for (Genome genome : genomes) {
+            Phenotype phenotype = new Phenotype(genome);
+            double[][] expected = phenotype.calculateOutput(EvolveXOR.inputPatterns, f);
+            float[][] result = new FloatPhenotype(phenotype).calculateOutput(floatPatterns, floatF);
+            for (int i = 0; i < 4; i++) {
+                maxDeviation = Math.max(maxDeviation, Math.abs(expected[i][0] - result[i][0]));
+                if (Math.round(expected[i][0]) != Math.round(result[i][0])) {
+                    differentAnswers++;
+                }
+            }
+        }
+
+        System.out.println("XOR, generation " + population.getGeneration() + ", " +
+                genomes.size() + " genomes:");
+        System.out.printf("  Maximum output deviation: %.3e\n", maxDeviation);
+        System.out.println("  Rounded answers that differ: " + differentAnswers);
+        System.out.println();
+    }
+
+    static void comparePoleBalancing () {
+        InnovationHistory history = new InnovationHistory();
+        Genome template = new GenomeBuilder(history)
+                .setNumberOfNodes(3, 1)
+                .build();
+        Parameters parameters = new Parameters();
+        ActivationFunction function = new SigmoidActivationFunction();
+        Population population = new Population(parameters);
+        LinkedList<Genome> genomes = population.spawn(template, 150);
+
+        Genome best = null;
+        for (int generation = 0; generation < POLE_GENERATIONS; generation++) {
+            List<EvolvePoleBalancingNV.CartSPNV> carts = new LinkedList<>();
+            for (Genome g : genomes) {
+                carts.add(new EvolvePoleBalancingNV.CartSPNV(g, function));
+            }
+            AtomicInteger aliveCount = new AtomicInteger(-1);
+            for (int i = 0; i < EvolvePoleBalancingNV.SIMULATION_TIME; i++) {
+                if (aliveCount.get() == 0) break;
+                else aliveCount.set(0);
+                carts.parallelStream().filter(EvolvePoleBalancingNV.CartSPNV::isAlive)
+                        .forEach(cart -> {
+                            cart.update();
+                            aliveCount.getAndIncrement();
+                        });
+            }
+            EvolvePoleBalancingNV.CartSPNV bestCart = carts.get(0);
+            for (EvolvePoleBalancingNV.CartSPNV cart : carts) {
+                if (cart.getTimeAlive() > bestCart.getTimeAlive()) {
+                    bestCart = cart;
+                }
+            }
+            best = genomes.get(carts.indexOf(bestCart)).clone();
+            if (aliveCount.get() > 0) {
+                break;
+            }
+            genomes = population.nextGeneration(genomes, history);
+        }
+
+        EvolvePoleBalancingNV.CartSPNV doubleCart = new EvolvePoleBalancingNV.CartSPNV(
+                best.clone(), function);
+        FloatCart floatCart = new FloatCart(best.clone(), function);
+        for (int i = 0; i < EvolvePoleBalancingNV.SIMULATION_TIME; i++) {
+            if (doubleCart.isAlive()) doubleCart.update();
+            if (floatCart.isAlive()) floatCart.update();
+        }
+
+        System.out.println("Pole balancing, best genome of generation " +
+                population.getGeneration() + ":");
+        System.out.println("  Steps alive with double: " + doubleCart.getTimeAlive() +
+                ", with float: " + floatCart.getTimeAlive());
+        System.out.printf("  Maximum output deviation: %.3e   Average: %.3e\n",
+                floatCart.maxDeviation, floatCart.deviationSum / Math.max(1, floatCart.steps));
+        System.out.println();
+    }
+
+    public static void main (String[] args) {
+        compareXOR();
+        comparePoleBalancing();
+    }
+}